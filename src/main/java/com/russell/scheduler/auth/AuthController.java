@@ -2,13 +2,15 @@ package com.russell.scheduler.auth;
 
 import com.russell.scheduler.auth.dtos.AuthRequest;
 import com.russell.scheduler.auth.dtos.Principal;
-import com.russell.scheduler.user.dtos.UserResponse;
+import com.russell.scheduler.common.ratelimit.RateLimited;
 import com.russell.scheduler.user.UserService;
 import javax.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
@@ -24,12 +26,19 @@ public class AuthController {
         this.tokenService = tokenService;
     }
 
+    @RateLimited("auth")
     @PostMapping(consumes = "application/json", produces = "application/json")
     public Principal authenticate(@RequestBody AuthRequest req, HttpServletResponse resp) {
-        UserResponse user = userService.authenticate(req);
-        Principal payload = new Principal(user);
+        Principal payload = userService.authenticate(req);
         String token = tokenService.generateToken(payload);
         resp.setHeader("Authorization", token);
         return payload;
     }
+
+    // revokes only the token on this request; the user's other sessions stay signed in
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @PostMapping("/logout")
+    public void logout(Principal principal) {
+        tokenService.revoke(principal);
+    }
 }
@@ -0,0 +1,152 @@
+package com.russell.scheduler.auth;
+
+import com.russell.scheduler.common.exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+// bcrypt on its own small pool, so a burst of logins queues here (and is turned away once the queue is full)
+// instead of taking CPU from every other endpoint on the request threads. Registrations share the pool, as a
+// second one would take the same cores, but may only hold a few of its places at once, so a burst of sign-ups
+// can't fill the queue that sign-ins wait in
+@Component
+public class PasswordHasher implements MeterBinder {
+
+    private static final Pattern BCRYPT = Pattern.compile("^\\$2[aby]?\\$\\d\\d\\$[./0-9A-Za-z]{53}$");
+
+    private final BCryptPasswordEncoder encoder;
+    private final ThreadPoolExecutor executor;
+    private final Semaphore registrationPermits;
+    // checked when the username doesn't exist, so the response takes as long as a wrong password would
+    private final String dummyHash;
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong workNanos = new AtomicLong();
+
+    @Autowired
+    public PasswordHasher(@Value("${auth.password.bcrypt-cost:10}") int cost,
+                          @Value("${auth.password.threads:0}") int threads,
+                          @Value("${auth.password.queue-capacity:64}") int queueCapacity,
+                          @Value("${auth.password.registration-permits:4}") int registrationPermits) {
+        this.encoder = new BCryptPasswordEncoder(cost);
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), task -> {
+                    Thread thread = new Thread(task, "password-hasher-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.registrationPermits = new Semaphore(registrationPermits);
+        this.dummyHash = encoder.encode("not-a-real-password");
+    }
+
+    public String hash(String rawPassword) {
+        return submit(() -> encoder.encode(rawPassword));
+    }
+
+    public String hashNewPassword(String rawPassword) {
+        if (!registrationPermits.tryAcquire()) {
+            rejected.incrementAndGet();
+            throw new ServiceUnavailableException("Too many concurrent registrations, please retry shortly");
+        }
+        try {
+            return hash(rawPassword);
+        } finally {
+            registrationPermits.release();
+        }
+    }
+
+    // a null hash (unknown user) still costs one full comparison, and never matches
+    public boolean matches(String rawPassword, String storedHash) {
+        String raw = rawPassword == null ? "" : rawPassword;
+        if (storedHash == null) {
+            submit(() -> encoder.matches(raw, dummyHash));
+            return false;
+        }
+        if (!isHash(storedHash)) {
+            // rows written before passwords were hashed; matched in constant time, then rehashed on login
+            return MessageDigest.isEqual(raw.getBytes(StandardCharsets.UTF_8),
+                    storedHash.getBytes(StandardCharsets.UTF_8));
+        }
+        return submit(() -> encoder.matches(raw, storedHash));
+    }
+
+    // true for plaintext rows and for hashes made with a lower cost than is configured now
+    public boolean needsRehash(String storedHash) {
+        return !isHash(storedHash) || encoder.upgradeEncoding(storedHash);
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("auth.password.queue.depth", this, PasswordHasher::getQueueDepth).register(registry);
+        Gauge.builder("auth.password.active", executor, ThreadPoolExecutor::getActiveCount).register(registry);
+        FunctionCounter.builder("auth.password.rejected", rejected, AtomicLong::get).register(registry);
+        FunctionTimer.builder("auth.password.queue.wait", this, h -> h.completed.get(), h -> h.waitNanos.get(),
+                TimeUnit.NANOSECONDS).register(registry);
+        FunctionTimer.builder("auth.password.work", this, h -> h.completed.get(), h -> h.workNanos.get(),
+                TimeUnit.NANOSECONDS).register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static boolean isHash(String storedHash) {
+        return BCRYPT.matcher(storedHash).matches();
+    }
+
+    private <T> T submit(Supplier<T> work) {
+        long queuedAt = System.nanoTime();
+        Future<T> result;
+        try {
+            result = executor.submit(() -> {
+                long startedAt = System.nanoTime();
+                try {
+                    return work.get();
+                } finally {
+                    waitNanos.addAndGet(startedAt - queuedAt);
+                    workNanos.addAndGet(System.nanoTime() - startedAt);
+                    completed.incrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw new ServiceUnavailableException("Too many concurrent sign-ins, please retry shortly");
+        }
+
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Sign-in was interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.russell.scheduler.auth;
+
+// one bit per permission; a role holds every permission whose maxPriority is at or above its own priority,
+// with 1 being the most privileged role
+public enum Permission {
+    EDIT_TASKS(3),
+    ASSIGN_TASKS(2),
+    DELETE_TASKS(2),
+    MANAGE_PROJECTS(2),
+    MANAGE_RESOURCES(2),
+    MANAGE_USERS(1); // choosing another user's role, which self-registration can't
+
+    private final int maxPriority;
+    private final long bit;
+
+    Permission(int maxPriority) {
+        this.maxPriority = maxPriority;
+        this.bit = 1L << ordinal();
+    }
+
+    public long getBit() {
+        return bit;
+    }
+
+    public static long maskFor(int priority) {
+        long mask = 0;
+        for (Permission permission : values()) {
+            if (priority <= permission.maxPriority)
+                mask |= permission.bit;
+        }
+        return mask;
+    }
+
+    public static long maskOf(Permission... permissions) {
+        long mask = 0;
+        for (Permission permission : permissions)
+            mask |= permission.bit;
+        return mask;
+    }
+}
@@ -0,0 +1,50 @@
+package com.russell.scheduler.auth;
+
+import com.russell.scheduler.auth.dtos.Principal;
+import com.russell.scheduler.common.exceptions.AuthorizationException;
+import com.russell.scheduler.common.filters.AuthenticationFilter;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// enforces @RequiresPermission; each handler's annotation is compiled to a mask once, so a request pays a map
+// lookup for the handler and one for the caller's role
+public class PermissionInterceptor implements HandlerInterceptor {
+
+    private static final long UNRESTRICTED = 0;
+
+    private final PermissionTable permissionTable;
+    private final Map<Method, Long> requiredMasks = new ConcurrentHashMap<>();
+
+    public PermissionInterceptor(PermissionTable permissionTable) {
+        this.permissionTable = permissionTable;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod))
+            return true;
+        long required = requiredMasks.computeIfAbsent(((HandlerMethod) handler).getMethod(),
+                PermissionInterceptor::compile);
+        if (required == UNRESTRICTED)
+            return true;
+
+        Principal principal = (Principal) request.getAttribute(AuthenticationFilter.PRINCIPAL_ATTRIBUTE);
+        if (principal == null)
+            throw AuthenticationFilter.unauthenticated(request.getAttribute(AuthenticationFilter.FAILURE_ATTRIBUTE));
+        if (!permissionTable.allows(principal.getAuthUserRole(), required))
+            throw new AuthorizationException("Your role does not permit this action");
+        return true;
+    }
+
+    private static long compile(Method method) {
+        RequiresPermission annotation = AnnotatedElementUtils.findMergedAnnotation(method, RequiresPermission.class);
+        return annotation == null ? UNRESTRICTED : Permission.maskOf(annotation.value());
+    }
+}
@@ -0,0 +1,74 @@
+package com.russell.scheduler.auth;
+
+import com.russell.scheduler.user.UserRole;
+import com.russell.scheduler.user.UserRoleRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+// role name -> permission bitmask, compiled from the user_roles table; a check is one map lookup and a bit test.
+// A role change on this node drops the table so the next check recompiles it; other nodes only find out when
+// their copy reaches maxAgeMillis, so a change elsewhere takes up to that long to be enforced here
+@Component
+public class PermissionTable {
+
+    private final UserRoleRepository roleRepository;
+    private final long maxAgeMillis;
+    private volatile Compiled compiled;
+
+    @Autowired
+    public PermissionTable(UserRoleRepository roleRepository,
+                           @Value("${auth.permissions.max-age-ms:30000}") long maxAgeMillis) {
+        this.roleRepository = roleRepository;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        load();
+    }
+
+    public boolean allows(String roleName, long required) {
+        Compiled current = compiled;
+        if (current == null || System.currentTimeMillis() >= current.expiresAt)
+            current = load();
+        Long granted = roleName == null ? null : current.masks.get(roleName);
+        return granted != null && (granted & required) == required;
+    }
+
+    // synchronized with load(), so a compile that read the old roles can't be published after this
+    public synchronized void invalidate() {
+        compiled = null;
+    }
+
+    private synchronized Compiled load() {
+        Compiled current = compiled;
+        long now = System.currentTimeMillis();
+        if (current == null || now >= current.expiresAt) {
+            Map<String, Long> masks = new HashMap<>();
+            for (UserRole role : roleRepository.findAll()) {
+                // a role without a priority holds no permissions
+                masks.put(role.getRoleName(), role.getPriority() == null ? 0L : Permission.maskFor(role.getPriority()));
+            }
+            current = new Compiled(Collections.unmodifiableMap(masks), now + maxAgeMillis);
+            compiled = current;
+        }
+        return current;
+    }
+
+    private static class Compiled {
+        private final Map<String, Long> masks;
+        private final long expiresAt;
+
+        private Compiled(Map<String, Long> masks, long expiresAt) {
+            this.masks = masks;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
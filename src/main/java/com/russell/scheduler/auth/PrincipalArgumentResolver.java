@@ -0,0 +1,31 @@
+package com.russell.scheduler.auth;
+
+import com.russell.scheduler.auth.dtos.Principal;
+import com.russell.scheduler.common.filters.AuthenticationFilter;
+import org.springframework.core.MethodParameter;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+// hands controllers the Principal AuthenticationFilter already resolved; a handler that takes one
+// requires a valid token, so its absence is a 401
+public class PrincipalArgumentResolver implements HandlerMethodArgumentResolver {
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.getParameterType() == Principal.class;
+    }
+
+    @Override
+    public Principal resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                     NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        Object principal = webRequest.getAttribute(AuthenticationFilter.PRINCIPAL_ATTRIBUTE,
+                RequestAttributes.SCOPE_REQUEST);
+        if (principal == null)
+            throw AuthenticationFilter.unauthenticated(webRequest.getAttribute(AuthenticationFilter.FAILURE_ATTRIBUTE,
+                    RequestAttributes.SCOPE_REQUEST));
+        return (Principal) principal;
+    }
+}
@@ -0,0 +1,13 @@
+package com.russell.scheduler.auth;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// the caller's role must hold every listed permission; checked by PermissionInterceptor before the handler runs
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RequiresPermission {
+    Permission[] value();
+}
@@ -0,0 +1,31 @@
+package com.russell.scheduler.auth;
+
+import com.russell.scheduler.common.AfterCommit;
+import com.russell.scheduler.user.UserRole;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+// JPA listener on UserRole (Hibernate gets it from Spring, so it can be injected); bulk JPQL updates
+// bypass entity callbacks and need PermissionTable.invalidate() called directly. Only this node's table is
+// dropped: the others pick the change up within auth.permissions.max-age-ms
+@Component
+public class RoleChangeListener {
+
+    private final PermissionTable permissionTable;
+
+    @Autowired
+    public RoleChangeListener(PermissionTable permissionTable) {
+        this.permissionTable = permissionTable;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void roleChanged(UserRole role) {
+        AfterCommit.run(permissionTable::invalidate);
+    }
+}
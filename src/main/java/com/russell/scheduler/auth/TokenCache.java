@@ -0,0 +1,160 @@
+package com.russell.scheduler.auth;
+
+import com.russell.scheduler.auth.dtos.Principal;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// principals of tokens that already passed signature verification, keyed by a hash of the token
+// so raw bearer tokens are never held in memory; each entry lives until its token's exp. Lookups never lock:
+// recency is a timestamp on the entry, and the least recently used entries are swept out once the cache is full
+@Component
+public class TokenCache implements MeterBinder {
+
+    private static final long TOUCH_INTERVAL_NANOS = 1_000_000;
+
+    private final int maxSize;
+    private final Map<String, CachedToken> tokens = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    // adders rather than atomics, as every lookup counts one or the other
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final ThreadLocal<MessageDigest> sha256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    @Autowired
+    public TokenCache(@Value("${auth.token-cache.max-size:10000}") int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    // null when the token was never verified, was evicted, or has expired since
+    public Principal get(String token) {
+        String key = hash(token);
+        CachedToken cached = tokens.get(key);
+        long now = System.currentTimeMillis();
+        if (cached == null || cached.expiresAt <= now) {
+            if (cached != null)
+                tokens.remove(key);
+            misses.increment();
+            return null;
+        }
+
+        // written at most once a millisecond, so threads sharing one token aren't all writing its entry
+        long used = System.nanoTime();
+        if (used - cached.lastUsed > TOUCH_INTERVAL_NANOS)
+            cached.lastUsed = used;
+        hits.increment();
+        // Principal is mutable, so callers get their own copy
+        return new Principal(cached.userId, cached.role, cached.tokenId, new Date(cached.expiresAt));
+    }
+
+    public void put(String token, Principal principal, Date expiration) {
+        // a token without exp would never leave the cache on its own
+        if (expiration == null || maxSize <= 0)
+            return;
+        tokens.put(hash(token), new CachedToken(principal.getAuthUserId(), principal.getAuthUserRole(),
+                principal.getTokenId(), expiration.getTime(), System.nanoTime()));
+        if (tokens.size() > maxSize)
+            sweep(System.currentTimeMillis());
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    public int size() {
+        return tokens.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("auth.token.cache.hits", hits, LongAdder::sum).register(registry);
+        FunctionCounter.builder("auth.token.cache.misses", misses, LongAdder::sum).register(registry);
+        Gauge.builder("auth.token.cache.hit.ratio", this, TokenCache::getHitRatio).register(registry);
+        Gauge.builder("auth.token.cache.size", this, TokenCache::size).register(registry);
+    }
+
+    // expired tokens go first; if that isn't enough, the least recently used tenth is dropped, so a full cache
+    // is swept once per maxSize / 10 new tokens rather than on every one. Tokens added while a sweep runs may
+    // take the cache briefly past maxSize, until the next
+    private void sweep(long now) {
+        if (!sweeping.compareAndSet(false, true))
+            return;
+        try {
+            tokens.values().removeIf(cached -> cached.expiresAt <= now);
+            if (tokens.size() <= maxSize)
+                return;
+
+            long[] lastUsed = tokens.values().stream().mapToLong(cached -> cached.lastUsed).toArray();
+            Arrays.sort(lastUsed);
+            int excess = lastUsed.length - (maxSize - maxSize / 10);
+            if (excess <= 0)
+                return;
+            long cutoff = lastUsed[excess - 1];
+            // should tokens share a timestamp, only as many at the cutoff as make up the excess are dropped
+            int atCutoff = 0;
+            for (int i = excess - 1; i >= 0 && lastUsed[i] == cutoff; i--)
+                atCutoff++;
+            Iterator<CachedToken> it = tokens.values().iterator();
+            while (it.hasNext()) {
+                long used = it.next().lastUsed;
+                if (used < cutoff || (used == cutoff && atCutoff-- > 0))
+                    it.remove();
+            }
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    private String hash(String token) {
+        byte[] digest = sha256.get().digest(token.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getEncoder().encodeToString(digest);
+    }
+
+    private static class CachedToken {
+        private final String userId;
+        private final String role;
+        private final String tokenId;
+        private final long expiresAt;
+        private volatile long lastUsed;
+
+        private CachedToken(String userId, String role, String tokenId, long expiresAt, long lastUsed) {
+            this.userId = userId;
+            this.role = role;
+            this.tokenId = tokenId;
+            this.expiresAt = expiresAt;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.russell.scheduler.auth;
+
+import com.russell.scheduler.common.BloomFilter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+// the deny list of revoked token ids lives in revoked_tokens, shared by every node; each node keeps a Bloom filter
+// of it, so a token that was never revoked (nearly all of them) is cleared without touching the database
+@Component
+public class TokenRevocations implements MeterBinder {
+
+    private final RevokedTokenRepository repository;
+    private final int expectedRevocations;
+    private final double falsePositiveRate;
+    // rows are stamped with the revoking node's clock and commit in any order, so each poll re-reads this far back
+    private final long pollOverlapMillis;
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+    private volatile BloomFilter filter;
+    private volatile Instant syncedUpTo = Instant.EPOCH;
+
+    @Autowired
+    public TokenRevocations(RevokedTokenRepository repository,
+                            @Value("${auth.revocation.expected-revocations:100000}") int expectedRevocations,
+                            @Value("${auth.revocation.false-positive-rate:0.001}") double falsePositiveRate,
+                            @Value("${auth.revocation.poll-overlap-ms:60000}") long pollOverlapMillis) {
+        this.repository = repository;
+        this.expectedRevocations = expectedRevocations;
+        this.falsePositiveRate = falsePositiveRate;
+        this.pollOverlapMillis = pollOverlapMillis;
+        this.filter = new BloomFilter(expectedRevocations, falsePositiveRate);
+    }
+
+    public boolean isRevoked(String tokenId) {
+        if (tokenId == null || !filter.mightContain(tokenId))
+            return false;
+        lookups.incrementAndGet();
+        boolean revoked = repository.existsById(tokenId);
+        if (!revoked)
+            falsePositives.incrementAndGet();
+        return revoked;
+    }
+
+    public void revoke(String tokenId, Date expiresAt) {
+        // into the local filter first: a false positive until the row commits costs one lookup, a miss would let
+        // the token through
+        filter.add(tokenId);
+        repository.save(new RevokedToken(tokenId, expiresAt.toInstant(), Instant.now()));
+    }
+
+    // picks up what other nodes revoked since the last poll; adding an id twice is harmless, so the overlap is cheap
+    @Scheduled(fixedDelayString = "${auth.revocation.poll-interval-ms:5000}")
+    public void poll() {
+        Instant now = Instant.now();
+        BloomFilter current = filter;
+        for (String tokenId : repository.findTokenIdsRevokedSince(syncedUpTo.minusMillis(pollOverlapMillis), now))
+            current.add(tokenId);
+        syncedUpTo = now;
+    }
+
+    // a Bloom filter can't drop keys, so expired revocations only leave it when it's rebuilt from the live rows
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${auth.revocation.rebuild-interval-ms:3600000}",
+            fixedDelayString = "${auth.revocation.rebuild-interval-ms:3600000}")
+    public void rebuild() {
+        Instant now = Instant.now();
+        repository.deleteExpired(now);
+        BloomFilter rebuilt = new BloomFilter(expectedRevocations, falsePositiveRate);
+        for (String tokenId : repository.findActiveTokenIds(now))
+            rebuilt.add(tokenId);
+        filter = rebuilt;
+        syncedUpTo = now;
+        // a local revoke() that went into the old filter during the rebuild is committed by now, or will be
+        // picked up by the next scheduled poll
+        poll();
+    }
+
+    public long getFilterInsertions() {
+        return filter.getInsertions();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("auth.revocation.filter.insertions", this, TokenRevocations::getFilterInsertions)
+                .register(registry);
+        FunctionCounter.builder("auth.revocation.lookups", lookups, AtomicLong::get).register(registry);
+        FunctionCounter.builder("auth.revocation.false.positives", falsePositives, AtomicLong::get)
+                .register(registry);
+    }
+}
@@ -5,25 +5,40 @@ import com.russell.scheduler.common.exceptions.AuthTokenParseException;
 import com.russell.scheduler.common.exceptions.InvalidJWTException;
 import com.russell.scheduler.common.exceptions.MissingAuthTokenException;
 import io.jsonwebtoken.*;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.Date;
+import java.util.UUID;
 
 @Service
 public class TokenService {
 
+    private final Logger logger = LogManager.getLogger();
     private final JwtConfig config;
+    private final JwtParser parser;
+    private final TokenCache tokenCache;
+    private final TokenRevocations revocations;
 
     @Autowired
-    public TokenService(JwtConfig config) {
+    public TokenService(JwtConfig config, TokenCache tokenCache, TokenRevocations revocations) {
         this.config = config;
+        this.tokenCache = tokenCache;
+        this.revocations = revocations;
+        // a built JwtParser is immutable and thread-safe, so one instance serves every request
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(config.getSigningKey())
+                .build();
     }
 
     public String generateToken(Principal subject) {
         long now = System.currentTimeMillis();
         JwtBuilder tokenBuilder = Jwts.builder()
-                .setId(subject.getAuthUserId())
+                // a fresh id per token, so one token can be revoked without touching the user's others
+                .setId(UUID.randomUUID().toString())
+                .setSubject(subject.getAuthUserId())
                 .setIssuer("Project-Scheduler")
                 .claim("role", subject.getAuthUserRole())
                 .setIssuedAt(new Date(now))
@@ -47,20 +62,41 @@ public class TokenService {
             throw new MissingAuthTokenException();
         }
 
+        // a token seen before skips the HMAC check and JSON parse until it expires, but not the revocation check
+        Principal cached = tokenCache.get(token);
+        if (cached != null)
+            return requireNotRevoked(cached);
+
+        Principal principal;
         try {
-            Claims claims = Jwts.parserBuilder()
-                    .setSigningKey(config.getSigningKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            Claims claims = parser.parseClaimsJws(token).getBody();
 
-            return new Principal(claims.getId(), claims.get("role", String.class));
+            // tokens issued before per-token ids carried the user id as their id, and no subject
+            String userId = claims.getSubject() != null ? claims.getSubject() : claims.getId();
+            principal = new Principal(userId, claims.get("role", String.class), claims.getId(),
+                    claims.getExpiration());
+            tokenCache.put(token, principal, claims.getExpiration());
 
         } catch(ExpiredJwtException e) {
             throw new InvalidJWTException("The provided auth token has expired");
         } catch (Exception e) {
-            System.out.println("Exception in claims building");
+            // at debug, as any client can send a malformed token; the 401 doesn't say why, so this does
+            logger.debug("Could not parse an auth token", e);
             throw new AuthTokenParseException("Unknown error parsing auth token");
         }
+        return requireNotRevoked(principal);
+    }
+
+    public void revoke(Principal principal) {
+        Date expiration = principal.getTokenExpiration() != null
+                ? principal.getTokenExpiration()
+                : new Date(System.currentTimeMillis() + config.getExpiration());
+        revocations.revoke(principal.getTokenId(), expiration);
+    }
+
+    private Principal requireNotRevoked(Principal principal) {
+        if (revocations.isRevoked(principal.getTokenId()))
+            throw new InvalidJWTException("The provided auth token has been revoked");
+        return principal;
     }
 }
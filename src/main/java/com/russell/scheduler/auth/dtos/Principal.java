@@ -1,16 +1,27 @@
 package com.russell.scheduler.auth.dtos;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.russell.scheduler.user.dtos.UserResponse;
 import com.russell.scheduler.user.UserRole;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
+import java.util.Date;
+
 @Data
 @NoArgsConstructor
 public class Principal {
 
     private String authUserId;
     private String authUserRole;
+    // which token this principal came from, so it can be revoked; never serialized, and not part of identity
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    private String tokenId;
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    private Date tokenExpiration;
 
     public Principal(UserResponse user) {
         this.authUserId = user.getId().toString();
@@ -21,4 +32,11 @@ public class Principal {
         this.authUserId = authUserId;
         this.authUserRole = authUserRole;
     }
+
+    public Principal(String authUserId, String authUserRole, String tokenId, Date tokenExpiration) {
+        this.authUserId = authUserId;
+        this.authUserRole = authUserRole;
+        this.tokenId = tokenId;
+        this.tokenExpiration = tokenExpiration;
+    }
 }
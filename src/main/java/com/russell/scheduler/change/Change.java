@@ -0,0 +1,117 @@
+package com.russell.scheduler.change;
+
+import javax.persistence.*;
+
+import java.time.Instant;
+import java.util.Objects;
+import java.util.UUID;
+
+// one create, update or delete of a synced entity; rows are inserted (see ChangeLog), given their seq once
+// committed, then pruned
+@Entity
+@Table(name="changes", indexes = {
+        @Index(name = "changes_seq_idx", columnList = "seq", unique = true),
+        @Index(name = "changes_recorded_at_idx", columnList = "recorded_at")})
+public class Change {
+
+    // filled in by the database, so an INSERT ... SELECT can record many changes in one statement
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+    // the feed position, null until ChangeLog.sequence() numbers the row after its transaction commits
+    @Column(name = "seq")
+    private Long seq;
+    @Column(name = "entity_type", nullable = false, length = 16)
+    private String entityType;
+    @Column(name = "entity_id", nullable = false)
+    private UUID entityId;
+    @Column(name = "deleted", nullable = false)
+    private boolean deleted;
+    @Column(name = "recorded_at", nullable = false)
+    private Instant recordedAt;
+
+    public Change() {
+        super();
+    }
+
+    public Change(Long seq, String entityType, UUID entityId, boolean deleted, Instant recordedAt) {
+        this.seq = seq;
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.deleted = deleted;
+        this.recordedAt = recordedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(Long seq) {
+        this.seq = seq;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public void setEntityType(String entityType) {
+        this.entityType = entityType;
+    }
+
+    public UUID getEntityId() {
+        return entityId;
+    }
+
+    public void setEntityId(UUID entityId) {
+        this.entityId = entityId;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(boolean deleted) {
+        this.deleted = deleted;
+    }
+
+    public Instant getRecordedAt() {
+        return recordedAt;
+    }
+
+    public void setRecordedAt(Instant recordedAt) {
+        this.recordedAt = recordedAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Change change = (Change) o;
+        return Objects.equals(id, change.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+
+    @Override
+    public String toString() {
+        return "Change{" +
+                "id=" + id +
+                ", seq=" + seq +
+                ", entityType='" + entityType + '\'' +
+                ", entityId=" + entityId +
+                ", deleted=" + deleted +
+                '}';
+    }
+}
@@ -0,0 +1,26 @@
+package com.russell.scheduler.change;
+
+import com.russell.scheduler.change.dtos.ChangeFeedResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/changes")
+public class ChangeController {
+
+    private ChangeLog changeLog;
+
+    @Autowired
+    public ChangeController(ChangeLog changeLog) {
+        this.changeLog = changeLog;
+    }
+
+    @GetMapping(produces = "application/json")
+    public ChangeFeedResponse getChanges(@RequestParam(defaultValue = "0") long since,
+                                         @RequestParam(defaultValue = "" + ChangeLog.DEFAULT_LIMIT) int limit) {
+        return changeLog.since(since, limit);
+    }
+}
@@ -0,0 +1,200 @@
+package com.russell.scheduler.change;
+
+import com.russell.scheduler.change.dtos.ChangeFeedResponse;
+import com.russell.scheduler.change.dtos.ChangeResponse;
+import com.russell.scheduler.common.EntitySearcher;
+import com.russell.scheduler.common.exceptions.InvalidRequestException;
+import com.russell.scheduler.common.search.SearchPlan;
+import com.russell.scheduler.project.Project;
+import com.russell.scheduler.project.ProjectRepository;
+import com.russell.scheduler.project.dtos.ProjectResponse;
+import com.russell.scheduler.resource.Resource;
+import com.russell.scheduler.resource.ResourceRepository;
+import com.russell.scheduler.resource.dtos.ResourceResponse;
+import com.russell.scheduler.task.Task;
+import com.russell.scheduler.task.TaskRepository;
+import com.russell.scheduler.task.dtos.TaskResponse;
+import com.russell.scheduler.user.User;
+import com.russell.scheduler.user.UserRepository;
+import com.russell.scheduler.user.dtos.UserResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.transaction.Transactional;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// the ordered record of every create, update and delete that delta-syncing clients replay; each write adds its
+// rows with one INSERT ... SELECT in the writer's own transaction, and sequence() numbers them once committed.
+// Numbering at insert would let a transaction that commits late land behind a position clients have already read
+// past, whereas numbering committed rows only ever appends after what /changes has shown
+@Service
+@Transactional
+public class ChangeLog {
+
+    public static final int DEFAULT_LIMIT = 200;
+    public static final int MAX_LIMIT = 1000;
+    private static final String INSERT = "insert into Change (entityType, entityId, deleted, recordedAt)";
+    // pg_advisory_xact_lock key for sequence()
+    private static final long SEQUENCE_LOCK = 0x6368616e676573L;
+    private static final Map<Class<?>, String> TYPES = Map.of(
+            Task.class, "task", Project.class, "project", Resource.class, "resource", User.class, "user");
+
+    private final EntitySearcher entitySearcher;
+    private final ChangeRepository changeRepository;
+    private final TaskRepository taskRepository;
+    private final ProjectRepository projectRepository;
+    private final ResourceRepository resourceRepository;
+    private final UserRepository userRepository;
+    private final Duration retention;
+
+    @Autowired
+    public ChangeLog(EntitySearcher entitySearcher, ChangeRepository changeRepository,
+                     TaskRepository taskRepository, ProjectRepository projectRepository,
+                     ResourceRepository resourceRepository, UserRepository userRepository,
+                     @Value("${changes.retention-hours:168}") long retentionHours) {
+        this.entitySearcher = entitySearcher;
+        this.changeRepository = changeRepository;
+        this.taskRepository = taskRepository;
+        this.projectRepository = projectRepository;
+        this.resourceRepository = resourceRepository;
+        this.userRepository = userRepository;
+        this.retention = Duration.ofHours(retentionHours);
+    }
+
+    public void upserted(Class<?> entityClass, UUID id) {
+        record(entityClass, List.of(id), false);
+    }
+
+    public void upserted(Class<?> entityClass, Collection<UUID> ids) {
+        record(entityClass, ids, false);
+    }
+
+    // tombstones are selected from the rows themselves, so these run before the delete
+    public void deleted(Class<?> entityClass, UUID id) {
+        record(entityClass, List.of(id), true);
+    }
+
+    public void deleted(Class<?> entityClass, Collection<UUID> ids) {
+        record(entityClass, ids, true);
+    }
+
+    // for bulk statements: every row under the same filter, recorded without reading the ids into memory
+    public void upsertedMatching(Map<String, String> searchCriteria, Class<?> entityClass) {
+        recordMatching(searchCriteria, entityClass, false);
+    }
+
+    public void deletedMatching(Map<String, String> searchCriteria, Class<?> entityClass) {
+        recordMatching(searchCriteria, entityClass, true);
+    }
+
+    public ChangeFeedResponse since(long since, int limit) {
+        if (since < 0)
+            throw new InvalidRequestException("since must not be negative");
+        if (limit < 1 || limit > MAX_LIMIT)
+            throw new InvalidRequestException("limit must be between 1 and " + MAX_LIMIT);
+
+        // changes right after since= are gone, so replaying what's left would miss some
+        Long oldest = changeRepository.findOldestSeq();
+        if (oldest != null && since < oldest - 1)
+            return new ChangeFeedResponse(new ArrayList<>(), changeRepository.findLatestSeq(), false, true);
+
+        List<Change> rows = changeRepository.findAfter(since, PageRequest.of(0, limit + 1));
+        boolean hasMore = rows.size() > limit;
+        List<Change> page = hasMore ? rows.subList(0, limit) : rows;
+        long nextSince = page.isEmpty() ? since : page.get(page.size() - 1).getSeq();
+        return new ChangeFeedResponse(describe(page), nextSince, hasMore, false);
+    }
+
+    // the lock makes each numbering see the one before it committed; a node that can't take it leaves the work
+    // to the node that has it
+    @Scheduled(fixedDelayString = "${changes.sequence-interval-ms:200}")
+    public void sequence() {
+        if (changeRepository.tryLock(SEQUENCE_LOCK))
+            changeRepository.numberPending();
+    }
+
+    @Scheduled(initialDelayString = "${changes.prune-interval-ms:3600000}",
+            fixedDelayString = "${changes.prune-interval-ms:3600000}")
+    public void prune() {
+        changeRepository.deleteRecordedBefore(Instant.now().minus(retention));
+    }
+
+    private void record(Class<?> entityClass, Collection<UUID> ids, boolean deleted) {
+        List<UUID> pending = new ArrayList<>(ids);
+        for (int from = 0; from < pending.size(); from += SearchPlan.MAX_IN_VALUES) {
+            String chunk = pending.subList(from, Math.min(pending.size(), from + SearchPlan.MAX_IN_VALUES)).stream()
+                    .map(UUID::toString)
+                    .collect(Collectors.joining(","));
+            recordMatching(Map.of("id[in]", chunk), entityClass, deleted);
+        }
+    }
+
+    private void recordMatching(Map<String, String> searchCriteria, Class<?> entityClass, boolean deleted) {
+        String type = TYPES.get(entityClass);
+        if (type == null)
+            throw new IllegalArgumentException(entityClass.getSimpleName() + " is not a synced entity");
+        String select = "'" + type + "', " + SearchPlan.ROOT_ALIAS + ".id, " + deleted + ", :now";
+        entitySearcher.bulkInsert(searchCriteria, entityClass, INSERT, select, Map.of("now", Instant.now()));
+    }
+
+    // one entry per record, at the position of its latest change, and upserts carry the record as it is now;
+    // that's one IN query per type, and an upsert whose record is gone is dropped, as its tombstone follows
+    private List<ChangeResponse> describe(List<Change> page) {
+        Map<String, Change> latest = new LinkedHashMap<>();
+        for (Change change : page) {
+            String key = change.getEntityType() + ':' + change.getEntityId();
+            latest.remove(key);
+            latest.put(key, change);
+        }
+
+        Map<String, Set<UUID>> upserted = new HashMap<>();
+        for (Change change : latest.values()) {
+            if (!change.isDeleted())
+                upserted.computeIfAbsent(change.getEntityType(), t -> new HashSet<>()).add(change.getEntityId());
+        }
+        Map<String, Map<UUID, Object>> current = new HashMap<>();
+        upserted.forEach((type, ids) -> current.put(type, load(type, ids)));
+
+        List<ChangeResponse> changes = new ArrayList<>(latest.size());
+        for (Change change : latest.values()) {
+            Object data = null;
+            if (!change.isDeleted()) {
+                data = current.get(change.getEntityType()).get(change.getEntityId());
+                if (data == null)
+                    continue;
+            }
+            changes.add(new ChangeResponse(change.getSeq(), change.getEntityType(), change.getEntityId(),
+                    change.isDeleted(), data));
+        }
+        return changes;
+    }
+
+    private Map<UUID, Object> load(String type, Set<UUID> ids) {
+        switch (type) {
+            case "task":
+                return byId(taskRepository.findResponsesByIdIn(ids), TaskResponse::getId);
+            case "project":
+                return byId(projectRepository.findResponsesByIdIn(ids), ProjectResponse::getId);
+            case "resource":
+                return byId(resourceRepository.findResponsesByIdIn(ids), ResourceResponse::getId);
+            case "user":
+                return byId(userRepository.findResponsesByIdIn(ids), UserResponse::getId);
+            default:
+                return Map.of();
+        }
+    }
+
+    private static <R> Map<UUID, Object> byId(List<R> responses, Function<R, UUID> id) {
+        Map<UUID, Object> byId = new HashMap<>();
+        for (R response : responses)
+            byId.put(id.apply(response), response);
+        return byId;
+    }
+}
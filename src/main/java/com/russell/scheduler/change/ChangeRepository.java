@@ -0,0 +1,41 @@
+package com.russell.scheduler.change;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import javax.transaction.Transactional;
+import java.time.Instant;
+import java.util.List;
+
+public interface ChangeRepository extends JpaRepository<Change, Long> {
+
+    // a range scan of the seq index from the client's position; rows not yet numbered don't match
+    @Query("select c from Change c where c.seq > :since order by c.seq")
+    List<Change> findAfter(@Param("since") long since, Pageable page);
+
+    @Query("select min(c.seq) from Change c")
+    Long findOldestSeq();
+
+    @Query("select max(c.seq) from Change c")
+    Long findLatestSeq();
+
+    // held to the end of the caller's transaction, so only one node numbers rows at a time
+    @Query(value = "select pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryLock(@Param("key") long key);
+
+    // numbers every committed row that has no seq yet, after the highest seq so far and in insertion order
+    @Modifying
+    @Query(value = "update changes set seq = numbered.seq from (" +
+            "select id, (select coalesce(max(seq), 0) from changes) + row_number() over (order by id) as seq " +
+            "from changes where seq is null) numbered where changes.id = numbered.id", nativeQuery = true)
+    int numberPending();
+
+    // keeps the latest numbered row, as the next number is counted on from it
+    @Transactional
+    @Modifying
+    @Query("delete from Change c where c.recordedAt < :cutoff and c.seq < (select max(l.seq) from Change l)")
+    int deleteRecordedBefore(@Param("cutoff") Instant cutoff);
+}
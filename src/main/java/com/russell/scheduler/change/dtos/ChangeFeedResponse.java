@@ -0,0 +1,23 @@
+package com.russell.scheduler.change.dtos;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class ChangeFeedResponse {
+    private List<ChangeResponse> changes;
+    private long nextSince; // the since= of the next request
+    private boolean hasMore; // true when the limit cut the feed short, so the next request can follow at once
+    // the changes after since= have been pruned: reload everything, then continue from nextSince
+    private boolean reset;
+
+    public ChangeFeedResponse(List<ChangeResponse> changes, long nextSince, boolean hasMore, boolean reset) {
+        this.changes = changes;
+        this.nextSince = nextSince;
+        this.hasMore = hasMore;
+        this.reset = reset;
+    }
+}
@@ -0,0 +1,27 @@
+package com.russell.scheduler.change.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+public class ChangeResponse {
+    private long seq;
+    private String type; // task, project, resource or user
+    private UUID id;
+    private boolean deleted;
+    // the record as it is now, for an upsert; a tombstone carries only the id
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Object data;
+
+    public ChangeResponse(long seq, String type, UUID id, boolean deleted, Object data) {
+        this.seq = seq;
+        this.type = type;
+        this.id = id;
+        this.deleted = deleted;
+        this.data = data;
+    }
+}
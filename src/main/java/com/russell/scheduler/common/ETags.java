@@ -0,0 +1,30 @@
+package com.russell.scheduler.common;
+
+// weak validators built from an entity's @Version column; weak because the body is a rendering of the row,
+// and two renderings of the same version only have to be equivalent, not byte-identical
+public final class ETags {
+
+    private ETags() {
+    }
+
+    public static String weak(long version) {
+        return "W/\"" + version + "\"";
+    }
+
+    // If-None-Match may be * or a list of tags, and is compared weakly (RFC 7232, section 3.2)
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null)
+            return false;
+        String opaque = opaque(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || opaque(tag).equals(opaque))
+                return true;
+        }
+        return false;
+    }
+
+    private static String opaque(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
@@ -1,77 +1,189 @@
 package com.russell.scheduler.common;
 
+import com.russell.scheduler.common.dtos.FacetCount;
+import com.russell.scheduler.common.dtos.FacetResponse;
+import com.russell.scheduler.common.dtos.PageResponse;
 import com.russell.scheduler.common.exceptions.InvalidRequestException;
-import com.russell.scheduler.common.exceptions.RecordNotFoundException;
+import com.russell.scheduler.common.search.Keyset;
+import com.russell.scheduler.common.search.Projection;
+import com.russell.scheduler.common.search.SearchPlan;
+import com.russell.scheduler.common.search.SearchPlanCache;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.query.Query;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
-import javax.persistence.Entity;
 import javax.persistence.EntityManager;
-import javax.persistence.criteria.*;
-import java.lang.reflect.Field;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import javax.persistence.TypedQuery;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 @Repository
 public class EntitySearcher {
 
+    public static final int MAX_PAGE_SIZE = 500;
+    public static final String FACETS_PARAM = "facets";
+    public static final String EXPAND_PARAM = "expand";
+    private static final int STREAM_FETCH_SIZE = 500;
+    // each facet is its own grouped statement over the filtered rows, as JPQL has no UNION ALL or GROUPING SETS
+    // to count them in one, so this caps the statements a request can cost
+    private static final int MAX_FACETS = 4;
+    private static final int MAX_FACET_BUCKETS = 100;
+    // request params that control the response rather than filter it
+    private static final Set<String> RESERVED_PARAMS = Set.of("limit", "cursor", FACETS_PARAM, EXPAND_PARAM);
+
     private final EntityManager entityManager;
+    private final SearchPlanCache planCache;
 
     @Autowired
-    public EntitySearcher(EntityManager entityManager) {
+    public EntitySearcher(EntityManager entityManager, SearchPlanCache planCache) {
         this.entityManager = entityManager;
+        this.planCache = planCache;
     }
 
     public <T> Set<T> search(Map<String, String> searchCriteria, Class<T> entityClass) {
-        if (entityClass.getAnnotation(Entity.class) == null)
-            throw new InvalidRequestException(entityClass.getSimpleName() + " is not a searchable entity");
-
-        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-        CriteriaQuery<T> query = cb.createQuery(entityClass);
-        Root<T> root = query.from(entityClass);
-        Predicate predicate = cb.conjunction();
-
-        for(Map.Entry<String, String> term : searchCriteria.entrySet()) {
-            String key = term.getKey();
-            String value = term.getValue();
-
-            try {
-                if (key.contains(".")) {
-                    String[] keyFrags = key.split("\\.");
-                    String nestedTypeName = keyFrags[0];
-                    String nestedTypeFieldName = keyFrags[1];
-                    Join<?,?> joinType = root.join(nestedTypeName);
-                    Field nestedTypeField = entityClass
-                            .getDeclaredField(nestedTypeName)
-                            .getClass()
-                            .getDeclaredField((nestedTypeFieldName));
-                    predicate = getPredicate(cb, predicate, value, nestedTypeField, joinType.get(nestedTypeFieldName));
-                } else {
-                    Field searchField = entityClass.getDeclaredField(key);
-                    predicate = getPredicate(cb, predicate, value, searchField, root.get(key));
-                }
-            } catch (NoSuchFieldException e) {
-                throw new InvalidRequestException("Attribute " + key + " does not exist on entity " + entityClass.getSimpleName());
+        return search(searchCriteria, entityClass, Projection.entity(entityClass));
+    }
+
+    public <T, R> Set<R> search(Map<String, String> searchCriteria, Class<T> entityClass, Projection<R> projection) {
+        return search(searchCriteria, entityClass, projection, Function.identity());
+    }
+
+    // rows are mapped before they go into the set, so entity rows need never be hashed: the entities' hashCodes
+    // walk their collections, loading each one, and cycle through the back-references
+    public <T, R, M> Set<M> search(Map<String, String> searchCriteria, Class<T> entityClass, Projection<R> projection,
+                                   Function<? super R, ? extends M> mapper) {
+        Map<String, String> criteria = criteriaOnly(searchCriteria);
+        SearchPlan<T> plan = planCache.getPlan(entityClass, criteria.keySet());
+        Set<M> results = new HashSet<>();
+        for (R row : plan.bind(entityManager, criteria, projection).getResultList())
+            results.add(mapper.apply(row));
+        return results;
+    }
+
+    public <T> PageResponse<T> searchPage(Map<String, String> searchCriteria, Class<T> entityClass,
+                                          Keyset<? super T> keyset, int limit, String cursor) {
+        return searchPage(searchCriteria, entityClass, Projection.entity(entityClass), keyset, limit, cursor);
+    }
+
+    public <T, R> PageResponse<R> searchPage(Map<String, String> searchCriteria, Class<T> entityClass,
+                                             Projection<R> projection, Keyset<? super R> keyset,
+                                             int limit, String cursor) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE)
+            throw new InvalidRequestException("limit must be between 1 and " + MAX_PAGE_SIZE);
+
+        Map<String, String> criteria = criteriaOnly(searchCriteria);
+        SearchPlan<T> plan = planCache.getPlan(entityClass, criteria.keySet());
+        TypedQuery<R> query = plan.bindPage(entityManager, criteria, projection, keyset, cursor);
+        // one extra row tells us whether there is a next page without a count query
+        query.setMaxResults(limit + 1);
+
+        List<R> rows = query.getResultList();
+        if (rows.size() <= limit)
+            return new PageResponse<>(new ArrayList<>(rows), null);
+
+        List<R> page = new ArrayList<>(rows.subList(0, limit));
+        return new PageResponse<>(page, keyset.cursorAfter(page.get(limit - 1)));
+    }
+
+    public <T> void stream(Map<String, String> searchCriteria, Class<T> entityClass, Consumer<? super T> consumer) {
+        stream(searchCriteria, entityClass, Projection.entity(entityClass), consumer);
+    }
+
+    // compiles the plan and checks every value now, so a streaming endpoint can still answer a bad filter with a
+    // 400 (or an unknown enum constant with a 404) before its status and content type are committed
+    public <T> void validate(Map<String, String> searchCriteria, Class<T> entityClass, Projection<?> projection) {
+        Map<String, String> criteria = criteriaOnly(searchCriteria);
+        planCache.getPlan(entityClass, criteria.keySet()).validate(criteria, projection);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T, R> void stream(Map<String, String> searchCriteria, Class<T> entityClass, Projection<R> projection,
+                              Consumer<? super R> consumer) {
+        Map<String, String> criteria = criteriaOnly(searchCriteria);
+        SearchPlan<T> plan = planCache.getPlan(entityClass, criteria.keySet());
+        Query<R> query = plan.bind(entityManager, criteria, projection).unwrap(Query.class);
+        query.setFetchSize(STREAM_FETCH_SIZE);
+        query.setReadOnly(true);
+
+        // a forward-only cursor, with the persistence context cleared as we go, keeps memory flat
+        // no matter how many rows match
+        try (ScrollableResults rows = query.scroll(ScrollMode.FORWARD_ONLY)) {
+            int count = 0;
+            while (rows.next()) {
+                consumer.accept(projection.getResultClass().cast(rows.get(0)));
+                if (++count % STREAM_FETCH_SIZE == 0)
+                    entityManager.clear();
             }
         }
+    }
 
-        query.where(predicate);
+    // facets=project,assignee,startDate[month] -> grouped counts for each, under the same filter as a search
+    public <T> FacetResponse facets(Map<String, String> searchCriteria, Class<T> entityClass) {
+        Set<String> facets = new LinkedHashSet<>();
+        for (String facet : searchCriteria.getOrDefault(FACETS_PARAM, "").split(",")) {
+            if (!facet.isBlank())
+                facets.add(facet.trim());
+        }
+        if (facets.isEmpty() || facets.size() > MAX_FACETS)
+            throw new InvalidRequestException("facets must name between 1 and " + MAX_FACETS + " attributes");
 
-        return new HashSet<>(entityManager.createQuery(query).getResultList());
+        Map<String, String> criteria = criteriaOnly(searchCriteria);
+        SearchPlan<T> plan = planCache.getPlan(entityClass, criteria.keySet());
+        Map<String, List<FacetCount>> counts = new LinkedHashMap<>();
+        for (String facet : facets)
+            counts.put(facet, plan.facet(entityManager, criteria, facet, MAX_FACET_BUCKETS));
+        return new FacetResponse(counts);
     }
 
-    private Predicate getPredicate(CriteriaBuilder cb, Predicate pred, String value, Field searchField, Path<?> path) {
-        if (searchField.getType().isEnum()) {
-            try {
-                Enum<?> enumVal = Enum.valueOf((Class<Enum>) searchField.getType(), value.toUpperCase());
-                pred = cb.and(pred, cb.equal(path, enumVal));
-            } catch (IllegalArgumentException e) {
-                throw new RecordNotFoundException();
-            }
-        } else
-            pred = cb.and(pred, cb.equal(path, value));
+    // one set-based statement under the same filter language as a search; the set clause refers to the
+    // updated entity as SearchPlan.BULK_ALIAS, e.g. "x.startDate = :start"
+    public <T> int bulkUpdate(Map<String, String> searchCriteria, Class<T> entityClass,
+                              String setClause, Map<String, Object> values) {
+        Map<String, String> criteria = bulkCriteria(searchCriteria);
+        SearchPlan<T> plan = planCache.getPlan(entityClass, criteria.keySet());
+        // pending changes go out first so the statement sees them, and everything managed is dropped after,
+        // since bulk statements bypass the persistence context and its copies would now be stale
+        entityManager.flush();
+        int affected = plan.executeUpdate(entityManager, criteria, setClause, values);
+        entityManager.clear();
+        return affected;
+    }
+
+    public <T> int bulkDelete(Map<String, String> searchCriteria, Class<T> entityClass) {
+        Map<String, String> criteria = bulkCriteria(searchCriteria);
+        SearchPlan<T> plan = planCache.getPlan(entityClass, criteria.keySet());
+        entityManager.flush();
+        int affected = plan.executeDelete(entityManager, criteria);
+        entityManager.clear();
+        return affected;
+    }
+
+    // one row inserted per match, e.g. insertInto "insert into Change (entityType, entityId)" and selectList
+    // "'task', e.id"; pending changes are flushed so the select sees them, and nothing managed is affected
+    public <T> int bulkInsert(Map<String, String> searchCriteria, Class<T> entityClass,
+                              String insertInto, String selectList, Map<String, Object> values) {
+        Map<String, String> criteria = bulkCriteria(searchCriteria);
+        SearchPlan<T> plan = planCache.getPlan(entityClass, criteria.keySet());
+        entityManager.flush();
+        return plan.executeInsert(entityManager, criteria, insertInto, selectList, values);
+    }
+
+    // an empty filter would touch every row, which is never what a bulk request means
+    private static Map<String, String> bulkCriteria(Map<String, String> params) {
+        Map<String, String> criteria = criteriaOnly(params);
+        if (criteria.isEmpty())
+            throw new InvalidRequestException("Bulk operations need at least one filter");
+        return criteria;
+    }
 
-        return pred;
+    private static Map<String, String> criteriaOnly(Map<String, String> params) {
+        if (Collections.disjoint(params.keySet(), RESERVED_PARAMS))
+            return params;
+        Map<String, String> criteria = new HashMap<>(params);
+        criteria.keySet().removeAll(RESERVED_PARAMS);
+        return criteria;
     }
 }
@@ -2,11 +2,16 @@ package com.russell.scheduler.common.aspects;
 
 import com.russell.scheduler.common.dtos.ExceptionResponse;
 import com.russell.scheduler.common.exceptions.*;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import javax.persistence.OptimisticLockException;
+import javax.servlet.http.HttpServletResponse;
+
 @RestControllerAdvice
 public class ExceptionResponseAspect {
 
@@ -58,6 +63,26 @@ public class ExceptionResponseAspect {
         return new ExceptionResponse(409, e.getMessage());
     }
 
+    // the row's @Version moved between this request reading it and writing it back
+    @ExceptionHandler({OptimisticLockingFailureException.class, OptimisticLockException.class})
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ExceptionResponse handleOptimisticLockException(RuntimeException e) {
+        return new ExceptionResponse(409, "The record was changed by another request, reload it and try again");
+    }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    public ExceptionResponse handleTooManyRequestsException(TooManyRequestsException e, HttpServletResponse resp) {
+        resp.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+        return new ExceptionResponse(429, e.getMessage());
+    }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ExceptionResponse handleServiceUnavailableException(ServiceUnavailableException e) {
+        return new ExceptionResponse(503, e.getMessage());
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ExceptionResponse handleOtherExceptions(Throwable e) {
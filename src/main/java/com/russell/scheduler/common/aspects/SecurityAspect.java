@@ -1,16 +0,0 @@
-package com.russell.scheduler.common.aspects;
-
-import org.aspectj.lang.annotation.Aspect;
-import org.springframework.stereotype.Component;
-
-@Aspect
-@Component
-public class SecurityAspect {
-
-    // TODO: implement after JWTs
-//    @Before("")
-//    public void requreAuthentication() {}
-//
-//    @Before("")
-//    public void requireAuthorization() {}
-}
@@ -0,0 +1,20 @@
+package com.russell.scheduler.common.dtos;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class BatchItemResult {
+    private int index; // position of the item in the request
+    private int status; // the status a single request for this item would have returned
+    private String id;
+    private String message; // why the item failed; null when it succeeded
+
+    public BatchItemResult(int index, int status, String id, String message) {
+        this.index = index;
+        this.status = status;
+        this.id = id;
+        this.message = message;
+    }
+}
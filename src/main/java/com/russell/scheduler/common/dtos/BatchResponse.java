@@ -0,0 +1,20 @@
+package com.russell.scheduler.common.dtos;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class BatchResponse {
+    private int succeeded;
+    private int failed;
+    private List<BatchItemResult> results; // one per request item, in request order
+
+    public BatchResponse(List<BatchItemResult> results) {
+        this.results = results;
+        this.succeeded = (int) results.stream().filter(result -> result.getMessage() == null).count();
+        this.failed = results.size() - succeeded;
+    }
+}
@@ -0,0 +1,14 @@
+package com.russell.scheduler.common.dtos;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class BulkResponse {
+    int affected;
+
+    public BulkResponse(int affected) {
+        this.affected = affected;
+    }
+}
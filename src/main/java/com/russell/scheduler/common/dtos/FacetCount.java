@@ -0,0 +1,16 @@
+package com.russell.scheduler.common.dtos;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class FacetCount {
+    private String value; // null counts the rows without a value, e.g. unassigned tasks
+    private long count;
+
+    public FacetCount(String value, long count) {
+        this.value = value;
+        this.count = count;
+    }
+}
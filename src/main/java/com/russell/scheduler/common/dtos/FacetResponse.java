@@ -0,0 +1,17 @@
+package com.russell.scheduler.common.dtos;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+public class FacetResponse {
+    private Map<String, List<FacetCount>> facets; // keyed by facet, largest counts first
+
+    public FacetResponse(Map<String, List<FacetCount>> facets) {
+        this.facets = facets;
+    }
+}
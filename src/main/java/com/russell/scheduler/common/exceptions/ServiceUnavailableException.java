@@ -0,0 +1,8 @@
+package com.russell.scheduler.common.exceptions;
+
+public class ServiceUnavailableException extends RuntimeException {
+
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,90 @@
+package com.russell.scheduler.common.filters;
+
+import com.russell.scheduler.auth.TokenService;
+import com.russell.scheduler.common.exceptions.AuthTokenParseException;
+import com.russell.scheduler.common.exceptions.InvalidJWTException;
+import com.russell.scheduler.common.exceptions.MissingAuthTokenException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+// resolves the Authorization header into a Principal once per request and leaves it on the request for
+// controllers (see PrincipalArgumentResolver); requests without a valid token pass through anonymously, so an
+// expired or revoked one is only a 401 where a handler needs a caller, and login never looks at it
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+public class AuthenticationFilter extends OncePerRequestFilter {
+
+    // literals rather than built from the class name, as @RequestAttribute takes these as compile-time constants
+    public static final String PRINCIPAL_ATTRIBUTE =
+            "com.russell.scheduler.common.filters.AuthenticationFilter.principal";
+    // why a token was turned down, for the 401 of a handler that needed it
+    public static final String FAILURE_ATTRIBUTE = "com.russell.scheduler.common.filters.AuthenticationFilter.failure";
+    private static final String LOGIN_PATH = "/auth";
+    private static final String BEARER = "Bearer";
+
+    private final TokenService tokenService;
+
+    @Autowired
+    public AuthenticationFilter(TokenService tokenService) {
+        this.tokenService = tokenService;
+    }
+
+    // whatever token a client still holds, logging in is how it gets a new one
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return HttpMethod.POST.matches(request.getMethod())
+                && LOGIN_PATH.equals(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String token = extractToken(request.getHeader(HttpHeaders.AUTHORIZATION));
+        if (token != null) {
+            try {
+                request.setAttribute(PRINCIPAL_ATTRIBUTE, tokenService.extractTokenDetails(token));
+            } catch (InvalidJWTException | AuthTokenParseException e) {
+                request.setAttribute(FAILURE_ATTRIBUTE, e);
+            }
+        }
+        chain.doFilter(request, response);
+    }
+
+    // for a handler that needs a caller and has none: the token's own problem if there was one, else a missing token
+    public static RuntimeException unauthenticated(Object failure) {
+        return failure instanceof RuntimeException ? (RuntimeException) failure : new MissingAuthTokenException();
+    }
+
+    // accepts "Bearer <token>" as well as the bare token /auth hands out; null when there is nothing to check
+    static String extractToken(String header) {
+        if (header == null)
+            return null;
+
+        int start = 0;
+        int end = header.length();
+        while (start < end && Character.isWhitespace(header.charAt(start)))
+            start++;
+        while (end > start && Character.isWhitespace(header.charAt(end - 1)))
+            end--;
+
+        int afterScheme = start + BEARER.length();
+        if (afterScheme <= end && header.regionMatches(true, start, BEARER, 0, BEARER.length())
+                && (afterScheme == end || Character.isWhitespace(header.charAt(afterScheme)))) {
+            start = afterScheme;
+            while (start < end && Character.isWhitespace(header.charAt(start)))
+                start++;
+        }
+        return start == end ? null : header.substring(start, end);
+    }
+}
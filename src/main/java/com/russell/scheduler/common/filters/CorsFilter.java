@@ -1,6 +1,8 @@
 package com.russell.scheduler.common.filters;
 
 
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
 import javax.servlet.FilterChain;
@@ -13,6 +15,8 @@ import java.io.IOException;
 
 @WebFilter
 @Component
+// first, so the headers are on the response before any later filter or a streamed body can commit it
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
 public class CorsFilter extends HttpFilter {
 
     @Override
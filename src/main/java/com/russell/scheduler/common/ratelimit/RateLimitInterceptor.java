@@ -0,0 +1,51 @@
+package com.russell.scheduler.common.ratelimit;
+
+import com.russell.scheduler.auth.dtos.Principal;
+import com.russell.scheduler.common.exceptions.TooManyRequestsException;
+import com.russell.scheduler.common.filters.AuthenticationFilter;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// enforces @RateLimited before the handler (and its transaction) runs, so a limited request never takes a connection
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private static final String UNLIMITED = "";
+
+    private final RateLimiter limiter;
+    private final Map<Method, String> routes = new ConcurrentHashMap<>();
+
+    public RateLimitInterceptor(RateLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod))
+            return true;
+        String route = routes.computeIfAbsent(((HandlerMethod) handler).getMethod(), RateLimitInterceptor::routeOf);
+        if (route.equals(UNLIMITED))
+            return true;
+
+        Principal principal = (Principal) request.getAttribute(AuthenticationFilter.PRINCIPAL_ATTRIBUTE);
+        String key = principal != null ? "user:" + principal.getAuthUserId() : "ip:" + request.getRemoteAddr();
+        long waitNanos = limiter.tryAcquire(route, key);
+        if (waitNanos > 0) {
+            long retryAfter = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+            throw new TooManyRequestsException("Too many requests, retry in " + retryAfter + "s", retryAfter);
+        }
+        return true;
+    }
+
+    private static String routeOf(Method method) {
+        RateLimited annotation = AnnotatedElementUtils.findMergedAnnotation(method, RateLimited.class);
+        return annotation == null ? UNLIMITED : annotation.value();
+    }
+}
@@ -0,0 +1,14 @@
+package com.russell.scheduler.common.ratelimit;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// names the limit (rate-limit.routes.<value>) a handler is subject to; each caller gets their own bucket per route,
+// keyed by user when the request carries a token and by client IP when it doesn't
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RateLimited {
+    String value();
+}
@@ -0,0 +1,134 @@
+package com.russell.scheduler.common.ratelimit;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// token buckets kept as GCRA: a bucket is one timestamp (when it would be full again), advanced with a CAS,
+// so callers never lock and different keys never contend beyond the map's own striping
+@Component
+public class RateLimiter implements MeterBinder {
+
+    private final Environment environment;
+    private final int maxKeys;
+    private final LongSupplier clock;
+    private final Map<String, Limit> limits = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private final AtomicLong allowed = new AtomicLong();
+    private final AtomicLong limited = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+
+    @Autowired
+    public RateLimiter(Environment environment, @Value("${rate-limit.max-keys:100000}") int maxKeys) {
+        this(environment, maxKeys, System::nanoTime);
+    }
+
+    RateLimiter(Environment environment, int maxKeys, LongSupplier clock) {
+        this.environment = environment;
+        this.maxKeys = maxKeys;
+        this.clock = clock;
+    }
+
+    // 0 when the request may go ahead, otherwise the nanoseconds until it would be allowed
+    public long tryAcquire(String route, String key) {
+        Limit limit = limits.computeIfAbsent(route, this::loadLimit);
+        String bucketKey = route + ' ' + key;
+        long now = clock.getAsLong();
+
+        AtomicLong bucket = buckets.get(bucketKey);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(bucketKey, k -> new AtomicLong(now));
+            if (buckets.size() > maxKeys)
+                sweep(now);
+        }
+
+        while (true) {
+            long fullAt = bucket.get();
+            long start = fullAt - now > 0 ? fullAt : now;
+            long wait = start - now - limit.tolerance;
+            if (wait > 0) {
+                limited.incrementAndGet();
+                return wait;
+            }
+            if (bucket.compareAndSet(fullAt, start + limit.interval)) {
+                allowed.incrementAndGet();
+                return 0;
+            }
+        }
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    @Scheduled(fixedDelayString = "${rate-limit.sweep-interval-ms:60000}")
+    public void sweepIdle() {
+        sweep(clock.getAsLong());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("rate.limit.allowed", allowed, AtomicLong::get).register(registry);
+        FunctionCounter.builder("rate.limit.limited", limited, AtomicLong::get).register(registry);
+        FunctionCounter.builder("rate.limit.evicted", evicted, AtomicLong::get).register(registry);
+        Gauge.builder("rate.limit.keys", this, RateLimiter::size).register(registry);
+    }
+
+    // a bucket that has refilled behaves exactly like a missing one, so idle keys go first and cost nothing;
+    // only if that isn't enough are live buckets dropped, which lets those callers burst again
+    private void sweep(long now) {
+        if (!sweeping.compareAndSet(false, true))
+            return;
+        try {
+            Iterator<AtomicLong> it = buckets.values().iterator();
+            while (it.hasNext()) {
+                if (it.next().get() - now <= 0) {
+                    it.remove();
+                    evicted.incrementAndGet();
+                }
+            }
+            it = buckets.values().iterator();
+            while (buckets.size() > maxKeys && it.hasNext()) {
+                it.next();
+                it.remove();
+                evicted.incrementAndGet();
+            }
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    private Limit loadLimit(String route) {
+        String prefix = "rate-limit.routes." + route;
+        Integer burst = environment.getProperty(prefix + ".burst", Integer.class);
+        Double perSecond = environment.getProperty(prefix + ".per-second", Double.class);
+        if (burst == null || perSecond == null || burst < 1 || perSecond <= 0)
+            throw new IllegalStateException("No valid rate limit configured for route " + route);
+        return new Limit(burst, perSecond);
+    }
+
+    private static class Limit {
+        // nanoseconds one request uses up, and how far ahead of now a bucket may run before it's empty
+        private final long interval;
+        private final long tolerance;
+
+        private Limit(int burst, double perSecond) {
+            this.interval = (long) (1_000_000_000 / perSecond);
+            this.tolerance = interval * (burst - 1);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.russell.scheduler.common.search;
+
+import com.russell.scheduler.common.exceptions.InvalidRequestException;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+// the related objects a response can inline with expand=, each mapped to the association path that has to be
+// fetched alongside the root so building the response never goes back to the database
+public class Expansions {
+
+    private final Map<String, String> fetchPaths;
+
+    public Expansions(Map<String, String> fetchPaths) {
+        this.fetchPaths = fetchPaths;
+    }
+
+    // "project, assignee" -> {project, assignee}; null or blank expands nothing
+    public Set<String> parse(String expand) {
+        Set<String> names = new LinkedHashSet<>();
+        if (expand == null)
+            return names;
+        for (String name : expand.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty())
+                continue;
+            if (!fetchPaths.containsKey(trimmed))
+                throw new InvalidRequestException("Cannot expand " + trimmed + ", expected one of " + new TreeSet<>(fetchPaths.keySet()));
+            names.add(trimmed);
+        }
+        return names;
+    }
+
+    // fetches are sorted so every order of the same names shares one compiled query
+    public <T> Projection<T> projection(Class<T> entityClass, Set<String> names) {
+        return Projection.entity(entityClass, names.stream()
+                .map(fetchPaths::get)
+                .sorted()
+                .toArray(String[]::new));
+    }
+}
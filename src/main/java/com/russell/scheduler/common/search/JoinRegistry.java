@@ -0,0 +1,158 @@
+package com.russell.scheduler.common.search;
+
+import com.russell.scheduler.common.exceptions.InvalidRequestException;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// resolves dotted attribute paths against an entity, registering exactly one join per association path
+class JoinRegistry {
+
+    private final Class<?> rootClass;
+    private final Map<String, Join> joins = new LinkedHashMap<>();
+
+    JoinRegistry(Class<?> rootClass) {
+        this.rootClass = rootClass;
+    }
+
+    private JoinRegistry(JoinRegistry source) {
+        this.rootClass = source.rootClass;
+        source.joins.forEach((path, join) -> joins.put(path, new Join(join)));
+    }
+
+    // a copy that can take extra joins (for a select list or fetch plan) without changing the plan's own
+    JoinRegistry copy() {
+        return new JoinRegistry(this);
+    }
+
+    // "project.owner.email" -> "j1.email", joining e.project as j0 and j0.owner as j1 unless already joined;
+    // joins added for filtering are inner, joins added only to read a value are left, so no rows are lost
+    Attribute resolve(String attributePath, boolean outer) {
+        String[] segments = attributePath.split("\\.", -1);
+        Class<?> owner = rootClass;
+        String alias = SearchPlan.ROOT_ALIAS;
+
+        for (int i = 0; i < segments.length - 1; i++) {
+            Field association = field(owner, segments[i], attributePath);
+            boolean collection = Collection.class.isAssignableFrom(association.getType());
+            Class<?> target = collection ? elementType(association) : association.getType();
+            if (target == null || target.getAnnotation(Entity.class) == null)
+                throw notFound(attributePath);
+
+            // e.project.id reads the foreign key column, so the association doesn't need joining at all
+            Field last = i == segments.length - 2 ? field(target, segments[i + 1], attributePath) : null;
+            if (last != null && !collection && last.getAnnotation(Id.class) != null)
+                return new Attribute(alias + "." + segments[i] + "." + last.getName(), last);
+
+            String path = String.join(".", Arrays.copyOfRange(segments, 0, i + 1));
+            Join join = joins.get(path);
+            if (join == null) {
+                join = new Join(alias + "." + segments[i], "j" + joins.size(), collection, outer);
+                joins.put(path, join);
+            } else if (!outer) {
+                join.outer = false;
+            }
+            alias = join.alias;
+            owner = target;
+        }
+
+        Field field = field(owner, segments[segments.length - 1], attributePath);
+        return new Attribute(alias + "." + field.getName(), field);
+    }
+
+    // marks every association along the path for fetching, joining it if nothing has yet
+    void fetch(String associationPath) {
+        String[] segments = associationPath.split("\\.", -1);
+        Class<?> owner = rootClass;
+        String alias = SearchPlan.ROOT_ALIAS;
+
+        for (int i = 0; i < segments.length; i++) {
+            Field association = field(owner, segments[i], associationPath);
+            // fetching a collection would make Hibernate page in memory, so only single-valued paths are allowed
+            if (Collection.class.isAssignableFrom(association.getType())
+                    || association.getType().getAnnotation(Entity.class) == null)
+                throw new IllegalArgumentException("Only single-valued associations can be fetched: " + associationPath);
+
+            String path = String.join(".", Arrays.copyOfRange(segments, 0, i + 1));
+            Join join = joins.get(path);
+            if (join == null) {
+                join = new Join(alias + "." + segments[i], "j" + joins.size(), false, true);
+                joins.put(path, join);
+            }
+            join.fetch = true;
+            alias = join.alias;
+            owner = association.getType();
+        }
+    }
+
+    boolean joinsCollection() {
+        return joins.values().stream().anyMatch(join -> join.collection);
+    }
+
+    String render() {
+        StringBuilder from = new StringBuilder();
+        for (Join join : joins.values()) {
+            from.append(join.outer ? " left join " : " join ")
+                    .append(join.fetch ? "fetch " : "")
+                    .append(join.source).append(' ').append(join.alias);
+        }
+        return from.toString();
+    }
+
+    private Field field(Class<?> owner, String name, String attributePath) {
+        try {
+            return owner.getDeclaredField(name);
+        } catch (NoSuchFieldException e) {
+            throw notFound(attributePath);
+        }
+    }
+
+    private InvalidRequestException notFound(String attributePath) {
+        return new InvalidRequestException("Attribute " + attributePath + " does not exist on entity " + rootClass.getSimpleName());
+    }
+
+    private static Class<?> elementType(Field collection) {
+        Type type = collection.getGenericType();
+        if (!(type instanceof ParameterizedType))
+            return null;
+        Type element = ((ParameterizedType) type).getActualTypeArguments()[0];
+        return element instanceof Class ? (Class<?>) element : null;
+    }
+
+    static class Attribute {
+        final String path;
+        final Field field;
+
+        private Attribute(String path, Field field) {
+            this.path = path;
+            this.field = field;
+        }
+    }
+
+    private static class Join {
+        private final String source;
+        private final String alias;
+        private final boolean collection;
+        private boolean outer;
+        private boolean fetch;
+
+        private Join(String source, String alias, boolean collection, boolean outer) {
+            this.source = source;
+            this.alias = alias;
+            this.collection = collection;
+            this.outer = outer;
+        }
+
+        private Join(Join other) {
+            this(other.source, other.alias, other.collection, other.outer);
+            this.fetch = other.fetch;
+        }
+    }
+}
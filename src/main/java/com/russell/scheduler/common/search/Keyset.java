@@ -0,0 +1,51 @@
+package com.russell.scheduler.common.search;
+
+import com.russell.scheduler.common.exceptions.InvalidRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.function.Function;
+
+// the (sortAttribute, id) ordering a paged search walks, and the opaque cursor that resumes it
+public class Keyset<R> {
+
+    private final String sortAttribute;
+    private final Function<? super R, ?> sortValue;
+    private final Function<? super R, UUID> id;
+
+    public Keyset(String sortAttribute, Function<? super R, ?> sortValue, Function<? super R, UUID> id) {
+        this.sortAttribute = sortAttribute;
+        this.sortValue = sortValue;
+        this.id = id;
+    }
+
+    public String getSortAttribute() {
+        return sortAttribute;
+    }
+
+    public String cursorAfter(R row) {
+        return encode(sortValue.apply(row), id.apply(row));
+    }
+
+    // a null would come back as the text "null", so sort attributes must be not-null columns (see SearchPlan)
+    public static String encode(Object sortValue, UUID id) {
+        if (sortValue == null)
+            throw new IllegalArgumentException("Cannot encode a cursor at a null sort value");
+        String raw = sortValue + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // returns {sortValue, id}; the id is split off the end since sort values may contain the separator
+    public static String[] decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int split = raw.lastIndexOf('|');
+            if (split < 0)
+                throw new InvalidRequestException("Invalid cursor");
+            return new String[] { raw.substring(0, split), raw.substring(split + 1) };
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Invalid cursor");
+        }
+    }
+}
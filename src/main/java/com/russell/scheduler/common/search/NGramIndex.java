@@ -0,0 +1,251 @@
+package com.russell.scheduler.common.search;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+// in-memory trigram index for typo-tolerant lookups; documents are slots, postings are int arrays of slots
+public class NGramIndex<V> {
+
+    public static final int MAX_SUGGESTIONS = 50;
+    // fraction of the query's trigrams a document has to share to be suggested
+    private static final float MIN_SCORE = 0.3f;
+    private static final int INITIAL_POSTINGS = 4;
+
+    private final Function<? super V, UUID> id;
+    private final Function<? super V, String> text;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // per-thread trigram counters indexed by slot, zeroed after each lookup instead of reallocated
+    private final ThreadLocal<int[]> scratch = ThreadLocal.withInitial(() -> new int[0]);
+    private Segment<V> segment = new Segment<>(16);
+
+    public NGramIndex(Function<? super V, UUID> id, Function<? super V, String> text) {
+        this.id = id;
+        this.text = text;
+    }
+
+    // the new segment is built without holding the lock, so lookups and updates carry on until the swap
+    public void rebuild(Collection<? extends V> values) {
+        Segment<V> rebuilt = new Segment<>(values.size());
+        for (V value : values)
+            rebuilt.add(id.apply(value), value, grams(text.apply(value)));
+        lock.writeLock().lock();
+        try {
+            segment = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(V value) {
+        UUID key = id.apply(value);
+        long[] grams = grams(text.apply(value));
+        lock.writeLock().lock();
+        try {
+            segment.remove(key);
+            segment.add(key, value, grams);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(UUID key) {
+        lock.writeLock().lock();
+        try {
+            segment.remove(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return segment.slots.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<V> suggest(String query, int limit) {
+        long[] queryGrams = grams(query);
+        if (queryGrams.length == 0 || limit < 1)
+            return new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            int[] shared = scratch.get();
+            if (shared.length < segment.nextSlot) {
+                shared = new int[segment.values.length];
+                scratch.set(shared);
+            }
+            return segment.top(queryGrams, Math.min(limit, MAX_SUGGESTIONS), shared);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // distinct trigrams of every word padded with one space (" jo", "jon", "on "), packed three chars to a long;
+    // unlike pg_trgm there is no two-space "  j" gram, which matches a large share of all words and barely ranks
+    static long[] grams(String value) {
+        if (value == null)
+            return new long[0];
+
+        Set<Long> grams = new HashSet<>();
+        String normalized = value.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean inWord = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                String padded = " " + normalized.substring(start, i) + " ";
+                for (int g = 0; g + 3 <= padded.length(); g++)
+                    grams.add(((long) padded.charAt(g) << 32) | ((long) padded.charAt(g + 1) << 16) | padded.charAt(g + 2));
+                start = -1;
+            }
+        }
+
+        // sorted, so a document's trigrams can be probed with a binary search
+        long[] packed = new long[grams.size()];
+        int i = 0;
+        for (Long gram : grams)
+            packed[i++] = gram;
+        Arrays.sort(packed);
+        return packed;
+    }
+
+    private static class Segment<V> {
+        private final Map<Long, Postings> postings = new HashMap<>();
+        private final Map<UUID, Integer> slots;
+        private final Deque<Integer> freeSlots = new ArrayDeque<>();
+        private Object[] values;
+        private long[][] docGrams;
+        private int nextSlot;
+
+        private Segment(int capacity) {
+            this.slots = new HashMap<>(Math.max(16, capacity * 4 / 3 + 1));
+            this.values = new Object[Math.max(16, capacity)];
+            this.docGrams = new long[values.length][];
+        }
+
+        private void add(UUID key, V value, long[] grams) {
+            int slot;
+            if (!freeSlots.isEmpty()) {
+                slot = freeSlots.pop();
+            } else {
+                slot = nextSlot++;
+                if (slot == values.length) {
+                    values = Arrays.copyOf(values, values.length * 2);
+                    docGrams = Arrays.copyOf(docGrams, values.length);
+                }
+            }
+            values[slot] = value;
+            docGrams[slot] = grams;
+            slots.put(key, slot);
+            for (long gram : grams)
+                postings.computeIfAbsent(gram, g -> new Postings()).add(slot);
+        }
+
+        private void remove(UUID key) {
+            Integer slot = slots.remove(key);
+            if (slot == null)
+                return;
+            for (long gram : docGrams[slot]) {
+                Postings list = postings.get(gram);
+                if (list.remove(slot) == 0)
+                    postings.remove(gram);
+            }
+            values[slot] = null;
+            docGrams[slot] = null;
+            freeSlots.push(slot);
+        }
+
+        @SuppressWarnings("unchecked")
+        private List<V> top(long[] queryGrams, int limit, int[] shared) {
+            Postings[] lists = new Postings[queryGrams.length];
+            Integer[] order = new Integer[queryGrams.length];
+            for (int i = 0; i < queryGrams.length; i++) {
+                lists[i] = postings.getOrDefault(queryGrams[i], Postings.EMPTY);
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingInt(i -> lists[i].size));
+
+            // a match must share minShared of the query's trigrams, so it has to appear in at least one of the
+            // (length - minShared + 1) rarest lists; only those are scanned, the common ones are probed per candidate
+            int minShared = Math.max(1, (int) Math.ceil(queryGrams.length * MIN_SCORE));
+            int scanned = queryGrams.length - minShared + 1;
+            int candidates = 0;
+            for (int i = 0; i < scanned; i++)
+                candidates += lists[order[i]].size;
+
+            int[] touched = new int[candidates];
+            int touchedCount = 0;
+            try {
+                for (int i = 0; i < scanned; i++) {
+                    Postings list = lists[order[i]];
+                    for (int p = 0; p < list.size; p++) {
+                        int slot = list.slots[p];
+                        if (shared[slot]++ == 0)
+                            touched[touchedCount++] = slot;
+                    }
+                }
+                for (int i = scanned; i < queryGrams.length; i++) {
+                    long gram = queryGrams[order[i]];
+                    for (int t = 0; t < touchedCount; t++) {
+                        int slot = touched[t];
+                        if (Arrays.binarySearch(docGrams[slot], gram) >= 0)
+                            shared[slot]++;
+                    }
+                }
+
+                // min-heap of the best `limit` slots: most shared trigrams first, then the shorter document
+                Comparator<Integer> rank = Comparator.<Integer>comparingInt(slot -> shared[slot])
+                        .thenComparing(slot -> docGrams[slot].length, Comparator.reverseOrder());
+                PriorityQueue<Integer> best = new PriorityQueue<>(limit + 1, rank);
+                for (int t = 0; t < touchedCount; t++) {
+                    int slot = touched[t];
+                    if (shared[slot] < minShared)
+                        continue;
+                    best.add(slot);
+                    if (best.size() > limit)
+                        best.poll();
+                }
+
+                List<V> results = new ArrayList<>(best.size());
+                while (!best.isEmpty())
+                    results.add((V) values[best.poll()]);
+                Collections.reverse(results);
+                return results;
+            } finally {
+                for (int t = 0; t < touchedCount; t++)
+                    shared[touched[t]] = 0;
+            }
+        }
+    }
+
+    private static class Postings {
+        private static final Postings EMPTY = new Postings();
+
+        private int[] slots = new int[INITIAL_POSTINGS];
+        private int size;
+
+        private void add(int slot) {
+            if (size == slots.length)
+                slots = Arrays.copyOf(slots, size * 2);
+            slots[size++] = slot;
+        }
+
+        // order within a posting list doesn't matter, so the last slot fills the gap; returns the new size
+        private int remove(int slot) {
+            for (int i = 0; i < size; i++) {
+                if (slots[i] == slot) {
+                    slots[i] = slots[--size];
+                    break;
+                }
+            }
+            return size;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.russell.scheduler.common.search;
+
+import java.util.List;
+
+// the select list of a search: either the root entity (optionally with associations fetched alongside it),
+// or a DTO built from a handful of attribute paths
+public class Projection<R> {
+
+    private final Class<R> resultClass;
+    private final List<String> attributes;
+    private final List<String> fetches;
+    private final String key;
+
+    private Projection(Class<R> resultClass, List<String> attributes, List<String> fetches) {
+        this.resultClass = resultClass;
+        this.attributes = attributes;
+        this.fetches = fetches;
+        this.key = resultClass.getName() + attributes + fetches;
+    }
+
+    // attribute paths are relative to the searched entity, e.g. "name", "project.id", "role.roleName";
+    // association ids (project.id) are read from the foreign key column, without a join
+    public Projection(Class<R> resultClass, String... attributes) {
+        this(resultClass, List.of(attributes), List.of());
+    }
+
+    public static <T> Projection<T> entity(Class<T> entityClass, String... fetches) {
+        return new Projection<>(entityClass, List.of(), List.of(fetches));
+    }
+
+    public Class<R> getResultClass() {
+        return resultClass;
+    }
+
+    boolean isEntity() {
+        return attributes.isEmpty();
+    }
+
+    List<String> getAttributes() {
+        return attributes;
+    }
+
+    List<String> getFetches() {
+        return fetches;
+    }
+
+    // identifies the select list, so compiled queries can be shared between equal projections
+    String getKey() {
+        return key;
+    }
+}
@@ -0,0 +1,33 @@
+package com.russell.scheduler.common.search;
+
+import com.russell.scheduler.common.exceptions.InvalidRequestException;
+
+public enum SearchOperator {
+    EQ("eq"),
+    NE("ne"),
+    LT("lt"),
+    LTE("lte"),
+    GT("gt"),
+    GTE("gte"),
+    BETWEEN("between"),
+    IN("in"),
+    PREFIX("prefix");
+
+    private final String token;
+
+    SearchOperator(String token) {
+        this.token = token;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public static SearchOperator fromToken(String token) {
+        for (SearchOperator op : values()) {
+            if (op.token.equals(token))
+                return op;
+        }
+        throw new InvalidRequestException("Unknown search operator [" + token + "]");
+    }
+}
@@ -0,0 +1,468 @@
+package com.russell.scheduler.common.search;
+
+import com.russell.scheduler.common.dtos.FacetCount;
+import com.russell.scheduler.common.exceptions.InvalidRequestException;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import javax.persistence.Version;
+import java.lang.reflect.Field;
+import java.time.DateTimeException;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+// one entity type + one shape of search keys, compiled once into a parameterized JPQL query
+public class SearchPlan<T> {
+
+    // the alias of the searched entity, in filters and in an INSERT ... SELECT's select list
+    public static final String ROOT_ALIAS = "e";
+    // the alias of the updated entity in a bulk statement's set clause
+    public static final String BULK_ALIAS = "x";
+    public static final int MAX_IN_VALUES = 1000;
+    private static final char LIKE_ESCAPE = '!';
+    // stored credentials: a filter (password[prefix]=$2a$), sort order, facet or select list on one
+    // gives its value away a character at a time or outright, so none of them may name these fields
+    private static final Set<String> SENSITIVE = Set.of("password");
+
+    private final Class<T> entityClass;
+    private final String entityName;
+    private final JoinRegistry joins;
+    private final String fromClause;
+    private final String whereClause;
+    private final boolean distinct;
+    // bulk updates bypass Hibernate's version check, so on a versioned entity they have to bump it themselves
+    private final String updateClause;
+    private final List<Term> terms;
+    private final Projection<T> entityProjection;
+    private final String selectJpql;
+    // keyed by projection, then by projection + sort attribute
+    private final Map<String, String> selectQueries = new ConcurrentHashMap<>();
+    private final Map<String, PageQuery> pageQueries = new ConcurrentHashMap<>();
+    private final Map<String, FacetQuery> facetQueries = new ConcurrentHashMap<>();
+
+    private SearchPlan(Class<T> entityClass, String entityName, JoinRegistry joins, String whereClause, List<Term> terms) {
+        this.entityClass = entityClass;
+        this.entityName = entityName;
+        this.joins = joins;
+        this.fromClause = "from " + entityName + " " + ROOT_ALIAS + joins.render();
+        this.whereClause = whereClause;
+        // a filter on a collection (e.g. assignedTasks.name) repeats the root once per matching element
+        this.distinct = joins.joinsCollection();
+        boolean versioned = Arrays.stream(entityClass.getDeclaredFields())
+                .anyMatch(field -> field.isAnnotationPresent(Version.class));
+        this.updateClause = (versioned ? "update versioned " : "update ") + entityName + " " + BULK_ALIAS;
+        this.terms = terms;
+        this.entityProjection = Projection.entity(entityClass);
+        this.selectJpql = selectFrom(entityProjection) + whereClause;
+    }
+
+    public static <T> SearchPlan<T> compile(Class<T> entityClass, Collection<String> keys) {
+        Entity entity = entityClass.getAnnotation(Entity.class);
+        if (entity == null)
+            throw new InvalidRequestException(entityClass.getSimpleName() + " is not a searchable entity");
+
+        String entityName = entity.name().isEmpty() ? entityClass.getSimpleName() : entity.name();
+        JoinRegistry joins = new JoinRegistry(entityClass);
+        StringBuilder where = new StringBuilder();
+        List<Term> terms = new ArrayList<>();
+
+        for (String key : keys) {
+            // keys are either "path" (equality) or "path[op]", e.g. endDate[lt] or project.owner.email[prefix]
+            String attribute = key;
+            SearchOperator op = SearchOperator.EQ;
+            int opStart = key.indexOf('[');
+            if (opStart > 0 && key.endsWith("]")) {
+                attribute = key.substring(0, opStart);
+                op = SearchOperator.fromToken(key.substring(opStart + 1, key.length() - 1));
+            }
+
+            String param = "p" + terms.size();
+            JoinRegistry.Attribute resolved = joins.resolve(attribute, false);
+            requireNotSensitive(resolved, "filter on " + attribute);
+
+            Class<?> type = resolved.field.getType();
+            if (op == SearchOperator.PREFIX && type != String.class)
+                throw new InvalidRequestException("Operator [prefix] only applies to text attributes, not " + attribute);
+            if (isRange(op) && !type.isPrimitive() && !Comparable.class.isAssignableFrom(type))
+                throw new InvalidRequestException("Operator [" + op.getToken() + "] cannot be applied to " + attribute);
+
+            where.append(where.length() == 0 ? " where " : " and ")
+                    .append(predicate(op, resolved.path, param));
+            terms.add(new Term(key, op, param, ValueConverters.forType(type)));
+        }
+
+        return new SearchPlan<>(entityClass, entityName, joins, where.toString(),
+                Collections.unmodifiableList(terms));
+    }
+
+    public TypedQuery<T> bind(EntityManager entityManager, Map<String, String> searchCriteria) {
+        return bind(entityManager, searchCriteria, entityProjection);
+    }
+
+    public <R> TypedQuery<R> bind(EntityManager entityManager, Map<String, String> searchCriteria,
+                                  Projection<R> projection) {
+        String jpql = selectQueries.computeIfAbsent(projection.getKey(),
+                k -> selectFrom(projection) + whereClause);
+        TypedQuery<R> query = entityManager.createQuery(jpql, projection.getResultClass());
+        bindTerms(query, searchCriteria);
+        return query;
+    }
+
+    // converts every value and compiles the projection's select list without running anything, so input that
+    // bind would reject fails here, e.g. before a streamed response has committed to a 200
+    public void validate(Map<String, String> searchCriteria, Projection<?> projection) {
+        selectQueries.computeIfAbsent(projection.getKey(), k -> selectFrom(projection) + whereClause);
+        for (Term term : terms)
+            term.convert(searchCriteria.get(term.key), (param, value) -> { });
+    }
+
+    public TypedQuery<T> bindPage(EntityManager entityManager, Map<String, String> searchCriteria,
+                                  Keyset<?> keyset, String cursor) {
+        return bindPage(entityManager, searchCriteria, entityProjection, keyset, cursor);
+    }
+
+    public <R> TypedQuery<R> bindPage(EntityManager entityManager, Map<String, String> searchCriteria,
+                                      Projection<R> projection, Keyset<?> keyset, String cursor) {
+        PageQuery page = pageQueries.computeIfAbsent(projection.getKey() + ' ' + keyset.getSortAttribute(),
+                k -> compilePage(selectFrom(projection), keyset.getSortAttribute()));
+        TypedQuery<R> query = entityManager.createQuery(cursor == null ? page.firstJpql : page.nextJpql,
+                projection.getResultClass());
+        bindTerms(query, searchCriteria);
+
+        if (cursor != null) {
+            String[] position = Keyset.decode(cursor);
+            try {
+                query.setParameter("k0", page.sortConverter.apply(position[0]));
+                query.setParameter("k1", UUID.fromString(position[1]));
+            } catch (IllegalArgumentException | DateTimeException e) {
+                throw new InvalidRequestException("Invalid cursor");
+            }
+        }
+        return query;
+    }
+
+    // grouped counts for one facet under this plan's filter; only the buckets come back, never the rows
+    public List<FacetCount> facet(EntityManager entityManager, Map<String, String> searchCriteria,
+                                  String facet, int maxBuckets) {
+        FacetQuery facetQuery = facetQueries.computeIfAbsent(facet, this::compileFacet);
+        TypedQuery<Object[]> query = entityManager.createQuery(facetQuery.jpql, Object[].class);
+        bindTerms(query, searchCriteria);
+        query.setMaxResults(maxBuckets);
+
+        List<FacetCount> counts = new ArrayList<>();
+        for (Object[] row : query.getResultList())
+            counts.add(new FacetCount(facetQuery.bucket.label(row[0]), ((Number) row[1]).longValue()));
+        return counts;
+    }
+
+    // bulk statements can't join, so the plan's filter becomes an id subquery:
+    // update Task x set ... where x.id in (select e.id from Task e join ... where ...)
+    public int executeUpdate(EntityManager entityManager, Map<String, String> searchCriteria,
+                             String setClause, Map<String, Object> values) {
+        Query query = entityManager.createQuery(updateClause + " set " + setClause + matchingIds());
+        bindTerms(query, searchCriteria);
+        values.forEach(query::setParameter);
+        return query.executeUpdate();
+    }
+
+    public int executeDelete(EntityManager entityManager, Map<String, String> searchCriteria) {
+        Query query = entityManager.createQuery("delete from " + entityName + " " + BULK_ALIAS + matchingIds());
+        bindTerms(query, searchCriteria);
+        return query.executeUpdate();
+    }
+
+    // insert into Change (entityType, entityId, ...) select 'task', e.id, ... from Task e join ... where ...
+    public int executeInsert(EntityManager entityManager, Map<String, String> searchCriteria,
+                             String insertInto, String selectList, Map<String, Object> values) {
+        Query query = entityManager.createQuery(insertInto + (distinct ? " select distinct " : " select ")
+                + selectList + " " + fromClause + whereClause);
+        bindTerms(query, searchCriteria);
+        values.forEach(query::setParameter);
+        return query.executeUpdate();
+    }
+
+    public Class<T> getEntityClass() {
+        return entityClass;
+    }
+
+    public String getEntityName() {
+        return entityName;
+    }
+
+    public String getFromClause() {
+        return fromClause;
+    }
+
+    public String getWhereClause() {
+        return whereClause;
+    }
+
+    public String getSelectJpql() {
+        return selectJpql;
+    }
+
+    // the select list and from clause for one projection; DTO attributes and fetches reuse the plan's joins,
+    // and anything else they need is left joined on a copy so other projections of this plan are unaffected
+    private String selectFrom(Projection<?> projection) {
+        JoinRegistry selectJoins = joins.copy();
+        StringBuilder select = new StringBuilder(distinct ? "select distinct " : "select ");
+        if (projection.isEntity()) {
+            select.append(ROOT_ALIAS);
+            for (String fetch : projection.getFetches())
+                selectJoins.fetch(fetch);
+        } else {
+            select.append("new ").append(projection.getResultClass().getName()).append('(');
+            List<String> attributes = projection.getAttributes();
+            for (int i = 0; i < attributes.size(); i++) {
+                if (i > 0)
+                    select.append(", ");
+                JoinRegistry.Attribute attribute = selectJoins.resolve(attributes.get(i), true);
+                requireNotSensitive(attribute, "select " + attributes.get(i));
+                select.append(attribute.path);
+            }
+            select.append(')');
+        }
+        return select.append(" from ").append(entityName).append(' ').append(ROOT_ALIAS)
+                .append(selectJoins.render()).toString();
+    }
+
+    private void bindTerms(Query query, Map<String, String> searchCriteria) {
+        for (Term term : terms)
+            term.bind(query, searchCriteria.get(term.key));
+    }
+
+    private String matchingIds() {
+        return " where " + BULK_ALIAS + ".id in (select " + ROOT_ALIAS + ".id " + fromClause + whereClause + ")";
+    }
+
+    private PageQuery compilePage(String selectFrom, String sortAttribute) {
+        Field sortField;
+        try {
+            sortField = entityClass.getDeclaredField(sortAttribute);
+        } catch (NoSuchFieldException e) {
+            throw new InvalidRequestException("Attribute " + sortAttribute + " does not exist on entity " + entityClass.getSimpleName());
+        }
+        if (SENSITIVE.contains(sortField.getName()))
+            throw new InvalidRequestException("Cannot sort on " + sortAttribute);
+        // the seek compares with :k0, which a NULL never satisfies, so rows without a value would fall out of paging
+        Column column = sortField.getAnnotation(Column.class);
+        if (column == null || column.nullable())
+            throw new InvalidRequestException("Cannot page " + entityClass.getSimpleName() + " by " + sortAttribute
+                    + ", which may be null");
+
+        String sortPath = ROOT_ALIAS + "." + sortAttribute;
+        String idPath = ROOT_ALIAS + ".id";
+        String orderBy = " order by " + sortPath + ", " + idPath;
+        // the leading >= keeps the predicate sargable, so every page is an index range scan from the cursor
+        String seek = sortPath + " >= :k0 and (" + sortPath + " > :k0 or " + idPath + " > :k1)";
+
+        String firstJpql = selectFrom + whereClause + orderBy;
+        String nextJpql = selectFrom
+                + (whereClause.isEmpty() ? " where " : whereClause + " and ") + seek + orderBy;
+        return new PageQuery(firstJpql, nextJpql, ValueConverters.forType(sortField.getType()));
+    }
+
+    // facets are either "path" (one bucket per value) or "path[year]" / "path[month]" for dates;
+    // an association groups by its foreign key, so "project" counts per project id without a join
+    private FacetQuery compileFacet(String facet) {
+        String path = facet;
+        FacetBucket bucket = FacetBucket.VALUE;
+        int bucketStart = facet.indexOf('[');
+        if (bucketStart > 0 && facet.endsWith("]")) {
+            path = facet.substring(0, bucketStart);
+            bucket = FacetBucket.fromToken(facet.substring(bucketStart + 1, facet.length() - 1));
+        }
+
+        JoinRegistry facetJoins = joins.copy();
+        JoinRegistry.Attribute attribute = facetJoins.resolve(path, true);
+        Class<?> type = attribute.field.getType();
+        if (Collection.class.isAssignableFrom(type) || type.getAnnotation(Entity.class) != null) {
+            attribute = facetJoins.resolve(path + ".id", true);
+            type = attribute.field.getType();
+        }
+        requireNotSensitive(attribute, "facet on " + path);
+        if (bucket != FacetBucket.VALUE && !Temporal.class.isAssignableFrom(type))
+            throw new InvalidRequestException("Facet [" + bucket.token + "] only applies to dates, not " + path);
+
+        String group = bucket.expression(attribute.path);
+        String count = distinct || facetJoins.joinsCollection() ? "count(distinct " + ROOT_ALIAS + ")" : "count(" + ROOT_ALIAS + ")";
+        String jpql = "select " + group + ", " + count
+                + " from " + entityName + " " + ROOT_ALIAS + facetJoins.render() + whereClause
+                + " group by " + group + " order by " + count + " desc, " + group;
+        return new FacetQuery(jpql, bucket);
+    }
+
+    private static void requireNotSensitive(JoinRegistry.Attribute attribute, String use) {
+        if (SENSITIVE.contains(attribute.field.getName()))
+            throw new InvalidRequestException("Cannot " + use);
+    }
+
+    private static boolean isRange(SearchOperator op) {
+        return op == SearchOperator.LT || op == SearchOperator.LTE
+                || op == SearchOperator.GT || op == SearchOperator.GTE
+                || op == SearchOperator.BETWEEN;
+    }
+
+    private static String predicate(SearchOperator op, String path, String param) {
+        switch (op) {
+            case NE:
+                return path + " <> :" + param;
+            case LT:
+                return path + " < :" + param;
+            case LTE:
+                return path + " <= :" + param;
+            case GT:
+                return path + " > :" + param;
+            case GTE:
+                return path + " >= :" + param;
+            case BETWEEN:
+                return path + " between :" + param + "a and :" + param + "b";
+            case IN:
+                return path + " in :" + param;
+            case PREFIX:
+                // a left-anchored LIKE, which Postgres can serve from a text_pattern_ops index
+                return path + " like :" + param + " escape '" + LIKE_ESCAPE + "'";
+            default:
+                return path + " = :" + param;
+        }
+    }
+
+    private static String escapeLike(String value) {
+        StringBuilder escaped = new StringBuilder(value.length() + 1);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE)
+                escaped.append(LIKE_ESCAPE);
+            escaped.append(c);
+        }
+        return escaped.append('%').toString();
+    }
+
+    private static class PageQuery {
+        private final String firstJpql;
+        private final String nextJpql;
+        private final Function<String, Object> sortConverter;
+
+        private PageQuery(String firstJpql, String nextJpql, Function<String, Object> sortConverter) {
+            this.firstJpql = firstJpql;
+            this.nextJpql = nextJpql;
+            this.sortConverter = sortConverter;
+        }
+    }
+
+    private static class FacetQuery {
+        private final String jpql;
+        private final FacetBucket bucket;
+
+        private FacetQuery(String jpql, FacetBucket bucket) {
+            this.jpql = jpql;
+            this.bucket = bucket;
+        }
+    }
+
+    private enum FacetBucket {
+        VALUE(""),
+        YEAR("year"),
+        MONTH("month");
+
+        private final String token;
+
+        FacetBucket(String token) {
+            this.token = token;
+        }
+
+        private static FacetBucket fromToken(String token) {
+            if (YEAR.token.equals(token))
+                return YEAR;
+            if (MONTH.token.equals(token))
+                return MONTH;
+            throw new InvalidRequestException("Unknown facet bucket [" + token + "]");
+        }
+
+        private String expression(String path) {
+            switch (this) {
+                case YEAR:
+                    return "year(" + path + ")";
+                case MONTH:
+                    // one integer per month (202301) so the database groups on a single expression
+                    return "year(" + path + ") * 100 + month(" + path + ")";
+                default:
+                    return path;
+            }
+        }
+
+        private String label(Object value) {
+            if (value == null)
+                return null;
+            if (this == MONTH) {
+                int month = ((Number) value).intValue();
+                return String.format("%04d-%02d", month / 100, month % 100);
+            }
+            return this == YEAR ? String.valueOf(((Number) value).intValue()) : value.toString();
+        }
+    }
+
+    private static class Term {
+        private final String key;
+        private final SearchOperator op;
+        private final String param;
+        private final Function<String, Object> converter;
+
+        private Term(String key, SearchOperator op, String param, Function<String, Object> converter) {
+            this.key = key;
+            this.op = op;
+            this.param = param;
+            this.converter = converter;
+        }
+
+        private void bind(Query query, String value) {
+            convert(value, query::setParameter);
+        }
+
+        // hands each converted parameter to the sink, which binds it or, when validating, drops it
+        private void convert(String value, BiConsumer<String, Object> sink) {
+            if (value == null)
+                throw new InvalidRequestException("Missing value for " + key);
+            try {
+                switch (op) {
+                    case BETWEEN:
+                        String[] bounds = value.split(",", -1);
+                        if (bounds.length != 2)
+                            throw new InvalidRequestException(key + " expects two comma-separated values");
+                        sink.accept(param + "a", converter.apply(bounds[0].trim()));
+                        sink.accept(param + "b", converter.apply(bounds[1].trim()));
+                        break;
+                    case IN:
+                        String[] values = value.split(",");
+                        if (values.length > MAX_IN_VALUES)
+                            throw new InvalidRequestException(key + " accepts at most " + MAX_IN_VALUES + " values");
+                        List<Object> converted = new ArrayList<>(values.length);
+                        for (String v : values)
+                            converted.add(converter.apply(v.trim()));
+                        sink.accept(param, converted);
+                        break;
+                    case PREFIX:
+                        sink.accept(param, escapeLike(value));
+                        break;
+                    default:
+                        sink.accept(param, converter.apply(value));
+                }
+            } catch (IllegalArgumentException | DateTimeException e) {
+                throw new InvalidRequestException("Invalid value for " + key + ": " + value);
+            }
+        }
+    }
+}
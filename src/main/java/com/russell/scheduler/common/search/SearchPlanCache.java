@@ -0,0 +1,74 @@
+package com.russell.scheduler.common.search;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class SearchPlanCache implements MeterBinder {
+
+    private final Map<String, SearchPlan<?>> plans;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @Autowired
+    public SearchPlanCache(@Value("${search.plan-cache.max-size:256}") int maxSize) {
+        // access-ordered, so the least recently used plan is the one evicted
+        this.plans = Collections.synchronizedMap(new LinkedHashMap<String, SearchPlan<?>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SearchPlan<?>> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> SearchPlan<T> getPlan(Class<T> entityClass, Collection<String> keys) {
+        String cacheKey = cacheKey(entityClass, keys);
+        SearchPlan<?> plan = plans.get(cacheKey);
+        if (plan != null) {
+            hits.incrementAndGet();
+            return (SearchPlan<T>) plan;
+        }
+
+        misses.incrementAndGet();
+        SearchPlan<T> compiled = SearchPlan.compile(entityClass, keys);
+        plans.put(cacheKey, compiled);
+        return compiled;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        return plans.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("search.plan.cache.hits", hits, AtomicLong::get).register(registry);
+        FunctionCounter.builder("search.plan.cache.misses", misses, AtomicLong::get).register(registry);
+        Gauge.builder("search.plan.cache.size", this, SearchPlanCache::size).register(registry);
+    }
+
+    private static String cacheKey(Class<?> entityClass, Collection<String> keys) {
+        // key order is irrelevant to the plan, so ?a=1&b=2 and ?b=2&a=1 share an entry
+        return entityClass.getName() + '?' + String.join("&", new TreeSet<>(keys));
+    }
+}
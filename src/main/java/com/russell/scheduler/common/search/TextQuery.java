@@ -0,0 +1,78 @@
+package com.russell.scheduler.common.search;
+
+import com.russell.scheduler.common.exceptions.InvalidRequestException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// free text -> Postgres tsquery syntax: words are ANDed, "quoted phrases" must appear in order, and word* matches by prefix
+public final class TextQuery {
+
+    private static final int MAX_TERMS = 32;
+
+    private TextQuery() {}
+
+    public static String toTsQuery(String input) {
+        List<String> clauses = new ArrayList<>();
+        int terms = 0;
+        int i = 0;
+        int length = input == null ? 0 : input.length();
+
+        while (i < length) {
+            char c = input.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+
+            int end;
+            List<String> words;
+            if (c == '"') {
+                end = input.indexOf('"', i + 1);
+                if (end < 0)
+                    end = length;
+                words = words(input.substring(i + 1, end));
+                end++;
+            } else {
+                end = i;
+                while (end < length && !Character.isWhitespace(input.charAt(end)) && input.charAt(end) != '"')
+                    end++;
+                // punctuation inside a token (e.g. front-end) splits it into adjacent words, as Postgres does
+                words = words(input.substring(i, end));
+            }
+
+            if (words.size() > 1)
+                clauses.add("(" + String.join(" <-> ", words) + ")");
+            else
+                clauses.addAll(words);
+            terms += words.size();
+            i = end;
+        }
+
+        if (clauses.isEmpty())
+            throw new InvalidRequestException("q must contain at least one word");
+        if (terms > MAX_TERMS)
+            throw new InvalidRequestException("q accepts at most " + MAX_TERMS + " words");
+        return String.join(" & ", clauses);
+    }
+
+    // only letters and digits reach the tsquery, so user input can never break its syntax
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.append(c);
+                continue;
+            }
+            if (word.length() > 0) {
+                String lexeme = word.toString().toLowerCase(Locale.ROOT);
+                words.add(c == '*' ? lexeme + ":*" : lexeme);
+                word.setLength(0);
+            }
+        }
+        return words;
+    }
+}
@@ -0,0 +1,52 @@
+package com.russell.scheduler.common.search;
+
+import com.russell.scheduler.common.exceptions.RecordNotFoundException;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+// String -> field type conversion, resolved once per type when a plan is compiled
+public final class ValueConverters {
+
+    private static final Map<Class<?>, Function<String, Object>> CONVERTERS = new ConcurrentHashMap<>();
+
+    static {
+        CONVERTERS.put(String.class, value -> value);
+        CONVERTERS.put(UUID.class, UUID::fromString);
+        CONVERTERS.put(LocalDate.class, LocalDate::parse);
+        CONVERTERS.put(LocalDateTime.class, LocalDateTime::parse);
+        CONVERTERS.put(Integer.class, Integer::valueOf);
+        CONVERTERS.put(int.class, Integer::valueOf);
+        CONVERTERS.put(Long.class, Long::valueOf);
+        CONVERTERS.put(long.class, Long::valueOf);
+        CONVERTERS.put(Double.class, Double::valueOf);
+        CONVERTERS.put(double.class, Double::valueOf);
+        CONVERTERS.put(Boolean.class, Boolean::valueOf);
+        CONVERTERS.put(boolean.class, Boolean::valueOf);
+    }
+
+    private ValueConverters() {}
+
+    public static Function<String, Object> forType(Class<?> type) {
+        return CONVERTERS.computeIfAbsent(type, ValueConverters::create);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Function<String, Object> create(Class<?> type) {
+        if (type.isEnum()) {
+            Class<Enum> enumType = (Class<Enum>) type;
+            return value -> {
+                try {
+                    return Enum.valueOf(enumType, value.toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    throw new RecordNotFoundException();
+                }
+            };
+        }
+        return value -> value;
+    }
+}
@@ -32,6 +32,8 @@ public class MockDataInserter implements CommandLineRunner {
     public void run(String... args) throws Exception {
         UserRole adminRole = new UserRole(1, "admin", 1);
         userRoleRepo.save(adminRole);
+        // past every Permission's maxPriority, so self-registered users start with no permissions
+        userRoleRepo.save(new UserRole(2, "viewer", 4));
 
         User user1 = new User("test", "test@test.com", "Urist", "McTester", "P@ssword1", adminRole);
         user1.setId(UUID.randomUUID());
@@ -0,0 +1,65 @@
+package com.russell.scheduler.config;
+
+import com.russell.scheduler.auth.PermissionInterceptor;
+import com.russell.scheduler.auth.PermissionTable;
+import com.russell.scheduler.auth.PrincipalArgumentResolver;
+import com.russell.scheduler.common.NdjsonWriter;
+import com.russell.scheduler.common.ratelimit.RateLimitInterceptor;
+import com.russell.scheduler.common.ratelimit.RateLimiter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.ContentNegotiationConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final PermissionTable permissionTable;
+    private final RateLimiter rateLimiter;
+
+    @Autowired
+    public WebConfig(PermissionTable permissionTable, RateLimiter rateLimiter) {
+        this.permissionTable = permissionTable;
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public void configureContentNegotiation(ContentNegotiationConfigurer configurer) {
+        // without this, a missing or */* Accept header matches both the JSON and NDJSON handlers
+        configurer.defaultContentType(MediaType.APPLICATION_JSON);
+    }
+
+    // an error on an NDJSON endpoint can only be written in that type, so it goes out as a single JSON line;
+    // without a converter for it the 400 or 404 would itself fail and surface as a 500
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        for (HttpMessageConverter<?> converter : converters) {
+            if (converter instanceof MappingJackson2HttpMessageConverter) {
+                MappingJackson2HttpMessageConverter jackson = (MappingJackson2HttpMessageConverter) converter;
+                List<MediaType> types = new ArrayList<>(jackson.getSupportedMediaTypes());
+                types.add(MediaType.parseMediaType(NdjsonWriter.MEDIA_TYPE));
+                jackson.setSupportedMediaTypes(types);
+            }
+        }
+    }
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(new PrincipalArgumentResolver());
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // limited first, so a flood of requests is turned away before any other work is done for it
+        registry.addInterceptor(new RateLimitInterceptor(rateLimiter));
+        registry.addInterceptor(new PermissionInterceptor(permissionTable));
+    }
+}
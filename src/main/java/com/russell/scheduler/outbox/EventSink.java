@@ -0,0 +1,10 @@
+package com.russell.scheduler.outbox;
+
+import java.util.List;
+
+// where relayed events go, e.g. a message broker; define one as a bean to turn the relay on. Delivery is at least
+// once: a batch whose send() throws, or whose transaction fails after it, is sent again on a later poll
+public interface EventSink {
+
+    void send(List<OutboxEvent> events);
+}
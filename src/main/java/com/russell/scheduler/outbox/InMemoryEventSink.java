@@ -0,0 +1,27 @@
+package com.russell.scheduler.outbox;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// keeps relayed events in the JVM, for tests and local runs (outbox.sink=memory)
+@Component
+@ConditionalOnProperty(name = "outbox.sink", havingValue = "memory")
+public class InMemoryEventSink implements EventSink {
+
+    private final List<OutboxEvent> events = new ArrayList<>();
+
+    @Override
+    public synchronized void send(List<OutboxEvent> batch) {
+        events.addAll(batch);
+    }
+
+    // everything received since the last call
+    public synchronized List<OutboxEvent> drain() {
+        List<OutboxEvent> drained = new ArrayList<>(events);
+        events.clear();
+        return drained;
+    }
+}
@@ -0,0 +1,62 @@
+package com.russell.scheduler.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.transaction.Transactional;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+@Service
+@Transactional
+public class Outbox {
+
+    private OutboxRepository outboxRepository;
+    private ObjectMapper mapper;
+
+    @Autowired
+    public Outbox(OutboxRepository outboxRepository, ObjectMapper mapper) {
+        this.outboxRepository = outboxRepository;
+        this.mapper = mapper;
+    }
+
+    // MANDATORY, as an event written in a transaction of its own could be relayed for a change that rolled back
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void record(String eventType, UUID aggregateId, Object payload) {
+        outboxRepository.save(new OutboxEvent(eventType, aggregateId, toJson(payload), Instant.now()));
+    }
+
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void recordAll(String eventType, Map<UUID, ?> payloads) {
+        Instant now = Instant.now();
+        List<OutboxEvent> events = new ArrayList<>(payloads.size());
+        payloads.forEach((aggregateId, payload) ->
+                events.add(new OutboxEvent(eventType, aggregateId, toJson(payload), now)));
+        outboxRepository.saveAll(events);
+    }
+
+    // lock, send, delete, all in one transaction: a send that fails leaves the rows for the next poll, and a crash
+    // after a send but before the commit redelivers the batch
+    public List<OutboxEvent> relayBatch(EventSink sink, int limit) {
+        List<OutboxEvent> batch = outboxRepository.lockNextBatch(limit);
+        if (batch.isEmpty())
+            return batch;
+        sink.send(batch);
+        outboxRepository.deleteAllByIdInBatch(batch.stream().map(OutboxEvent::getId).collect(Collectors.toList()));
+        return batch;
+    }
+
+    private String toJson(Object payload) {
+        try {
+            return mapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize " + payload.getClass().getSimpleName(), e);
+        }
+    }
+}
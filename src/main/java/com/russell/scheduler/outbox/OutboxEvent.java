@@ -0,0 +1,105 @@
+package com.russell.scheduler.outbox;
+
+import javax.persistence.*;
+
+import java.time.Instant;
+import java.util.Objects;
+import java.util.UUID;
+
+// a domain event waiting to be relayed; written in the same transaction as the change it describes, and deleted
+// once a sink has accepted it
+@Entity
+@Table(name="outbox_events")
+public class OutboxEvent {
+
+    // also the order events are relayed in, and the id a consumer de-duplicates redeliveries on; drawn from a
+    // sequence 50 at a time rather than an identity column, so a batch of events goes out as one JDBC batch
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_events_seq")
+    @SequenceGenerator(name = "outbox_events_seq", sequenceName = "outbox_events_seq", allocationSize = 50)
+    @Column(name = "id")
+    private Long id;
+    @Column(name = "event_type", nullable = false, length = 32)
+    private String eventType;
+    // null for a bulk event, which describes a filter rather than one record
+    @Column(name = "aggregate_id")
+    private UUID aggregateId;
+    @Column(name = "payload", nullable = false, columnDefinition = "text")
+    private String payload;
+    @Column(name = "occurred_at", nullable = false)
+    private Instant occurredAt;
+
+    public OutboxEvent() {
+        super();
+    }
+
+    public OutboxEvent(String eventType, UUID aggregateId, String payload, Instant occurredAt) {
+        this.eventType = eventType;
+        this.aggregateId = aggregateId;
+        this.payload = payload;
+        this.occurredAt = occurredAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public void setEventType(String eventType) {
+        this.eventType = eventType;
+    }
+
+    public UUID getAggregateId() {
+        return aggregateId;
+    }
+
+    public void setAggregateId(UUID aggregateId) {
+        this.aggregateId = aggregateId;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public Instant getOccurredAt() {
+        return occurredAt;
+    }
+
+    public void setOccurredAt(Instant occurredAt) {
+        this.occurredAt = occurredAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        OutboxEvent event = (OutboxEvent) o;
+        return Objects.equals(id, event.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+
+    @Override
+    public String toString() {
+        return "OutboxEvent{" +
+                "id=" + id +
+                ", eventType='" + eventType + '\'' +
+                ", aggregateId=" + aggregateId +
+                ", occurredAt=" + occurredAt +
+                '}';
+    }
+}
@@ -0,0 +1,101 @@
+package com.russell.scheduler.outbox;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// drains outbox_events into the EventSink bean; without one, events wait in the table until a sink is configured.
+// Each node runs its own relay, and SKIP LOCKED keeps them off each other's batches, so events from different
+// batches can arrive out of order: consumers should order by id where it matters
+@Component
+public class OutboxRelay implements MeterBinder {
+
+    private final Logger logger = LogManager.getLogger();
+    private final Outbox outbox;
+    private final ObjectProvider<EventSink> sink;
+    private final int batchSize;
+    private final AtomicLong relayed = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong batchNanos = new AtomicLong();
+    // from an event's commit (near enough, its occurredAt) to the sink accepting it
+    private final AtomicLong lagMillis = new AtomicLong();
+    private volatile long lastMaxLagMillis;
+
+    @Autowired
+    public OutboxRelay(Outbox outbox, ObjectProvider<EventSink> sink,
+                       @Value("${outbox.relay.batch-size:500}") int batchSize) {
+        this.outbox = outbox;
+        this.sink = sink;
+        this.batchSize = batchSize;
+    }
+
+    // keeps going while batches come back full, so a backlog drains in one run rather than one batch per poll
+    @Scheduled(fixedDelayString = "${outbox.relay.poll-interval-ms:500}")
+    public void relay() {
+        EventSink target = sink.getIfAvailable();
+        if (target == null)
+            return;
+        List<OutboxEvent> batch;
+        do {
+            long startedAt = System.nanoTime();
+            try {
+                batch = outbox.relayBatch(target, batchSize);
+            } catch (RuntimeException e) {
+                failures.incrementAndGet();
+                logger.error("Could not relay outbox events, retrying on the next poll", e);
+                return;
+            }
+            if (batch.isEmpty())
+                return;
+            batches.incrementAndGet();
+            batchNanos.addAndGet(System.nanoTime() - startedAt);
+            record(batch);
+        } while (batch.size() == batchSize);
+    }
+
+    public long getLastMaxLagMillis() {
+        return lastMaxLagMillis;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        // throughput is this counter's rate
+        FunctionCounter.builder("outbox.relayed", relayed, AtomicLong::get).register(registry);
+        FunctionCounter.builder("outbox.relay.failures", failures, AtomicLong::get).register(registry);
+        FunctionTimer.builder("outbox.relay.batch", this, r -> r.batches.get(), r -> r.batchNanos.get(),
+                TimeUnit.NANOSECONDS).register(registry);
+        FunctionTimer.builder("outbox.lag", this, r -> r.relayed.get(), r -> r.lagMillis.get(),
+                TimeUnit.MILLISECONDS).register(registry);
+        Gauge.builder("outbox.lag.max", this, OutboxRelay::getLastMaxLagMillis).baseUnit("milliseconds")
+                .register(registry);
+    }
+
+    private void record(List<OutboxEvent> batch) {
+        long now = Instant.now().toEpochMilli();
+        long max = 0;
+        long total = 0;
+        for (OutboxEvent event : batch) {
+            long lag = Math.max(0, now - event.getOccurredAt().toEpochMilli());
+            total += lag;
+            max = Math.max(max, lag);
+        }
+        lagMillis.addAndGet(total);
+        relayed.addAndGet(batch.size());
+        lastMaxLagMillis = max;
+    }
+}
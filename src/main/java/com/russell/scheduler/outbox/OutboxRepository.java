@@ -0,0 +1,15 @@
+package com.russell.scheduler.outbox;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface OutboxRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // native, as JPQL has no SKIP LOCKED; rows another relay holds are passed over rather than waited on, so
+    // several nodes can drain the table side by side
+    @Query(value = "select * from outbox_events order by id limit :limit for update skip locked", nativeQuery = true)
+    List<OutboxEvent> lockNextBatch(@Param("limit") int limit);
+}
@@ -6,13 +6,12 @@ import com.russell.scheduler.task.Task;
 import javax.persistence.*;
 
 import java.time.LocalDate;
-import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
 
 @Entity
-@Table(name="projects")
+@Table(name="projects", indexes = @Index(name = "projects_start_date_id_idx", columnList = "start_date, id"))
 public class Project {
 
     @Id
@@ -24,11 +23,16 @@ public class Project {
     @Column(name = "end_date", nullable = false)
     private LocalDate endDate;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name="projects")
     private Resource owner;
     @OneToMany(mappedBy = "project")
     private Set<Task> tasks;
+    // bumped by Hibernate on every update, and sent as a weak ETag; a null version also tells Spring Data a
+    // project is new, so saving one persists it instead of merging (a SELECT before the INSERT)
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
 
     public Project() {
         super();
@@ -97,6 +101,14 @@ public class Project {
         this.tasks = tasks;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public Resource getOwner() {
         return owner;
     }
@@ -105,14 +117,6 @@ public class Project {
         this.owner = owner;
     }
 
-    public Set<Resource> getAllResources() {
-        Set<Resource> res = new HashSet<>();
-        res.add(this.owner);
-        for (Task t : tasks)
-            res.add(t.getAssignee());
-        return res;
-    }
-
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
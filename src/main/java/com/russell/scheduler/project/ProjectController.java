@@ -1,13 +1,28 @@
 package com.russell.scheduler.project;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.russell.scheduler.auth.Permission;
+import com.russell.scheduler.auth.RequiresPermission;
+import com.russell.scheduler.common.ETags;
+import com.russell.scheduler.common.NdjsonWriter;
+import com.russell.scheduler.common.dtos.FacetResponse;
+import com.russell.scheduler.common.dtos.PageResponse;
 import com.russell.scheduler.common.dtos.RecordCreationResponse;
+import com.russell.scheduler.common.ratelimit.RateLimited;
 import com.russell.scheduler.project.dtos.NewProjectRequest;
 import com.russell.scheduler.project.dtos.ProjectAssignment;
+import com.russell.scheduler.project.dtos.ProjectMemberResponse;
 import com.russell.scheduler.project.dtos.ProjectResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -17,10 +32,12 @@ import java.util.UUID;
 public class ProjectController {
 
     private ProjectService projectService;
+    private ObjectMapper mapper;
 
     @Autowired
-    public ProjectController(ProjectService projectService) {
+    public ProjectController(ProjectService projectService, ObjectMapper mapper) {
         this.projectService = projectService;
+        this.mapper = mapper;
     }
 
     @GetMapping(produces = "application/json")
@@ -28,9 +45,43 @@ public class ProjectController {
         return projectService.findAll();
     }
 
+    @GetMapping(params = "limit", produces = "application/json")
+    public PageResponse<ProjectResponse> getProjectPage(@RequestParam int limit,
+                                                        @RequestParam(required = false) String cursor) {
+        return projectService.findPage(limit, cursor);
+    }
+
+    @GetMapping(produces = NdjsonWriter.MEDIA_TYPE)
+    public StreamingResponseBody streamAll() {
+        projectService.validateStreamSearch(Map.of());
+        return out -> {
+            try (NdjsonWriter writer = new NdjsonWriter(mapper, out)) {
+                projectService.streamAll(writer);
+            }
+        };
+    }
+
     @GetMapping(value="id/{id}", produces = "application/json")
-    public ProjectResponse getSingleProject(@PathVariable(name="id") UUID projectId) {
-        return projectService.findOne(projectId);
+    public ResponseEntity<ProjectResponse> getSingleProject(@PathVariable(name="id") UUID projectId,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            String current = ETags.weak(projectService.findVersion(projectId));
+            if (ETags.matches(ifNoneMatch, current))
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(current).build();
+        }
+        ProjectResponse project = projectService.findOne(projectId);
+        return ResponseEntity.ok().eTag(ETags.weak(project.getVersion())).body(project);
+    }
+
+    @GetMapping(value="id/{id}/resources", produces = "application/json")
+    public List<ProjectMemberResponse> getProjectRoster(@PathVariable(name="id") UUID projectId) {
+        return projectService.findRoster(projectId);
+    }
+
+    // task changes in this project as they commit on this node; a resync event means reload the project's tasks
+    @GetMapping(value="id/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamProjectEvents(@PathVariable(name="id") UUID projectId) {
+        return projectService.subscribe(projectId);
     }
 
     @GetMapping(value = "/search", produces = "application/json")
@@ -38,25 +89,55 @@ public class ProjectController {
         return projectService.search(params);
     }
 
+    @GetMapping(value = "/search", params = {"limit", "!facets"}, produces = "application/json")
+    public PageResponse<ProjectResponse> searchPage(@RequestParam Map<String, String> params,
+                                                    @RequestParam int limit,
+                                                    @RequestParam(required = false) String cursor) {
+        return projectService.searchPage(params, limit, cursor);
+    }
+
+    @GetMapping(value = "/search", params = "facets", produces = "application/json")
+    public FacetResponse facets(@RequestParam Map<String, String> params) {
+        return projectService.facets(params);
+    }
+
+    @GetMapping(value = "/search", produces = NdjsonWriter.MEDIA_TYPE)
+    public StreamingResponseBody streamSearch(@RequestParam Map<String, String> params) {
+        // checked here, while an error can still be a 400; only the rows are read once the body has started
+        projectService.validateStreamSearch(params);
+        return out -> {
+            try (NdjsonWriter writer = new NdjsonWriter(mapper, out)) {
+                projectService.streamSearch(params, writer);
+            }
+        };
+    }
+
     @ResponseStatus(HttpStatus.CREATED)
+    @RequiresPermission(Permission.MANAGE_PROJECTS)
+    @RateLimited("project-writes")
     @PostMapping(produces = "application/json", consumes = "application/json")
     public RecordCreationResponse createNewResource(@RequestBody NewProjectRequest req){
         return projectService.create(req);
     }
 
     @ResponseStatus(HttpStatus.NO_CONTENT)
+    @RequiresPermission(Permission.MANAGE_PROJECTS)
     @DeleteMapping(value="id/{id}")
     public void deleteProject(@PathVariable(name="id") UUID projectId) {
         projectService.delete(projectId);
     }
 
     @ResponseStatus(HttpStatus.OK)
+    @RequiresPermission(Permission.MANAGE_PROJECTS)
+    @RateLimited("project-writes")
     @PatchMapping(value="id/{id}")
     public ProjectResponse updateProject(@PathVariable(name = "id") UUID projectId, @RequestBody NewProjectRequest req) {
         return projectService.update(projectId, req);
     }
 
     @ResponseStatus(HttpStatus.OK)
+    @RequiresPermission(Permission.MANAGE_PROJECTS)
+    @RateLimited("project-writes")
     @PatchMapping(value="assign")
     public ProjectResponse assignProject(@RequestBody ProjectAssignment assignment) {
         return projectService.assignOwnerToProject(assignment);
@@ -0,0 +1,280 @@
+package com.russell.scheduler.project;
+
+import com.russell.scheduler.common.exceptions.ServiceUnavailableException;
+import com.russell.scheduler.project.dtos.ProjectEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// fans task changes out to the SSE subscribers of their project on this node. Publishing only queues: each
+// subscriber has its own bounded queue, written to its connection by a small pool of sender threads, so a slow
+// client never holds up a writer or another client. A client that falls too far behind gets a resync event in
+// place of what it missed. Idle subscribers hold no thread, and no queue storage until there's something to send.
+// A send is blocking servlet I/O, so one stuck behind a full TCP window past the send timeout is abandoned: its
+// subscriber is dropped and the pool gets a thread in place of the one still blocked, until that write returns.
+@Component
+public class ProjectEventHub implements MeterBinder {
+
+    private static final ProjectEvent HEARTBEAT = new ProjectEvent("heartbeat", null, null);
+    private static final ProjectEvent RESYNC = new ProjectEvent("resync", null, null);
+    // Subscriber.sendStartedAt when no send is in progress, and once one has been abandoned
+    private static final long IDLE = Long.MIN_VALUE;
+    private static final long STALLED = Long.MAX_VALUE;
+
+    private final Map<UUID, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ThreadPoolExecutor senders;
+    private final long timeoutMillis;
+    private final long sendTimeoutNanos;
+    private final int maxSubscribers;
+    private final int bufferSize;
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong overflows = new AtomicLong();
+    private final AtomicLong stalls = new AtomicLong();
+
+    @Autowired
+    public ProjectEventHub(@Value("${events.timeout-ms:1800000}") long timeoutMillis,
+                           @Value("${events.max-subscribers:50000}") int maxSubscribers,
+                           @Value("${events.buffer-size:64}") int bufferSize,
+                           @Value("${events.sender-threads:4}") int senderThreads,
+                           @Value("${events.send-timeout-ms:10000}") long sendTimeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        this.maxSubscribers = maxSubscribers;
+        this.bufferSize = bufferSize;
+        AtomicInteger threadCount = new AtomicInteger();
+        // unbounded, but a subscriber is never queued twice, so it holds at most one task per subscriber
+        this.senders = new ThreadPoolExecutor(senderThreads, senderThreads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), task -> {
+                    Thread thread = new Thread(task, "project-events-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public SseEmitter subscribe(UUID projectId) {
+        // a stream that times out just ends; EventSource reconnects on its own
+        return subscribe(projectId, new SseEmitter(timeoutMillis));
+    }
+
+    SseEmitter subscribe(UUID projectId, SseEmitter emitter) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new ServiceUnavailableException("Too many event subscribers, please retry shortly");
+        }
+        Subscriber subscriber = new Subscriber(projectId, emitter);
+        subscribers.compute(projectId, (id, current) -> {
+            Set<Subscriber> set = current == null ? ConcurrentHashMap.newKeySet() : current;
+            set.add(subscriber);
+            return set;
+        });
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+        return emitter;
+    }
+
+    // call after the change commits
+    public void publish(UUID projectId, ProjectEvent event) {
+        Set<Subscriber> targets = subscribers.get(projectId);
+        if (targets == null)
+            return;
+        published.incrementAndGet();
+        for (Subscriber subscriber : targets)
+            subscriber.enqueue(event);
+    }
+
+    // for changes too broad to describe one task at a time; null means every project
+    public void resync(UUID projectId) {
+        Collection<Set<Subscriber>> targets = projectId == null ? subscribers.values()
+                : Collections.singleton(subscribers.getOrDefault(projectId, Collections.emptySet()));
+        for (Set<Subscriber> set : targets) {
+            for (Subscriber subscriber : set)
+                subscriber.enqueue(RESYNC);
+        }
+    }
+
+    // keeps proxies from closing quiet streams, and finds clients that went away without closing theirs
+    @Scheduled(fixedDelayString = "${events.heartbeat-interval-ms:30000}")
+    public void heartbeat() {
+        for (Set<Subscriber> set : subscribers.values()) {
+            for (Subscriber subscriber : set) {
+                if (subscriber.size.get() == 0)
+                    subscriber.enqueue(HEARTBEAT);
+            }
+        }
+    }
+
+    // the emitter's methods lock it for the whole write, so a stalled subscriber can't be completed from here;
+    // its sender completes it once the write finally returns
+    @Scheduled(fixedDelayString = "${events.stall-check-interval-ms:1000}")
+    public void abandonStalledSends() {
+        long now = System.nanoTime();
+        for (Set<Subscriber> set : subscribers.values()) {
+            for (Subscriber subscriber : set) {
+                long started = subscriber.sendStartedAt.get();
+                // the CAS races the send's own finishing, so exactly one of the two sees it as abandoned
+                if (started != IDLE && started != STALLED && now - started > sendTimeoutNanos
+                        && subscriber.sendStartedAt.compareAndSet(started, STALLED)) {
+                    stalls.incrementAndGet();
+                    subscriber.close();
+                    resizeSenders(1);
+                }
+            }
+        }
+    }
+
+    // the pool can't grow past the configured size on its own, as its queue is unbounded
+    private synchronized void resizeSenders(int delta) {
+        if (delta > 0) {
+            senders.setMaximumPoolSize(senders.getMaximumPoolSize() + delta);
+            senders.setCorePoolSize(senders.getCorePoolSize() + delta);
+        } else {
+            senders.setCorePoolSize(senders.getCorePoolSize() + delta);
+            senders.setMaximumPoolSize(senders.getMaximumPoolSize() + delta);
+        }
+    }
+
+    // before the web server's graceful shutdown, which would otherwise wait out every open stream
+    @EventListener(ContextClosedEvent.class)
+    public void shutdown() {
+        senders.shutdownNow();
+        for (Set<Subscriber> set : subscribers.values()) {
+            for (Subscriber subscriber : set)
+                subscriber.emitter.complete();
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("events.subscribers", this, ProjectEventHub::getSubscriberCount).register(registry);
+        Gauge.builder("events.senders.queue.depth", senders, e -> e.getQueue().size()).register(registry);
+        FunctionCounter.builder("events.published", published, AtomicLong::get).register(registry);
+        FunctionCounter.builder("events.sent", sent, AtomicLong::get).register(registry);
+        FunctionCounter.builder("events.overflows", overflows, AtomicLong::get).register(registry);
+        FunctionCounter.builder("events.stalls", stalls, AtomicLong::get).register(registry);
+    }
+
+    private final class Subscriber {
+        private final UUID projectId;
+        private final SseEmitter emitter;
+        private final Queue<ProjectEvent> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile boolean overflowed;
+        // System.nanoTime() when the send in progress began
+        private final AtomicLong sendStartedAt = new AtomicLong(IDLE);
+
+        private Subscriber(UUID projectId, SseEmitter emitter) {
+            this.projectId = projectId;
+            this.emitter = emitter;
+        }
+
+        private void enqueue(ProjectEvent event) {
+            if (closed.get())
+                return;
+            if (size.incrementAndGet() > bufferSize) {
+                size.decrementAndGet();
+                if (!overflowed)
+                    overflows.incrementAndGet();
+                overflowed = true;
+            } else {
+                pending.add(event);
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (!scheduled.compareAndSet(false, true))
+                return;
+            try {
+                senders.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // only after shutdown
+                scheduled.set(false);
+            }
+        }
+
+        private void drain() {
+            boolean failed = false;
+            try {
+                if (overflowed) {
+                    overflowed = false;
+                    // what's still queued is part of what the client will reload, so it's dropped too
+                    while (pending.poll() != null)
+                        size.decrementAndGet();
+                    send(RESYNC);
+                }
+                ProjectEvent event;
+                while (!closed.get() && sendStartedAt.get() != STALLED && (event = pending.poll()) != null) {
+                    size.decrementAndGet();
+                    send(event);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // the client has gone, or the stream already ended
+                failed = true;
+                close();
+                emitter.completeWithError(e);
+            } finally {
+                scheduled.set(false);
+                if (sendStartedAt.get() == STALLED) {
+                    // abandoned while blocked: the replacement thread is no longer needed
+                    resizeSenders(-1);
+                    if (!failed)
+                        emitter.complete();
+                } else if (!closed.get() && (overflowed || !pending.isEmpty())) {
+                    schedule();
+                }
+            }
+        }
+
+        private void send(ProjectEvent event) throws IOException {
+            long started = System.nanoTime();
+            sendStartedAt.set(started);
+            try {
+                if (event == HEARTBEAT)
+                    emitter.send(SseEmitter.event().comment("keepalive"));
+                else if (event == RESYNC)
+                    emitter.send(SseEmitter.event().name(RESYNC.getType()).data("reload"));
+                else
+                    emitter.send(SseEmitter.event().name(event.getType()).data(event, MediaType.APPLICATION_JSON));
+            } finally {
+                sendStartedAt.compareAndSet(started, IDLE);
+            }
+            sent.incrementAndGet();
+        }
+
+        private void close() {
+            if (!closed.compareAndSet(false, true))
+                return;
+            subscriberCount.decrementAndGet();
+            subscribers.computeIfPresent(projectId, (id, set) -> {
+                set.remove(this);
+                return set.isEmpty() ? null : set;
+            });
+            pending.clear();
+        }
+    }
+}
@@ -1,8 +1,15 @@
 package com.russell.scheduler.project;
 
+import com.russell.scheduler.project.dtos.ProjectMemberResponse;
+import com.russell.scheduler.project.dtos.ProjectResponse;
 import com.russell.scheduler.resource.Resource;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 
@@ -10,4 +17,30 @@ public interface ProjectRepository extends JpaRepository<Project, UUID> {
 
     Set<Project> findByOwnerIsNull();
     Set<Project> findByOwner(Resource owner);
+
+    @Query("select new com.russell.scheduler.project.dtos.ProjectResponse(p.id, p.name, p.startDate, p.endDate, "
+            + "p.owner.id, p.version) from Project p where p.id = :id")
+    Optional<ProjectResponse> findResponseById(@Param("id") UUID id);
+
+    // answers If-None-Match on GET /projects/id/{id}
+    @Query("select p.version from Project p where p.id = :id")
+    Optional<Long> findVersionById(@Param("id") UUID id);
+
+    @Query("select new com.russell.scheduler.project.dtos.ProjectResponse(p.id, p.name, p.startDate, p.endDate, "
+            + "p.owner.id) from Project p")
+    Set<ProjectResponse> findAllResponses();
+
+    // counted in the database from tasks.assigned_to (see tasks_project_assigned_to_idx), so no Task is loaded
+    // however large the project; the owner is listed even when none of the tasks are assigned to them
+    @Query("select new com.russell.scheduler.project.dtos.ProjectMemberResponse(r.id, r.email, r.firstName, "
+            + "r.lastName, count(t.id)) from Resource r left join r.assignedTasks t on t.project.id = :id "
+            + "where r.id in (select a.assignee.id from Task a where a.project.id = :id) "
+            + "or r.id in (select p.owner.id from Project p where p.id = :id) "
+            + "group by r.id, r.email, r.firstName, r.lastName "
+            + "order by count(t.id) desc, r.lastName, r.firstName, r.id")
+    List<ProjectMemberResponse> findRoster(@Param("id") UUID id);
+
+    @Query("select new com.russell.scheduler.project.dtos.ProjectResponse(p.id, p.name, p.startDate, p.endDate, "
+            + "p.owner.id) from Project p where p.id in :ids")
+    List<ProjectResponse> findResponsesByIdIn(@Param("ids") Collection<UUID> ids);
 }
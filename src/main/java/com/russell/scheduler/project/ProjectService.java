@@ -1,7 +1,14 @@
 package com.russell.scheduler.project;
 
+import com.russell.scheduler.change.ChangeLog;
 import com.russell.scheduler.common.EntitySearcher;
+import com.russell.scheduler.common.NdjsonWriter;
+import com.russell.scheduler.common.dtos.FacetResponse;
+import com.russell.scheduler.common.dtos.PageResponse;
+import com.russell.scheduler.common.search.Keyset;
+import com.russell.scheduler.outbox.Outbox;
 import com.russell.scheduler.common.dtos.RecordCreationResponse;
+import com.russell.scheduler.project.dtos.ProjectMemberResponse;
 import com.russell.scheduler.project.dtos.ProjectResponse;
 import com.russell.scheduler.resource.Resource;
 import com.russell.scheduler.common.exceptions.RecordNotFoundException;
@@ -10,40 +17,68 @@ import com.russell.scheduler.project.dtos.ProjectAssignment;
 import com.russell.scheduler.resource.ResourceRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.transaction.Transactional;
 import javax.validation.Valid;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class ProjectService {
 
+    private static final Keyset<ProjectResponse> PAGE_ORDER = new Keyset<>("startDate", ProjectResponse::getStartDate, ProjectResponse::getId);
+    // the same ordering over entities, for expanded pages; cursors from either are interchangeable
+    private static final Keyset<Project> ENTITY_PAGE_ORDER = new Keyset<>("startDate", Project::getStartDate, Project::getId);
+
     private ProjectRepository projectRepository;
     private ResourceRepository resourceRepository;
     private EntitySearcher entitySearcher;
+    private ChangeLog changeLog;
+    private Outbox outbox;
+    private ProjectEventHub eventHub;
 
     @Autowired
-    public ProjectService(ProjectRepository projectRepository, ResourceRepository resourceRepository, EntitySearcher entitySearcher) {
+    public ProjectService(ProjectRepository projectRepository, ResourceRepository resourceRepository,
+                          EntitySearcher entitySearcher, ChangeLog changeLog, Outbox outbox,
+                          ProjectEventHub eventHub) {
         this.projectRepository = projectRepository;
         this.resourceRepository = resourceRepository;
         this.entitySearcher = entitySearcher;
+        this.changeLog = changeLog;
+        this.outbox = outbox;
+        this.eventHub = eventHub;
     }
 
     public Set<ProjectResponse> findAll() {
-        return projectRepository.findAll()
-                .stream()
-                .map(ProjectResponse::new)
-                .collect(Collectors.toSet());
+        return projectRepository.findAllResponses();
     }
 
     public ProjectResponse findOne(UUID projectID) {
-        return projectRepository.findById(projectID)
-                .map(ProjectResponse::new)
+        return projectRepository.findResponseById(projectID)
+                .orElseThrow(RecordNotFoundException::new);
+    }
+
+    public List<ProjectMemberResponse> findRoster(UUID projectId) {
+        List<ProjectMemberResponse> roster = projectRepository.findRoster(projectId);
+        // a missing project also has an empty roster, so only then is it worth a second query to tell them apart
+        if (roster.isEmpty() && !projectRepository.existsById(projectId))
+            throw new RecordNotFoundException();
+        return roster;
+    }
+
+    public SseEmitter subscribe(UUID projectId) {
+        if (!projectRepository.existsById(projectId))
+            throw new RecordNotFoundException();
+        return eventHub.subscribe(projectId);
+    }
+
+    public long findVersion(UUID projectId) {
+        return projectRepository.findVersionById(projectId)
                 .orElseThrow(RecordNotFoundException::new);
     }
 
@@ -51,19 +86,65 @@ public class ProjectService {
         Project project = req.extractProject();
         project.setId(UUID.randomUUID());
         projectRepository.save(project);
+        changeLog.upserted(Project.class, project.getId());
+        outbox.record("project.created", project.getId(), new ProjectResponse(project));
         return new RecordCreationResponse(project.getId().toString());
     }
 
+    public PageResponse<ProjectResponse> findPage(int limit, String cursor) {
+        return searchPage(Map.of(), limit, cursor);
+    }
+
     public Set<ProjectResponse> search(Map<String, String> params) {
         if (params.isEmpty())
             return findAll();
 
-        Set<Project> results = entitySearcher.search(params, Project.class);
+        // with expand=owner the owners are fetch-joined, so the response is still one statement
+        Set<String> expand = ProjectResponse.EXPANSIONS.parse(params.get(EntitySearcher.EXPAND_PARAM));
+        Set<ProjectResponse> results;
+        if (expand.isEmpty()) {
+            results = entitySearcher.search(params, Project.class, ProjectResponse.PROJECTION);
+        } else {
+            results = entitySearcher.search(params, Project.class, ProjectResponse.EXPANSIONS.projection(Project.class, expand),
+                    project -> ProjectResponse.expanded(project, expand));
+        }
         if (results.isEmpty())
             throw new RecordNotFoundException();
-        return results.stream()
-                .map(ProjectResponse::new)
-                .collect(Collectors.toSet());
+        return results;
+    }
+
+    public PageResponse<ProjectResponse> searchPage(Map<String, String> params, int limit, String cursor) {
+        Set<String> expand = ProjectResponse.EXPANSIONS.parse(params.get(EntitySearcher.EXPAND_PARAM));
+        if (expand.isEmpty())
+            return entitySearcher.searchPage(params, Project.class, ProjectResponse.PROJECTION, PAGE_ORDER, limit, cursor);
+        return entitySearcher.searchPage(params, Project.class, ProjectResponse.EXPANSIONS.projection(Project.class, expand),
+                ENTITY_PAGE_ORDER, limit, cursor).map(project -> ProjectResponse.expanded(project, expand));
+    }
+
+    public FacetResponse facets(Map<String, String> params) {
+        return entitySearcher.facets(params, Project.class);
+    }
+
+    public void streamAll(NdjsonWriter writer) {
+        streamSearch(Map.of(), writer);
+    }
+
+    // what streamSearch would reject, checked before the controller commits to a streamed response
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public void validateStreamSearch(Map<String, String> params) {
+        Set<String> expand = ProjectResponse.EXPANSIONS.parse(params.get(EntitySearcher.EXPAND_PARAM));
+        entitySearcher.validate(params, Project.class,
+                expand.isEmpty() ? ProjectResponse.PROJECTION : ProjectResponse.EXPANSIONS.projection(Project.class, expand));
+    }
+
+    public void streamSearch(Map<String, String> params, NdjsonWriter writer) {
+        Set<String> expand = ProjectResponse.EXPANSIONS.parse(params.get(EntitySearcher.EXPAND_PARAM));
+        if (expand.isEmpty()) {
+            entitySearcher.stream(params, Project.class, ProjectResponse.PROJECTION, writer::write);
+            return;
+        }
+        entitySearcher.stream(params, Project.class, ProjectResponse.EXPANSIONS.projection(Project.class, expand),
+                project -> writer.write(ProjectResponse.expanded(project, expand)));
     }
 
     public ProjectResponse assignOwnerToProject(@Valid ProjectAssignment assignment) {
@@ -77,11 +158,16 @@ public class ProjectService {
         resource.getProjects().add(project);
         resourceRepository.save(resource);
         projectRepository.save(project);
-        return new ProjectResponse(project);
+        changeLog.upserted(Project.class, project.getId());
+        ProjectResponse response = new ProjectResponse(project);
+        outbox.record("project.owner-assigned", project.getId(), response);
+        return response;
     }
 
     public void delete(UUID projectId) {
+        changeLog.deleted(Project.class, projectId);
         projectRepository.deleteById(projectId);
+        outbox.record("project.deleted", projectId, Map.of("id", projectId));
     }
 
     public ProjectResponse update(UUID projectId, NewProjectRequest req) {
@@ -91,6 +177,9 @@ public class ProjectService {
         project.setStartDate(req.getStartDate());
         project.setEndDate(req.getEndDate());
         projectRepository.save(project);
-        return new ProjectResponse(project);
+        changeLog.upserted(Project.class, projectId);
+        ProjectResponse response = new ProjectResponse(project);
+        outbox.record("project.updated", projectId, response);
+        return response;
     }
 }
@@ -0,0 +1,24 @@
+package com.russell.scheduler.project.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.russell.scheduler.task.dtos.TaskResponse;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+public class ProjectEvent {
+    private String type; // task-created, task-updated, task-assigned or task-deleted; also the SSE event name
+    private UUID taskId;
+    // the task after the change; absent from a delete
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private TaskResponse task;
+
+    public ProjectEvent(String type, UUID taskId, TaskResponse task) {
+        this.type = type;
+        this.taskId = taskId;
+        this.task = task;
+    }
+}
@@ -0,0 +1,26 @@
+package com.russell.scheduler.project.dtos;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+// one resource on a project's roster: its owner, or anyone assigned at least one of its tasks
+@Data
+@NoArgsConstructor
+public class ProjectMemberResponse {
+
+    private UUID id;
+    private String email;
+    private String firstName;
+    private String lastName;
+    private long taskCount; // tasks of this project assigned to the resource; 0 for an owner with none
+
+    public ProjectMemberResponse(UUID id, String email, String firstName, String lastName, long taskCount) {
+        this.id = id;
+        this.email = email;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.taskCount = taskCount;
+    }
+}
@@ -1,27 +1,69 @@
 package com.russell.scheduler.project.dtos;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.russell.scheduler.common.search.Expansions;
+import com.russell.scheduler.common.search.Projection;
 import com.russell.scheduler.project.Project;
+import com.russell.scheduler.resource.dtos.ResourceResponse;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Data
 @NoArgsConstructor
 public class ProjectResponse {
+
+    // the columns read by the projection constructor below, in order
+    public static final Projection<ProjectResponse> PROJECTION = new Projection<>(ProjectResponse.class,
+            "id", "name", "startDate", "endDate", "owner.id");
+    public static final Expansions EXPANSIONS = new Expansions(Map.of("owner", "owner"));
+
     private UUID id;
     private String name;
     private LocalDate startDate;
     private LocalDate endDate;
     private UUID ownerId;
+    // goes out as the ETag header, not in the body
+    @JsonIgnore
+    private long version;
+    // only present when asked for with expand=
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private ResourceResponse owner;
 
+    public ProjectResponse(UUID id, String name, LocalDate startDate, LocalDate endDate, UUID ownerId) {
+        this.id = id;
+        this.name = name;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.ownerId = ownerId;
+    }
+
+    public ProjectResponse(UUID id, String name, LocalDate startDate, LocalDate endDate, UUID ownerId, long version) {
+        this(id, name, startDate, endDate, ownerId);
+        this.version = version;
+    }
 
     public ProjectResponse(Project project) {
         this.id = project.getId();
         this.name = project.getName();
         this.startDate = project.getStartDate();
         this.endDate = project.getEndDate();
-        this.ownerId = project.getOwner().getId();
+        // new projects have no owner until one is assigned
+        this.ownerId = project.getOwner() == null ? null : project.getOwner().getId();
+        // unsaved projects have no version yet
+        this.version = project.getVersion() == null ? 0 : project.getVersion();
+    }
+
+    // the project must have been loaded with EXPANSIONS.projection(expand), or the owner is another select
+    public static ProjectResponse expanded(Project project, Set<String> expand) {
+        ProjectResponse response = new ProjectResponse(project);
+        if (expand.contains("owner") && project.getOwner() != null)
+            response.owner = new ResourceResponse(project.getOwner());
+        return response;
     }
 }
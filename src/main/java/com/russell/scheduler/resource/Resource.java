@@ -10,7 +10,7 @@ import java.util.Set;
 import java.util.UUID;
 
 @Entity
-@Table(name="resources")
+@Table(name="resources", indexes = @Index(name = "resources_last_name_id_idx", columnList = "last_name, id"))
 public class Resource {
     @Id
     private UUID id;
@@ -24,6 +24,11 @@ public class Resource {
     private Set<Project> projects;
     @OneToMany(mappedBy = "assignee")
     private Set<Task> assignedTasks;
+    // the ETag of GET /resources/id/{id}; null until first saved, which is how Spring Data tells a new resource
+    // from a detached one (see Project.version)
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
 
     public Resource() {
         super();
@@ -75,6 +80,14 @@ public class Resource {
         this.lastName = lastName;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public Set<Project> getProjects() {
         return projects;
     }
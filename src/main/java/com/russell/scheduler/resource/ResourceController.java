@@ -1,12 +1,24 @@
 package com.russell.scheduler.resource;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.russell.scheduler.auth.Permission;
+import com.russell.scheduler.auth.RequiresPermission;
+import com.russell.scheduler.common.ETags;
+import com.russell.scheduler.common.NdjsonWriter;
+import com.russell.scheduler.common.dtos.FacetResponse;
+import com.russell.scheduler.common.dtos.PageResponse;
 import com.russell.scheduler.common.dtos.RecordCreationResponse;
+import com.russell.scheduler.common.ratelimit.RateLimited;
 import com.russell.scheduler.resource.dtos.NewResourceRequest;
 import com.russell.scheduler.resource.dtos.ResourceResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -16,10 +28,12 @@ import java.util.UUID;
 public class ResourceController {
 
     private ResourceService resourceService;
+    private ObjectMapper mapper;
 
     @Autowired
-    public ResourceController(ResourceService resourceService) {
+    public ResourceController(ResourceService resourceService, ObjectMapper mapper) {
         this.resourceService = resourceService;
+        this.mapper = mapper;
     }
 
     @GetMapping(produces = "application/json")
@@ -27,9 +41,32 @@ public class ResourceController {
         return resourceService.findAll();
     }
 
+    @GetMapping(params = "limit", produces = "application/json")
+    public PageResponse<ResourceResponse> getResourcePage(@RequestParam int limit,
+                                                          @RequestParam(required = false) String cursor) {
+        return resourceService.findPage(limit, cursor);
+    }
+
+    @GetMapping(produces = NdjsonWriter.MEDIA_TYPE)
+    public StreamingResponseBody streamAll() {
+        resourceService.validateStreamSearch(Map.of());
+        return out -> {
+            try (NdjsonWriter writer = new NdjsonWriter(mapper, out)) {
+                resourceService.streamAll(writer);
+            }
+        };
+    }
+
     @GetMapping(value="/id/{id}", produces = "application/json")
-    public ResourceResponse getSingleResource(@PathVariable(name="id") UUID resourceId) {
-        return resourceService.findOne(resourceId);
+    public ResponseEntity<ResourceResponse> getSingleResource(@PathVariable(name="id") UUID resourceId,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            String current = ETags.weak(resourceService.findVersion(resourceId));
+            if (ETags.matches(ifNoneMatch, current))
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(current).build();
+        }
+        ResourceResponse resource = resourceService.findOne(resourceId);
+        return ResponseEntity.ok().eTag(ETags.weak(resource.getVersion())).body(resource);
     }
 
     @GetMapping(value = "/search", produces = "application/json")
@@ -37,19 +74,52 @@ public class ResourceController {
         return resourceService.search(params);
     }
 
+    @GetMapping(value = "/search", params = {"limit", "!facets"}, produces = "application/json")
+    public PageResponse<ResourceResponse> searchPage(@RequestParam Map<String, String> params,
+                                                     @RequestParam int limit,
+                                                     @RequestParam(required = false) String cursor) {
+        return resourceService.searchPage(params, limit, cursor);
+    }
+
+    @GetMapping(value = "/search", params = "facets", produces = "application/json")
+    public FacetResponse facets(@RequestParam Map<String, String> params) {
+        return resourceService.facets(params);
+    }
+
+    @GetMapping(value = "/search", produces = NdjsonWriter.MEDIA_TYPE)
+    public StreamingResponseBody streamSearch(@RequestParam Map<String, String> params) {
+        // checked here, while an error can still be a 400; only the rows are read once the body has started
+        resourceService.validateStreamSearch(params);
+        return out -> {
+            try (NdjsonWriter writer = new NdjsonWriter(mapper, out)) {
+                resourceService.streamSearch(params, writer);
+            }
+        };
+    }
+
+    @GetMapping(value = "/suggest", produces = "application/json")
+    public List<ResourceResponse> suggest(@RequestParam String q, @RequestParam(defaultValue = "10") int limit) {
+        return resourceService.suggest(q, limit);
+    }
+
     @ResponseStatus(HttpStatus.CREATED)
+    @RequiresPermission(Permission.MANAGE_RESOURCES)
+    @RateLimited("resource-writes")
     @PostMapping(produces = "application/json", consumes = "application/json")
     public RecordCreationResponse createNewResource(@RequestBody NewResourceRequest req){
         return resourceService.create(req);
     }
 
     @ResponseStatus(HttpStatus.NO_CONTENT)
+    @RequiresPermission(Permission.MANAGE_RESOURCES)
     @DeleteMapping(value="/id/{id}")
     public void deleteResource(@PathVariable(name="id") UUID resourceId) {
         resourceService.delete(resourceId);
     }
 
     @ResponseStatus(HttpStatus.OK)
+    @RequiresPermission(Permission.MANAGE_RESOURCES)
+    @RateLimited("resource-writes")
     @PatchMapping(value="/id/{id}")
     public ResourceResponse updateResource(@PathVariable(name = "id") UUID resourceId, @RequestBody NewResourceRequest req) {
         return resourceService.update(resourceId, req);
@@ -1,10 +1,33 @@
 package com.russell.scheduler.resource;
 
+import com.russell.scheduler.resource.dtos.ResourceResponse;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 public interface ResourceRepository extends JpaRepository<Resource, UUID> {
 
     boolean existsByEmail(String email);
+
+    @Query("select new com.russell.scheduler.resource.dtos.ResourceResponse(r.id, r.email, r.firstName, r.lastName, "
+            + "r.version) from Resource r where r.id = :id")
+    Optional<ResourceResponse> findResponseById(@Param("id") UUID id);
+
+    // answers If-None-Match on GET /resources/id/{id}
+    @Query("select r.version from Resource r where r.id = :id")
+    Optional<Long> findVersionById(@Param("id") UUID id);
+
+    @Query("select new com.russell.scheduler.resource.dtos.ResourceResponse(r.id, r.email, r.firstName, r.lastName) "
+            + "from Resource r")
+    Set<ResourceResponse> findAllResponses();
+
+    @Query("select new com.russell.scheduler.resource.dtos.ResourceResponse(r.id, r.email, r.firstName, r.lastName) "
+            + "from Resource r where r.id in :ids")
+    List<ResourceResponse> findResponsesByIdIn(@Param("ids") Collection<UUID> ids);
 }
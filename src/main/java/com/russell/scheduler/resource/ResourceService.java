@@ -1,57 +1,110 @@
 package com.russell.scheduler.resource;
 
+import com.russell.scheduler.change.ChangeLog;
+import com.russell.scheduler.common.AfterCommit;
 import com.russell.scheduler.common.EntitySearcher;
+import com.russell.scheduler.common.NdjsonWriter;
+import com.russell.scheduler.common.dtos.FacetResponse;
+import com.russell.scheduler.common.dtos.PageResponse;
+import com.russell.scheduler.common.search.Keyset;
+import com.russell.scheduler.common.search.NGramIndex;
+import com.russell.scheduler.outbox.Outbox;
 import com.russell.scheduler.common.dtos.RecordCreationResponse;
 import com.russell.scheduler.common.exceptions.RecordNotFoundException;
 import com.russell.scheduler.common.exceptions.RecordPersistenceException;
 import com.russell.scheduler.resource.dtos.NewResourceRequest;
 import com.russell.scheduler.resource.dtos.ResourceResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import javax.transaction.Transactional;
 import javax.validation.Valid;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class ResourceService {
 
+    private static final Keyset<ResourceResponse> PAGE_ORDER = new Keyset<>("lastName", ResourceResponse::getLastName, ResourceResponse::getId);
+
     private ResourceRepository resourceRepository;
     private EntitySearcher entitySearcher;
+    private ChangeLog changeLog;
+    private Outbox outbox;
+    private final NGramIndex<ResourceResponse> suggestIndex = new NGramIndex<>(ResourceResponse::getId,
+            r -> r.getFirstName() + " " + r.getLastName() + " " + r.getEmail());
 
     @Autowired
-    public ResourceService(ResourceRepository resourceRepository, EntitySearcher entitySearcher) {
+    public ResourceService(ResourceRepository resourceRepository, EntitySearcher entitySearcher,
+                           ChangeLog changeLog, Outbox outbox) {
         this.resourceRepository = resourceRepository;
         this.entitySearcher = entitySearcher;
+        this.changeLog = changeLog;
+        this.outbox = outbox;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildSuggestIndex() {
+        suggestIndex.rebuild(resourceRepository.findAllResponses());
+    }
+
+    public List<ResourceResponse> suggest(String query, int limit) {
+        return suggestIndex.suggest(query, limit);
     }
 
     public Set<ResourceResponse> findAll() {
-        return resourceRepository.findAll()
-                .stream()
-                .map(ResourceResponse::new)
-                .collect(Collectors.toSet());
+        return resourceRepository.findAllResponses();
     }
 
     public ResourceResponse findOne(UUID resourceId) {
-        return resourceRepository.findById(resourceId)
-                .map(ResourceResponse::new)
+        return resourceRepository.findResponseById(resourceId)
                 .orElseThrow(RecordNotFoundException::new);
     }
 
+    public PageResponse<ResourceResponse> findPage(int limit, String cursor) {
+        return searchPage(Map.of(), limit, cursor);
+    }
+
     public Set<ResourceResponse> search(Map<String, String> params) {
         if (params.isEmpty())
             return findAll();
 
-        Set<Resource> results = entitySearcher.search(params, Resource.class);
+        Set<ResourceResponse> results = entitySearcher.search(params, Resource.class, ResourceResponse.PROJECTION);
         if (results.isEmpty())
             throw new RecordNotFoundException();
-        return results.stream()
-                .map(ResourceResponse::new)
-                .collect(Collectors.toSet());
+        return results;
+    }
+
+    public PageResponse<ResourceResponse> searchPage(Map<String, String> params, int limit, String cursor) {
+        return entitySearcher.searchPage(params, Resource.class, ResourceResponse.PROJECTION, PAGE_ORDER, limit, cursor);
+    }
+
+    public FacetResponse facets(Map<String, String> params) {
+        return entitySearcher.facets(params, Resource.class);
+    }
+
+    public void streamAll(NdjsonWriter writer) {
+        streamSearch(Map.of(), writer);
+    }
+
+    // what streamSearch would reject, checked before the controller commits to a streamed response
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public void validateStreamSearch(Map<String, String> params) {
+        entitySearcher.validate(params, Resource.class, ResourceResponse.PROJECTION);
+    }
+
+    public void streamSearch(Map<String, String> params, NdjsonWriter writer) {
+        entitySearcher.stream(params, Resource.class, ResourceResponse.PROJECTION, writer::write);
+    }
+
+    public long findVersion(UUID resourceId) {
+        return resourceRepository.findVersionById(resourceId)
+                .orElseThrow(RecordNotFoundException::new);
     }
 
     public RecordCreationResponse create(@Valid NewResourceRequest req) {
@@ -63,11 +116,18 @@ public class ResourceService {
 
         resource.setId(UUID.randomUUID());
         resourceRepository.save(resource);
+        changeLog.upserted(Resource.class, resource.getId());
+        ResourceResponse indexed = new ResourceResponse(resource);
+        outbox.record("resource.created", resource.getId(), indexed);
+        AfterCommit.run(() -> suggestIndex.put(indexed));
         return new RecordCreationResponse(resource.getId().toString());
     }
 
     public void delete(UUID resourceId) {
+        changeLog.deleted(Resource.class, resourceId);
         resourceRepository.deleteById(resourceId);
+        outbox.record("resource.deleted", resourceId, Map.of("id", resourceId));
+        AfterCommit.run(() -> suggestIndex.remove(resourceId));
     }
 
     public ResourceResponse update(UUID resourceId, NewResourceRequest req) {
@@ -77,6 +137,10 @@ public class ResourceService {
         resource.setFirstName(req.getFirstName());
         resource.setLastName(req.getLastName());
         resourceRepository.save(resource);
-        return new ResourceResponse(resource);
+        changeLog.upserted(Resource.class, resourceId);
+        ResourceResponse response = new ResourceResponse(resource);
+        outbox.record("resource.updated", resourceId, response);
+        AfterCommit.run(() -> suggestIndex.put(response));
+        return response;
     }
 }
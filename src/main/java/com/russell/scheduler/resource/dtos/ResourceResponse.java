@@ -1,5 +1,7 @@
 package com.russell.scheduler.resource.dtos;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.russell.scheduler.common.search.Projection;
 import com.russell.scheduler.resource.Resource;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -10,15 +12,37 @@ import java.util.UUID;
 @Data
 @NoArgsConstructor
 public class ResourceResponse {
+
+    // the columns read by the projection constructor below, in order
+    public static final Projection<ResourceResponse> PROJECTION = new Projection<>(ResourceResponse.class,
+            "id", "email", "firstName", "lastName");
+
     private UUID id;
     private String email;
     private String firstName;
     private String lastName;
+    // goes out as the ETag header, not in the body
+    @JsonIgnore
+    private long version;
+
+    public ResourceResponse(UUID id, String email, String firstName, String lastName) {
+        this.id = id;
+        this.email = email;
+        this.firstName = firstName;
+        this.lastName = lastName;
+    }
+
+    public ResourceResponse(UUID id, String email, String firstName, String lastName, long version) {
+        this(id, email, firstName, lastName);
+        this.version = version;
+    }
 
     public ResourceResponse(Resource resource) {
         this.id = resource.getId();
         this.email = resource.getEmail();
         this.firstName = resource.getFirstName();
         this.lastName = resource.getLastName();
+        // unsaved resources have no version yet
+        this.version = resource.getVersion() == null ? 0 : resource.getVersion();
     }
 }
@@ -3,6 +3,7 @@ package com.russell.scheduler.task;
 import com.russell.scheduler.project.Project;
 import com.russell.scheduler.resource.Resource;
 import com.russell.scheduler.user.User;
+import org.springframework.data.domain.Persistable;
 
 import javax.persistence.*;
 
@@ -11,8 +12,13 @@ import java.util.Objects;
 import java.util.UUID;
 
 @Entity
-@Table(name="tasks")
-public class Task {
+@Table(name="tasks", indexes = {
+        @Index(name = "tasks_start_date_id_idx", columnList = "start_date, id"),
+        @Index(name = "tasks_end_date_idx", columnList = "end_date"),
+        // covers a project's roster (ProjectRepository.findRoster) without reading the task rows
+        @Index(name = "tasks_project_assigned_to_idx", columnList = "project, assigned_to")
+})
+public class Task implements Persistable<UUID> {
 
     @Id
     private UUID id;
@@ -20,21 +26,29 @@ public class Task {
     private String name;
     @Column(name = "description")
     private String description = ""; // defaults blank
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "assigned_to")
     private Resource assignee;
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "assigned_by")
     private User assigner;
     @Column(name = "start_date", nullable = false)
     private LocalDate startDate;
     @Column(name = "end_date", nullable = false)
     private LocalDate endDate;
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name="project", nullable = false)
     private Project project;
     @Column(name = "created_date", nullable = false)
     private LocalDate createdDate;
+    // bumped by Hibernate on every update; the single-task GET sends it as a weak ETag
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+    // ids are assigned before saving, so Spring Data can't tell a new task from a detached one by its id; without
+    // this every save of a new task is a merge, which SELECTs the row before inserting it
+    @Transient
+    private boolean persisted;
 
 
     public Task() {
@@ -143,6 +157,25 @@ public class Task {
         this.createdDate = createdDate;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        this.persisted = true;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -1,13 +1,28 @@
 package com.russell.scheduler.task;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.russell.scheduler.auth.Permission;
+import com.russell.scheduler.auth.RequiresPermission;
+import com.russell.scheduler.auth.dtos.Principal;
+import com.russell.scheduler.common.ETags;
+import com.russell.scheduler.common.NdjsonWriter;
+import com.russell.scheduler.common.dtos.BatchResponse;
+import com.russell.scheduler.common.dtos.BulkResponse;
+import com.russell.scheduler.common.dtos.FacetResponse;
+import com.russell.scheduler.common.dtos.PageResponse;
 import com.russell.scheduler.common.dtos.RecordCreationResponse;
+import com.russell.scheduler.common.ratelimit.RateLimited;
 import com.russell.scheduler.task.dtos.NewTaskRequest;
 import com.russell.scheduler.task.dtos.TaskAssignment;
 import com.russell.scheduler.task.dtos.TaskResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -17,15 +32,25 @@ import java.util.UUID;
 public class TaskController {
 
     private TaskService taskService;
+    private ObjectMapper mapper;
 
     @Autowired
-    public TaskController(TaskService taskService) {
+    public TaskController(TaskService taskService, ObjectMapper mapper) {
         this.taskService = taskService;
+        this.mapper = mapper;
     }
 
     @GetMapping(value="id/{id}", produces = "application/json")
-    public TaskResponse getSingleTask(@PathVariable(name="id") UUID taskId) {
-        return taskService.findOne(taskId);
+    public ResponseEntity<TaskResponse> getSingleTask(@PathVariable(name="id") UUID taskId,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // a poll that sends back the current ETag is answered from the version column alone, with no body
+        if (ifNoneMatch != null) {
+            String current = ETags.weak(taskService.findVersion(taskId));
+            if (ETags.matches(ifNoneMatch, current))
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(current).build();
+        }
+        TaskResponse task = taskService.findOne(taskId);
+        return ResponseEntity.ok().eTag(ETags.weak(task.getVersion())).body(task);
     }
 
     @GetMapping(value = "/search", produces = "application/json")
@@ -33,27 +58,97 @@ public class TaskController {
         return taskService.search(params);
     }
 
+    @GetMapping(value = "/search", params = {"limit", "!facets"}, produces = "application/json")
+    public PageResponse<TaskResponse> searchPage(@RequestParam Map<String, String> params,
+                                                 @RequestParam int limit,
+                                                 @RequestParam(required = false) String cursor) {
+        return taskService.searchPage(params, limit, cursor);
+    }
+
+    @GetMapping(value = "/search", params = "facets", produces = "application/json")
+    public FacetResponse facets(@RequestParam Map<String, String> params) {
+        return taskService.facets(params);
+    }
+
+    @GetMapping(value = "/search", produces = NdjsonWriter.MEDIA_TYPE)
+    public StreamingResponseBody streamSearch(@RequestParam Map<String, String> params) {
+        // checked here, while an error can still be a 400; only the rows are read once the body has started
+        taskService.validateStreamSearch(params);
+        return out -> {
+            try (NdjsonWriter writer = new NdjsonWriter(mapper, out)) {
+                taskService.streamSearch(params, writer);
+            }
+        };
+    }
+
+    @GetMapping(value = "/fulltext", produces = "application/json")
+    public PageResponse<TaskResponse> fullTextSearch(@RequestParam String q,
+                                                     @RequestParam(defaultValue = "20") int limit,
+                                                     @RequestParam(required = false) String cursor) {
+        return taskService.fullTextSearch(q, limit, cursor);
+    }
+
     @ResponseStatus(HttpStatus.CREATED)
+    @RequiresPermission(Permission.EDIT_TASKS)
+    @RateLimited("task-writes")
     @PostMapping(produces = "application/json", consumes = "application/json")
     public RecordCreationResponse createNewTask(@RequestBody NewTaskRequest req){
         return taskService.create(req);
     }
 
+    // 200 rather than 201: some items may have failed, and each one's own status is in the results
+    @ResponseStatus(HttpStatus.OK)
+    @RequiresPermission(Permission.EDIT_TASKS)
+    @RateLimited("task-writes")
+    @PostMapping(value = "/batch", produces = "application/json", consumes = "application/json")
+    public BatchResponse createTaskBatch(@RequestBody List<NewTaskRequest> requests) {
+        return taskService.createBatch(requests);
+    }
+
     @ResponseStatus(HttpStatus.NO_CONTENT)
+    @RequiresPermission(Permission.DELETE_TASKS)
     @DeleteMapping(value="id/{id}")
     public void deleteTask(@PathVariable(name = "id") UUID taskId) {
         taskService.delete(taskId);
     }
 
     @ResponseStatus(HttpStatus.OK)
+    @RequiresPermission(Permission.DELETE_TASKS)
+    @RateLimited("task-writes")
+    @DeleteMapping(value = "/bulk", produces = "application/json")
+    public BulkResponse deleteMatchingTasks(@RequestParam Map<String, String> params) {
+        return taskService.deleteMatching(params);
+    }
+
+    @ResponseStatus(HttpStatus.OK)
+    @RequiresPermission(Permission.EDIT_TASKS)
+    @RateLimited("task-writes")
+    @PatchMapping(value = "/bulk/shift", produces = "application/json")
+    public BulkResponse shiftMatchingTasks(@RequestParam Map<String, String> params, @RequestParam int days) {
+        return taskService.shiftDates(params, days);
+    }
+
+    @ResponseStatus(HttpStatus.OK)
+    @RequiresPermission(Permission.EDIT_TASKS)
+    @RateLimited("task-writes")
     @PatchMapping(value="id/{id}", produces = "application/json")
     public TaskResponse updateTask(@PathVariable(name = "id") UUID taskId, @RequestBody NewTaskRequest req) {
         return taskService.update(taskId, req);
     }
 
     @ResponseStatus(HttpStatus.OK)
+    @RequiresPermission(Permission.ASSIGN_TASKS)
+    @RateLimited("task-writes")
     @PatchMapping(value="assign", produces = "application/json")
-    public TaskResponse assignTask(@RequestHeader("Authorization") String token, @RequestBody TaskAssignment assignment) {
-        return taskService.assignTaskToResource(token, assignment);
+    public TaskResponse assignTask(Principal principal, @RequestBody TaskAssignment assignment) {
+        return taskService.assignTaskToResource(principal, assignment);
+    }
+
+    @ResponseStatus(HttpStatus.OK)
+    @RequiresPermission(Permission.ASSIGN_TASKS)
+    @RateLimited("task-writes")
+    @PatchMapping(value="assign/batch", produces = "application/json", consumes = "application/json")
+    public BatchResponse assignTaskBatch(Principal principal, @RequestBody List<TaskAssignment> assignments) {
+        return taskService.assignBatch(principal, assignments);
     }
 }
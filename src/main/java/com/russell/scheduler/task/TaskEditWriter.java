@@ -0,0 +1,53 @@
+package com.russell.scheduler.task;
+
+import com.russell.scheduler.change.ChangeLog;
+import com.russell.scheduler.common.AfterCommit;
+import com.russell.scheduler.outbox.Outbox;
+import com.russell.scheduler.project.ProjectEventHub;
+import com.russell.scheduler.project.dtos.ProjectEvent;
+import com.russell.scheduler.task.dtos.NewTaskRequest;
+import com.russell.scheduler.task.dtos.TaskResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.transaction.Transactional;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+// writes a batch of buffered edits from TaskWriteBuffer; its own transaction even when called from inside another,
+// as an edit that has already been acknowledged mustn't be rolled back with somebody else's request
+@Service
+@Transactional(Transactional.TxType.REQUIRES_NEW)
+public class TaskEditWriter {
+
+    private TaskRepository taskRepository;
+    private ChangeLog changeLog;
+    private Outbox outbox;
+    private ProjectEventHub eventHub;
+
+    @Autowired
+    public TaskEditWriter(TaskRepository taskRepository, ChangeLog changeLog, Outbox outbox,
+                          ProjectEventHub eventHub) {
+        this.taskRepository = taskRepository;
+        this.changeLog = changeLog;
+        this.outbox = outbox;
+        this.eventHub = eventHub;
+    }
+
+    // one IN query to load, then one JDBC-batched UPDATE per task; tasks deleted since their edit are skipped
+    public int write(Map<UUID, NewTaskRequest> edits) {
+        List<Task> tasks = taskRepository.findAllById(edits.keySet());
+        for (Task task : tasks)
+            TaskService.applyEdit(task, edits.get(task.getId()));
+        taskRepository.saveAll(tasks);
+        changeLog.upserted(Task.class, tasks.stream().map(Task::getId).collect(Collectors.toList()));
+        // one event per task however many edits were coalesced into it
+        Map<UUID, TaskResponse> updated = tasks.stream().collect(Collectors.toMap(Task::getId, TaskResponse::new));
+        outbox.recordAll("task.updated", updated);
+        AfterCommit.run(() -> updated.values().forEach(task ->
+                eventHub.publish(task.getProjectId(), new ProjectEvent("task-updated", task.getId(), task))));
+        return tasks.size();
+    }
+}
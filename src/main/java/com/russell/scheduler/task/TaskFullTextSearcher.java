@@ -0,0 +1,93 @@
+package com.russell.scheduler.task;
+
+import com.russell.scheduler.common.EntitySearcher;
+import com.russell.scheduler.common.dtos.PageResponse;
+import com.russell.scheduler.common.exceptions.InvalidRequestException;
+import com.russell.scheduler.common.search.Keyset;
+import com.russell.scheduler.common.search.TextQuery;
+import com.russell.scheduler.task.dtos.TaskResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// ranked search over tasks.search_vector, a generated tsvector column with a GIN index (see import.sql)
+@Repository
+public class TaskFullTextSearcher {
+
+    private static final String MATCHES = "select t.*, ts_rank_cd(t.search_vector, tsq) as rank"
+            + " from tasks t, to_tsquery('english', :query) tsq"
+            + " where t.search_vector @@ tsq";
+    private static final String SELECT = "select cast(h.id as varchar), h.name, h.description,"
+            + " cast(h.project as varchar), cast(h.assigned_to as varchar), cast(h.assigned_by as varchar),"
+            + " h.start_date, h.end_date, h.created_date, h.version, h.rank"
+            + " from (" + MATCHES + ") h";
+    private static final String ORDER_BY = " order by h.rank desc, h.id";
+    private static final String FIRST_PAGE = SELECT + ORDER_BY;
+    private static final String NEXT_PAGE = SELECT
+            + " where h.rank < cast(:rank as real) or (h.rank = cast(:rank as real) and h.id > cast(:id as uuid))"
+            + ORDER_BY;
+
+    private final EntityManager entityManager;
+
+    @Autowired
+    public TaskFullTextSearcher(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @SuppressWarnings("unchecked")
+    public PageResponse<TaskResponse> search(String text, int limit, String cursor) {
+        if (limit < 1 || limit > EntitySearcher.MAX_PAGE_SIZE)
+            throw new InvalidRequestException("limit must be between 1 and " + EntitySearcher.MAX_PAGE_SIZE);
+
+        Query query = entityManager.createNativeQuery(cursor == null ? FIRST_PAGE : NEXT_PAGE)
+                .setParameter("query", TextQuery.toTsQuery(text))
+                .setMaxResults(limit + 1);
+        if (cursor != null) {
+            String[] position = Keyset.decode(cursor);
+            try {
+                query.setParameter("rank", Float.parseFloat(position[0]));
+                query.setParameter("id", UUID.fromString(position[1]).toString());
+            } catch (IllegalArgumentException e) {
+                throw new InvalidRequestException("Invalid cursor");
+            }
+        }
+
+        List<Object[]> rows = query.getResultList();
+        List<TaskResponse> items = new ArrayList<>(Math.min(rows.size(), limit));
+        Hit last = null;
+        for (int i = 0; i < rows.size() && i < limit; i++) {
+            last = toHit(rows.get(i));
+            items.add(last.task);
+        }
+        // the cursor is read back by NEXT_PAGE, in the format Keyset.decode expects
+        return new PageResponse<>(items, rows.size() > limit ? Keyset.encode(last.rank, last.task.getId()) : null);
+    }
+
+    private static Hit toHit(Object[] row) {
+        TaskResponse task = new TaskResponse(toUuid(row[0]), (String) row[1], (String) row[2],
+                toUuid(row[3]), toUuid(row[4]), toUuid(row[5]),
+                ((Date) row[6]).toLocalDate(), ((Date) row[7]).toLocalDate(), ((Date) row[8]).toLocalDate(),
+                ((Number) row[9]).longValue());
+        return new Hit(task, ((Number) row[10]).floatValue());
+    }
+
+    private static UUID toUuid(Object value) {
+        return value == null ? null : UUID.fromString((String) value);
+    }
+
+    private static class Hit {
+        private final TaskResponse task;
+        private final float rank;
+
+        private Hit(TaskResponse task, float rank) {
+            this.task = task;
+            this.rank = rank;
+        }
+    }
+}
@@ -1,12 +1,31 @@
 package com.russell.scheduler.task;
 
 import com.russell.scheduler.project.Project;
+import com.russell.scheduler.task.dtos.TaskResponse;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 
 public interface TaskRepository extends JpaRepository<Task, UUID> {
 
     Set<Task> findTasksByProject(Project project);
+
+    // association ids come straight off the foreign key columns, so none of the associations are joined
+    @Query("select new com.russell.scheduler.task.dtos.TaskResponse(t.id, t.name, t.description, t.project.id, "
+            + "t.assignee.id, t.assigner.id, t.startDate, t.endDate, t.createdDate, t.version) from Task t where t.id = :id")
+    Optional<TaskResponse> findResponseById(@Param("id") UUID id);
+
+    // a primary key lookup of one column, enough to answer a conditional GET without building the response
+    @Query("select t.version from Task t where t.id = :id")
+    Optional<Long> findVersionById(@Param("id") UUID id);
+
+    @Query("select new com.russell.scheduler.task.dtos.TaskResponse(t.id, t.name, t.description, t.project.id, "
+            + "t.assignee.id, t.assigner.id, t.startDate, t.endDate, t.createdDate) from Task t where t.id in :ids")
+    List<TaskResponse> findResponsesByIdIn(@Param("ids") Collection<UUID> ids);
 }
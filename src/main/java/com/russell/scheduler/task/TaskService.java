@@ -1,15 +1,27 @@
 package com.russell.scheduler.task;
 
-import com.russell.scheduler.auth.TokenService;
+import com.russell.scheduler.auth.dtos.Principal;
+import com.russell.scheduler.change.ChangeLog;
+import com.russell.scheduler.common.AfterCommit;
 import com.russell.scheduler.common.EntitySearcher;
+import com.russell.scheduler.common.NdjsonWriter;
+import com.russell.scheduler.common.dtos.BatchItemResult;
+import com.russell.scheduler.common.dtos.BatchResponse;
+import com.russell.scheduler.common.dtos.BulkResponse;
+import com.russell.scheduler.common.dtos.FacetResponse;
+import com.russell.scheduler.common.dtos.PageResponse;
 import com.russell.scheduler.common.dtos.RecordCreationResponse;
+import com.russell.scheduler.common.search.Keyset;
+import com.russell.scheduler.outbox.Outbox;
 import com.russell.scheduler.project.Project;
+import com.russell.scheduler.project.ProjectEventHub;
+import com.russell.scheduler.project.dtos.ProjectEvent;
 import com.russell.scheduler.resource.Resource;
 import com.russell.scheduler.task.dtos.NewTaskRequest;
 import com.russell.scheduler.task.dtos.TaskAssignment;
 import com.russell.scheduler.task.dtos.TaskResponse;
 import com.russell.scheduler.user.User;
-import com.russell.scheduler.common.exceptions.InvalidJWTException;
+import com.russell.scheduler.common.exceptions.InvalidRequestException;
 import com.russell.scheduler.common.exceptions.RecordNotFoundException;
 import com.russell.scheduler.project.ProjectRepository;
 import com.russell.scheduler.resource.ResourceRepository;
@@ -20,38 +32,64 @@ import org.springframework.stereotype.Service;
 import javax.transaction.Transactional;
 import javax.validation.Valid;
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
-import java.util.UUID;
+import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class TaskService {
 
+    public static final int MAX_BATCH_SIZE = 1000;
+    public static final String SHIFT_DAYS_PARAM = "days";
+    // about ten years either way; enough for any real reschedule, and nowhere near the limits of a date
+    private static final int MAX_SHIFT_DAYS = 3660;
+    // date + integer is native date arithmetic in Postgres; the cast keeps Hibernate from typing :days as a double
+    private static final String SHIFT_DATES = "x.startDate = x.startDate + cast(:days as integer), "
+            + "x.endDate = x.endDate + cast(:days as integer)";
+    private static final Keyset<TaskResponse> PAGE_ORDER = new Keyset<>("startDate", TaskResponse::getStartDate, TaskResponse::getId);
+    // the same ordering over entities, for expanded pages; cursors from either are interchangeable
+    private static final Keyset<Task> ENTITY_PAGE_ORDER = new Keyset<>("startDate", Task::getStartDate, Task::getId);
+
     private TaskRepository taskRepository;
     private ProjectRepository projectRepository;
     private ResourceRepository resourceRepository;
     private UserRepository userRepository;
     private EntitySearcher entitySearcher;
-    private TokenService tokenService;
+    private TaskFullTextSearcher fullTextSearcher;
+    private ChangeLog changeLog;
+    private TaskWriteBuffer writeBuffer;
+    private Outbox outbox;
+    private ProjectEventHub eventHub;
 
     @Autowired
     public TaskService(TaskRepository taskRepository, ProjectRepository projectRepository,
                        ResourceRepository resourceRepository, UserRepository userRepository,
-                       EntitySearcher entitySearcher, TokenService tokenService) {
+                       EntitySearcher entitySearcher, TaskFullTextSearcher fullTextSearcher,
+                       ChangeLog changeLog, TaskWriteBuffer writeBuffer, Outbox outbox,
+                       ProjectEventHub eventHub) {
         this.taskRepository = taskRepository;
         this.projectRepository = projectRepository;
         this.resourceRepository = resourceRepository;
         this.userRepository = userRepository;
         this.entitySearcher = entitySearcher;
-        this.tokenService = tokenService;
+        this.fullTextSearcher = fullTextSearcher;
+        this.changeLog = changeLog;
+        this.writeBuffer = writeBuffer;
+        this.outbox = outbox;
+        this.eventHub = eventHub;
     }
 
     public TaskResponse findOne(UUID taskID) {
-        return taskRepository.findById(taskID)
-                .map(TaskResponse::new)
+        return writeBuffer.overlay(taskRepository.findResponseById(taskID)
+                .orElseThrow(RecordNotFoundException::new));
+    }
+
+    public long findVersion(UUID taskId) {
+        Long buffered = writeBuffer.bufferedVersion(taskId);
+        if (buffered != null)
+            return buffered;
+        return taskRepository.findVersionById(taskId)
                 .orElseThrow(RecordNotFoundException::new);
     }
 
@@ -62,31 +100,122 @@ public class TaskService {
         task.setId(UUID.randomUUID());
         task.setCreatedDate(LocalDate.now());
         taskRepository.save(task);
+        changeLog.upserted(Task.class, task.getId());
+        TaskResponse created = new TaskResponse(task);
+        outbox.record("task.created", task.getId(), created);
+        notifyProject("task-created", created);
         return new RecordCreationResponse(task.getId().toString());
     }
 
+    // one query for all the referenced projects and one transaction for the inserts, which Hibernate sends in
+    // JDBC batches (hibernate.jdbc.batch_size); an item that can't be created is reported, and skipped
+    public BatchResponse createBatch(List<NewTaskRequest> requests) {
+        if (requests == null || requests.isEmpty() || requests.size() > MAX_BATCH_SIZE)
+            throw new InvalidRequestException("A batch must contain between 1 and " + MAX_BATCH_SIZE + " tasks");
+
+        Set<UUID> projectIds = requests.stream()
+                .filter(Objects::nonNull)
+                .map(NewTaskRequest::getProjectId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<UUID, Project> projects = projectRepository.findAllById(projectIds).stream()
+                .collect(Collectors.toMap(Project::getId, Function.identity()));
+
+        List<BatchItemResult> results = new ArrayList<>(requests.size());
+        List<Task> tasks = new ArrayList<>(requests.size());
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < requests.size(); i++) {
+            NewTaskRequest req = requests.get(i);
+            String problem = missingField(req);
+            if (problem != null) {
+                results.add(new BatchItemResult(i, 400, null, problem));
+                continue;
+            }
+            Project project = projects.get(req.getProjectId());
+            if (project == null) {
+                results.add(new BatchItemResult(i, 404, null, "Project " + req.getProjectId() + " does not exist"));
+                continue;
+            }
+
+            Task task = new Task(req.getName(), req.getDescription(), req.getStartDate(), req.getEndDate(), project);
+            task.setId(UUID.randomUUID());
+            task.setCreatedDate(today);
+            tasks.add(task);
+            results.add(new BatchItemResult(i, 201, task.getId().toString(), null));
+        }
+
+        taskRepository.saveAll(tasks);
+        changeLog.upserted(Task.class, tasks.stream().map(Task::getId).collect(Collectors.toList()));
+        Map<UUID, TaskResponse> created = tasks.stream().collect(Collectors.toMap(Task::getId, TaskResponse::new));
+        outbox.recordAll("task.created", created);
+        created.values().forEach(response -> notifyProject("task-created", response));
+        return new BatchResponse(results);
+    }
+
     public Set<TaskResponse> search(Map<String, String> params) {
         if (params.isEmpty())
             return new HashSet<>();
 
-        Set<Task> results = entitySearcher.search(params, Task.class);
+        // without expand= only columns are selected; with it, the tasks come back with the expanded
+        // associations fetch-joined, so the whole response is still one statement
+        Set<String> expand = TaskResponse.EXPANSIONS.parse(params.get(EntitySearcher.EXPAND_PARAM));
+        Set<TaskResponse> results;
+        if (expand.isEmpty()) {
+            results = entitySearcher.search(params, Task.class, TaskResponse.PROJECTION);
+        } else {
+            results = entitySearcher.search(params, Task.class, TaskResponse.EXPANSIONS.projection(Task.class, expand),
+                    task -> TaskResponse.expanded(task, expand));
+        }
         if (results.isEmpty())
             throw new RecordNotFoundException();
-        return results.stream()
-                .map(TaskResponse::new)
-                .collect(Collectors.toSet());
+        return results;
+    }
+
+    public PageResponse<TaskResponse> searchPage(Map<String, String> params, int limit, String cursor) {
+        Set<String> expand = TaskResponse.EXPANSIONS.parse(params.get(EntitySearcher.EXPAND_PARAM));
+        if (expand.isEmpty())
+            return entitySearcher.searchPage(params, Task.class, TaskResponse.PROJECTION, PAGE_ORDER, limit, cursor);
+        return entitySearcher.searchPage(params, Task.class, TaskResponse.EXPANSIONS.projection(Task.class, expand),
+                ENTITY_PAGE_ORDER, limit, cursor).map(task -> TaskResponse.expanded(task, expand));
     }
 
-    public TaskResponse assignTaskToResource(String token, @Valid TaskAssignment assignment) {
+    public FacetResponse facets(Map<String, String> params) {
+        return entitySearcher.facets(params, Task.class);
+    }
+
+    public PageResponse<TaskResponse> fullTextSearch(String text, int limit, String cursor) {
+        PageResponse<TaskResponse> page = fullTextSearcher.search(text, limit, cursor);
+        // matched and ranked on the written text, but shown as by-id reads show it
+        page.getItems().forEach(writeBuffer::overlay);
+        return page;
+    }
+
+    // what streamSearch would reject, checked before the controller commits to a streamed response
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public void validateStreamSearch(Map<String, String> params) {
+        Set<String> expand = TaskResponse.EXPANSIONS.parse(params.get(EntitySearcher.EXPAND_PARAM));
+        entitySearcher.validate(params, Task.class,
+                expand.isEmpty() ? TaskResponse.PROJECTION : TaskResponse.EXPANSIONS.projection(Task.class, expand));
+    }
+
+    public void streamSearch(Map<String, String> params, NdjsonWriter writer) {
+        Set<String> expand = TaskResponse.EXPANSIONS.parse(params.get(EntitySearcher.EXPAND_PARAM));
+        if (expand.isEmpty()) {
+            entitySearcher.stream(params, Task.class, TaskResponse.PROJECTION, writer::write);
+            return;
+        }
+        entitySearcher.stream(params, Task.class, TaskResponse.EXPANSIONS.projection(Task.class, expand),
+                task -> writer.write(TaskResponse.expanded(task, expand)));
+    }
+
+    public TaskResponse assignTaskToResource(Principal principal, @Valid TaskAssignment assignment) {
+        writeBuffer.flush(List.of(assignment.getTaskId()));
         Task task = taskRepository.findById(assignment.getTaskId())
                 .orElseThrow(RecordNotFoundException::new);
         Resource resource = resourceRepository.findById(assignment.getResourceId())
                 .orElseThrow(RecordNotFoundException::new);
-        String userId = tokenService.extractTokenDetails(token)
-                .getAuthUserId();
-
-        User user = userRepository.findById(UUID.fromString(userId))
-                        .orElseThrow(RecordNotFoundException::new);
+        User user = userRepository.findById(UUID.fromString(principal.getAuthUserId()))
+                .orElseThrow(RecordNotFoundException::new);
         task.setAssignee(resource);
         task.setAssigner(user);
         if (resource.getAssignedTasks() == null)
@@ -94,21 +223,195 @@ public class TaskService {
         resource.getAssignedTasks().add(task);
         resourceRepository.save(resource);
         taskRepository.save(task);
-        return new TaskResponse(task);
+        changeLog.upserted(Task.class, task.getId());
+        TaskResponse response = new TaskResponse(task);
+        outbox.record("task.assigned", task.getId(), response);
+        notifyProject("task-assigned", response);
+        return response;
+    }
+
+    // tasks and resources each come from one IN query and the assigner is looked up once; each task still gets its
+    // own versioned UPDATE at the flush, but those go out in JDBC batches rather than one round trip apiece, and
+    // Resource.assignedTasks (the inverse side) is never loaded
+    public BatchResponse assignBatch(Principal principal, List<TaskAssignment> assignments) {
+        if (assignments == null || assignments.isEmpty() || assignments.size() > MAX_BATCH_SIZE)
+            throw new InvalidRequestException("A batch must contain between 1 and " + MAX_BATCH_SIZE + " assignments");
+
+        User assigner = userRepository.findById(UUID.fromString(principal.getAuthUserId()))
+                .orElseThrow(RecordNotFoundException::new);
+        Set<UUID> taskIds = new HashSet<>();
+        Set<UUID> resourceIds = new HashSet<>();
+        for (TaskAssignment assignment : assignments) {
+            if (assignment != null && assignment.getTaskId() != null && assignment.getResourceId() != null) {
+                taskIds.add(assignment.getTaskId());
+                resourceIds.add(assignment.getResourceId());
+            }
+        }
+        // buffered edits go first, so loading these tasks sees them and the versions they were written at
+        writeBuffer.flush(taskIds);
+        Map<UUID, Task> tasks = taskRepository.findAllById(taskIds).stream()
+                .collect(Collectors.toMap(Task::getId, Function.identity()));
+        Map<UUID, Resource> resources = resourceRepository.findAllById(resourceIds).stream()
+                .collect(Collectors.toMap(Resource::getId, Function.identity()));
+
+        List<BatchItemResult> results = new ArrayList<>(assignments.size());
+        Set<UUID> assigned = new HashSet<>();
+        for (int i = 0; i < assignments.size(); i++) {
+            TaskAssignment assignment = assignments.get(i);
+            if (assignment == null || assignment.getTaskId() == null || assignment.getResourceId() == null) {
+                results.add(new BatchItemResult(i, 400, null, "taskId and resourceId are required"));
+                continue;
+            }
+            String taskId = assignment.getTaskId().toString();
+            Task task = tasks.get(assignment.getTaskId());
+            Resource resource = resources.get(assignment.getResourceId());
+            if (task == null) {
+                results.add(new BatchItemResult(i, 404, taskId, "Task " + taskId + " does not exist"));
+            } else if (resource == null) {
+                results.add(new BatchItemResult(i, 404, taskId,
+                        "Resource " + assignment.getResourceId() + " does not exist"));
+            } else if (!assigned.add(task.getId())) {
+                // the outcome would depend on item order, so the later assignment is refused rather than applied
+                results.add(new BatchItemResult(i, 400, taskId, "Task " + taskId + " is assigned more than once"));
+            } else {
+                task.setAssignee(resource);
+                task.setAssigner(assigner);
+                results.add(new BatchItemResult(i, 200, taskId, null));
+            }
+        }
+        changeLog.upserted(Task.class, assigned);
+        Map<UUID, TaskResponse> responses = assigned.stream()
+                .collect(Collectors.toMap(Function.identity(), id -> new TaskResponse(tasks.get(id))));
+        outbox.recordAll("task.assigned", responses);
+        responses.values().forEach(response -> notifyProject("task-assigned", response));
+        return new BatchResponse(results);
     }
 
     public void delete(UUID taskId) {
+        // waits out a flush that may be writing this task; an edit it couldn't write is moot once the task is gone
+        writeBuffer.flush(List.of(taskId));
+        writeBuffer.discard(taskId);
+        changeLog.deleted(Task.class, taskId);
+        // deleteById loads the task anyway, so this adds no query; it's only here for the project id
+        Optional<Task> task = taskRepository.findById(taskId);
         taskRepository.deleteById(taskId);
+        outbox.record("task.deleted", taskId, Map.of("id", taskId));
+        task.map(Task::getProject).ifPresent(project -> {
+            ProjectEvent event = new ProjectEvent("task-deleted", taskId, null);
+            AfterCommit.run(() -> eventHub.publish(project.getId(), event));
+        });
     }
 
+    // moves every matching task by the same number of days in one UPDATE, e.g. project.id=...&days=7
+    public BulkResponse shiftDates(Map<String, String> params, int days) {
+        if (days == 0 || Math.abs(days) > MAX_SHIFT_DAYS)
+            throw new InvalidRequestException("days must be non-zero and at most " + MAX_SHIFT_DAYS + " either way");
+
+        Map<String, String> criteria = new HashMap<>(params);
+        criteria.remove(SHIFT_DAYS_PARAM);
+        // buffered edits go first, or their flush would put the old dates back
+        writeBuffer.flush();
+        int affected = entitySearcher.bulkUpdate(criteria, Task.class, SHIFT_DATES, Map.of("days", days));
+        // recorded after the rows have moved, so a date filter is moved with them to match the same rows
+        changeLog.upsertedMatching(shifted(criteria, days), Task.class);
+        // one event for the whole statement, which names the filter rather than each task; /changes has the ids
+        outbox.record("tasks.shifted", null, Map.of("filter", criteria, "days", days, "affected", affected));
+        resyncProjects(criteria);
+        return new BulkResponse(affected);
+    }
+
+    public BulkResponse deleteMatching(Map<String, String> params) {
+        writeBuffer.flush();
+        changeLog.deletedMatching(params, Task.class);
+        int affected = entitySearcher.bulkDelete(params, Task.class);
+        outbox.record("tasks.deleted", null, Map.of("filter", params, "affected", affected));
+        resyncProjects(params);
+        return new BulkResponse(affected);
+    }
+
+    // with write-behind on this is a read, and the write happens on TaskWriteBuffer's next flush
     public TaskResponse update(UUID taskId, NewTaskRequest req) {
+        if (writeBuffer.isEnabled()) {
+            TaskResponse current = taskRepository.findResponseById(taskId)
+                    .orElseThrow(RecordNotFoundException::new);
+            // checked before it's acknowledged, as an edit the database won't take can only be dropped at the flush
+            checkEdit(req);
+            if (writeBuffer.offer(taskId, req))
+                return writeBuffer.overlay(current);
+            // this edit replaces the whole of any older one still buffered
+            writeBuffer.discard(taskId);
+        }
+
         Task task = taskRepository.findById(taskId)
                 .orElseThrow(RecordNotFoundException::new);
+        checkEdit(req);
+        applyEdit(task, req);
+        taskRepository.save(task);
+        changeLog.upserted(Task.class, taskId);
+        TaskResponse response = new TaskResponse(task);
+        outbox.record("task.updated", taskId, response);
+        notifyProject("task-updated", response);
+        return response;
+    }
+
+    // SSE subscribers hear of a change once it has committed, never of one that rolled back
+    private void notifyProject(String type, TaskResponse task) {
+        ProjectEvent event = new ProjectEvent(type, task.getId(), task);
+        AfterCommit.run(() -> eventHub.publish(task.getProjectId(), event));
+    }
+
+    // a bulk statement doesn't say which tasks it touched, so subscribers reload; all of them, unless the
+    // filter names the project
+    private void resyncProjects(Map<String, String> criteria) {
+        String projectId = criteria.get("project.id");
+        UUID project = projectId == null ? null : UUID.fromString(projectId);
+        AfterCommit.run(() -> eventHub.resync(project));
+    }
+
+    static void applyEdit(Task task, NewTaskRequest req) {
         task.setName(req.getName());
         task.setDescription(req.getDescription());
         task.setStartDate(req.getStartDate());
         task.setEndDate(req.getEndDate());
-        taskRepository.save(task);
-        return new TaskResponse(task);
+    }
+
+    // both dates move by the same days, so moving every date bound in a filter keeps it on the rows it matched
+    private static Map<String, String> shifted(Map<String, String> criteria, int days) {
+        Map<String, String> shifted = new HashMap<>(criteria);
+        criteria.forEach((key, value) -> {
+            int opStart = key.indexOf('[');
+            String attribute = opStart < 0 ? key : key.substring(0, opStart);
+            if (attribute.equals("startDate") || attribute.equals("endDate"))
+                shifted.put(key, Arrays.stream(value.split(","))
+                        .map(date -> LocalDate.parse(date.trim()).plusDays(days).toString())
+                        .collect(Collectors.joining(",")));
+        });
+        return shifted;
+    }
+
+    // the columns a task can't be inserted without; checked up front so one bad item can't fail the whole batch
+    private static String missingField(NewTaskRequest req) {
+        String problem = missingColumn(req);
+        if (problem == null && req.getProjectId() == null)
+            return "projectId is required";
+        return problem;
+    }
+
+    // an edit replaces these columns, none of which can be null
+    private static void checkEdit(NewTaskRequest req) {
+        String problem = missingColumn(req);
+        if (problem != null)
+            throw new InvalidRequestException(problem);
+    }
+
+    // the first required column an edit or insert leaves empty, as a message for the client; null when all are set
+    private static String missingColumn(NewTaskRequest req) {
+        if (req == null)
+            return "Task is empty";
+        if (req.getName() == null || req.getName().isBlank())
+            return "name is required";
+        if (req.getStartDate() == null || req.getEndDate() == null)
+            return "startDate and endDate are required";
+        return null;
     }
 }
@@ -0,0 +1,212 @@
+package com.russell.scheduler.task;
+
+import com.russell.scheduler.task.dtos.NewTaskRequest;
+import com.russell.scheduler.task.dtos.TaskResponse;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// opt-in write-behind for PATCH /tasks/id/{id}: an edit is acknowledged once it's buffered here, and a burst of edits
+// to one task (dragging it around a Gantt chart) becomes a single UPDATE on the next flush. Reads by id on this
+// node see buffered edits; searches, and other nodes, see them once they're flushed.
+@Component
+public class TaskWriteBuffer implements MeterBinder {
+
+    private final Logger logger = LogManager.getLogger();
+    private final TaskEditWriter writer;
+    private final boolean enabled;
+    private final int maxPending;
+    private final Map<UUID, PendingEdit> pending = new ConcurrentHashMap<>();
+    // a buffered edit has no row version yet, so its ETag uses a negative stamp instead; unique to that edit on
+    // this node, and never equal to a stored version
+    private final AtomicLong stamps = new AtomicLong();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong flushNanos = new AtomicLong();
+    private volatile boolean closed;
+
+    @Autowired
+    public TaskWriteBuffer(TaskEditWriter writer,
+                           @Value("${tasks.write-behind.enabled:false}") boolean enabled,
+                           @Value("${tasks.write-behind.max-pending:10000}") int maxPending) {
+        this.writer = writer;
+        this.enabled = enabled;
+        this.maxPending = maxPending;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // false when the caller should write the edit itself: write-behind is off, the buffer is shutting down, or
+    // it's full and this task has nothing buffered to replace
+    public boolean offer(UUID taskId, NewTaskRequest req) {
+        if (!enabled || closed)
+            return false;
+        if (pending.size() >= maxPending && !pending.containsKey(taskId))
+            return false;
+        pending.put(taskId, new PendingEdit(req, stamps.incrementAndGet()));
+        accepted.incrementAndGet();
+        return true;
+    }
+
+    // the response as it will read once buffered edits to it are written
+    public TaskResponse overlay(TaskResponse response) {
+        PendingEdit edit = pending.get(response.getId());
+        if (edit == null)
+            return response;
+        response.setName(edit.req.getName());
+        response.setDescription(edit.req.getDescription());
+        response.setStartDate(edit.req.getStartDate());
+        response.setEndDate(edit.req.getEndDate());
+        response.setVersion(-edit.stamp);
+        return response;
+    }
+
+    public Long bufferedVersion(UUID taskId) {
+        PendingEdit edit = pending.get(taskId);
+        return edit == null ? null : -edit.stamp;
+    }
+
+    public void discard(UUID taskId) {
+        pending.remove(taskId);
+    }
+
+    // synchronized, as bulk task operations flush too; an edit stays visible to reads until its row is written,
+    // and is then removed only if no newer edit to the same task has replaced it
+    @Scheduled(fixedDelayString = "${tasks.write-behind.flush-interval-ms:200}")
+    public synchronized void flush() {
+        writeAll(new ArrayList<>(pending.entrySet()));
+    }
+
+    // for a direct write to these tasks, which has to come after their buffered edits and after any flush already
+    // under way, or that flush would fail it on the version or put back the fields it had just replaced
+    public synchronized void flush(Collection<UUID> taskIds) {
+        if (pending.isEmpty())
+            return;
+        List<Map.Entry<UUID, PendingEdit>> edits = new ArrayList<>();
+        for (UUID taskId : taskIds) {
+            PendingEdit edit = pending.get(taskId);
+            if (edit != null)
+                edits.add(new AbstractMap.SimpleImmutableEntry<>(taskId, edit));
+        }
+        writeAll(edits);
+    }
+
+    private void writeAll(List<Map.Entry<UUID, PendingEdit>> edits) {
+        for (int from = 0; from < edits.size(); from += TaskService.MAX_BATCH_SIZE) {
+            List<Map.Entry<UUID, PendingEdit>> batch =
+                    edits.subList(from, Math.min(edits.size(), from + TaskService.MAX_BATCH_SIZE));
+            RuntimeException failure = write(batch);
+            if (failure == null)
+                continue;
+            if (isTransient(failure)) {
+                // left in place for the next flush
+                logger.error("Could not write {} buffered task edits, retrying on the next flush",
+                        batch.size(), failure);
+                return;
+            }
+            // one edit the database won't take fails its whole batch, so the batch is written an edit at a time
+            // and only the edits that fail on their own are dropped
+            for (Map.Entry<UUID, PendingEdit> edit : batch) {
+                failure = write(List.of(edit));
+                if (failure == null)
+                    continue;
+                if (isTransient(failure)) {
+                    logger.error("Could not write buffered task edits, retrying on the next flush", failure);
+                    return;
+                }
+                if (pending.remove(edit.getKey(), edit.getValue()))
+                    dropped.incrementAndGet();
+                logger.error("Dropped the buffered edit to task {}, which could not be written",
+                        edit.getKey(), failure);
+            }
+        }
+    }
+
+    // runs after the web server has stopped taking requests (server.shutdown=graceful), so nothing is added behind it
+    @PreDestroy
+    public void drain() {
+        closed = true;
+        flush();
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    // edits acknowledged per row actually written; 1 means nothing was coalesced
+    public double getCoalescingRatio() {
+        long rows = written.get();
+        return rows == 0 ? 0 : (double) accepted.get() / rows;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("tasks.write.behind.pending", this, TaskWriteBuffer::getPendingCount).register(registry);
+        Gauge.builder("tasks.write.behind.coalescing.ratio", this, TaskWriteBuffer::getCoalescingRatio)
+                .register(registry);
+        FunctionCounter.builder("tasks.write.behind.accepted", accepted, AtomicLong::get).register(registry);
+        FunctionCounter.builder("tasks.write.behind.written", written, AtomicLong::get).register(registry);
+        FunctionCounter.builder("tasks.write.behind.dropped", dropped, AtomicLong::get).register(registry);
+        FunctionTimer.builder("tasks.write.behind.flush", this, b -> b.flushes.get(), b -> b.flushNanos.get(),
+                TimeUnit.NANOSECONDS).register(registry);
+    }
+
+    private RuntimeException write(List<Map.Entry<UUID, PendingEdit>> batch) {
+        Map<UUID, NewTaskRequest> edits = new HashMap<>();
+        for (Map.Entry<UUID, PendingEdit> entry : batch)
+            edits.put(entry.getKey(), entry.getValue().req);
+        long startedAt = System.nanoTime();
+        try {
+            writer.write(edits);
+        } catch (RuntimeException e) {
+            return e;
+        } finally {
+            flushes.incrementAndGet();
+            flushNanos.addAndGet(System.nanoTime() - startedAt);
+        }
+        for (Map.Entry<UUID, PendingEdit> entry : batch)
+            pending.remove(entry.getKey(), entry.getValue());
+        // counted per edit handed over, so a task deleted before its flush doesn't inflate the ratio
+        written.addAndGet(edits.size());
+        return null;
+    }
+
+    // the database being unreachable, or a row changed under the write, says nothing about the edits themselves;
+    // they're kept and tried again, where anything else is taken to be a problem with an edit
+    private static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof TransactionException;
+    }
+
+    private static class PendingEdit {
+        private final NewTaskRequest req;
+        private final long stamp;
+
+        private PendingEdit(NewTaskRequest req, long stamp) {
+            this.req = req;
+            this.stamp = stamp;
+        }
+    }
+}
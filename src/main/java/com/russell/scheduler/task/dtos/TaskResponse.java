@@ -1,15 +1,33 @@
 package com.russell.scheduler.task.dtos;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.russell.scheduler.common.search.Expansions;
+import com.russell.scheduler.common.search.Projection;
+import com.russell.scheduler.project.dtos.ProjectResponse;
+import com.russell.scheduler.resource.dtos.ResourceResponse;
 import com.russell.scheduler.task.Task;
+import com.russell.scheduler.user.dtos.UserResponse;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Data
 @NoArgsConstructor
 public class TaskResponse {
+
+    // the columns read by the projection constructor below, in order
+    public static final Projection<TaskResponse> PROJECTION = new Projection<>(TaskResponse.class,
+            "id", "name", "description", "project.id", "assignee.id", "assigner.id",
+            "startDate", "endDate", "createdDate");
+    // UserResponse reads the role, so expanding the assigner fetches that too
+    public static final Expansions EXPANSIONS = new Expansions(Map.of(
+            "project", "project", "assignee", "assignee", "assigner", "assigner.role"));
+
     private UUID id;
     private String name;
     private String description = ""; // defaults blank
@@ -19,16 +37,60 @@ public class TaskResponse {
     private LocalDate startDate;
     private LocalDate endDate;
     private LocalDate createdDate;
+    // sent as the ETag rather than in the body; only read by findResponseById and full-text search, 0 elsewhere
+    @JsonIgnore
+    private long version;
+    // only present when asked for with expand=
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private ProjectResponse project;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private ResourceResponse assignee;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private UserResponse assigner;
+
+    public TaskResponse(UUID id, String name, String description, UUID projectId, UUID assigneeId,
+                        UUID assignerId, LocalDate startDate, LocalDate endDate, LocalDate createdDate) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.projectId = projectId;
+        this.assigneeId = assigneeId;
+        this.assignerId = assignerId;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.createdDate = createdDate;
+    }
+
+    public TaskResponse(UUID id, String name, String description, UUID projectId, UUID assigneeId,
+                        UUID assignerId, LocalDate startDate, LocalDate endDate, LocalDate createdDate, long version) {
+        this(id, name, description, projectId, assigneeId, assignerId, startDate, endDate, createdDate);
+        this.version = version;
+    }
 
     public TaskResponse(Task task) {
         this.id = task.getId();
         this.name = task.getName();
         this.description = task.getDescription();
         this.projectId = task.getProject().getId();
-        this.assigneeId = task.getAssignee().getId();
-        this.assignerId = task.getAssigner().getId();
+        // unassigned tasks have neither an assignee nor an assigner
+        this.assigneeId = task.getAssignee() == null ? null : task.getAssignee().getId();
+        this.assignerId = task.getAssigner() == null ? null : task.getAssigner().getId();
         this.startDate = task.getStartDate();
         this.endDate = task.getEndDate();
         this.createdDate = task.getCreatedDate();
+        // unsaved tasks have no version yet
+        this.version = task.getVersion() == null ? 0 : task.getVersion();
+    }
+
+    // the task must have been loaded with EXPANSIONS.projection(expand), or each expansion is another select
+    public static TaskResponse expanded(Task task, Set<String> expand) {
+        TaskResponse response = new TaskResponse(task);
+        if (expand.contains("project"))
+            response.project = new ProjectResponse(task.getProject());
+        if (expand.contains("assignee") && task.getAssignee() != null)
+            response.assignee = new ResourceResponse(task.getAssignee());
+        if (expand.contains("assigner") && task.getAssigner() != null)
+            response.assigner = new UserResponse(task.getAssigner());
+        return response;
     }
 }
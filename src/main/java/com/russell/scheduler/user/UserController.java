@@ -1,12 +1,21 @@
 package com.russell.scheduler.user;
 
 import com.russell.scheduler.user.dtos.NewUserRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.russell.scheduler.auth.dtos.Principal;
+import com.russell.scheduler.common.NdjsonWriter;
+import com.russell.scheduler.common.dtos.FacetResponse;
+import com.russell.scheduler.common.dtos.PageResponse;
 import com.russell.scheduler.common.dtos.RecordCreationResponse;
+import com.russell.scheduler.common.filters.AuthenticationFilter;
+import com.russell.scheduler.common.ratelimit.RateLimited;
 import com.russell.scheduler.user.dtos.UserResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -16,10 +25,12 @@ import java.util.UUID;
 public class UserController {
 
     private UserService userService;
+    private ObjectMapper mapper;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, ObjectMapper mapper) {
         this.userService = userService;
+        this.mapper = mapper;
     }
 
     @GetMapping(produces = "application/json")
@@ -27,6 +38,22 @@ public class UserController {
         return userService.findAll();
     }
 
+    @GetMapping(params = "limit", produces = "application/json")
+    public PageResponse<UserResponse> fetchUserPage(@RequestParam int limit,
+                                                    @RequestParam(required = false) String cursor) {
+        return userService.findPage(limit, cursor);
+    }
+
+    @GetMapping(produces = NdjsonWriter.MEDIA_TYPE)
+    public StreamingResponseBody streamAll() {
+        userService.validateStreamSearch(Map.of());
+        return out -> {
+            try (NdjsonWriter writer = new NdjsonWriter(mapper, out)) {
+                userService.streamAll(writer);
+            }
+        };
+    }
+
     @GetMapping(value="/id/{id}", produces = "application/json")
     public UserResponse getSingleUser(@PathVariable(name="id") UUID userId) {
         return userService.findOne(userId);
@@ -37,9 +64,40 @@ public class UserController {
         return userService.search(params);
     }
 
+    @GetMapping(value = "/search", params = {"limit", "!facets"}, produces = "application/json")
+    public PageResponse<UserResponse> searchPage(@RequestParam Map<String, String> params,
+                                                 @RequestParam int limit,
+                                                 @RequestParam(required = false) String cursor) {
+        return userService.searchPage(params, limit, cursor);
+    }
+
+    @GetMapping(value = "/search", params = "facets", produces = "application/json")
+    public FacetResponse facets(@RequestParam Map<String, String> params) {
+        return userService.facets(params);
+    }
+
+    @GetMapping(value = "/search", produces = NdjsonWriter.MEDIA_TYPE)
+    public StreamingResponseBody streamSearch(@RequestParam Map<String, String> params) {
+        // checked here, while an error can still be a 400; only the rows are read once the body has started
+        userService.validateStreamSearch(params);
+        return out -> {
+            try (NdjsonWriter writer = new NdjsonWriter(mapper, out)) {
+                userService.streamSearch(params, writer);
+            }
+        };
+    }
+
+    @GetMapping(value = "/suggest", produces = "application/json")
+    public List<UserResponse> suggest(@RequestParam String q, @RequestParam(defaultValue = "10") int limit) {
+        return userService.suggest(q, limit);
+    }
+
     @ResponseStatus(HttpStatus.CREATED)
+    @RateLimited("registration")
     @PostMapping(produces = "application/json", consumes = "application/json")
-    public RecordCreationResponse createNewUser(@RequestBody NewUserRequest req){
-        return userService.create(req);
+    public RecordCreationResponse createNewUser(@RequestBody NewUserRequest req,
+                                                @RequestAttribute(name = AuthenticationFilter.PRINCIPAL_ATTRIBUTE,
+                                                        required = false) Principal caller) {
+        return userService.create(req, caller);
     }
 }
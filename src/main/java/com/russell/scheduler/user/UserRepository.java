@@ -1,15 +1,44 @@
 package com.russell.scheduler.user;
 
+import com.russell.scheduler.user.dtos.UserCredentials;
+import com.russell.scheduler.user.dtos.UserResponse;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import javax.transaction.Transactional;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 public interface UserRepository extends JpaRepository<User, UUID> {
 
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
-    Optional<User> findUserByUsernameAndPassword(String username, String password);
     Optional<User> findUserByUsername(String username);
     Optional<User> findUserByEmail(String email);
+
+    @Query("select new com.russell.scheduler.user.dtos.UserResponse(u.id, u.username, u.email, u.firstName, "
+            + "u.lastName, u.role.roleName) from User u where u.id = :id")
+    Optional<UserResponse> findResponseById(@Param("id") UUID id);
+
+    @Query("select new com.russell.scheduler.user.dtos.UserResponse(u.id, u.username, u.email, u.firstName, "
+            + "u.lastName, u.role.roleName) from User u")
+    Set<UserResponse> findAllResponses();
+
+    @Query("select new com.russell.scheduler.user.dtos.UserResponse(u.id, u.username, u.email, u.firstName, "
+            + "u.lastName, u.role.roleName) from User u where u.id in :ids")
+    List<UserResponse> findResponsesByIdIn(@Param("ids") Collection<UUID> ids);
+
+    @Query("select new com.russell.scheduler.user.dtos.UserCredentials(u.id, u.password, u.role.roleName) "
+            + "from User u where u.username = :username")
+    Optional<UserCredentials> findCredentialsByUsername(@Param("username") String username);
+
+    @Transactional
+    @Modifying
+    @Query("update User u set u.password = :password where u.id = :id")
+    void updatePassword(@Param("id") UUID id, @Param("password") String password);
 }
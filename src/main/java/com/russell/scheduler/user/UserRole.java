@@ -1,14 +1,18 @@
 package com.russell.scheduler.user;
 
 
+import com.russell.scheduler.auth.RoleChangeListener;
+
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.Id;
 import javax.persistence.Table;
 import java.util.Objects;
 
 @Entity
 @Table(name="user_roles")
+@EntityListeners(RoleChangeListener.class)
 public class UserRole {
 
     @Id
@@ -7,4 +7,7 @@ import java.util.Optional;
 public interface UserRoleRepository extends JpaRepository<UserRole, Integer> {
 
     Optional<UserRole> findUserRoleByRoleName(String name);
+
+    // the highest priority number holds the fewest permissions (see Permission)
+    Optional<UserRole> findFirstByOrderByPriorityDesc();
 }
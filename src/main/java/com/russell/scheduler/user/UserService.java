@@ -1,71 +1,141 @@
 package com.russell.scheduler.user;
 
+import com.russell.scheduler.auth.PasswordHasher;
+import com.russell.scheduler.auth.Permission;
+import com.russell.scheduler.auth.PermissionTable;
 import com.russell.scheduler.auth.dtos.AuthRequest;
+import com.russell.scheduler.auth.dtos.Principal;
 import com.russell.scheduler.common.EntitySearcher;
+import com.russell.scheduler.common.NdjsonWriter;
+import com.russell.scheduler.common.dtos.FacetResponse;
+import com.russell.scheduler.common.dtos.PageResponse;
+import com.russell.scheduler.common.search.Keyset;
+import com.russell.scheduler.common.search.NGramIndex;
 import com.russell.scheduler.user.dtos.NewUserRequest;
 import com.russell.scheduler.common.dtos.RecordCreationResponse;
+import com.russell.scheduler.user.dtos.UserCredentials;
 import com.russell.scheduler.user.dtos.UserResponse;
+import com.russell.scheduler.common.exceptions.AuthorizationException;
 import com.russell.scheduler.common.exceptions.InvalidCredentialsException;
 import com.russell.scheduler.common.exceptions.RecordNotFoundException;
 import com.russell.scheduler.common.exceptions.RecordPersistenceException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import javax.transaction.Transactional;
 import javax.validation.Valid;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class UserService {
 
+    private static final Keyset<UserResponse> PAGE_ORDER = new Keyset<>("username", UserResponse::getUsername, UserResponse::getId);
+
     private UserRepository userRepository;
     private UserRoleRepository userRoleRepository;
     private EntitySearcher entitySearcher;
+    private PasswordHasher passwordHasher;
+    private UserWriter userWriter;
+    private PermissionTable permissionTable;
+    private final NGramIndex<UserResponse> suggestIndex = new NGramIndex<>(UserResponse::getId,
+            u -> u.getUsername() + " " + u.getFirstName() + " " + u.getLastName() + " " + u.getEmail());
 
     @Autowired
-    public UserService(UserRepository userRepository, UserRoleRepository userRoleRepository, EntitySearcher entitySearcher) {
+    public UserService(UserRepository userRepository, UserRoleRepository userRoleRepository,
+                       EntitySearcher entitySearcher, PasswordHasher passwordHasher, UserWriter userWriter,
+                       PermissionTable permissionTable) {
         this.userRepository = userRepository;
         this.userRoleRepository = userRoleRepository;
         this.entitySearcher = entitySearcher;
+        this.passwordHasher = passwordHasher;
+        this.userWriter = userWriter;
+        this.permissionTable = permissionTable;
     }
 
-    public UserResponse authenticate(@Valid AuthRequest req) {
-        return userRepository.findUserByUsernameAndPassword(req.getUsername(), req.getPassword())
-                .map(UserResponse::new)
-                .orElseThrow(InvalidCredentialsException::new);
+    // outside a transaction, so no connection is held while the hash is checked
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public Principal authenticate(@Valid AuthRequest req) {
+        Optional<UserCredentials> credentials = userRepository.findCredentialsByUsername(req.getUsername());
+        String storedHash = credentials.map(UserCredentials::getPasswordHash).orElse(null);
+        if (!passwordHasher.matches(req.getPassword(), storedHash))
+            throw new InvalidCredentialsException();
+
+        UserCredentials user = credentials.get();
+        // plaintext rows and hashes below the configured cost are upgraded while the password is at hand
+        if (passwordHasher.needsRehash(storedHash))
+            userRepository.updatePassword(user.getId(), passwordHasher.hash(req.getPassword()));
+        return new Principal(user.getId().toString(), user.getRoleName());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildSuggestIndex() {
+        suggestIndex.rebuild(userRepository.findAllResponses());
+    }
+
+    public List<UserResponse> suggest(String query, int limit) {
+        return suggestIndex.suggest(query, limit);
     }
 
     public Set<UserResponse> findAll() {
-        return userRepository.findAll()
-                .stream()
-                .map(UserResponse::new)
-                .collect(Collectors.toSet());
+        return userRepository.findAllResponses();
     }
 
     public UserResponse findOne(UUID resourceId) {
-        return userRepository.findById(resourceId)
-                .map(UserResponse::new)
+        return userRepository.findResponseById(resourceId)
                 .orElseThrow(RecordNotFoundException::new);
     }
 
+    public PageResponse<UserResponse> findPage(int limit, String cursor) {
+        return searchPage(Map.of(), limit, cursor);
+    }
+
     public Set<UserResponse> search(Map<String, String> params) {
         if (params.isEmpty())
             return findAll();
 
-        Set<User> results = entitySearcher.search(params, User.class);
+        Set<UserResponse> results = entitySearcher.search(params, User.class, UserResponse.PROJECTION);
         if (results.isEmpty())
             throw new RecordNotFoundException();
-        return results.stream()
-                .map(UserResponse::new)
-                .collect(Collectors.toSet());
+        return results;
+    }
+
+    public PageResponse<UserResponse> searchPage(Map<String, String> params, int limit, String cursor) {
+        return entitySearcher.searchPage(params, User.class, UserResponse.PROJECTION, PAGE_ORDER, limit, cursor);
+    }
+
+    public FacetResponse facets(Map<String, String> params) {
+        return entitySearcher.facets(params, User.class);
+    }
+
+    public void streamAll(NdjsonWriter writer) {
+        streamSearch(Map.of(), writer);
+    }
+
+    // what streamSearch would reject, checked before the controller commits to a streamed response
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public void validateStreamSearch(Map<String, String> params) {
+        entitySearcher.validate(params, User.class, UserResponse.PROJECTION);
+    }
+
+    public void streamSearch(Map<String, String> params, NdjsonWriter writer) {
+        entitySearcher.stream(params, User.class, UserResponse.PROJECTION, writer::write);
     }
 
-    public RecordCreationResponse create(@Valid NewUserRequest req) {
+    // outside a transaction like authenticate, and the hash comes after the checks so a taken username costs none;
+    // caller is null on self-registration, which may not pick a role, since roles are what permissions hang off
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public RecordCreationResponse create(@Valid NewUserRequest req, Principal caller) {
+        if (req.getRoleName() != null
+                && (caller == null || !permissionTable.allows(caller.getAuthUserRole(), Permission.MANAGE_USERS.getBit())))
+            throw new AuthorizationException("Only a user administrator can choose a new user's role");
         User user = req.extractUser();
 
         // check DB for existing users with provided username/email
@@ -75,10 +145,16 @@ public class UserService {
             throw new RecordPersistenceException("That email address is already associated with another user");
 
         user.setId(UUID.randomUUID());
-        UserRole userRole = userRoleRepository.findUserRoleByRoleName(req.getRoleName())
-                .orElseThrow(() -> new RecordPersistenceException("Invalid role supplied"));
+        UserRole userRole = req.getRoleName() == null
+                ? userRoleRepository.findFirstByOrderByPriorityDesc()
+                        .orElseThrow(() -> new RecordPersistenceException("No role to register new users under"))
+                : userRoleRepository.findUserRoleByRoleName(req.getRoleName())
+                        .orElseThrow(() -> new RecordPersistenceException("Invalid role supplied"));
         user.setRole(userRole);
-        userRepository.save(user);
+        user.setPassword(passwordHasher.hashNewPassword(req.getPassword()));
+        userWriter.insert(user);
+        // committed by now
+        suggestIndex.put(new UserResponse(user));
         return new RecordCreationResponse(user.getId().toString());
     }
 }
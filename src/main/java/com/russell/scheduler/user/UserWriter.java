@@ -0,0 +1,28 @@
+package com.russell.scheduler.user;
+
+import com.russell.scheduler.change.ChangeLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.transaction.Transactional;
+
+// the database half of registration, in a transaction of its own so UserService can hash the password first
+// without holding a connection through the hash
+@Service
+@Transactional
+public class UserWriter {
+
+    private UserRepository userRepository;
+    private ChangeLog changeLog;
+
+    @Autowired
+    public UserWriter(UserRepository userRepository, ChangeLog changeLog) {
+        this.userRepository = userRepository;
+        this.changeLog = changeLog;
+    }
+
+    public void insert(User user) {
+        userRepository.save(user);
+        changeLog.upserted(User.class, user.getId());
+    }
+}
@@ -31,7 +31,7 @@ public class NewUserRequest {
     private String firstName;
     @NotNull
     private String lastName;
-    @NotNull
+    // left out on self-registration, which always gets the least-privileged role
     private String roleName;
 
     public User extractUser() {
@@ -0,0 +1,29 @@
+package com.russell.scheduler.user.dtos;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+// just what sign-in needs: who the user is, their stored hash, and the role that goes into the token
+@Data
+@NoArgsConstructor
+public class UserCredentials {
+    private UUID id;
+    private String passwordHash;
+    private String roleName;
+
+    public UserCredentials(UUID id, String passwordHash, String roleName) {
+        this.id = id;
+        this.passwordHash = passwordHash;
+        this.roleName = roleName;
+    }
+
+    @Override
+    public String toString() {
+        return "UserCredentials{" +
+                "id=" + id +
+                ", roleName='" + roleName + '\'' +
+                '}';
+    }
+}
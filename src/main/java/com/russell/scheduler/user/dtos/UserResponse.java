@@ -1,5 +1,6 @@
 package com.russell.scheduler.user.dtos;
 
+import com.russell.scheduler.common.search.Projection;
 import com.russell.scheduler.user.User;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -9,6 +10,11 @@ import java.util.UUID;
 @Data
 @NoArgsConstructor
 public class UserResponse {
+
+    // the columns read by the projection constructor below, in order
+    public static final Projection<UserResponse> PROJECTION = new Projection<>(UserResponse.class,
+            "id", "username", "email", "firstName", "lastName", "role.roleName");
+
     private UUID id;
     private String username;
     private String email;
@@ -16,6 +22,16 @@ public class UserResponse {
     private String lastName;
     private String roleName;
 
+    public UserResponse(UUID id, String username, String email, String firstName, String lastName,
+                        String roleName) {
+        this.id = id;
+        this.username = username;
+        this.email = email;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.roleName = roleName;
+    }
+
     public UserResponse(User user) {
         this.id = user.getId();
         this.username = user.getUsername();
@@ -0,0 +1,5 @@
+-- executed by Hibernate after schema generation (ddl-auto create/create-drop); one statement per line
+create index resources_last_name_pattern_idx on resources (last_name text_pattern_ops);
+create index resources_email_pattern_idx on resources (email text_pattern_ops);
+alter table tasks add column search_vector tsvector generated always as (setweight(to_tsvector('english', coalesce(name, '')), 'A') || setweight(to_tsvector('english', coalesce(description, '')), 'B')) stored;
+create index tasks_search_vector_idx on tasks using gin (search_vector);
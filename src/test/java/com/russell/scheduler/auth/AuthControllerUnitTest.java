@@ -0,0 +1,71 @@
+package com.russell.scheduler.auth;
+
+import com.russell.scheduler.auth.dtos.Principal;
+import com.russell.scheduler.common.exceptions.InvalidJWTException;
+import com.russell.scheduler.common.ratelimit.RateLimiter;
+import com.russell.scheduler.user.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(AuthController.class)
+class AuthControllerUnitTest {
+
+    @Autowired
+    MockMvc mockMvc;
+    @MockBean
+    private UserService mockUserService;
+    @MockBean
+    private TokenService mockTokenService; // for AuthenticationFilter, which @WebMvcTest loads
+    @MockBean
+    private PermissionTable mockPermissionTable; // for PermissionInterceptor, registered by WebConfig
+    @MockBean
+    private RateLimiter mockRateLimiter; // for RateLimitInterceptor; a mock's 0 lets every request through
+    private final String PATH = "/auth";
+    private final String CONTENT_TYPE = "application/json";
+    private final String LOGIN = "{\"username\":\"mockuser1\",\"password\":\"P@ssword1\"}";
+
+    @Test
+    void test_authenticate_returnsNewToken_providedExpiredToken() throws Exception {
+        Principal principal = new Principal(UUID.randomUUID().toString(), "ADMIN");
+        when(mockTokenService.extractTokenDetails(anyString()))
+                .thenThrow(new InvalidJWTException("The provided auth token has expired"));
+        when(mockUserService.authenticate(any())).thenReturn(principal);
+        when(mockTokenService.generateToken(principal)).thenReturn("new-token");
+
+        // assert a client still sending its old token can log in again
+        MvcResult result = mockMvc.perform(post(PATH)
+                        .contentType(CONTENT_TYPE)
+                        .header("Authorization", "Bearer expired-token")
+                        .content(LOGIN))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Authorization", "new-token"))
+                .andExpect(jsonPath("$.authUserId").value(principal.getAuthUserId()))
+                .andReturn();
+        verify(mockTokenService, times(0)).extractTokenDetails(anyString());
+    }
+
+    @Test
+    void test_logout_returnsUnauthorized_providedRevokedToken() throws Exception {
+        when(mockTokenService.extractTokenDetails("revoked-token"))
+                .thenThrow(new InvalidJWTException("The provided auth token has been revoked"));
+
+        MvcResult result = mockMvc.perform(post(PATH + "/logout")
+                        .header("Authorization", "Bearer revoked-token"))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.message").value("The provided auth token has been revoked"))
+                .andReturn();
+        verify(mockTokenService, times(0)).revoke(any());
+    }
+}
@@ -0,0 +1,132 @@
+package com.russell.scheduler.auth;
+
+import com.russell.scheduler.common.exceptions.ServiceUnavailableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherUnitTest {
+
+    private PasswordHasher hasher;
+
+    @BeforeEach
+    public void setup() {
+        // the lowest bcrypt cost keeps the suite fast
+        hasher = new PasswordHasher(4, 2, 8, 2);
+    }
+
+    @AfterEach
+    public void teardown() {
+        hasher.shutdown();
+    }
+
+    @Test
+    void test_matches_returnsTrue_providedPasswordOfHash() {
+        String hash = hasher.hash("P@ssword1");
+
+        assertAll(
+                () -> assertNotEquals("P@ssword1", hash),
+                () -> assertTrue(hasher.matches("P@ssword1", hash)),
+                () -> assertFalse(hasher.matches("P@ssword2", hash)),
+                () -> assertFalse(hasher.needsRehash(hash)));
+    }
+
+    @Test
+    void test_matches_returnsFalse_providedNoStoredHash() {
+        assertFalse(hasher.matches("P@ssword1", null));
+    }
+
+    @Test
+    void test_matches_comparesPlaintext_providedLegacyRow() {
+        // assert rows stored before hashing still sign in, and are flagged for an upgrade
+        assertAll(
+                () -> assertTrue(hasher.matches("P@ssword1", "P@ssword1")),
+                () -> assertFalse(hasher.matches("P@ssword2", "P@ssword1")),
+                () -> assertTrue(hasher.needsRehash("P@ssword1")));
+    }
+
+    @Test
+    void test_needsRehash_returnsTrue_providedLowerCostHash() {
+        String oldHash = hasher.hash("P@ssword1");
+        PasswordHasher stronger = new PasswordHasher(5, 1, 1, 1);
+        try {
+            assertAll(
+                    () -> assertTrue(stronger.needsRehash(oldHash)),
+                    () -> assertTrue(stronger.matches("P@ssword1", oldHash)));
+        } finally {
+            stronger.shutdown();
+        }
+    }
+
+    @Test
+    void test_hash_throwsServiceUnavailableException_whenQueueIsFull() throws Exception {
+        // one worker and one queue slot, with each hash slow enough that four callers overlap
+        PasswordHasher saturated = new PasswordHasher(12, 1, 1, 1);
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(callers.submit(() -> {
+                    start.await();
+                    return saturated.hash("P@ssword1");
+                }));
+            }
+            start.countDown();
+
+            int rejected = 0;
+            for (Future<String> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof ServiceUnavailableException);
+                    rejected++;
+                }
+            }
+            assertTrue(rejected > 0);
+        } finally {
+            callers.shutdownNow();
+            saturated.shutdown();
+        }
+    }
+
+    @Test
+    void test_hashNewPassword_throwsServiceUnavailableException_providedPermitsInUse() throws Exception {
+        // one registration at a time, on a queue with room to spare for sign-ins
+        PasswordHasher limited = new PasswordHasher(12, 1, 8, 1);
+        ExecutorService callers = Executors.newFixedThreadPool(3);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                results.add(callers.submit(() -> {
+                    start.await();
+                    return limited.hashNewPassword("P@ssword1");
+                }));
+            }
+            start.countDown();
+
+            int rejected = 0;
+            for (Future<String> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof ServiceUnavailableException);
+                    rejected++;
+                }
+            }
+            assertTrue(rejected > 0);
+            // assert a sign-in still gets a place once the registrations are done
+            assertTrue(limited.matches("P@ssword1", limited.hash("P@ssword1")));
+        } finally {
+            callers.shutdownNow();
+            limited.shutdown();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.russell.scheduler.auth;
+
+import com.russell.scheduler.user.UserRole;
+import com.russell.scheduler.user.UserRoleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PermissionTableUnitTest {
+
+    private PermissionTable table;
+    private final UserRoleRepository mockRoleRepo = mock(UserRoleRepository.class);
+
+    @BeforeEach
+    public void setup() {
+        reset(mockRoleRepo);
+        when(mockRoleRepo.findAll()).thenReturn(List.of(
+                new UserRole(1, "ADMIN", 1),
+                new UserRole(2, "MANAGER", 2),
+                new UserRole(3, "MEMBER", 3)));
+        table = new PermissionTable(mockRoleRepo, 60000);
+    }
+
+    @Test
+    void test_allows_grantsByPriority_providedCompiledRoles() {
+        long manage = Permission.maskOf(Permission.MANAGE_PROJECTS, Permission.MANAGE_RESOURCES);
+
+        assertAll(
+                () -> assertTrue(table.allows("ADMIN", manage)),
+                () -> assertTrue(table.allows("MANAGER", Permission.DELETE_TASKS.getBit())),
+                () -> assertTrue(table.allows("MEMBER", Permission.EDIT_TASKS.getBit())),
+                () -> assertFalse(table.allows("MEMBER", Permission.ASSIGN_TASKS.getBit())),
+                // every listed permission is required, not just one of them
+                () -> assertFalse(table.allows("MEMBER", Permission.maskOf(Permission.EDIT_TASKS, Permission.DELETE_TASKS))));
+        // assert the roles were read once, not per check
+        verify(mockRoleRepo, times(1)).findAll();
+    }
+
+    @Test
+    void test_allows_returnsFalse_providedUnknownOrMissingRole() {
+        assertAll(
+                () -> assertFalse(table.allows("GUEST", Permission.EDIT_TASKS.getBit())),
+                () -> assertFalse(table.allows(null, Permission.EDIT_TASKS.getBit())));
+    }
+
+    @Test
+    void test_invalidate_recompilesOnNextCheck_providedChangedRole() {
+        table.build();
+        assertFalse(table.allows("MEMBER", Permission.ASSIGN_TASKS.getBit()));
+
+        when(mockRoleRepo.findAll()).thenReturn(List.of(new UserRole(3, "MEMBER", 2)));
+        table.invalidate();
+
+        assertTrue(table.allows("MEMBER", Permission.ASSIGN_TASKS.getBit()));
+        verify(mockRoleRepo, times(2)).findAll();
+    }
+
+    @Test
+    void test_allows_recompilesAfterMaxAge_providedRoleChangedOnAnotherNode() {
+        PermissionTable shortLived = new PermissionTable(mockRoleRepo, 0);
+        assertFalse(shortLived.allows("MEMBER", Permission.ASSIGN_TASKS.getBit()));
+
+        // no invalidate() here: the change was made elsewhere, so only the table's age brings it in
+        when(mockRoleRepo.findAll()).thenReturn(List.of(new UserRole(3, "MEMBER", 2)));
+
+        assertTrue(shortLived.allows("MEMBER", Permission.ASSIGN_TASKS.getBit()));
+    }
+}
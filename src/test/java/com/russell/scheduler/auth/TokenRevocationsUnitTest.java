@@ -0,0 +1,69 @@
+package com.russell.scheduler.auth;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class TokenRevocationsUnitTest {
+
+    private TokenRevocations revocations;
+    private final RevokedTokenRepository mockRepo = mock(RevokedTokenRepository.class);
+    private final Date expiration = new Date(System.currentTimeMillis() + 60_000);
+
+    @BeforeEach
+    public void setup() {
+        reset(mockRepo);
+        revocations = new TokenRevocations(mockRepo, 1000, 0.001, 60_000);
+    }
+
+    @Test
+    void test_isRevoked_skipsDatabase_providedTokenIdNeverRevoked() {
+        revocations.revoke("revoked-id", expiration);
+
+        assertFalse(revocations.isRevoked("live-id"));
+        verify(mockRepo, times(0)).existsById(anyString());
+    }
+
+    @Test
+    void test_isRevoked_confirmsWithDatabase_providedRevokedTokenId() {
+        when(mockRepo.existsById("revoked-id")).thenReturn(true);
+
+        revocations.revoke("revoked-id", expiration);
+
+        assertTrue(revocations.isRevoked("revoked-id"));
+        verify(mockRepo, times(1)).save(any(RevokedToken.class));
+    }
+
+    @Test
+    void test_poll_addsTokenIdsRevokedElsewhere_providedNewRows() {
+        when(mockRepo.findTokenIdsRevokedSince(any(), any())).thenReturn(List.of("other-node-id"));
+        when(mockRepo.existsById("other-node-id")).thenReturn(true);
+
+        assertFalse(revocations.isRevoked("other-node-id"));
+        revocations.poll();
+
+        assertTrue(revocations.isRevoked("other-node-id"));
+    }
+
+    @Test
+    void test_rebuild_dropsExpiredTokenIds_providedOnlyLiveRowsRemain() {
+        revocations.revoke("expired-id", expiration);
+        when(mockRepo.findActiveTokenIds(any())).thenReturn(List.of("live-id"));
+
+        revocations.rebuild();
+
+        // assert expired rows were purged and the filter no longer sends the expired id to the database
+        assertAll(
+                () -> assertFalse(revocations.isRevoked("expired-id")),
+                () -> assertEquals(1, revocations.getFilterInsertions()));
+        verify(mockRepo, times(1)).deleteExpired(any());
+        verify(mockRepo, times(0)).existsById("expired-id");
+    }
+}
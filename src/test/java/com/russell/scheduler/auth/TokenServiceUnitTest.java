@@ -0,0 +1,136 @@
+package com.russell.scheduler.auth;
+
+import com.russell.scheduler.auth.dtos.Principal;
+import com.russell.scheduler.common.exceptions.AuthTokenParseException;
+import com.russell.scheduler.common.exceptions.InvalidJWTException;
+import com.russell.scheduler.common.exceptions.MissingAuthTokenException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TokenServiceUnitTest {
+
+    private TokenService service;
+    private TokenCache tokenCache;
+    private final JwtConfig mockConfig = mock(JwtConfig.class);
+    private final TokenRevocations mockRevocations = mock(TokenRevocations.class);
+    private final Principal principal = new Principal("aa4a20aa-cc97-4f99-a09c-37b6fbd8087b", "admin");
+
+    @BeforeEach
+    public void setup() {
+        reset(mockConfig, mockRevocations);
+        when(mockConfig.getSigningKey()).thenReturn(new SecretKeySpec(
+                "a-test-signing-key-of-at-least-256-bits".getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        when(mockConfig.getExpiration()).thenReturn(60_000);
+        tokenCache = new TokenCache(16);
+        service = new TokenService(mockConfig, tokenCache, mockRevocations);
+    }
+
+    @Test
+    void test_extractTokenDetails_returnsPrincipal_providedGeneratedToken() {
+        Principal extracted = service.extractTokenDetails(service.generateToken(principal));
+
+        assertEquals(principal, extracted);
+    }
+
+    @Test
+    void test_extractTokenDetails_servesFromCache_providedRepeatedToken() {
+        String token = service.generateToken(principal);
+
+        Principal first = service.extractTokenDetails(token);
+        Principal second = service.extractTokenDetails(token);
+        second.setAuthUserRole("mutated");
+
+        // assert only the first call verified the token, and callers can't change what's cached
+        assertAll(
+                () -> assertEquals(principal, first),
+                () -> assertEquals(1, tokenCache.getMisses()),
+                () -> assertEquals(1, tokenCache.getHits()),
+                () -> assertEquals(principal, service.extractTokenDetails(token)));
+    }
+
+    @Test
+    void test_extractTokenDetails_throwsAuthTokenParseException_providedTamperedToken() {
+        String token = service.generateToken(principal);
+        service.extractTokenDetails(token);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        assertThrows(AuthTokenParseException.class, () -> service.extractTokenDetails(tampered));
+        assertEquals(1, tokenCache.size());
+    }
+
+    @Test
+    void test_put_staysWithinMaxSize_providedMoreTokensThanFit() {
+        Date expiration = new Date(System.currentTimeMillis() + 60_000);
+        for (int i = 0; i < 100; i++)
+            tokenCache.put("token-" + i, principal, expiration);
+
+        // assert a full cache sweeps out old tokens rather than growing, and keeps the newest
+        assertTrue(tokenCache.size() <= 16);
+        assertEquals(principal, tokenCache.get("token-99"));
+    }
+
+    @Test
+    void test_extractTokenDetails_throwsInvalidJWTException_providedTokenExpiredInCache() {
+        when(mockConfig.getExpiration()).thenReturn(-1000);
+        String expired = service.generateToken(principal);
+        tokenCache.put(expired, principal, new Date(System.currentTimeMillis() - 1000));
+
+        // assert an expired entry is dropped and the token re-verified, which rejects it
+        InvalidJWTException exception = assertThrows(
+                InvalidJWTException.class,
+                () -> service.extractTokenDetails(expired));
+
+        assertAll(
+                () -> assertEquals("The provided auth token has expired", exception.getMessage()),
+                () -> assertEquals(0, tokenCache.getHits()),
+                () -> assertEquals(0, tokenCache.size()));
+    }
+
+    @Test
+    void test_extractTokenDetails_throwsMissingAuthTokenException_providedEmptyToken() {
+        assertThrows(MissingAuthTokenException.class, () -> service.extractTokenDetails(""));
+    }
+
+    @Test
+    void test_generateToken_issuesDistinctTokenIds_providedSamePrincipal() {
+        Principal first = service.extractTokenDetails(service.generateToken(principal));
+        Principal second = service.extractTokenDetails(service.generateToken(principal));
+
+        assertAll(
+                () -> assertEquals(principal.getAuthUserId(), first.getAuthUserId()),
+                () -> assertNotNull(first.getTokenId()),
+                () -> assertNotEquals(first.getTokenId(), second.getTokenId()));
+    }
+
+    @Test
+    void test_extractTokenDetails_throwsInvalidJWTException_providedCachedRevokedToken() {
+        String token = service.generateToken(principal);
+        Principal extracted = service.extractTokenDetails(token);
+        when(mockRevocations.isRevoked(extracted.getTokenId())).thenReturn(true);
+
+        // assert a cache hit still goes through the revocation check
+        InvalidJWTException exception = assertThrows(
+                InvalidJWTException.class,
+                () -> service.extractTokenDetails(token));
+
+        assertAll(
+                () -> assertEquals("The provided auth token has been revoked", exception.getMessage()),
+                () -> assertEquals(1, tokenCache.getHits()));
+    }
+
+    @Test
+    void test_revoke_storesTokenIdAndExpiration_providedExtractedPrincipal() {
+        Principal extracted = service.extractTokenDetails(service.generateToken(principal));
+
+        service.revoke(extracted);
+
+        verify(mockRevocations, times(1)).revoke(extracted.getTokenId(), extracted.getTokenExpiration());
+    }
+}
@@ -0,0 +1,73 @@
+package com.russell.scheduler.benchmarks;
+
+import com.russell.scheduler.auth.JwtConfig;
+import com.russell.scheduler.auth.RevokedTokenRepository;
+import com.russell.scheduler.auth.TokenCache;
+import com.russell.scheduler.auth.TokenRevocations;
+import com.russell.scheduler.auth.TokenService;
+import com.russell.scheduler.auth.dtos.Principal;
+import com.russell.scheduler.common.filters.AuthenticationFilter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+// per-request cost of AuthenticationFilter with an empty chain; anonymous is the floor (request object plus
+// the once-per-request bookkeeping), warmToken is the steady state for a signed-in client
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class AuthenticationFilterBenchmark {
+
+    private final Key key = new SecretKeySpec(
+            "benchmark-signing-key-of-at-least-256-bits".getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+    private final FilterChain chain = (request, response) -> {};
+    private AuthenticationFilter filter;
+    private String header;
+
+    @Setup
+    public void setup() {
+        JwtConfig config = new JwtConfig() {
+            @Override
+            public Key getSigningKey() {
+                return key;
+            }
+
+            @Override
+            public int getExpiration() {
+                return 24 * 60 * 60 * 1000;
+            }
+        };
+        TokenService tokenService = new TokenService(config, new TokenCache(10_000),
+                new TokenRevocations(mock(RevokedTokenRepository.class), 100_000, 0.001, 60_000));
+        filter = new AuthenticationFilter(tokenService);
+        header = "Bearer " + tokenService.generateToken(new Principal(UUID.randomUUID().toString(), "admin"));
+    }
+
+    @Benchmark
+    public Object anonymous() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/tasks/search");
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        return request.getAttribute(AuthenticationFilter.PRINCIPAL_ATTRIBUTE);
+    }
+
+    @Benchmark
+    public Object warmToken() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/tasks/search");
+        request.addHeader("Authorization", header);
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        return request.getAttribute(AuthenticationFilter.PRINCIPAL_ATTRIBUTE);
+    }
+}
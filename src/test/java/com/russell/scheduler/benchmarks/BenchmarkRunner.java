@@ -0,0 +1,19 @@
+package com.russell.scheduler.benchmarks;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// run from the IDE, or with `mvn test-compile exec:java -Dexec.classpathScope=test
+// -Dexec.mainClass=com.russell.scheduler.benchmarks.BenchmarkRunner -Dexec.args=SearchPlan`
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : "com.russell.scheduler.benchmarks";
+        Options options = new OptionsBuilder()
+                .include(include)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,76 @@
+package com.russell.scheduler.benchmarks;
+
+import com.russell.scheduler.common.search.NGramIndex;
+import com.russell.scheduler.resource.dtos.ResourceResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// suggest latency over 100k generated people; names are built from random syllables so trigram frequencies
+// are skewed roughly like real names, and queries carry a one-character typo
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NGramIndexBenchmark {
+
+    private static final String CONSONANTS = "bcdfghjklmnprstvwz";
+    private static final String VOWELS = "aeiou";
+
+    @Param("100000")
+    private int people;
+
+    private NGramIndex<ResourceResponse> index;
+    private String[] queries;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        String[] firstNames = words(random, 2000);
+        String[] lastNames = words(random, 20000);
+
+        List<ResourceResponse> resources = new ArrayList<>(people);
+        for (int i = 0; i < people; i++) {
+            String first = firstNames[random.nextInt(firstNames.length)];
+            String last = lastNames[random.nextInt(lastNames.length)];
+            resources.add(new ResourceResponse(UUID.randomUUID(), first + "." + last + "@example.com", first, last));
+        }
+        index = new NGramIndex<>(ResourceResponse::getId,
+                r -> r.getFirstName() + " " + r.getLastName() + " " + r.getEmail());
+        index.rebuild(resources);
+
+        queries = new String[1024];
+        for (int i = 0; i < queries.length; i++) {
+            String last = lastNames[random.nextInt(lastNames.length)];
+            queries[i] = last.substring(0, last.length() - 1);
+        }
+    }
+
+    @Benchmark
+    public List<ResourceResponse> suggestWithTypo() {
+        return index.suggest(queries[next++ & (queries.length - 1)], 10);
+    }
+
+    private static String[] words(Random random, int count) {
+        String[] words = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder word = new StringBuilder();
+            int syllables = 2 + random.nextInt(2);
+            for (int s = 0; s < syllables; s++) {
+                word.append(CONSONANTS.charAt(random.nextInt(CONSONANTS.length())))
+                        .append(VOWELS.charAt(random.nextInt(VOWELS.length())));
+                if (random.nextBoolean())
+                    word.append(CONSONANTS.charAt(random.nextInt(CONSONANTS.length())));
+            }
+            words[i] = word.toString();
+        }
+        return words;
+    }
+}
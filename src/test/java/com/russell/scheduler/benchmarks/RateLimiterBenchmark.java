@@ -0,0 +1,58 @@
+package com.russell.scheduler.benchmarks;
+
+import com.russell.scheduler.common.ratelimit.RateLimiter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// tryAcquire throughput with 8 threads: every thread on one caller's bucket (worst-case CAS contention),
+// every thread on its own caller, and a spread of 10k callers; the limit is set high enough that every call is allowed
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class RateLimiterBenchmark {
+
+    private static final int CALLERS = 10_000;
+
+    private RateLimiter limiter;
+    private String[] callers;
+
+    @Setup
+    public void setup() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("rate-limit.routes.bench.burst", "1000000")
+                .withProperty("rate-limit.routes.bench.per-second", "1000000000");
+        limiter = new RateLimiter(environment, 100_000);
+        callers = new String[CALLERS];
+        for (int i = 0; i < CALLERS; i++)
+            callers[i] = "user:" + UUID.randomUUID();
+    }
+
+    @State(Scope.Thread)
+    public static class Caller {
+        private final String ownKey = "user:" + UUID.randomUUID();
+        private int next;
+    }
+
+    @Benchmark
+    public long sharedKey() {
+        return limiter.tryAcquire("bench", "ip:10.0.0.1");
+    }
+
+    @Benchmark
+    public long keyPerThread(Caller caller) {
+        return limiter.tryAcquire("bench", caller.ownKey);
+    }
+
+    @Benchmark
+    public long manyKeys(Caller caller) {
+        caller.next = (caller.next + 1) % CALLERS;
+        return limiter.tryAcquire("bench", callers[caller.next]);
+    }
+}
@@ -0,0 +1,39 @@
+package com.russell.scheduler.benchmarks;
+
+import com.russell.scheduler.common.search.SearchPlan;
+import com.russell.scheduler.common.search.SearchPlanCache;
+import com.russell.scheduler.task.Task;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// compares compiling a plan on every call (the old per-request reflection + query building) against a
+// warm cache lookup. Database time is identical on both paths, so it's left out.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchPlanBenchmark {
+
+    private final Set<String> keys = Set.of("name", "description", "project.name");
+    private SearchPlanCache cache;
+
+    @Setup
+    public void setup() {
+        cache = new SearchPlanCache(256);
+        cache.getPlan(Task.class, keys);
+    }
+
+    @Benchmark
+    public SearchPlan<Task> compileEveryCall() {
+        return SearchPlan.compile(Task.class, keys);
+    }
+
+    @Benchmark
+    public SearchPlan<Task> cachedPlan() {
+        return cache.getPlan(Task.class, keys);
+    }
+}
@@ -0,0 +1,113 @@
+package com.russell.scheduler.benchmarks;
+
+import com.russell.scheduler.auth.JwtConfig;
+import com.russell.scheduler.auth.RevokedTokenRepository;
+import com.russell.scheduler.auth.TokenCache;
+import com.russell.scheduler.auth.TokenRevocations;
+import com.russell.scheduler.auth.TokenService;
+import com.russell.scheduler.auth.dtos.Principal;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+// extractTokenDetails three ways: the old parser-per-call path, a cold token through the shared parser
+// (a zero-size cache, so every call verifies the signature), and a warm token answered from the cache;
+// the warm path again with 8 threads, on one shared token and on 1k tokens, where a lock on the cache would show
+// as contention; plus the revocation check every token pays, against a filter holding 100k revoked ids
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenServiceBenchmark {
+
+    private final Key key = new SecretKeySpec(
+            "benchmark-signing-key-of-at-least-256-bits".getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+    private TokenService coldService;
+    private TokenService warmService;
+    private String token;
+    private TokenRevocations revocations;
+    private final String liveTokenId = UUID.randomUUID().toString();
+    private String[] tokens;
+
+    @Setup
+    public void setup() {
+        JwtConfig config = new JwtConfig() {
+            @Override
+            public Key getSigningKey() {
+                return key;
+            }
+
+            @Override
+            public int getExpiration() {
+                return 24 * 60 * 60 * 1000;
+            }
+        };
+        revocations = new TokenRevocations(mock(RevokedTokenRepository.class), 100_000, 0.001, 60_000);
+        Date expiration = new Date(System.currentTimeMillis() + config.getExpiration());
+        for (int i = 0; i < 100_000; i++)
+            revocations.revoke(UUID.randomUUID().toString(), expiration);
+        coldService = new TokenService(config, new TokenCache(0), revocations);
+        warmService = new TokenService(config, new TokenCache(10_000), revocations);
+        token = warmService.generateToken(new Principal(UUID.randomUUID().toString(), "admin"));
+        warmService.extractTokenDetails(token);
+        tokens = new String[1_000];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = warmService.generateToken(new Principal(UUID.randomUUID().toString(), "admin"));
+            warmService.extractTokenDetails(tokens[i]);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Caller {
+        private int next;
+    }
+
+    @Benchmark
+    public Principal parserPerCall() {
+        Claims claims = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+        return new Principal(claims.getSubject(), claims.get("role", String.class));
+    }
+
+    @Benchmark
+    public Principal coldToken() {
+        return coldService.extractTokenDetails(token);
+    }
+
+    @Benchmark
+    public Principal warmToken() {
+        return warmService.extractTokenDetails(token);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Principal warmTokenShared() {
+        return warmService.extractTokenDetails(token);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Principal warmTokenMany(Caller caller) {
+        caller.next = (caller.next + 1) % tokens.length;
+        return warmService.extractTokenDetails(tokens[caller.next]);
+    }
+
+    @Benchmark
+    public boolean revocationCheck() {
+        return revocations.isRevoked(liveTokenId);
+    }
+}
@@ -0,0 +1,65 @@
+package com.russell.scheduler.change;
+
+import com.russell.scheduler.auth.PermissionTable;
+import com.russell.scheduler.auth.TokenService;
+import com.russell.scheduler.change.dtos.ChangeFeedResponse;
+import com.russell.scheduler.change.dtos.ChangeResponse;
+import com.russell.scheduler.common.exceptions.InvalidRequestException;
+import com.russell.scheduler.common.ratelimit.RateLimiter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ChangeController.class)
+class ChangeControllerUnitTest {
+
+    @Autowired
+    MockMvc mockMvc;
+    @MockBean
+    private ChangeLog mockChangeLog;
+    @MockBean
+    private TokenService mockTokenService; // for AuthenticationFilter, which @WebMvcTest loads
+    @MockBean
+    private PermissionTable mockPermissionTable; // for PermissionInterceptor, registered by WebConfig
+    @MockBean
+    private RateLimiter mockRateLimiter; // for RateLimitInterceptor; a mock's 0 lets every request through
+    private final String PATH = "/changes";
+    private final String CONTENT_TYPE = "application/json";
+
+    @Test
+    void test_getChanges_returnsFeed_providedSince() throws Exception {
+        UUID taskId = UUID.randomUUID();
+        when(mockChangeLog.since(41, ChangeLog.DEFAULT_LIMIT)).thenReturn(new ChangeFeedResponse(
+                List.of(new ChangeResponse(42, "task", taskId, true, null)), 42, false, false));
+
+        MvcResult result = mockMvc.perform(get(PATH).param("since", "41"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("content-type", CONTENT_TYPE))
+                .andExpect(jsonPath("$.changes", hasSize(1)))
+                .andExpect(jsonPath("$.changes[0].id").value(taskId.toString()))
+                .andExpect(jsonPath("$.changes[0].deleted").value(true))
+                .andExpect(jsonPath("$.changes[0].data").doesNotExist())
+                .andExpect(jsonPath("$.nextSince").value(42))
+                .andReturn();
+    }
+
+    @Test
+    void test_getChanges_returnsBadRequest_providedLimitOutOfRange() throws Exception {
+        when(mockChangeLog.since(0, 5000)).thenThrow(InvalidRequestException.class);
+
+        MvcResult result = mockMvc.perform(get(PATH).param("limit", "5000"))
+                .andExpect(status().isBadRequest())
+                .andReturn();
+    }
+}
@@ -0,0 +1,156 @@
+package com.russell.scheduler.change;
+
+import com.russell.scheduler.change.dtos.ChangeFeedResponse;
+import com.russell.scheduler.common.EntitySearcher;
+import com.russell.scheduler.common.exceptions.InvalidRequestException;
+import com.russell.scheduler.project.ProjectRepository;
+import com.russell.scheduler.resource.ResourceRepository;
+import com.russell.scheduler.task.Task;
+import com.russell.scheduler.task.TaskRepository;
+import com.russell.scheduler.task.dtos.TaskResponse;
+import com.russell.scheduler.user.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ChangeLogUnitTest {
+
+    private ChangeLog changeLog;
+    private final EntitySearcher mockEntitySearcher = mock(EntitySearcher.class);
+    private final ChangeRepository mockChangeRepo = mock(ChangeRepository.class);
+    private final TaskRepository mockTaskRepo = mock(TaskRepository.class);
+    private final ProjectRepository mockProjectRepo = mock(ProjectRepository.class);
+    private final ResourceRepository mockResourceRepo = mock(ResourceRepository.class);
+    private final UserRepository mockUserRepo = mock(UserRepository.class);
+    private final UUID taskId1 = UUID.fromString("aa4a20aa-cc97-4f99-a09c-37b6fbd8087b");
+    private final UUID taskId2 = UUID.fromString("aa4a20ab-cc98-4f9a-a09d-37b6fbd8087c");
+    private final Instant recordedAt = Instant.now();
+
+    @BeforeEach
+    public void setup() {
+        reset(mockEntitySearcher, mockChangeRepo, mockTaskRepo, mockProjectRepo, mockResourceRepo, mockUserRepo);
+        changeLog = new ChangeLog(mockEntitySearcher, mockChangeRepo, mockTaskRepo, mockProjectRepo,
+                mockResourceRepo, mockUserRepo, 168);
+        when(mockChangeRepo.findOldestSeq()).thenReturn(1L);
+    }
+
+    @Test
+    void test_upserted_insertsOneRowPerId_providedIds() {
+        changeLog.upserted(Task.class, List.of(taskId1, taskId2));
+
+        verify(mockEntitySearcher, times(1)).bulkInsert(
+                eq(Map.of("id[in]", taskId1 + "," + taskId2)), eq(Task.class),
+                eq("insert into Change (entityType, entityId, deleted, recordedAt)"),
+                eq("'task', e.id, false, :now"), anyMap());
+    }
+
+    @Test
+    void test_deleted_splitsIntoChunks_providedMoreIdsThanOneInList() {
+        List<UUID> ids = IntStream.range(0, 1500).mapToObj(i -> UUID.randomUUID()).collect(Collectors.toList());
+
+        changeLog.deleted(Task.class, ids);
+
+        verify(mockEntitySearcher, times(2)).bulkInsert(anyMap(), eq(Task.class), anyString(),
+                eq("'task', e.id, true, :now"), anyMap());
+    }
+
+    @Test
+    void test_since_collapsesRepeatedChanges_keepingTheLatest() {
+        when(mockChangeRepo.findAfter(0, PageRequest.of(0, 201))).thenReturn(List.of(
+                new Change(1L, "task", taskId1, false, recordedAt),
+                new Change(2L, "task", taskId2, false, recordedAt),
+                new Change(3L, "task", taskId1, false, recordedAt)));
+        when(mockTaskRepo.findResponsesByIdIn(Set.of(taskId1, taskId2))).thenReturn(List.of(
+                taskResponse(taskId1), taskResponse(taskId2)));
+
+        ChangeFeedResponse feed = changeLog.since(0, ChangeLog.DEFAULT_LIMIT);
+
+        assertEquals(2, feed.getChanges().size());
+        assertEquals(taskId2, feed.getChanges().get(0).getId());
+        assertEquals(3L, feed.getChanges().get(1).getSeq());
+        assertEquals(taskId1, ((TaskResponse) feed.getChanges().get(1).getData()).getId());
+        assertEquals(3L, feed.getNextSince());
+        assertFalse(feed.isHasMore());
+        assertFalse(feed.isReset());
+    }
+
+    @Test
+    void test_since_returnsTombstoneWithoutData_providedDeletedRecord() {
+        when(mockChangeRepo.findAfter(0, PageRequest.of(0, 201))).thenReturn(List.of(
+                new Change(1L, "task", taskId1, false, recordedAt),
+                new Change(2L, "task", taskId1, true, recordedAt)));
+
+        ChangeFeedResponse feed = changeLog.since(0, ChangeLog.DEFAULT_LIMIT);
+
+        assertEquals(1, feed.getChanges().size());
+        assertTrue(feed.getChanges().get(0).isDeleted());
+        assertNull(feed.getChanges().get(0).getData());
+        verify(mockTaskRepo, times(0)).findResponsesByIdIn(any());
+    }
+
+    @Test
+    void test_sequence_numbersPendingChanges_providedLockTaken() {
+        when(mockChangeRepo.tryLock(anyLong())).thenReturn(true);
+
+        changeLog.sequence();
+
+        verify(mockChangeRepo, times(1)).numberPending();
+    }
+
+    @Test
+    void test_sequence_leavesPendingChanges_providedAnotherNodeHoldsLock() {
+        when(mockChangeRepo.tryLock(anyLong())).thenReturn(false);
+
+        changeLog.sequence();
+
+        verify(mockChangeRepo, times(0)).numberPending();
+    }
+
+    @Test
+    void test_since_reportsMore_providedLimitReached() {
+        when(mockChangeRepo.findAfter(0, PageRequest.of(0, 2))).thenReturn(List.of(
+                new Change(1L, "task", taskId1, true, recordedAt),
+                new Change(2L, "task", taskId2, true, recordedAt)));
+
+        ChangeFeedResponse feed = changeLog.since(0, 1);
+
+        assertEquals(1, feed.getChanges().size());
+        assertEquals(1L, feed.getNextSince());
+        assertTrue(feed.isHasMore());
+    }
+
+    @Test
+    void test_since_returnsReset_providedPrunedPosition() {
+        when(mockChangeRepo.findOldestSeq()).thenReturn(50L);
+        when(mockChangeRepo.findLatestSeq()).thenReturn(80L);
+
+        ChangeFeedResponse feed = changeLog.since(10, ChangeLog.DEFAULT_LIMIT);
+
+        assertTrue(feed.isReset());
+        assertTrue(feed.getChanges().isEmpty());
+        assertEquals(80L, feed.getNextSince());
+        verify(mockChangeRepo, times(0)).findAfter(anyLong(), any());
+    }
+
+    @Test
+    void test_since_throwsInvalidRequestException_providedLimitOutOfRange() {
+        assertThrows(InvalidRequestException.class, () -> changeLog.since(0, 0));
+        assertThrows(InvalidRequestException.class, () -> changeLog.since(0, ChangeLog.MAX_LIMIT + 1));
+        assertThrows(InvalidRequestException.class, () -> changeLog.since(-1, 10));
+    }
+
+    private static TaskResponse taskResponse(UUID id) {
+        return new TaskResponse(id, "mockTask", "a mock task", UUID.randomUUID(), null, null,
+                LocalDate.now(), LocalDate.now(), LocalDate.now());
+    }
+}
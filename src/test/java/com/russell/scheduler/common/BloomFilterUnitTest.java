@@ -0,0 +1,39 @@
+package com.russell.scheduler.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterUnitTest {
+
+    @Test
+    void test_mightContain_returnsTrue_providedEveryAddedKey() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        String[] keys = new String[10_000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = UUID.randomUUID().toString();
+            filter.add(keys[i]);
+        }
+
+        for (String key : keys)
+            assertTrue(filter.mightContain(key));
+    }
+
+    @Test
+    void test_mightContain_staysNearConfiguredRate_providedUnseenKeys() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++)
+            filter.add(UUID.randomUUID().toString());
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(UUID.randomUUID().toString()))
+                falsePositives++;
+        }
+
+        // 1% expected; the margin keeps the test from flaking on an unlucky run
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+    }
+}
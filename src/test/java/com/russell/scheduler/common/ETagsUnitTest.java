@@ -0,0 +1,33 @@
+package com.russell.scheduler.common;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ETagsUnitTest {
+
+    @Test
+    void test_weak_quotesVersion_providedVersion() {
+        assertEquals("W/\"7\"", ETags.weak(7));
+    }
+
+    @Test
+    void test_matches_comparesWeakly_providedStrongOrWeakTag() {
+        assertAll(
+                () -> assertTrue(ETags.matches("W/\"7\"", ETags.weak(7))),
+                () -> assertTrue(ETags.matches("\"7\"", ETags.weak(7))),
+                () -> assertFalse(ETags.matches("W/\"6\"", ETags.weak(7))));
+    }
+
+    @Test
+    void test_matches_returnsTrue_providedListOrWildcard() {
+        assertAll(
+                () -> assertTrue(ETags.matches("W/\"5\", W/\"7\"", ETags.weak(7))),
+                () -> assertTrue(ETags.matches("*", ETags.weak(7))));
+    }
+
+    @Test
+    void test_matches_returnsFalse_providedNoHeader() {
+        assertFalse(ETags.matches(null, ETags.weak(7)));
+    }
+}
@@ -0,0 +1,561 @@
+package com.russell.scheduler.common;
+
+import com.russell.scheduler.common.dtos.FacetCount;
+import com.russell.scheduler.common.dtos.FacetResponse;
+import com.russell.scheduler.common.dtos.PageResponse;
+import com.russell.scheduler.common.exceptions.InvalidRequestException;
+import com.russell.scheduler.common.search.Keyset;
+import com.russell.scheduler.common.search.Projection;
+import com.russell.scheduler.common.search.SearchPlanCache;
+import com.russell.scheduler.resource.Resource;
+import com.russell.scheduler.task.Task;
+import com.russell.scheduler.task.dtos.TaskResponse;
+import com.russell.scheduler.user.User;
+import com.russell.scheduler.user.dtos.UserResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class EntitySearcherUnitTest {
+
+    private EntitySearcher searcher;
+    private SearchPlanCache planCache;
+    private final Keyset<Task> keyset = new Keyset<>("startDate", Task::getStartDate, Task::getId);
+    private final EntityManager mockEntityManager = mock(EntityManager.class);
+    @SuppressWarnings("unchecked")
+    private final TypedQuery<Task> mockQuery = mock(TypedQuery.class);
+    @SuppressWarnings("unchecked")
+    private final TypedQuery<TaskResponse> mockProjectionQuery = mock(TypedQuery.class);
+
+    @BeforeEach
+    public void setup() {
+        reset(mockEntityManager, mockQuery, mockProjectionQuery);
+        planCache = new SearchPlanCache(2);
+        searcher = new EntitySearcher(mockEntityManager, planCache);
+        when(mockEntityManager.createQuery(anyString(), eq(Task.class))).thenReturn(mockQuery);
+        when(mockQuery.getResultList()).thenReturn(new ArrayList<>());
+        when(mockEntityManager.createQuery(anyString(), eq(TaskResponse.class))).thenReturn(mockProjectionQuery);
+        when(mockProjectionQuery.getResultList()).thenReturn(new ArrayList<>());
+    }
+
+    @Test
+    void test_search_bindsParameters_providedValidParams() {
+        Map<String, String> criteria = new HashMap<>();
+        criteria.put("name", "mockTask");
+
+        searcher.search(criteria, Task.class);
+
+        // assert the query is parameterized rather than built around the value
+        verify(mockEntityManager, times(1))
+                .createQuery("select e from Task e where e.name = :p0", Task.class);
+        verify(mockQuery, times(1)).setParameter("p0", "mockTask");
+    }
+
+    @Test
+    void test_search_reusesPlan_providedSameKeysInAnyOrder() {
+        Map<String, String> first = new LinkedHashMap<>();
+        first.put("name", "one");
+        first.put("description", "first");
+        Map<String, String> second = new LinkedHashMap<>();
+        second.put("description", "second");
+        second.put("name", "two");
+
+        searcher.search(first, Task.class);
+        searcher.search(second, Task.class);
+
+        // assert the second search was served from the cache
+        assertAll(
+                () -> assertEquals(1, planCache.getMisses()),
+                () -> assertEquals(1, planCache.getHits()),
+                () -> assertEquals(1, planCache.size()));
+    }
+
+    @Test
+    void test_search_evictsLeastRecentlyUsedPlan_whenCacheIsFull() {
+        searcher.search(Map.of("name", "a"), Task.class);
+        searcher.search(Map.of("description", "b"), Task.class);
+        searcher.search(Map.of("name", "c"), Task.class);
+        searcher.search(Map.of("startDate", "2023-01-01"), Task.class);
+        searcher.search(Map.of("description", "e"), Task.class);
+
+        // "description" was the least recently used when "startDate" was added, so it had to be recompiled
+        assertAll(
+                () -> assertEquals(2, planCache.size()),
+                () -> assertEquals(1, planCache.getHits()),
+                () -> assertEquals(4, planCache.getMisses()));
+    }
+
+    @Test
+    void test_search_throwsInvalidRequestException_providedUnknownAttribute() {
+        InvalidRequestException exception = assertThrows(
+                InvalidRequestException.class,
+                () -> searcher.search(Map.of("doesNotExist", "x"), Task.class));
+
+        // assert the proper message is returned, and that nothing was cached or queried
+        assertEquals("Attribute doesNotExist does not exist on entity Task", exception.getMessage());
+        assertEquals(0, planCache.size());
+        verify(mockEntityManager, times(0)).createQuery(anyString(), eq(Task.class));
+    }
+
+    @Test
+    void test_search_throwsInvalidRequestException_providedNonEntityClass() {
+        InvalidRequestException exception = assertThrows(
+                InvalidRequestException.class,
+                () -> searcher.search(Map.of("name", "x"), String.class));
+
+        assertEquals("String is not a searchable entity", exception.getMessage());
+    }
+
+    @Test
+    void test_search_buildsRangePredicate_providedLtOperator() {
+        searcher.search(Map.of("endDate[lt]", "2023-06-01"), Task.class);
+
+        // assert the value was coerced to the field's type before binding
+        verify(mockEntityManager, times(1))
+                .createQuery("select e from Task e where e.endDate < :p0", Task.class);
+        verify(mockQuery, times(1)).setParameter("p0", LocalDate.of(2023, 6, 1));
+    }
+
+    @Test
+    void test_search_bindsBothBounds_providedBetweenOperator() {
+        searcher.search(Map.of("startDate[between]", "2023-01-01,2023-01-31"), Task.class);
+
+        verify(mockEntityManager, times(1))
+                .createQuery("select e from Task e where e.startDate between :p0a and :p0b", Task.class);
+        verify(mockQuery, times(1)).setParameter("p0a", LocalDate.of(2023, 1, 1));
+        verify(mockQuery, times(1)).setParameter("p0b", LocalDate.of(2023, 1, 31));
+    }
+
+    @Test
+    void test_search_bindsList_providedInOperator() {
+        UUID id1 = UUID.randomUUID();
+        UUID id2 = UUID.randomUUID();
+
+        searcher.search(Map.of("id[in]", id1 + "," + id2), Task.class);
+
+        verify(mockEntityManager, times(1))
+                .createQuery("select e from Task e where e.id in :p0", Task.class);
+        verify(mockQuery, times(1)).setParameter("p0", List.of(id1, id2));
+    }
+
+    @Test
+    void test_search_escapesWildcards_providedPrefixOperator() {
+        searcher.search(Map.of("name[prefix]", "50%_off"), Task.class);
+
+        verify(mockEntityManager, times(1))
+                .createQuery("select e from Task e where e.name like :p0 escape '!'", Task.class);
+        verify(mockQuery, times(1)).setParameter("p0", "50!%!_off%");
+    }
+
+    @Test
+    void test_search_throwsInvalidRequestException_providedUnknownOperator() {
+        InvalidRequestException exception = assertThrows(
+                InvalidRequestException.class,
+                () -> searcher.search(Map.of("name[like]", "x"), Task.class));
+
+        assertEquals("Unknown search operator [like]", exception.getMessage());
+    }
+
+    @Test
+    void test_search_throwsInvalidRequestException_providedUnparseableValue() {
+        InvalidRequestException exception = assertThrows(
+                InvalidRequestException.class,
+                () -> searcher.search(Map.of("startDate[gte]", "not-a-date"), Task.class));
+
+        assertEquals("Invalid value for startDate[gte]: not-a-date", exception.getMessage());
+    }
+
+    @Test
+    void test_search_throwsInvalidRequestException_providedPrefixOnNonTextAttribute() {
+        assertThrows(
+                InvalidRequestException.class,
+                () -> searcher.search(Map.of("startDate[prefix]", "2023"), Task.class));
+    }
+
+    @Test
+    void test_search_throwsInvalidRequestException_providedPrefixOnPassword() {
+        InvalidRequestException exception = assertThrows(
+                InvalidRequestException.class,
+                () -> searcher.search(Map.of("password[prefix]", "$2a$"), User.class));
+
+        // assert the stored hash can't be recovered a character at a time, and nothing was queried
+        assertEquals("Cannot filter on password", exception.getMessage());
+        verify(mockEntityManager, times(0)).createQuery(anyString(), eq(User.class));
+    }
+
+    @Test
+    void test_search_throwsInvalidRequestException_providedNestedPassword() {
+        InvalidRequestException exception = assertThrows(
+                InvalidRequestException.class,
+                () -> searcher.search(Map.of("assigner.password", "P@ssword1"), Task.class));
+
+        assertEquals("Cannot filter on assigner.password", exception.getMessage());
+        assertEquals(0, planCache.size());
+    }
+
+    @Test
+    void test_searchPage_throwsInvalidRequestException_providedPasswordSortAttribute() {
+        Keyset<User> byPassword = new Keyset<>("password", User::getPassword, User::getId);
+
+        assertThrows(InvalidRequestException.class,
+                () -> searcher.searchPage(Map.of(), User.class, byPassword, 10, null));
+    }
+
+    @Test
+    void test_search_throwsInvalidRequestException_providedProjectionOfPassword() {
+        Projection<UserResponse> leaky = new Projection<>(UserResponse.class, "id", "password");
+
+        assertThrows(InvalidRequestException.class,
+                () -> searcher.search(Map.of(), User.class, leaky));
+    }
+
+    @Test
+    void test_validate_throwsInvalidRequestException_providedUnparseableValue() {
+        InvalidRequestException exception = assertThrows(
+                InvalidRequestException.class,
+                () -> searcher.validate(Map.of("endDate[lt]", "not-a-date"), Task.class, TaskResponse.PROJECTION));
+
+        // assert the value was rejected without a query ever being created
+        assertEquals("Invalid value for endDate[lt]: not-a-date", exception.getMessage());
+        verify(mockEntityManager, times(0)).createQuery(anyString(), any(Class.class));
+    }
+
+    @Test
+    void test_searchPage_returnsCursor_whenMoreRowsExist() {
+        Task first = new Task(UUID.randomUUID(), "one", "", null, null,
+                LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 2), null, LocalDate.now());
+        Task second = new Task(UUID.randomUUID(), "two", "", null, null,
+                LocalDate.of(2023, 1, 2), LocalDate.of(2023, 1, 3), null, LocalDate.now());
+        when(mockQuery.getResultList()).thenReturn(List.of(first, second));
+
+        PageResponse<Task> page = searcher.searchPage(Map.of("limit", "1"), Task.class, keyset, 1, null);
+
+        // assert one row past the limit was requested, and only the limit was returned along with a cursor
+        verify(mockEntityManager, times(1))
+                .createQuery("select e from Task e order by e.startDate, e.id", Task.class);
+        verify(mockQuery, times(1)).setMaxResults(2);
+        assertAll(
+                () -> assertEquals(List.of(first), page.getItems()),
+                () -> assertEquals(keyset.cursorAfter(first), page.getNextCursor()));
+    }
+
+    @Test
+    void test_searchPage_seeksPastCursor_providedCursor() {
+        Task last = new Task(UUID.randomUUID(), "one", "", null, null,
+                LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 2), null, LocalDate.now());
+
+        PageResponse<Task> page = searcher.searchPage(Map.of("name", "one"), Task.class, keyset, 10,
+                keyset.cursorAfter(last));
+
+        verify(mockEntityManager, times(1)).createQuery(
+                "select e from Task e where e.name = :p0 and e.startDate >= :k0 and (e.startDate > :k0 or e.id > :k1)"
+                        + " order by e.startDate, e.id", Task.class);
+        verify(mockQuery, times(1)).setParameter("k0", last.getStartDate());
+        verify(mockQuery, times(1)).setParameter("k1", last.getId());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void test_searchPage_throwsInvalidRequestException_providedNullableSortAttribute() {
+        Keyset<Task> byDescription = new Keyset<>("description", Task::getDescription, Task::getId);
+
+        // assert paging by a column that can hold NULL is refused rather than silently skipping those rows
+        assertThrows(InvalidRequestException.class,
+                () -> searcher.searchPage(Map.of(), Task.class, byDescription, 10, null));
+        verify(mockEntityManager, times(0)).createQuery(anyString(), eq(Task.class));
+    }
+
+    @Test
+    void test_cursorAfter_throwsIllegalArgumentException_providedNullSortValue() {
+        Task unscheduled = new Task(UUID.randomUUID(), "one", "", null, null,
+                null, LocalDate.of(2023, 1, 2), null, LocalDate.now());
+
+        assertThrows(IllegalArgumentException.class, () -> keyset.cursorAfter(unscheduled));
+    }
+
+    @Test
+    void test_searchPage_throwsInvalidRequestException_providedBadCursor() {
+        InvalidRequestException exception = assertThrows(
+                InvalidRequestException.class,
+                () -> searcher.searchPage(Map.of(), Task.class, keyset, 10, "not-a-cursor"));
+
+        assertEquals("Invalid cursor", exception.getMessage());
+    }
+
+    @Test
+    void test_searchPage_throwsInvalidRequestException_providedLimitOutOfRange() {
+        assertThrows(
+                InvalidRequestException.class,
+                () -> searcher.searchPage(Map.of(), Task.class, keyset, EntitySearcher.MAX_PAGE_SIZE + 1, null));
+    }
+
+    @Test
+    void test_search_selectsOnlyProjectedColumns_providedProjection() {
+        searcher.search(Map.of("name", "mockTask"), Task.class, TaskResponse.PROJECTION);
+
+        // assert the DTO is built in the query, reading association ids off the foreign keys rather than joining
+        verify(mockEntityManager, times(1)).createQuery(
+                "select new com.russell.scheduler.task.dtos.TaskResponse(e.id, e.name, e.description, e.project.id,"
+                        + " e.assignee.id, e.assigner.id, e.startDate, e.endDate, e.createdDate)"
+                        + " from Task e where e.name = :p0", TaskResponse.class);
+        verify(mockProjectionQuery, times(1)).setParameter("p0", "mockTask");
+        verify(mockEntityManager, times(0)).createQuery(anyString(), eq(Task.class));
+    }
+
+    @Test
+    void test_search_sharesPlanAcrossProjections_providedSameKeys() {
+        searcher.search(Map.of("name", "a"), Task.class);
+        searcher.search(Map.of("name", "b"), Task.class, TaskResponse.PROJECTION);
+
+        assertAll(
+                () -> assertEquals(1, planCache.getMisses()),
+                () -> assertEquals(1, planCache.getHits()));
+    }
+
+    @Test
+    void test_searchPage_returnsCursorFromProjection_providedProjection() {
+        Keyset<TaskResponse> projectionKeyset = new Keyset<>("startDate", TaskResponse::getStartDate, TaskResponse::getId);
+        TaskResponse first = new TaskResponse(UUID.randomUUID(), "one", "", null, null, null,
+                LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 2), LocalDate.now());
+        TaskResponse second = new TaskResponse(UUID.randomUUID(), "two", "", null, null, null,
+                LocalDate.of(2023, 1, 2), LocalDate.of(2023, 1, 3), LocalDate.now());
+        when(mockProjectionQuery.getResultList()).thenReturn(List.of(first, second));
+
+        PageResponse<TaskResponse> page = searcher.searchPage(Map.of(), Task.class, TaskResponse.PROJECTION,
+                projectionKeyset, 1, null);
+
+        verify(mockEntityManager, times(1)).createQuery(
+                "select new com.russell.scheduler.task.dtos.TaskResponse(e.id, e.name, e.description, e.project.id, "
+                        + "e.assignee.id, e.assigner.id, e.startDate, e.endDate, e.createdDate) "
+                        + "from Task e order by e.startDate, e.id",
+                TaskResponse.class);
+        assertAll(
+                () -> assertEquals(List.of(first), page.getItems()),
+                () -> assertEquals(projectionKeyset.cursorAfter(first), page.getNextCursor()));
+    }
+
+    @Test
+    void test_search_reusesJoin_providedAttributesOfSameAssociation() {
+        Map<String, String> criteria = new LinkedHashMap<>();
+        criteria.put("project.name", "mockProject");
+        criteria.put("project.startDate[gte]", "2023-01-01");
+
+        searcher.search(criteria, Task.class);
+
+        verify(mockEntityManager, times(1)).createQuery(
+                "select e from Task e join e.project j0 where j0.name = :p0 and j0.startDate >= :p1", Task.class);
+    }
+
+    @Test
+    void test_search_joinsEachLevel_providedMultiLevelPath() {
+        Map<String, String> criteria = new LinkedHashMap<>();
+        criteria.put("project.owner.email", "owner@mock.com");
+        criteria.put("project.name", "mockProject");
+
+        searcher.search(criteria, Task.class);
+
+        verify(mockEntityManager, times(1)).createQuery(
+                "select e from Task e join e.project j0 join j0.owner j1 where j1.email = :p0 and j0.name = :p1",
+                Task.class);
+        verify(mockQuery, times(1)).setParameter("p0", "owner@mock.com");
+    }
+
+    @Test
+    void test_search_readsForeignKey_providedAssociationId() {
+        UUID projectId = UUID.randomUUID();
+
+        searcher.search(Map.of("project.id", projectId.toString()), Task.class);
+
+        verify(mockEntityManager, times(1))
+                .createQuery("select e from Task e where e.project.id = :p0", Task.class);
+        verify(mockQuery, times(1)).setParameter("p0", projectId);
+    }
+
+    @Test
+    void test_search_throwsInvalidRequestException_providedUnknownNestedAttribute() {
+        InvalidRequestException exception = assertThrows(
+                InvalidRequestException.class,
+                () -> searcher.search(Map.of("project.owner.phone", "x"), Task.class));
+
+        assertEquals("Attribute project.owner.phone does not exist on entity Task", exception.getMessage());
+    }
+
+    @Test
+    void test_search_fetchesAssociations_providedEntityProjectionWithFetches() {
+        searcher.search(Map.of("project.name", "mockProject"), Task.class,
+                Projection.entity(Task.class, "project.owner", "assignee"));
+
+        // assert the filter's join is reused for the fetch, and the rest are left joined so no rows are lost
+        verify(mockEntityManager, times(1)).createQuery(
+                "select e from Task e join fetch e.project j0 left join fetch j0.owner j1 left join fetch e.assignee j2 "
+                        + "where j0.name = :p0", Task.class);
+    }
+
+    @Test
+    void test_search_fetchesExpansionsInOneQuery_providedExpandedProjection() {
+        searcher.search(Map.of("name", "mockTask", "expand", "project,assigner"), Task.class,
+                TaskResponse.EXPANSIONS.projection(Task.class, Set.of("project", "assigner")));
+
+        // assert expand is not taken as a filter, and everything the response reads comes back in one statement
+        verify(mockEntityManager, times(1)).createQuery(anyString(), any(Class.class));
+        verify(mockEntityManager, times(1)).createQuery(
+                "select e from Task e left join fetch e.assigner j0 left join fetch j0.role j1 "
+                        + "left join fetch e.project j2 where e.name = :p0", Task.class);
+    }
+
+    @Test
+    void test_search_selectsDistinct_providedCollectionAttribute() {
+        @SuppressWarnings("unchecked")
+        TypedQuery<Resource> mockResourceQuery = mock(TypedQuery.class);
+        when(mockEntityManager.createQuery(anyString(), eq(Resource.class))).thenReturn(mockResourceQuery);
+        when(mockResourceQuery.getResultList()).thenReturn(new ArrayList<>());
+
+        searcher.search(Map.of("assignedTasks.name", "mockTask"), Resource.class);
+
+        verify(mockEntityManager, times(1)).createQuery(
+                "select distinct e from Resource e join e.assignedTasks j0 where j0.name = :p0", Resource.class);
+    }
+
+    @Test
+    void test_facets_groupsCountsInDatabase_providedAssociationFacet() {
+        @SuppressWarnings("unchecked")
+        TypedQuery<Object[]> mockFacetQuery = mock(TypedQuery.class);
+        UUID projectId = UUID.randomUUID();
+        when(mockEntityManager.createQuery(anyString(), eq(Object[].class))).thenReturn(mockFacetQuery);
+        when(mockFacetQuery.getResultList()).thenReturn(List.of(new Object[]{projectId, 3L}, new Object[]{null, 1L}));
+
+        FacetResponse response = searcher.facets(Map.of("name", "mockTask", "facets", "project"), Task.class);
+
+        // assert the filter is shared with search, the association is grouped on its foreign key,
+        // and no entity query was issued
+        verify(mockEntityManager, times(1)).createQuery(
+                "select e.project.id, count(e) from Task e where e.name = :p0 "
+                        + "group by e.project.id order by count(e) desc, e.project.id", Object[].class);
+        verify(mockFacetQuery, times(1)).setParameter("p0", "mockTask");
+        verify(mockEntityManager, times(0)).createQuery(anyString(), eq(Task.class));
+        assertEquals(List.of(new FacetCount(projectId.toString(), 3), new FacetCount(null, 1)),
+                response.getFacets().get("project"));
+    }
+
+    @Test
+    void test_facets_bucketsByMonth_providedMonthFacet() {
+        @SuppressWarnings("unchecked")
+        TypedQuery<Object[]> mockFacetQuery = mock(TypedQuery.class);
+        when(mockEntityManager.createQuery(anyString(), eq(Object[].class))).thenReturn(mockFacetQuery);
+        when(mockFacetQuery.getResultList()).thenReturn(List.of(new Object[]{202301, 5L}, new Object[]{202312, 2L}));
+
+        FacetResponse response = searcher.facets(Map.of("facets", "startDate[month], assignee"), Task.class);
+
+        String month = "year(e.startDate) * 100 + month(e.startDate)";
+        verify(mockEntityManager, times(1)).createQuery(
+                "select " + month + ", count(e) from Task e group by " + month
+                        + " order by count(e) desc, " + month, Object[].class);
+        assertAll(
+                () -> assertEquals(List.of("startDate[month]", "assignee"), new ArrayList<>(response.getFacets().keySet())),
+                () -> assertEquals(List.of(new FacetCount("2023-01", 5), new FacetCount("2023-12", 2)),
+                        response.getFacets().get("startDate[month]")));
+    }
+
+    @Test
+    void test_facets_throwsInvalidRequestException_providedTooManyFacets() {
+        assertThrows(InvalidRequestException.class, () -> searcher.facets(
+                Map.of("facets", "project,assignee,assigner,startDate[month],endDate[month]"), Task.class));
+
+        // assert none of the grouped statements ran
+        verify(mockEntityManager, times(0)).createQuery(anyString(), eq(Object[].class));
+    }
+
+    @Test
+    void test_facets_throwsInvalidRequestException_providedMonthFacetOnText() {
+        InvalidRequestException exception = assertThrows(
+                InvalidRequestException.class,
+                () -> searcher.facets(Map.of("facets", "name[month]"), Task.class));
+
+        assertEquals("Facet [month] only applies to dates, not name", exception.getMessage());
+    }
+
+    @Test
+    void test_facets_throwsInvalidRequestException_providedPassword() {
+        InvalidRequestException exception = assertThrows(
+                InvalidRequestException.class,
+                () -> searcher.facets(Map.of("facets", "assigner.password"), Task.class));
+
+        assertEquals("Cannot facet on assigner.password", exception.getMessage());
+    }
+
+    @Test
+    void test_bulkUpdate_filtersByIdSubquery_providedJoinedCriteria() {
+        Query mockBulkQuery = mock(Query.class);
+        when(mockEntityManager.createQuery(anyString())).thenReturn(mockBulkQuery);
+        when(mockBulkQuery.executeUpdate()).thenReturn(3);
+
+        int affected = searcher.bulkUpdate(Map.of("project.name", "apollo"), Task.class,
+                "x.startDate = x.startDate + cast(:days as integer)", Map.of("days", 7));
+
+        // assert the filter's join moved into a subquery, and the context was flushed before and cleared after
+        assertEquals(3, affected);
+        verify(mockEntityManager, times(1)).createQuery("update versioned Task x set x.startDate = x.startDate + cast(:days as integer)"
+                + " where x.id in (select e.id from Task e join e.project j0 where j0.name = :p0)");
+        verify(mockBulkQuery, times(1)).setParameter("p0", "apollo");
+        verify(mockBulkQuery, times(1)).setParameter("days", 7);
+        InOrder order = inOrder(mockEntityManager, mockBulkQuery);
+        order.verify(mockEntityManager).flush();
+        order.verify(mockBulkQuery).executeUpdate();
+        order.verify(mockEntityManager).clear();
+    }
+
+    @Test
+    void test_bulkDelete_returnsAffectedCount_providedCriteria() {
+        Query mockBulkQuery = mock(Query.class);
+        when(mockEntityManager.createQuery(anyString())).thenReturn(mockBulkQuery);
+        when(mockBulkQuery.executeUpdate()).thenReturn(2);
+
+        int affected = searcher.bulkDelete(Map.of("endDate[lt]", "2023-01-01"), Task.class);
+
+        assertEquals(2, affected);
+        verify(mockEntityManager, times(1)).createQuery("delete from Task x"
+                + " where x.id in (select e.id from Task e where e.endDate < :p0)");
+        verify(mockBulkQuery, times(1)).setParameter("p0", LocalDate.of(2023, 1, 1));
+    }
+
+    @Test
+    void test_bulkDelete_throwsInvalidRequestException_providedNoCriteria() {
+        InvalidRequestException exception = assertThrows(
+                InvalidRequestException.class,
+                () -> searcher.bulkDelete(Map.of("limit", "10"), Task.class));
+
+        assertEquals("Bulk operations need at least one filter", exception.getMessage());
+        verify(mockEntityManager, times(0)).createQuery(anyString());
+    }
+
+    @Test
+    void test_bulkInsert_selectsFromMatchingRows_providedCriteria() {
+        Query mockBulkQuery = mock(Query.class);
+        when(mockEntityManager.createQuery(anyString())).thenReturn(mockBulkQuery);
+        when(mockBulkQuery.executeUpdate()).thenReturn(3);
+        Instant now = Instant.now();
+
+        int inserted = searcher.bulkInsert(Map.of("endDate[lt]", "2023-01-01"), Task.class,
+                "insert into Change (entityType, entityId, deleted, recordedAt)", "'task', e.id, true, :now",
+                Map.of("now", now));
+
+        assertEquals(3, inserted);
+        verify(mockEntityManager, times(1)).flush();
+        verify(mockEntityManager, times(1)).createQuery("insert into Change (entityType, entityId, deleted, recordedAt)"
+                + " select 'task', e.id, true, :now from Task e where e.endDate < :p0");
+        verify(mockBulkQuery, times(1)).setParameter("now", now);
+        // the inserted rows aren't entities this session holds, so nothing it holds is cleared
+        verify(mockEntityManager, times(0)).clear();
+    }
+}
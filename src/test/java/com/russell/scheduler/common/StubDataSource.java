@@ -0,0 +1,183 @@
+package com.russell.scheduler.common;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// a JDBC driver with no database behind it, so Hibernate can run for real in tests and its Statistics count
+// the statements a call prepares; the next query returns `rows` rows and any after it one row, as a load by id
+// would, and in row i every UUID column holds the same id, so a foreign key always matches the row joined through it
+public class StubDataSource extends AbstractDataSource {
+
+    private final List<String> statements = new ArrayList<>();
+    private int rows;
+
+    public void returnRows(int rows) {
+        this.rows = rows;
+    }
+
+    private int nextRows() {
+        int next = rows;
+        rows = 1;
+        return next;
+    }
+
+    public List<String> getStatements() {
+        return statements;
+    }
+
+    public static UUID idOf(int row) {
+        return new UUID(0, row + 1);
+    }
+
+    @Override
+    public Connection getConnection() {
+        return proxy(Connection.class, (method, args) -> {
+            switch (method) {
+                case "prepareStatement":
+                case "prepareCall":
+                    statements.add((String) args[0]);
+                    return statement();
+                case "createStatement":
+                    return statement();
+                case "getMetaData":
+                    return metaData();
+                case "getAutoCommit":
+                case "isValid":
+                    return true;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) {
+        return getConnection();
+    }
+
+    private Statement statement() {
+        return proxy(PreparedStatement.class, (method, args) -> {
+            switch (method) {
+                case "executeQuery":
+                case "getResultSet":
+                    return resultSet(nextRows());
+                case "execute":
+                    return true;
+                case "executeUpdate":
+                case "getUpdateCount":
+                    return 1;
+                case "executeBatch":
+                    return new int[0];
+                case "executeLargeBatch":
+                    return new long[0];
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private static ResultSet resultSet(int rows) {
+        int[] row = {-1};
+        return proxy(ResultSet.class, (method, args) -> {
+            switch (method) {
+                case "next":
+                    return ++row[0] < rows;
+                case "wasNull":
+                    return false;
+                case "getObject":
+                    return idOf(row[0]);
+                case "getString":
+                    return "value";
+                case "getInt":
+                case "getShort":
+                case "getByte":
+                    return 1;
+                case "getLong":
+                    return 1L;
+                case "getDouble":
+                case "getFloat":
+                    return 1;
+                case "getBigDecimal":
+                    return BigDecimal.ONE;
+                case "getBoolean":
+                    return false;
+                case "getDate":
+                    return Date.valueOf(LocalDate.of(2023, 1, 1));
+                case "getTimestamp":
+                    return Timestamp.from(Instant.EPOCH);
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private static DatabaseMetaData metaData() {
+        return proxy(DatabaseMetaData.class, (method, args) -> {
+            switch (method) {
+                case "getDatabaseProductName":
+                    return "PostgreSQL";
+                case "getDatabaseProductVersion":
+                    return "14.0";
+                case "getDatabaseMajorVersion":
+                    return 14;
+                case "getURL":
+                    return "jdbc:postgresql://stub/scheduler";
+                case "getTables":
+                case "getColumns":
+                case "getTypeInfo":
+                case "getIndexInfo":
+                case "getPrimaryKeys":
+                case "getImportedKeys":
+                case "getSchemas":
+                case "getCatalogs":
+                    return resultSet(0);
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private interface Handler {
+        Object handle(String method, Object[] args) throws Throwable;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Object result = handler.handle(method.getName(), args == null ? new Object[0] : args);
+            if (result == null && method.getReturnType().isPrimitive())
+                return method.getReturnType() == boolean.class ? Boolean.FALSE : defaultNumber(method.getReturnType());
+            if (result instanceof Integer && method.getReturnType() != int.class && method.getReturnType() != Integer.class)
+                return defaultNumber(method.getReturnType(), (Integer) result);
+            return result;
+        });
+    }
+
+    private static Object defaultNumber(Class<?> type) {
+        return defaultNumber(type, 0);
+    }
+
+    private static Object defaultNumber(Class<?> type, int value) {
+        if (type == long.class || type == Long.class)
+            return (long) value;
+        if (type == short.class || type == Short.class)
+            return (short) value;
+        if (type == byte.class || type == Byte.class)
+            return (byte) value;
+        if (type == double.class || type == Double.class)
+            return (double) value;
+        if (type == float.class || type == Float.class)
+            return (float) value;
+        if (type == void.class)
+            return null;
+        return value;
+    }
+}
@@ -0,0 +1,31 @@
+package com.russell.scheduler.common.filters;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthenticationFilterUnitTest {
+
+    @Test
+    void test_extractToken_stripsScheme_providedBearerHeader() {
+        assertAll(
+                () -> assertEquals("abc.def.ghi", AuthenticationFilter.extractToken("Bearer abc.def.ghi")),
+                () -> assertEquals("abc.def.ghi", AuthenticationFilter.extractToken("  bearer   abc.def.ghi ")));
+    }
+
+    @Test
+    void test_extractToken_returnsToken_providedBareToken() {
+        // /auth hands out bare tokens, and existing clients send them back as-is
+        assertAll(
+                () -> assertEquals("abc.def.ghi", AuthenticationFilter.extractToken("abc.def.ghi")),
+                () -> assertEquals("Bearerabc", AuthenticationFilter.extractToken("Bearerabc")));
+    }
+
+    @Test
+    void test_extractToken_returnsNull_providedNoToken() {
+        assertAll(
+                () -> assertNull(AuthenticationFilter.extractToken(null)),
+                () -> assertNull(AuthenticationFilter.extractToken("   ")),
+                () -> assertNull(AuthenticationFilter.extractToken("Bearer  ")));
+    }
+}
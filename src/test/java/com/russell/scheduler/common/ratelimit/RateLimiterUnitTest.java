@@ -0,0 +1,85 @@
+package com.russell.scheduler.common.ratelimit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterUnitTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000);
+    private RateLimiter limiter;
+
+    @BeforeEach
+    public void setup() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("rate-limit.routes.test.burst", "3")
+                .withProperty("rate-limit.routes.test.per-second", "2");
+        limiter = new RateLimiter(environment, 4, clock::get);
+    }
+
+    @Test
+    void test_tryAcquire_allowsBurstThenLimits_providedNoTimePassing() {
+        for (int i = 0; i < 3; i++)
+            assertEquals(0, limiter.tryAcquire("test", "ip:1"));
+
+        // assert the fourth request has to wait for one refill, half a second at 2/s
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), limiter.tryAcquire("test", "ip:1"));
+    }
+
+    @Test
+    void test_tryAcquire_refillsAtConfiguredRate_providedTimePassing() {
+        for (int i = 0; i < 3; i++)
+            limiter.tryAcquire("test", "ip:1");
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+
+        assertAll(
+                () -> assertEquals(0, limiter.tryAcquire("test", "ip:1")),
+                () -> assertTrue(limiter.tryAcquire("test", "ip:1") > 0));
+    }
+
+    @Test
+    void test_tryAcquire_keepsSeparateBuckets_providedDifferentKeys() {
+        for (int i = 0; i < 3; i++)
+            limiter.tryAcquire("test", "user:a");
+
+        assertAll(
+                () -> assertTrue(limiter.tryAcquire("test", "user:a") > 0),
+                () -> assertEquals(0, limiter.tryAcquire("test", "user:b")));
+    }
+
+    @Test
+    void test_tryAcquire_staysWithinMaxKeys_providedManyIdleCallers() {
+        for (int i = 0; i < 20; i++) {
+            limiter.tryAcquire("test", "ip:" + i);
+            clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        }
+
+        assertTrue(limiter.size() <= 4);
+    }
+
+    @Test
+    void test_sweepIdle_dropsOnlyRefilledBuckets_providedMixedCallers() {
+        limiter.tryAcquire("test", "ip:idle");
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        for (int i = 0; i < 3; i++)
+            limiter.tryAcquire("test", "ip:busy");
+
+        limiter.sweepIdle();
+
+        // assert the busy caller's bucket survived, so it is still limited
+        assertAll(
+                () -> assertEquals(1, limiter.size()),
+                () -> assertTrue(limiter.tryAcquire("test", "ip:busy") > 0));
+    }
+
+    @Test
+    void test_tryAcquire_throwsIllegalStateException_providedUnconfiguredRoute() {
+        assertThrows(IllegalStateException.class, () -> limiter.tryAcquire("missing", "ip:1"));
+    }
+}
@@ -0,0 +1,47 @@
+package com.russell.scheduler.common.search;
+
+import com.russell.scheduler.common.exceptions.InvalidRequestException;
+import com.russell.scheduler.task.Task;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpansionsUnitTest {
+
+    private final Expansions expansions = new Expansions(Map.of(
+            "project", "project", "assignee", "assignee", "assigner", "assigner.role"));
+
+    @Test
+    void test_parse_returnsNames_providedCommaSeparatedList() {
+        assertEquals(List.of("assignee", "project"), List.copyOf(expansions.parse(" assignee, project,")));
+    }
+
+    @Test
+    void test_parse_returnsEmptySet_providedNull() {
+        assertTrue(expansions.parse(null).isEmpty());
+    }
+
+    @Test
+    void test_parse_throwsInvalidRequestException_providedUnknownName() {
+        InvalidRequestException exception = assertThrows(
+                InvalidRequestException.class,
+                () -> expansions.parse("project,owner"));
+
+        assertEquals("Cannot expand owner, expected one of [assignee, assigner, project]", exception.getMessage());
+    }
+
+    @Test
+    void test_projection_sharesKey_providedSameNamesInAnyOrder() {
+        Projection<Task> first = expansions.projection(Task.class, Set.of("project", "assigner"));
+        Projection<Task> second = expansions.projection(Task.class, Set.of("assigner", "project"));
+
+        // assert the fetch paths are used, in a stable order, so both share one compiled query
+        assertAll(
+                () -> assertEquals(List.of("assigner.role", "project"), first.getFetches()),
+                () -> assertEquals(first.getKey(), second.getKey()));
+    }
+}
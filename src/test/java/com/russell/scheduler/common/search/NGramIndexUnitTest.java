@@ -0,0 +1,88 @@
+package com.russell.scheduler.common.search;
+
+import com.russell.scheduler.resource.dtos.ResourceResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NGramIndexUnitTest {
+
+    private NGramIndex<ResourceResponse> index;
+    private ResourceResponse jonathan;
+    private ResourceResponse johanna;
+    private ResourceResponse bob;
+
+    @BeforeEach
+    public void setup() {
+        index = new NGramIndex<>(ResourceResponse::getId,
+                r -> r.getFirstName() + " " + r.getLastName() + " " + r.getEmail());
+        jonathan = new ResourceResponse(UUID.randomUUID(), "jsmith@mock.one", "Jonathan", "Smith");
+        johanna = new ResourceResponse(UUID.randomUUID(), "jsmythe@mock.two", "Johanna", "Smythe");
+        bob = new ResourceResponse(UUID.randomUUID(), "bob@mock.three", "Bob", "Brown");
+        index.rebuild(List.of(jonathan, johanna, bob));
+    }
+
+    @Test
+    void test_suggest_ranksClosestFirst_providedMisspelledName() {
+        List<ResourceResponse> results = index.suggest("Jonathon Smith", 10);
+
+        // assert the near match is found, while entries sharing only a few trigrams are left out
+        assertEquals(List.of(jonathan), results);
+    }
+
+    @Test
+    void test_suggest_matchesAnyField_providedEmailFragment() {
+        List<ResourceResponse> results = index.suggest("bob@mock", 10);
+
+        // every entry shares "mock", but the one that also matches "bob" ranks first
+        assertAll(
+                () -> assertEquals(3, results.size()),
+                () -> assertEquals(bob, results.get(0)));
+    }
+
+    @Test
+    void test_suggest_returnsEmpty_providedNoWords() {
+        assertTrue(index.suggest(" @. ", 10).isEmpty());
+    }
+
+    @Test
+    void test_suggest_capsResults_providedLargeLimit() {
+        List<ResourceResponse> many = new ArrayList<>();
+        for (int i = 0; i < NGramIndex.MAX_SUGGESTIONS + 10; i++)
+            many.add(new ResourceResponse(UUID.randomUUID(), "smith" + i + "@mock.one", "Jo", "Smith"));
+        index.rebuild(many);
+
+        assertEquals(NGramIndex.MAX_SUGGESTIONS, index.suggest("smith", 1000).size());
+    }
+
+    @Test
+    void test_put_replacesEntry_providedExistingId() {
+        ResourceResponse renamed = new ResourceResponse(bob.getId(), "robert@mock.three", "Robert", "Braun");
+
+        index.put(renamed);
+
+        assertAll(
+                () -> assertEquals(3, index.size()),
+                () -> assertTrue(index.suggest("brown", 10).isEmpty()),
+                () -> assertEquals(List.of(renamed), index.suggest("braun", 10)));
+    }
+
+    @Test
+    void test_remove_dropsEntry_providedId() {
+        ResourceResponse newton = new ResourceResponse(UUID.randomUUID(), "new@mock.four", "Newton", "Jones");
+        index.remove(jonathan.getId());
+        index.put(newton);
+
+        // assert the freed slot was reused without leaking the removed entry back into results
+        assertAll(
+                () -> assertEquals(3, index.size()),
+                () -> assertTrue(index.suggest("jonathan", 10).isEmpty()),
+                () -> assertEquals(List.of(newton), index.suggest("newton", 10)),
+                () -> assertEquals(List.of(johanna), index.suggest("smythe", 10)));
+    }
+}
@@ -0,0 +1,39 @@
+package com.russell.scheduler.common.search;
+
+import com.russell.scheduler.common.exceptions.InvalidRequestException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextQueryUnitTest {
+
+    @Test
+    void test_toTsQuery_andsWords_providedPlainWords() {
+        assertEquals("design & review", TextQuery.toTsQuery("Design   review"));
+    }
+
+    @Test
+    void test_toTsQuery_requiresAdjacency_providedQuotedPhrase() {
+        assertEquals("(database <-> migration) & plan", TextQuery.toTsQuery("\"database migration\" plan"));
+    }
+
+    @Test
+    void test_toTsQuery_matchesPrefix_providedTrailingStar() {
+        assertEquals("migrat:* & (schema <-> chang:*)", TextQuery.toTsQuery("migrat* \"schema chang*\""));
+    }
+
+    @Test
+    void test_toTsQuery_dropsOperators_providedTsQuerySyntax() {
+        // user input can't inject tsquery operators
+        assertEquals("a & b & (c <-> d)", TextQuery.toTsQuery("a & !b | c:d"));
+    }
+
+    @Test
+    void test_toTsQuery_throwsInvalidRequestException_providedNoWords() {
+        InvalidRequestException exception = assertThrows(
+                InvalidRequestException.class,
+                () -> TextQuery.toTsQuery(" &| \"\" "));
+
+        assertEquals("q must contain at least one word", exception.getMessage());
+    }
+}
@@ -0,0 +1,57 @@
+package com.russell.scheduler.outbox;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class OutboxRelayUnitTest {
+
+    private OutboxRelay relay;
+    private final Outbox mockOutbox = mock(Outbox.class);
+    @SuppressWarnings("unchecked")
+    private final ObjectProvider<EventSink> mockSinkProvider = mock(ObjectProvider.class);
+    private final InMemoryEventSink sink = new InMemoryEventSink();
+
+    @BeforeEach
+    public void setup() {
+        reset(mockOutbox, mockSinkProvider);
+        relay = new OutboxRelay(mockOutbox, mockSinkProvider, 2);
+        when(mockSinkProvider.getIfAvailable()).thenReturn(sink);
+    }
+
+    @Test
+    void test_relay_drainsBacklogInOneRun_providedFullBatches() {
+        when(mockOutbox.relayBatch(sink, 2)).thenReturn(
+                List.of(OutboxUnitTest.event(1L), OutboxUnitTest.event(2L)),
+                List.of(OutboxUnitTest.event(3L)));
+
+        relay.relay();
+
+        // assert a full batch is followed at once, and a short one ends the run
+        verify(mockOutbox, times(2)).relayBatch(sink, 2);
+    }
+
+    @Test
+    void test_relay_doesNothing_providedNoSink() {
+        when(mockSinkProvider.getIfAvailable()).thenReturn(null);
+
+        relay.relay();
+
+        verify(mockOutbox, times(0)).relayBatch(any(), anyInt());
+    }
+
+    @Test
+    void test_relay_stopsRun_providedBatchFails() {
+        when(mockOutbox.relayBatch(sink, 2)).thenThrow(new IllegalStateException("broker unavailable"));
+
+        assertDoesNotThrow(() -> relay.relay());
+        verify(mockOutbox, times(1)).relayBatch(sink, 2);
+    }
+}
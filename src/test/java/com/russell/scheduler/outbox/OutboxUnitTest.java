@@ -0,0 +1,79 @@
+package com.russell.scheduler.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class OutboxUnitTest {
+
+    private Outbox outbox;
+    private final OutboxRepository mockOutboxRepo = mock(OutboxRepository.class);
+    private final InMemoryEventSink sink = new InMemoryEventSink();
+
+    @BeforeEach
+    public void setup() {
+        reset(mockOutboxRepo);
+        outbox = new Outbox(mockOutboxRepo, new ObjectMapper());
+        sink.drain();
+    }
+
+    @Test
+    void test_record_savesSerializedPayload() {
+        UUID taskId = UUID.randomUUID();
+
+        outbox.record("task.deleted", taskId, Map.of("id", taskId));
+
+        verify(mockOutboxRepo, times(1)).save(argThat(event -> event.getEventType().equals("task.deleted")
+                && event.getAggregateId().equals(taskId)
+                && event.getPayload().equals("{\"id\":\"" + taskId + "\"}")
+                && event.getOccurredAt() != null));
+    }
+
+    @Test
+    void test_relayBatch_sendsThenDeletes_providedPendingEvents() {
+        OutboxEvent event = event(7L);
+        when(mockOutboxRepo.lockNextBatch(100)).thenReturn(List.of(event));
+
+        List<OutboxEvent> relayed = outbox.relayBatch(sink, 100);
+
+        assertEquals(List.of(event), relayed);
+        assertEquals(List.of(event), sink.drain());
+        verify(mockOutboxRepo, times(1)).deleteAllByIdInBatch(List.of(7L));
+    }
+
+    @Test
+    void test_relayBatch_keepsEvents_providedSinkFails() {
+        when(mockOutboxRepo.lockNextBatch(100)).thenReturn(List.of(event(7L)));
+        EventSink failingSink = events -> {
+            throw new IllegalStateException("broker unavailable");
+        };
+
+        assertThrows(IllegalStateException.class, () -> outbox.relayBatch(failingSink, 100));
+        verify(mockOutboxRepo, times(0)).deleteAllByIdInBatch(anyList());
+    }
+
+    @Test
+    void test_relayBatch_sendsNothing_providedEmptyOutbox() {
+        when(mockOutboxRepo.lockNextBatch(100)).thenReturn(List.of());
+
+        assertTrue(outbox.relayBatch(sink, 100).isEmpty());
+        assertTrue(sink.drain().isEmpty());
+        verify(mockOutboxRepo, times(0)).deleteAllByIdInBatch(any());
+    }
+
+    static OutboxEvent event(long id) {
+        OutboxEvent event = new OutboxEvent("task.updated", UUID.randomUUID(), "{}", Instant.now());
+        event.setId(id);
+        return event;
+    }
+}
@@ -1,10 +1,15 @@
 package com.russell.scheduler.project;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.russell.scheduler.auth.PermissionTable;
+import com.russell.scheduler.auth.TokenService;
+import com.russell.scheduler.auth.dtos.Principal;
 import com.russell.scheduler.common.dtos.RecordCreationResponse;
 import com.russell.scheduler.common.exceptions.RecordNotFoundException;
+import com.russell.scheduler.common.ratelimit.RateLimiter;
 import com.russell.scheduler.project.dtos.NewProjectRequest;
 import com.russell.scheduler.project.dtos.ProjectAssignment;
+import com.russell.scheduler.project.dtos.ProjectMemberResponse;
 import com.russell.scheduler.project.dtos.ProjectResponse;
 import com.russell.scheduler.resource.Resource;
 import com.russell.scheduler.task.Task;
@@ -15,11 +20,14 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
 import java.util.*;
 
 import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -34,6 +42,12 @@ class ProjectControllerUnitTest {
     ObjectMapper json;
     @MockBean
     private ProjectService mockProjectService;
+    @MockBean
+    private TokenService mockTokenService; // for AuthenticationFilter, which @WebMvcTest loads
+    @MockBean
+    private PermissionTable mockPermissionTable; // for PermissionInterceptor, registered by WebConfig
+    @MockBean
+    private RateLimiter mockRateLimiter; // for RateLimitInterceptor; a mock's 0 lets every request through
     private final String PATH = "/projects";
     private final String CONTENT_TYPE = "application/json";
     private Project mockProject1;
@@ -41,6 +55,9 @@ class ProjectControllerUnitTest {
 
     @BeforeEach
     public void config() {
+        // every caller in these tests is an admin
+        when(mockTokenService.extractTokenDetails("mock-token")).thenReturn(new Principal(UUID.randomUUID().toString(), "ADMIN"));
+        when(mockPermissionTable.allows(eq("ADMIN"), anyLong())).thenReturn(true);
         mockProject1 = new Project(UUID.fromString("aa4a20aa-cc97-4f99-a09c-37b6fbd8087b"),
                 "mockProject1", LocalDate.now(), LocalDate.now(), new Resource(), new HashSet<Task>());
         mockProject2 = new Project(UUID.fromString("aa4a20ab-cc98-4f9a-a09d-37b6fbd8087c"),
@@ -91,6 +108,31 @@ class ProjectControllerUnitTest {
                 .andReturn();
     }
 
+    @Test
+    void test_getRoster_returnsMembersWithTaskCounts_providedValidUUID() throws Exception {
+        UUID memberId = UUID.randomUUID();
+        when(mockProjectService.findRoster(mockProject1.getId())).thenReturn(List.of(
+                new ProjectMemberResponse(memberId, "mock@resource.one", "first1", "last1", 3)));
+
+        MvcResult result = mockMvc.perform(get(PATH+"/id/"+mockProject1.getId()+"/resources"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("content-type", CONTENT_TYPE))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(memberId.toString()))
+                .andExpect(jsonPath("$[0].taskCount").value(3))
+                .andReturn();
+    }
+
+    @Test
+    void test_streamEvents_startsEventStream_providedValidUUID() throws Exception {
+        when(mockProjectService.subscribe(mockProject1.getId())).thenReturn(new SseEmitter());
+
+        MvcResult result = mockMvc.perform(get(PATH+"/id/"+mockProject1.getId()+"/events")
+                        .accept("text/event-stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
     @Test
     void test_search_returnsSetOfProjectResponses_providedValidParam() throws Exception {
         ProjectResponse mockProjectResp = new ProjectResponse(mockProject1);
@@ -130,6 +172,7 @@ class ProjectControllerUnitTest {
 
         MvcResult result = mockMvc.perform(post(PATH)
                         .contentType(CONTENT_TYPE)
+                        .header("Authorization", "Bearer mock-token")
                         .content(json.writeValueAsString(req)))
                 .andExpect(status().isCreated())
                 .andExpect(header().string("content-type", CONTENT_TYPE))
@@ -149,6 +192,7 @@ class ProjectControllerUnitTest {
 
         MvcResult result = mockMvc.perform(patch(PATH+"/id/"+ mockProject1.getId())
                         .contentType(CONTENT_TYPE)
+                        .header("Authorization", "Bearer mock-token")
                         .content(json.writeValueAsString(req)))
                 .andExpect(status().isOk())
                 .andExpect(header().string("content-type", CONTENT_TYPE))
@@ -161,7 +205,8 @@ class ProjectControllerUnitTest {
     @Test
     void test_delete_returnsStatusOk_givenUUID() throws Exception {
         MvcResult result = mockMvc.perform(delete(PATH+"/id/"+ UUID.randomUUID())
-                        .contentType(CONTENT_TYPE))
+                        .contentType(CONTENT_TYPE)
+                        .header("Authorization", "Bearer mock-token"))
                 .andExpect(status().isNoContent())
                 .andReturn();
     }
@@ -180,6 +225,7 @@ class ProjectControllerUnitTest {
 
         MvcResult result = mockMvc.perform(patch(PATH+"/assign")
                         .contentType(CONTENT_TYPE)
+                        .header("Authorization", "Bearer mock-token")
                         .content(json.writeValueAsString(assign)))
                 .andExpect(status().isOk())
                 .andExpect(header().string("content-type", CONTENT_TYPE))
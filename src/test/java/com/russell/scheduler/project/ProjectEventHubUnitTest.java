@@ -0,0 +1,105 @@
+package com.russell.scheduler.project;
+
+import com.russell.scheduler.common.exceptions.ServiceUnavailableException;
+import com.russell.scheduler.project.dtos.ProjectEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProjectEventHubUnitTest {
+
+    private ProjectEventHub hub;
+    private final UUID projectId = UUID.fromString("aa4a20aa-cc97-4f99-a09c-37b6fbd8087b");
+
+    @BeforeEach
+    public void setup() {
+        hub = new ProjectEventHub(60000, 2, 4, 1, 100);
+    }
+
+    @AfterEach
+    public void teardown() {
+        hub.shutdown();
+    }
+
+    @Test
+    void test_subscribe_throwsServiceUnavailableException_providedSubscriberLimitReached() {
+        hub.subscribe(projectId);
+        hub.subscribe(UUID.randomUUID());
+
+        ServiceUnavailableException exception = assertThrows(
+                ServiceUnavailableException.class,
+                () -> hub.subscribe(projectId));
+
+        // assert the refused subscriber isn't counted
+        assertEquals("Too many event subscribers, please retry shortly", exception.getMessage());
+        assertEquals(2, hub.getSubscriberCount());
+    }
+
+    @Test
+    void test_publish_doesNotBlock_providedMoreEventsThanTheBufferHolds() {
+        hub.subscribe(projectId);
+
+        // publishing only queues, and anything past the buffer is dropped for a resync rather than waited on
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            for (int i = 0; i < 1000; i++)
+                hub.publish(projectId, new ProjectEvent("task-updated", UUID.randomUUID(), null));
+        });
+        assertEquals(1, hub.getSubscriberCount());
+    }
+
+    @Test
+    void test_publish_ignoresProjectsWithoutSubscribers() {
+        assertDoesNotThrow(() -> hub.publish(UUID.randomUUID(), new ProjectEvent("task-created", UUID.randomUUID(), null)));
+        assertDoesNotThrow(() -> hub.resync(null));
+    }
+
+    @Test
+    void test_publish_reachesOtherSubscribers_providedStuckEmitter() throws Exception {
+        CountDownLatch stuckSending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch delivered = new CountDownLatch(1);
+        UUID otherProjectId = UUID.randomUUID();
+        // one sender thread, so without abandoning the stuck send nothing else could go out
+        hub.subscribe(projectId, new SseEmitter(60000L) {
+            @Override
+            public void send(SseEventBuilder builder) throws IOException {
+                stuckSending.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+        });
+        hub.subscribe(otherProjectId, new SseEmitter(60000L) {
+            @Override
+            public void send(SseEventBuilder builder) {
+                delivered.countDown();
+            }
+        });
+
+        try {
+            hub.publish(projectId, new ProjectEvent("task-updated", UUID.randomUUID(), null));
+            assertTrue(stuckSending.await(5, TimeUnit.SECONDS));
+            hub.publish(otherProjectId, new ProjectEvent("task-updated", UUID.randomUUID(), null));
+
+            Thread.sleep(200); // past the 100ms send timeout
+            hub.abandonStalledSends();
+
+            // assert the second subscriber is served while the first write is still blocked, and the first is dropped
+            assertTrue(delivered.await(5, TimeUnit.SECONDS));
+            assertEquals(1, hub.getSubscriberCount());
+        } finally {
+            release.countDown();
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package com.russell.scheduler.project;
 
+import com.russell.scheduler.change.ChangeLog;
 import com.russell.scheduler.common.EntitySearcher;
 import com.russell.scheduler.common.dtos.RecordCreationResponse;
 import com.russell.scheduler.common.exceptions.RecordNotFoundException;
+import com.russell.scheduler.outbox.Outbox;
 import com.russell.scheduler.project.dtos.NewProjectRequest;
 import com.russell.scheduler.project.dtos.ProjectAssignment;
+import com.russell.scheduler.project.dtos.ProjectMemberResponse;
 import com.russell.scheduler.project.dtos.ProjectResponse;
 import com.russell.scheduler.resource.Resource;
 import com.russell.scheduler.resource.ResourceRepository;
@@ -26,14 +29,18 @@ class ProjectServiceUnitTest {
     private final ProjectRepository mockProjectRepo = mock(ProjectRepository.class);
     private final ResourceRepository mockResourceRepo = mock(ResourceRepository.class);
     private final EntitySearcher mockEntitySearcher = mock(EntitySearcher.class);
+    private final ChangeLog mockChangeLog = mock(ChangeLog.class);
+    private final Outbox mockOutbox = mock(Outbox.class);
+    private final ProjectEventHub mockEventHub = mock(ProjectEventHub.class);
     private Project mockProject1;
     private Project mockProject2;
     private Resource mockResource;
 
     @BeforeEach
     public void setup() {
-        reset(mockProjectRepo, mockResourceRepo, mockEntitySearcher);
-        service = new ProjectService(mockProjectRepo, mockResourceRepo, mockEntitySearcher);
+        reset(mockProjectRepo, mockResourceRepo, mockEntitySearcher, mockChangeLog, mockOutbox, mockEventHub);
+        service = new ProjectService(mockProjectRepo, mockResourceRepo, mockEntitySearcher, mockChangeLog, mockOutbox,
+                mockEventHub);
         mockProject1 = new Project(UUID.fromString("aa4a20aa-cc97-4f99-a09c-37b6fbd8087b"),
                 "mockProject1", LocalDate.now(), LocalDate.now(), new Resource(), new HashSet<Task>());
         mockProject2 = new Project(UUID.fromString("aa4a20ab-cc98-4f9a-a09d-37b6fbd8087c"),
@@ -45,19 +52,19 @@ class ProjectServiceUnitTest {
 
     @Test
     void test_findAll_returnSetOfProjectResponses_providedRepoReturnsProjects() {
-        List<Project> mockProjects = List.of(mockProject1, mockProject2);
-        when(mockProjectRepo.findAll()).thenReturn(mockProjects);
+        Set<ProjectResponse> mockProjects = Set.of(new ProjectResponse(mockProject1), new ProjectResponse(mockProject2));
+        when(mockProjectRepo.findAllResponses()).thenReturn(mockProjects);
 
         Set<ProjectResponse> response = service.findAll();
 
         // assert the proper number of users was returned, and that the repo was only queried once
         assertEquals(mockProjects.size(), response.size());
-        verify(mockProjectRepo, times(1)).findAll();
+        verify(mockProjectRepo, times(1)).findAllResponses();
     }
 
     @Test
     void test_findOne_returnProjectResponse_providedProjectId() {
-        when(mockProjectRepo.findById(mockProject1.getId())).thenReturn(Optional.of(mockProject1));
+        when(mockProjectRepo.findResponseById(mockProject1.getId())).thenReturn(Optional.of(new ProjectResponse(mockProject1)));
 
         ProjectResponse response = service.findOne(mockProject1.getId());
 
@@ -68,14 +75,14 @@ class ProjectServiceUnitTest {
                 () -> assertEquals(mockProject1.getName(), response.getName()),
                 () -> assertEquals(mockProject1.getStartDate(), response.getStartDate()),
                 () -> assertEquals(mockProject1.getEndDate(), response.getEndDate()));
-        verify(mockProjectRepo, times(1)).findById(mockProject1.getId());
+        verify(mockProjectRepo, times(1)).findResponseById(mockProject1.getId());
     }
 
     @Test
     void test_findOne_throwsRecordNotFoundException_providedBadProjectId() {
         UUID badResourceId = UUID.randomUUID();
 
-        when(mockProjectRepo.findById(badResourceId)).thenReturn(Optional.empty());
+        when(mockProjectRepo.findResponseById(badResourceId)).thenReturn(Optional.empty());
 
         RecordNotFoundException exception = assertThrows(
                 RecordNotFoundException.class,
@@ -83,17 +90,59 @@ class ProjectServiceUnitTest {
 
         // assert the proper message is returned, and that the repo was only queried once
         assertEquals("Record could not be found with the given search parameters", exception.getMessage());
-        verify(mockProjectRepo, times(1)).findById(badResourceId);
+        verify(mockProjectRepo, times(1)).findResponseById(badResourceId);
+    }
+
+    @Test
+    void test_findRoster_returnsMembersWithTaskCounts_providedProjectId() {
+        List<ProjectMemberResponse> roster = List.of(
+                new ProjectMemberResponse(mockResource.getId(), mockResource.getEmail(), mockResource.getFirstName(),
+                        mockResource.getLastName(), 12));
+        when(mockProjectRepo.findRoster(mockProject1.getId())).thenReturn(roster);
+
+        List<ProjectMemberResponse> response = service.findRoster(mockProject1.getId());
+
+        // assert the roster comes from the one grouped query, with no existence check or task loading
+        assertEquals(12, response.get(0).getTaskCount());
+        verify(mockProjectRepo, times(1)).findRoster(mockProject1.getId());
+        verify(mockProjectRepo, times(0)).existsById(any());
+        verify(mockProjectRepo, times(0)).findById(any());
+    }
+
+    @Test
+    void test_findRoster_returnsEmptyList_providedProjectWithoutMembers() {
+        when(mockProjectRepo.findRoster(mockProject1.getId())).thenReturn(new ArrayList<>());
+        when(mockProjectRepo.existsById(mockProject1.getId())).thenReturn(true);
+
+        assertTrue(service.findRoster(mockProject1.getId()).isEmpty());
+    }
+
+    @Test
+    void test_findRoster_throwsRecordNotFoundException_providedBadProjectId() {
+        UUID badProjectId = UUID.randomUUID();
+        when(mockProjectRepo.findRoster(badProjectId)).thenReturn(new ArrayList<>());
+        when(mockProjectRepo.existsById(badProjectId)).thenReturn(false);
+
+        assertThrows(RecordNotFoundException.class, () -> service.findRoster(badProjectId));
+    }
+
+    @Test
+    void test_subscribe_throwsRecordNotFoundException_providedBadProjectId() {
+        UUID badProjectId = UUID.randomUUID();
+        when(mockProjectRepo.existsById(badProjectId)).thenReturn(false);
+
+        assertThrows(RecordNotFoundException.class, () -> service.subscribe(badProjectId));
+        verify(mockEventHub, times(0)).subscribe(any());
     }
 
     @Test
     void test_search_returnsSetOfProjectResponses_providedValidParam() {
 
-        Set<Project> mockProjects = Set.of(mockProject1);
+        Set<ProjectResponse> mockProjects = Set.of(new ProjectResponse(mockProject1));
 
         Map<String, String> criteria = new HashMap<>();
         criteria.put("name", mockProject1.getName());
-        when(mockEntitySearcher.search(criteria, Project.class)).thenReturn(mockProjects);
+        when(mockEntitySearcher.search(criteria, Project.class, ProjectResponse.PROJECTION)).thenReturn(mockProjects);
 
         Set<ProjectResponse> response = service.search(criteria);
         // assert the proper number of users was returned
@@ -104,27 +153,27 @@ class ProjectServiceUnitTest {
                 () -> assertEquals(mockProject1.getName(), content.getName()),
                 () -> assertEquals(mockProject1.getStartDate(), content.getStartDate()),
                 () -> assertEquals(mockProject1.getEndDate(), content.getEndDate()));
-        verify(mockEntitySearcher, times(1)).search(criteria, Project.class);
+        verify(mockEntitySearcher, times(1)).search(criteria, Project.class, ProjectResponse.PROJECTION);
     }
 
     @Test
     void test_search_redirectsToFindAll_providedEmptyParams() {
-        List<Project> mockProjects = Arrays.asList(mockProject1, mockProject2);
+        Set<ProjectResponse> mockProjects = Set.of(new ProjectResponse(mockProject1), new ProjectResponse(mockProject2));
 
-        when(mockProjectRepo.findAll()).thenReturn(mockProjects);
+        when(mockProjectRepo.findAllResponses()).thenReturn(mockProjects);
 
         Set<ProjectResponse> response = service.search(new HashMap<String,String>());
 
         // assert the proper number of users was returned, and that the repo was only queried once
         assertEquals(mockProjects.size(), response.size());
-        verify(mockProjectRepo, times(1)).findAll();
+        verify(mockProjectRepo, times(1)).findAllResponses();
     }
 
     @Test
     void test_search_throwsRecordNotFoundException_providedBadParam() {
         Map<String, String> criteria = new HashMap<>();
         criteria.put("name", "Does Not Exist");
-        when(mockEntitySearcher.search(criteria, Project.class)).thenReturn(new HashSet<>());
+        when(mockEntitySearcher.search(criteria, Project.class, ProjectResponse.PROJECTION)).thenReturn(new HashSet<>());
 
         RecordNotFoundException exception = assertThrows(
                 RecordNotFoundException.class,
@@ -132,7 +181,7 @@ class ProjectServiceUnitTest {
 
         // assert the proper message is returned, and that the repo was only queried once
         assertEquals("Record could not be found with the given search parameters", exception.getMessage());
-        verify(mockEntitySearcher, times(1)).search(criteria, Project.class);
+        verify(mockEntitySearcher, times(1)).search(criteria, Project.class, ProjectResponse.PROJECTION);
     }
 
 
@@ -1,8 +1,12 @@
 package com.russell.scheduler.resource;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.russell.scheduler.auth.PermissionTable;
+import com.russell.scheduler.auth.TokenService;
+import com.russell.scheduler.auth.dtos.Principal;
 import com.russell.scheduler.common.dtos.RecordCreationResponse;
 import com.russell.scheduler.common.exceptions.RecordNotFoundException;
+import com.russell.scheduler.common.ratelimit.RateLimiter;
 import com.russell.scheduler.project.Project;
 import com.russell.scheduler.resource.dtos.NewResourceRequest;
 import com.russell.scheduler.resource.dtos.ResourceResponse;
@@ -18,6 +22,8 @@ import org.springframework.test.web.servlet.MvcResult;
 import java.util.*;
 
 import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -30,6 +36,12 @@ class ResourceControllerUnitTest {
     MockMvc mockMvc;
     @MockBean
     private ResourceService mockResourceService;
+    @MockBean
+    private TokenService mockTokenService; // for AuthenticationFilter, which @WebMvcTest loads
+    @MockBean
+    private PermissionTable mockPermissionTable; // for PermissionInterceptor, registered by WebConfig
+    @MockBean
+    private RateLimiter mockRateLimiter; // for RateLimitInterceptor; a mock's 0 lets every request through
     private final String PATH = "/resources";
     private final String CONTENT_TYPE = "application/json";
     private Resource mockResource1;
@@ -37,6 +49,9 @@ class ResourceControllerUnitTest {
 
     @BeforeEach
     public void config() {
+        // every caller in these tests is an admin
+        when(mockTokenService.extractTokenDetails("mock-token")).thenReturn(new Principal(UUID.randomUUID().toString(), "ADMIN"));
+        when(mockPermissionTable.allows(eq("ADMIN"), anyLong())).thenReturn(true);
         mockResource1 = new Resource(UUID.fromString("aa4a20aa-cc97-4f99-a09c-37b6fbd8087b"),
                 "mock@resource.one", "first1", "last1",
                 new HashSet<Project>(), new HashSet<Task>());
@@ -89,6 +104,22 @@ class ResourceControllerUnitTest {
                 .andReturn();
     }
 
+    @Test
+    void test_suggest_returnsRankedList_providedQuery() throws Exception {
+        ResourceResponse mockResourceResp = new ResourceResponse(mockResource1);
+
+        when(mockResourceService.suggest("frist", 10)).thenReturn(List.of(mockResourceResp));
+
+        // assert the default limit is applied and the ranked order is kept as a JSON array
+        MvcResult result = mockMvc.perform(get(PATH+"/suggest")
+                        .param("q", "frist"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("content-type", CONTENT_TYPE))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(mockResourceResp.getId().toString()))
+                .andReturn();
+    }
+
     @Test
     void test_search_returnsSetOfResourceResponses_providedValidParam() throws Exception {
         ResourceResponse mockResourceResp = new ResourceResponse(mockResource1);
@@ -129,6 +160,7 @@ class ResourceControllerUnitTest {
 
         MvcResult result = mockMvc.perform(post(PATH)
                         .contentType(CONTENT_TYPE)
+                        .header("Authorization", "Bearer mock-token")
                         .content(json.writeValueAsString(req)))
                 .andExpect(status().isCreated())
                 .andExpect(header().string("content-type", CONTENT_TYPE))
@@ -150,6 +182,7 @@ class ResourceControllerUnitTest {
 
         MvcResult result = mockMvc.perform(patch(PATH+"/id/"+mockResource1.getId())
                         .contentType(CONTENT_TYPE)
+                        .header("Authorization", "Bearer mock-token")
                         .content(json.writeValueAsString(req)))
                 .andExpect(status().isOk())
                 .andExpect(header().string("content-type", CONTENT_TYPE))
@@ -162,7 +195,8 @@ class ResourceControllerUnitTest {
     @Test
     void test_delete_returnsStatusOk_givenUUID() throws Exception {
         MvcResult result = mockMvc.perform(delete(PATH+"/id/"+ UUID.randomUUID())
-                        .contentType(CONTENT_TYPE))
+                        .contentType(CONTENT_TYPE)
+                        .header("Authorization", "Bearer mock-token"))
                 .andExpect(status().isNoContent())
                 .andReturn();
     }
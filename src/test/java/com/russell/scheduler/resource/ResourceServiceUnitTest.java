@@ -1,9 +1,11 @@
 package com.russell.scheduler.resource;
 
+import com.russell.scheduler.change.ChangeLog;
 import com.russell.scheduler.common.EntitySearcher;
 import com.russell.scheduler.common.dtos.RecordCreationResponse;
 import com.russell.scheduler.common.exceptions.RecordNotFoundException;
 import com.russell.scheduler.common.exceptions.RecordPersistenceException;
+import com.russell.scheduler.outbox.Outbox;
 import com.russell.scheduler.project.Project;
 import com.russell.scheduler.resource.dtos.NewResourceRequest;
 import com.russell.scheduler.resource.dtos.ResourceResponse;
@@ -26,13 +28,15 @@ class ResourceServiceUnitTest {
     private ResourceService service;
     private final ResourceRepository mockResourceRepo = mock(ResourceRepository.class);
     private final EntitySearcher mockEntitySearcher = mock(EntitySearcher.class);
+    private final ChangeLog mockChangeLog = mock(ChangeLog.class);
+    private final Outbox mockOutbox = mock(Outbox.class);
     private Resource mockResource1;
     private Resource mockResource2;
 
     @BeforeEach
     public void setup() {
-        reset(mockResourceRepo, mockEntitySearcher);
-        service = new ResourceService(mockResourceRepo, mockEntitySearcher);
+        reset(mockResourceRepo, mockEntitySearcher, mockChangeLog, mockOutbox);
+        service = new ResourceService(mockResourceRepo, mockEntitySearcher, mockChangeLog, mockOutbox);
         mockResource1 = new Resource(UUID.fromString("aa4a20aa-cc97-4f99-a09c-37b6fbd8087b"),
                 "mock@resource.one", "first1", "last1",
                 new HashSet<Project>(), new HashSet<Task>());
@@ -43,19 +47,19 @@ class ResourceServiceUnitTest {
 
     @Test
     void test_findAllResources_returnSetOfResourceResponses_providedRepoReturnsResources() {
-        List<Resource> mockResources = List.of(mockResource1, mockResource2);
-        when(mockResourceRepo.findAll()).thenReturn(mockResources);
+        Set<ResourceResponse> mockResources = Set.of(new ResourceResponse(mockResource1), new ResourceResponse(mockResource2));
+        when(mockResourceRepo.findAllResponses()).thenReturn(mockResources);
 
         Set<ResourceResponse> response = service.findAll();
 
         // assert the proper number of users was returned, and that the repo was only queried once
         assertEquals(mockResources.size(), response.size());
-        verify(mockResourceRepo, times(1)).findAll();
+        verify(mockResourceRepo, times(1)).findAllResponses();
     }
 
     @Test
     void test_findOneResource_returnResourceResponse_providedResourceId() {
-        when(mockResourceRepo.findById(mockResource1.getId())).thenReturn(Optional.of(mockResource1));
+        when(mockResourceRepo.findResponseById(mockResource1.getId())).thenReturn(Optional.of(new ResourceResponse(mockResource1)));
 
         ResourceResponse response = service.findOne(mockResource1.getId());
 
@@ -66,14 +70,14 @@ class ResourceServiceUnitTest {
                 () -> assertEquals(mockResource1.getEmail(), response.getEmail()),
                 () -> assertEquals(mockResource1.getFirstName(), response.getFirstName()),
                 () -> assertEquals(mockResource1.getLastName(), response.getLastName()));
-        verify(mockResourceRepo, times(1)).findById(mockResource1.getId());
+        verify(mockResourceRepo, times(1)).findResponseById(mockResource1.getId());
     }
 
     @Test
     void test_findOneResource_throwsRecordNotFoundException_providedBadResourceId() {
         UUID badResourceId = UUID.randomUUID();
 
-        when(mockResourceRepo.findById(badResourceId)).thenReturn(Optional.empty());
+        when(mockResourceRepo.findResponseById(badResourceId)).thenReturn(Optional.empty());
 
         // assert the InvalidCredentialsException is thrown on authentication
         RecordNotFoundException exception = assertThrows(
@@ -82,17 +86,17 @@ class ResourceServiceUnitTest {
 
         // assert the proper message is returned, and that the repo was only queried once
         assertEquals("Record could not be found with the given search parameters", exception.getMessage());
-        verify(mockResourceRepo, times(1)).findById(badResourceId);
+        verify(mockResourceRepo, times(1)).findResponseById(badResourceId);
     }
 
     @Test
     void test_search_returnsSetOfResourceResponses_providedValidParam() {
 
-        Set<Resource> mockResources = Set.of(mockResource1);
+        Set<ResourceResponse> mockResources = Set.of(new ResourceResponse(mockResource1));
 
         Map<String, String> criteria = new HashMap<>();
         criteria.put("email", "mock@resource.one");
-        when(mockEntitySearcher.search(criteria, Resource.class)).thenReturn(mockResources);
+        when(mockEntitySearcher.search(criteria, Resource.class, ResourceResponse.PROJECTION)).thenReturn(mockResources);
 
         Set<ResourceResponse> response = service.search(criteria);
         // assert the proper number of users was returned
@@ -103,27 +107,27 @@ class ResourceServiceUnitTest {
                 () -> assertEquals(mockResource1.getEmail(), content.getEmail()),
                 () -> assertEquals(mockResource1.getFirstName(), content.getFirstName()),
                 () -> assertEquals(mockResource1.getLastName(), content.getLastName()));
-        verify(mockEntitySearcher, times(1)).search(criteria, Resource.class);
+        verify(mockEntitySearcher, times(1)).search(criteria, Resource.class, ResourceResponse.PROJECTION);
     }
 
     @Test
     void test_search_redirectsToFindAll_providedEmptyParams() {
-        List<Resource> mockResources = Arrays.asList(mockResource1, mockResource2);
+        Set<ResourceResponse> mockResources = Set.of(new ResourceResponse(mockResource1), new ResourceResponse(mockResource2));
 
-        when(mockResourceRepo.findAll()).thenReturn(mockResources);
+        when(mockResourceRepo.findAllResponses()).thenReturn(mockResources);
 
         Set<ResourceResponse> response = service.search(new HashMap<String,String>());
 
         // assert the proper number of users was returned, and that the repo was only queried once
         assertEquals(mockResources.size(), response.size());
-        verify(mockResourceRepo, times(1)).findAll();
+        verify(mockResourceRepo, times(1)).findAllResponses();
     }
 
     @Test
     void test_search_throwsRecordNotFoundException_providedBadParam() {
         Map<String, String> criteria = new HashMap<>();
         criteria.put("email", "bad@email.com");
-        when(mockEntitySearcher.search(criteria, Resource.class)).thenReturn(new HashSet<>());
+        when(mockEntitySearcher.search(criteria, Resource.class, ResourceResponse.PROJECTION)).thenReturn(new HashSet<>());
 
         // assert the InvalidCredentialsException is thrown on authentication
         RecordNotFoundException exception = assertThrows(
@@ -132,7 +136,7 @@ class ResourceServiceUnitTest {
 
         // assert the proper message is returned, and that the repo was only queried once
         assertEquals("Record could not be found with the given search parameters", exception.getMessage());
-        verify(mockEntitySearcher, times(1)).search(criteria, Resource.class);
+        verify(mockEntitySearcher, times(1)).search(criteria, Resource.class, ResourceResponse.PROJECTION);
     }
 
     @Test
@@ -212,6 +216,40 @@ class ResourceServiceUnitTest {
         verify(mockResourceRepo, times(1)).findById(any());
     }
 
+    @Test
+    void test_suggest_toleratesTypos_afterIndexIsBuilt() {
+        when(mockResourceRepo.findAllResponses()).thenReturn(
+                Set.of(new ResourceResponse(mockResource1), new ResourceResponse(mockResource2)));
+
+        service.buildSuggestIndex();
+        List<ResourceResponse> response = service.suggest("frist1", 10);
+
+        // assert only the resource sharing enough trigrams is suggested
+        assertEquals(1, response.size());
+        assertEquals(mockResource1.getId(), response.get(0).getId());
+        verify(mockResourceRepo, times(1)).findAllResponses();
+    }
+
+    @Test
+    void test_suggest_reflectsWrites_providedCreateAndDelete() {
+        NewResourceRequest request = new NewResourceRequest();
+        request.setEmail("grace@mock.three");
+        request.setFirstName("Grace");
+        request.setLastName("Hopper");
+        when(mockResourceRepo.existsByEmail(request.getEmail())).thenReturn(false);
+
+        // outside a transaction the index is updated straight away
+        RecordCreationResponse created = service.create(request);
+        List<ResourceResponse> afterCreate = service.suggest("hoper", 10);
+        service.delete(UUID.fromString(created.getId()));
+        List<ResourceResponse> afterDelete = service.suggest("hoper", 10);
+
+        assertAll(
+                () -> assertEquals(1, afterCreate.size()),
+                () -> assertEquals(created.getId(), afterCreate.get(0).getId().toString()),
+                () -> assertTrue(afterDelete.isEmpty()));
+    }
+
     @Test
     void test_delete() {
         service.delete(UUID.randomUUID());
@@ -1,8 +1,22 @@
 package com.russell.scheduler.task;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.russell.scheduler.auth.Permission;
+import com.russell.scheduler.auth.PermissionTable;
+import com.russell.scheduler.auth.TokenService;
+import com.russell.scheduler.auth.dtos.Principal;
+import com.russell.scheduler.common.NdjsonWriter;
+import com.russell.scheduler.common.dtos.BatchItemResult;
+import com.russell.scheduler.common.dtos.BatchResponse;
+import com.russell.scheduler.common.dtos.BulkResponse;
+import com.russell.scheduler.common.dtos.FacetCount;
+import com.russell.scheduler.common.dtos.FacetResponse;
+import com.russell.scheduler.common.dtos.PageResponse;
 import com.russell.scheduler.common.dtos.RecordCreationResponse;
+import com.russell.scheduler.common.exceptions.InvalidJWTException;
+import com.russell.scheduler.common.exceptions.InvalidRequestException;
 import com.russell.scheduler.common.exceptions.RecordNotFoundException;
+import com.russell.scheduler.common.ratelimit.RateLimiter;
 import com.russell.scheduler.project.Project;
 import com.russell.scheduler.resource.Resource;
 import com.russell.scheduler.task.dtos.NewTaskRequest;
@@ -14,6 +28,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -21,6 +36,17 @@ import java.time.LocalDate;
 import java.util.*;
 
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -35,6 +61,12 @@ class TaskControllerUnitTest {
     ObjectMapper json;
     @MockBean
     private TaskService mockTaskService;
+    @MockBean
+    private TokenService mockTokenService; // for AuthenticationFilter, which @WebMvcTest loads
+    @MockBean
+    private PermissionTable mockPermissionTable; // for PermissionInterceptor, registered by WebConfig
+    @MockBean
+    private RateLimiter mockRateLimiter; // for RateLimitInterceptor; a mock's 0 lets every request through
     private final String PATH = "/tasks";
     private final String CONTENT_TYPE = "application/json";
     private Task mockTask;
@@ -45,6 +77,9 @@ class TaskControllerUnitTest {
 
     @BeforeEach
     public void config() {
+        // every caller in these tests is an admin; roles without the permission are covered by the 403 tests
+        when(mockTokenService.extractTokenDetails("mock-token")).thenReturn(new Principal(UUID.randomUUID().toString(), "ADMIN"));
+        when(mockPermissionTable.allows(eq("ADMIN"), anyLong())).thenReturn(true);
         mockUser = new User();
         mockUser.setId(UUID.randomUUID());
         mockResource = new Resource(UUID.randomUUID(), "mock@resource.one", "first1", "last1",
@@ -75,6 +110,52 @@ class TaskControllerUnitTest {
                 .andReturn();
     }
 
+    @Test
+    void test_getOneTask_sendsVersionAsWeakETag_providedValidUUID() throws Exception {
+        mockTask.setVersion(4L);
+        TaskResponse mockTaskResp = new TaskResponse(mockTask);
+
+        when(mockTaskService.findOne(mockTaskResp.getId())).thenReturn(mockTaskResp);
+
+        // assert the version travels in the header only
+        MvcResult result = mockMvc.perform(get(PATH+"/id/"+mockTaskResp.getId().toString()))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"4\""))
+                .andExpect(jsonPath("$.version").doesNotExist())
+                .andReturn();
+        verify(mockTaskService, times(0)).findVersion(any());
+    }
+
+    @Test
+    void test_getOneTask_returnsNotModified_givenCurrentETag() throws Exception {
+        UUID taskId = mockTask.getId();
+        when(mockTaskService.findVersion(taskId)).thenReturn(4L);
+
+        // assert an unchanged poll is answered from the version alone, without loading the task
+        MvcResult result = mockMvc.perform(get(PATH+"/id/"+taskId)
+                        .header("If-None-Match", "W/\"4\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "W/\"4\""))
+                .andExpect(content().string(""))
+                .andReturn();
+        verify(mockTaskService, times(0)).findOne(any());
+    }
+
+    @Test
+    void test_getOneTask_returnsTaskResponse_givenStaleETag() throws Exception {
+        mockTask.setVersion(5L);
+        TaskResponse mockTaskResp = new TaskResponse(mockTask);
+        when(mockTaskService.findVersion(mockTask.getId())).thenReturn(5L);
+        when(mockTaskService.findOne(mockTask.getId())).thenReturn(mockTaskResp);
+
+        MvcResult result = mockMvc.perform(get(PATH+"/id/"+mockTask.getId())
+                        .header("If-None-Match", "W/\"4\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"5\""))
+                .andExpect(jsonPath("$.name").value(mockTask.getName()))
+                .andReturn();
+    }
+
     @Test
     void test_getOneResource_throwsRecordNotFoundException_providedInvalidUUID() throws Exception {
         TaskResponse mockTaskResp = new TaskResponse(mockTask);
@@ -105,6 +186,152 @@ class TaskControllerUnitTest {
                 .andReturn();
     }
 
+    @Test
+    void test_search_inlinesOnlyExpandedObjects_providedExpandParam() throws Exception {
+        TaskResponse mockTaskResp = TaskResponse.expanded(mockTask, Set.of("project"));
+        Map<String, String> params = new HashMap<>();
+        params.put("name", mockTaskResp.getName());
+        params.put("expand", "project");
+
+        when(mockTaskService.search(params)).thenReturn(Set.of(mockTaskResp));
+
+        // assert the expanded project is inlined, and the other associations stay ids only
+        MvcResult result = mockMvc.perform(get(PATH+"/search")
+                        .param("name", mockTaskResp.getName())
+                        .param("expand", "project"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].project.name").value(mockProject.getName()))
+                .andExpect(jsonPath("$[0].assigneeId").value(mockResource.getId().toString()))
+                .andExpect(jsonPath("$[0].assignee").doesNotExist())
+                .andExpect(jsonPath("$[0].assigner").doesNotExist())
+                .andReturn();
+    }
+
+    @Test
+    void test_searchPage_returnsPageEnvelope_providedLimit() throws Exception {
+        TaskResponse mockTaskResp = new TaskResponse(mockTask);
+
+        when(mockTaskService.searchPage(anyMap(), eq(10), isNull()))
+                .thenReturn(new PageResponse<>(List.of(mockTaskResp), "next"));
+
+        MvcResult result = mockMvc.perform(get(PATH+"/search")
+                        .param("name", mockTaskResp.getName())
+                        .param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("content-type", CONTENT_TYPE))
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.nextCursor").value("next"))
+                .andReturn();
+    }
+
+    @Test
+    void test_facets_returnsCountsWithoutRows_providedFacetsParam() throws Exception {
+        String projectId = UUID.randomUUID().toString();
+        List<FacetCount> perProject = List.of(new FacetCount(projectId, 4), new FacetCount(null, 1));
+        when(mockTaskService.facets(anyMap()))
+                .thenReturn(new FacetResponse(Map.of("project", perProject)));
+
+        // assert facets wins over limit, so no page of rows is returned alongside the counts
+        MvcResult result = mockMvc.perform(get(PATH+"/search")
+                        .param("name", mockTask.getName())
+                        .param("facets", "project")
+                        .param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("content-type", CONTENT_TYPE))
+                .andExpect(jsonPath("$.items").doesNotExist())
+                .andExpect(jsonPath("$.facets.project", hasSize(2)))
+                .andExpect(jsonPath("$.facets.project[0].value").value(projectId))
+                .andExpect(jsonPath("$.facets.project[0].count").value(4))
+                .andReturn();
+        verify(mockTaskService, times(0)).searchPage(anyMap(), anyInt(), any());
+    }
+
+    @Test
+    void test_fullTextSearch_returnsRankedPage_providedQuery() throws Exception {
+        TaskResponse mockTaskResp = new TaskResponse(mockTask);
+
+        when(mockTaskService.fullTextSearch("\"test task\" mock*", 20, null))
+                .thenReturn(new PageResponse<>(List.of(mockTaskResp), "next"));
+
+        // assert the default page size is applied when no limit is given
+        MvcResult result = mockMvc.perform(get(PATH+"/fulltext")
+                        .param("q", "\"test task\" mock*"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("content-type", CONTENT_TYPE))
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].name").value(mockTaskResp.getName()))
+                .andExpect(jsonPath("$.nextCursor").value("next"))
+                .andReturn();
+    }
+
+    @Test
+    void test_fullTextSearch_throwsInvalidRequestException_givenNoWords() throws Exception {
+        when(mockTaskService.fullTextSearch("!!", 20, null))
+                .thenThrow(new InvalidRequestException("q must contain at least one word"));
+
+        MvcResult result = mockMvc.perform(get(PATH+"/fulltext")
+                        .param("q", "!!"))
+                .andExpect(status().isBadRequest())
+                .andReturn();
+    }
+
+    @Test
+    void test_search_passesOperatorKey_givenUnencodedBrackets() throws Exception {
+        TaskResponse mockTaskResp = new TaskResponse(mockTask);
+        when(mockTaskService.search(Map.of("endDate[lt]", "2023-06-01"))).thenReturn(Set.of(mockTaskResp));
+
+        // sent as a client writes it, brackets and all, rather than percent-encoded by the request builder
+        mockMvc.perform(get(PATH+"/search")
+                        .with(request -> {
+                            request.setQueryString("endDate[lt]=2023-06-01");
+                            request.setParameter("endDate[lt]", "2023-06-01");
+                            return request;
+                        }))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+    }
+
+    @Test
+    void test_streamSearch_writesOneLinePerTask_givenNdjsonAccept() throws Exception {
+        TaskResponse mockTaskResp = new TaskResponse(mockTask);
+
+        doAnswer(invocation -> {
+            NdjsonWriter writer = invocation.getArgument(1);
+            writer.write(mockTaskResp);
+            writer.write(mockTaskResp);
+            return null;
+        }).when(mockTaskService).streamSearch(anyMap(), any(NdjsonWriter.class));
+
+        MvcResult result = mockMvc.perform(get(PATH+"/search")
+                        .param("name", mockTaskResp.getName())
+                        .accept(NdjsonWriter.MEDIA_TYPE))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        // assert each task was written as its own line
+        assertEquals(2, body.split("\n").length);
+    }
+
+    @Test
+    void test_streamSearch_returnsBadRequest_givenInvalidFilter() throws Exception {
+        doThrow(new InvalidRequestException("Operator [lt] cannot be applied to assignee"))
+                .when(mockTaskService).validateStreamSearch(anyMap());
+
+        // assert the error comes back as a status before any body, and the rows are never read
+        mockMvc.perform(get(PATH+"/search")
+                        .param("assignee[lt]", "x")
+                        .accept(NdjsonWriter.MEDIA_TYPE))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.statusCode").value(400));
+        verify(mockTaskService, times(0)).streamSearch(anyMap(), any(NdjsonWriter.class));
+    }
+
     @Test
     void test_search_throwsRecordNotFoundException_givenBadParams() throws Exception {
         when(mockTaskService.search(Map.of("name", "DoesNotExist"))).thenThrow(RecordNotFoundException.class);
@@ -127,6 +354,7 @@ class TaskControllerUnitTest {
 
         MvcResult result = mockMvc.perform(post(PATH)
                         .contentType(CONTENT_TYPE)
+                        .header("Authorization", "Bearer mock-token")
                         .content(json.writeValueAsString(req)))
                 .andExpect(status().isCreated())
                 .andExpect(header().string("content-type", CONTENT_TYPE))
@@ -134,6 +362,31 @@ class TaskControllerUnitTest {
                 .andReturn();
     }
 
+    @Test
+    void test_createBatch_returnsPerItemResults_givenRequestList() throws Exception {
+        List<NewTaskRequest> reqs = List.of(
+                new NewTaskRequest("first", "", LocalDate.now(), LocalDate.now(), mockProject.getId()),
+                new NewTaskRequest("second", "", LocalDate.now(), LocalDate.now(), UUID.randomUUID()));
+        BatchResponse resp = new BatchResponse(List.of(
+                new BatchItemResult(0, 201, UUID.randomUUID().toString(), null),
+                new BatchItemResult(1, 404, null, "Project does not exist")));
+
+        when(mockTaskService.createBatch(reqs)).thenReturn(resp);
+
+        MvcResult result = mockMvc.perform(post(PATH+"/batch")
+                        .contentType(CONTENT_TYPE)
+                        .header("Authorization", "Bearer mock-token")
+                        .content(json.writeValueAsString(reqs)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("content-type", CONTENT_TYPE))
+                .andExpect(jsonPath("$.succeeded").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.results", hasSize(2)))
+                .andExpect(jsonPath("$.results[0].id").value(resp.getResults().get(0).getId()))
+                .andExpect(jsonPath("$.results[1].status").value(404))
+                .andReturn();
+    }
+
     @Test
     void test_update_returnsTaskResponse_givenNewTaskRequest() throws Exception {
         NewTaskRequest req = new NewTaskRequest("test", "updated!", LocalDate.now(), LocalDate.now(), mockProject.getId());
@@ -146,6 +399,7 @@ class TaskControllerUnitTest {
 
         MvcResult result = mockMvc.perform(patch(PATH+"/id/"+ mockTask.getId())
                         .contentType(CONTENT_TYPE)
+                        .header("Authorization", "Bearer mock-token")
                         .content(json.writeValueAsString(req)))
                 .andExpect(status().isOk())
                 .andExpect(header().string("content-type", CONTENT_TYPE))
@@ -156,32 +410,207 @@ class TaskControllerUnitTest {
                 .andReturn();
     }
 
+    @Test
+    void test_update_returnsConflict_givenConcurrentUpdate() throws Exception {
+        NewTaskRequest req = new NewTaskRequest("test", "updated!", LocalDate.now(), LocalDate.now(), mockProject.getId());
+        when(mockTaskService.update(mockTask.getId(), req))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Task.class, mockTask.getId()));
+
+        mockMvc.perform(patch(PATH+"/id/"+ mockTask.getId())
+                        .contentType(CONTENT_TYPE)
+                        .header("Authorization", "Bearer mock-token")
+                        .content(json.writeValueAsString(req)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.statusCode").value(409));
+    }
+
     @Test
     void test_delete_returnsStatusNoContent_givenUUID() throws Exception {
         MvcResult result = mockMvc.perform(delete(PATH+"/id/"+ UUID.randomUUID())
-                        .contentType(CONTENT_TYPE))
+                        .contentType(CONTENT_TYPE)
+                        .header("Authorization", "Bearer mock-token"))
                 .andExpect(status().isNoContent())
                 .andReturn();
     }
 
+    @Test
+    void test_shiftMatching_returnsAffectedCount_givenFilterAndDays() throws Exception {
+        when(mockTaskService.shiftDates(anyMap(), eq(7))).thenReturn(new BulkResponse(3));
+
+        MvcResult result = mockMvc.perform(patch(PATH+"/bulk/shift")
+                        .param("project.id", mockProject.getId().toString())
+                        .param("days", "7")
+                        .header("Authorization", "Bearer mock-token"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("content-type", CONTENT_TYPE))
+                .andExpect(jsonPath("$.affected").value(3))
+                .andReturn();
+        verify(mockPermissionTable, times(1)).allows("ADMIN", Permission.EDIT_TASKS.getBit());
+    }
+
+    @Test
+    void test_deleteMatching_returnsAffectedCount_givenFilter() throws Exception {
+        when(mockTaskService.deleteMatching(anyMap())).thenReturn(new BulkResponse(2));
+
+        MvcResult result = mockMvc.perform(delete(PATH+"/bulk")
+                        .param("endDate[lt]", "2023-01-01")
+                        .header("Authorization", "Bearer mock-token"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected").value(2))
+                .andReturn();
+        verify(mockPermissionTable, times(1)).allows("ADMIN", Permission.DELETE_TASKS.getBit());
+    }
+
     @Test
     void test_assign_returnsTaskResponse_givenAssignRequest() throws Exception {
         mockTask.setAssigner(mockUser);
 
         mockTask.setAssignee(mockResource);
         TaskResponse response = new TaskResponse(mockTask);
+        Principal principal = new Principal(mockUser.getId().toString(), "ADMIN");
 
         TaskAssignment assign = new TaskAssignment(mockTask.getId(), mockResource.getId());
 
-        when(mockTaskService.assignTaskToResource("", assign)).thenReturn(response);
+        when(mockTokenService.extractTokenDetails("mock-token")).thenReturn(principal);
+        when(mockTaskService.assignTaskToResource(principal, assign)).thenReturn(response);
 
         MvcResult result = mockMvc.perform(patch(PATH+"/assign")
                         .contentType(CONTENT_TYPE)
-                        .header("Authorization", "")
+                        .header("Authorization", "Bearer mock-token")
                         .content(json.writeValueAsString(assign)))
                 .andExpect(status().isOk())
                 .andExpect(header().string("content-type", CONTENT_TYPE))
                 .andExpect(jsonPath("$.assigneeId").value(mockTask.getAssignee().getId().toString()))
                 .andReturn();
+        // assert the token was parsed once, by the filter, and the service was handed the result
+        verify(mockTokenService, times(1)).extractTokenDetails("mock-token");
+    }
+
+    @Test
+    void test_assignBatch_returnsPerItemResults_givenAssignmentList() throws Exception {
+        List<TaskAssignment> assignments = List.of(
+                new TaskAssignment(mockTask.getId(), mockResource.getId()),
+                new TaskAssignment(UUID.randomUUID(), mockResource.getId()));
+        BatchResponse resp = new BatchResponse(List.of(
+                new BatchItemResult(0, 200, mockTask.getId().toString(), null),
+                new BatchItemResult(1, 404, assignments.get(1).getTaskId().toString(), "Task does not exist")));
+
+        when(mockTaskService.assignBatch(any(Principal.class), eq(assignments))).thenReturn(resp);
+
+        MvcResult result = mockMvc.perform(patch(PATH+"/assign/batch")
+                        .contentType(CONTENT_TYPE)
+                        .header("Authorization", "Bearer mock-token")
+                        .content(json.writeValueAsString(assignments)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("content-type", CONTENT_TYPE))
+                .andExpect(jsonPath("$.succeeded").value(1))
+                .andExpect(jsonPath("$.results[1].status").value(404))
+                .andReturn();
+    }
+
+    @Test
+    void test_assign_throwsMissingAuthTokenException_givenNoAuthorizationHeader() throws Exception {
+        TaskAssignment assign = new TaskAssignment(mockTask.getId(), mockResource.getId());
+
+        MvcResult result = mockMvc.perform(patch(PATH+"/assign")
+                        .contentType(CONTENT_TYPE)
+                        .content(json.writeValueAsString(assign)))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.message").value("Missing authorization token on request"))
+                .andReturn();
+        verify(mockTaskService, times(0)).assignTaskToResource(any(), any());
+    }
+
+    @Test
+    void test_assign_returnsUnauthorized_givenInvalidToken() throws Exception {
+        TaskAssignment assign = new TaskAssignment(mockTask.getId(), mockResource.getId());
+
+        when(mockTokenService.extractTokenDetails("expired-token"))
+                .thenThrow(new InvalidJWTException("The provided auth token has expired"));
+
+        // assert the route that needs a caller answers with the token's own problem
+        MvcResult result = mockMvc.perform(patch(PATH+"/assign")
+                        .contentType(CONTENT_TYPE)
+                        .header("Authorization", "expired-token")
+                        .content(json.writeValueAsString(assign)))
+                .andExpect(status().isUnauthorized())
+                .andExpect(header().string("content-type", CONTENT_TYPE))
+                .andExpect(jsonPath("$.statusCode").value(401))
+                .andExpect(jsonPath("$.message").value("The provided auth token has expired"))
+                .andReturn();
+        verify(mockTaskService, times(0)).assignTaskToResource(any(), any());
+    }
+
+    @Test
+    void test_getSingleTask_returnsTask_givenExpiredToken() throws Exception {
+        TaskResponse response = new TaskResponse(mockTask);
+
+        when(mockTokenService.extractTokenDetails("expired-token"))
+                .thenThrow(new InvalidJWTException("The provided auth token has expired"));
+        when(mockTaskService.findOne(mockTask.getId())).thenReturn(response);
+
+        // assert a stale token leaves the request anonymous rather than turning away a read anyone may make
+        MvcResult result = mockMvc.perform(get(PATH+"/id/"+mockTask.getId())
+                        .header("Authorization", "Bearer expired-token"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(mockTask.getId().toString()))
+                .andReturn();
+    }
+
+    @Test
+    void test_delete_returnsForbidden_givenRoleWithoutPermission() throws Exception {
+        when(mockTokenService.extractTokenDetails("viewer-token"))
+                .thenReturn(new Principal(UUID.randomUUID().toString(), "VIEWER"));
+        when(mockPermissionTable.allows("VIEWER", Permission.DELETE_TASKS.getBit())).thenReturn(false);
+
+        MvcResult result = mockMvc.perform(delete(PATH+"/id/"+ UUID.randomUUID())
+                        .contentType(CONTENT_TYPE)
+                        .header("Authorization", "Bearer viewer-token"))
+                .andExpect(status().isForbidden())
+                .andExpect(jsonPath("$.statusCode").value(403))
+                .andReturn();
+        verify(mockTaskService, times(0)).delete(any());
+    }
+
+    @Test
+    void test_create_checksEditPermission_givenValidToken() throws Exception {
+        NewTaskRequest req = new NewTaskRequest("test", "test", LocalDate.now(), LocalDate.now(), mockProject.getId());
+
+        mockMvc.perform(post(PATH)
+                        .contentType(CONTENT_TYPE)
+                        .header("Authorization", "Bearer mock-token")
+                        .content(json.writeValueAsString(req)))
+                .andExpect(status().isCreated());
+        // assert the handler's annotation was compiled to exactly the EDIT_TASKS bit
+        verify(mockPermissionTable, times(1)).allows("ADMIN", Permission.EDIT_TASKS.getBit());
+    }
+
+    @Test
+    void test_search_skipsPermissionCheck_givenUnannotatedEndpoint() throws Exception {
+        when(mockTaskService.search(anyMap())).thenReturn(new HashSet<>());
+
+        mockMvc.perform(get(PATH+"/search").param("name", "mockTask1"))
+                .andExpect(status().isOk());
+        verify(mockPermissionTable, times(0)).allows(any(), anyLong());
+    }
+
+    @Test
+    void test_create_returnsTooManyRequests_givenExhaustedBucket() throws Exception {
+        NewTaskRequest req = new NewTaskRequest("test", "test", LocalDate.now(), LocalDate.now(), mockProject.getId());
+        String principalKey = "user:" + mockUser.getId();
+        when(mockTokenService.extractTokenDetails("limited-token"))
+                .thenReturn(new Principal(mockUser.getId().toString(), "ADMIN"));
+        when(mockRateLimiter.tryAcquire("task-writes", principalKey)).thenReturn(2_500_000_000L);
+
+        // assert the wait is rounded up to whole seconds, and the service is never reached
+        MvcResult result = mockMvc.perform(post(PATH)
+                        .contentType(CONTENT_TYPE)
+                        .header("Authorization", "Bearer limited-token")
+                        .content(json.writeValueAsString(req)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "3"))
+                .andExpect(jsonPath("$.statusCode").value(429))
+                .andReturn();
+        verify(mockTaskService, times(0)).create(any());
     }
 }
@@ -1,11 +1,21 @@
 package com.russell.scheduler.task;
 
-import com.russell.scheduler.auth.TokenService;
 import com.russell.scheduler.auth.dtos.Principal;
+import com.russell.scheduler.change.ChangeLog;
 import com.russell.scheduler.common.EntitySearcher;
+import com.russell.scheduler.common.dtos.BatchItemResult;
+import com.russell.scheduler.common.dtos.BatchResponse;
+import com.russell.scheduler.common.dtos.BulkResponse;
+import com.russell.scheduler.common.dtos.FacetCount;
+import com.russell.scheduler.common.dtos.FacetResponse;
+import com.russell.scheduler.common.dtos.PageResponse;
 import com.russell.scheduler.common.dtos.RecordCreationResponse;
+import com.russell.scheduler.common.exceptions.InvalidRequestException;
 import com.russell.scheduler.common.exceptions.RecordNotFoundException;
+import com.russell.scheduler.common.search.Projection;
+import com.russell.scheduler.outbox.Outbox;
 import com.russell.scheduler.project.Project;
+import com.russell.scheduler.project.ProjectEventHub;
 import com.russell.scheduler.project.ProjectRepository;
 import com.russell.scheduler.project.dtos.NewProjectRequest;
 import com.russell.scheduler.project.dtos.ProjectAssignment;
@@ -19,13 +29,21 @@ import com.russell.scheduler.user.UserRepository;
 import com.russell.scheduler.user.UserRole;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 import static org.mockito.Mockito.times;
 
@@ -37,16 +55,24 @@ class TaskServiceUnitTest {
     private final ResourceRepository mockResourceRepo = mock(ResourceRepository.class);
     private final UserRepository mockUserRepo = mock(UserRepository.class);
     private final EntitySearcher mockEntitySearcher = mock(EntitySearcher.class);
-    private final TokenService mockTokenService = mock(TokenService.class);
+    private final TaskFullTextSearcher mockFullTextSearcher = mock(TaskFullTextSearcher.class);
+    private final ChangeLog mockChangeLog = mock(ChangeLog.class);
+    private final TaskEditWriter mockEditWriter = mock(TaskEditWriter.class);
+    private final Outbox mockOutbox = mock(Outbox.class);
+    private final ProjectEventHub mockEventHub = mock(ProjectEventHub.class);
     private Task mockTask;
     private Project mockProject;
     private Resource mockResource;
     private User mockUser;
+    private Principal mockPrincipal;
 
     @BeforeEach
     public void setup() {
-        reset(mockTaskRepo, mockProjectRepo, mockResourceRepo, mockUserRepo, mockEntitySearcher, mockTokenService);
-        service = new TaskService(mockTaskRepo, mockProjectRepo, mockResourceRepo, mockUserRepo, mockEntitySearcher, mockTokenService);
+        reset(mockTaskRepo, mockProjectRepo, mockResourceRepo, mockUserRepo, mockEntitySearcher, mockFullTextSearcher,
+                mockChangeLog, mockEditWriter, mockOutbox, mockEventHub);
+        service = new TaskService(mockTaskRepo, mockProjectRepo, mockResourceRepo, mockUserRepo, mockEntitySearcher,
+                mockFullTextSearcher, mockChangeLog, new TaskWriteBuffer(mockEditWriter, false, 10), mockOutbox,
+                mockEventHub);
         mockProject = new Project(UUID.fromString("aa4a20ab-cc98-4f9a-a09d-37b6fbd8087c"),
                 "mockProject", LocalDate.now(), LocalDate.now(), new Resource(), new HashSet<Task>());
         mockResource = new Resource(UUID.fromString("a27951ae-22fc-491d-b0c3-48bf5d8a4590"),
@@ -55,6 +81,7 @@ class TaskServiceUnitTest {
         mockUser = new User(UUID.fromString("2fdfea91-896f-4624-91c5-b1c7d88bfe37"),
                 "test", "mock@user.one", "first1", "last1",
                 "P@ssword1", new UserRole(1, "ADMIN", 1));
+        mockPrincipal = new Principal(mockUser.getId().toString(), mockUser.getRole().getRoleName());
         mockTask = new Task(UUID.fromString("aa4a20aa-cc97-4f99-a09c-37b6fbd8087b"),
                 "mockTask", "a mock task", mockResource, mockUser,
                 LocalDate.now(), LocalDate.now().plusDays(1), mockProject, LocalDate.now());
@@ -62,7 +89,7 @@ class TaskServiceUnitTest {
 
     @Test
     void test_findOne_returnTaskResponse_providedTaskId() {
-        when(mockTaskRepo.findById(mockTask.getId())).thenReturn(Optional.of(mockTask));
+        when(mockTaskRepo.findResponseById(mockTask.getId())).thenReturn(Optional.of(new TaskResponse(mockTask)));
 
         TaskResponse response = service.findOne(mockTask.getId());
 
@@ -78,14 +105,30 @@ class TaskServiceUnitTest {
                 () -> assertEquals(mockTask.getStartDate(), response.getStartDate()),
                 () -> assertEquals(mockTask.getEndDate(), response.getEndDate()),
                 () -> assertEquals(mockTask.getCreatedDate(), response.getCreatedDate()));
-        verify(mockTaskRepo, times(1)).findById(mockTask.getId());
+        verify(mockTaskRepo, times(1)).findResponseById(mockTask.getId());
+    }
+
+    @Test
+    void test_findVersion_returnsVersion_providedTaskId() {
+        when(mockTaskRepo.findVersionById(mockTask.getId())).thenReturn(Optional.of(3L));
+
+        assertEquals(3L, service.findVersion(mockTask.getId()));
+        verify(mockTaskRepo, times(0)).findResponseById(any());
+    }
+
+    @Test
+    void test_findVersion_throwsRecordNotFoundException_providedBadTaskId() {
+        UUID badTaskId = UUID.randomUUID();
+        when(mockTaskRepo.findVersionById(badTaskId)).thenReturn(Optional.empty());
+
+        assertThrows(RecordNotFoundException.class, () -> service.findVersion(badTaskId));
     }
 
     @Test
     void test_findOne_throwsRecordNotFoundException_providedBadTaskId() {
         UUID badTaskId = UUID.randomUUID();
 
-        when(mockTaskRepo.findById(badTaskId)).thenReturn(Optional.empty());
+        when(mockTaskRepo.findResponseById(badTaskId)).thenReturn(Optional.empty());
 
         RecordNotFoundException exception = assertThrows(
                 RecordNotFoundException.class,
@@ -93,17 +136,17 @@ class TaskServiceUnitTest {
 
         // assert the proper message is returned, and that the repo was only queried once
         assertEquals("Record could not be found with the given search parameters", exception.getMessage());
-        verify(mockTaskRepo, times(1)).findById(badTaskId);
+        verify(mockTaskRepo, times(1)).findResponseById(badTaskId);
     }
 
     @Test
     void test_search_returnsSetOfTaskResponses_providedValidParam() {
 
-        Set<Task> mockTasks = Set.of(mockTask);
+        Set<TaskResponse> mockTasks = Set.of(new TaskResponse(mockTask));
 
         Map<String, String> criteria = new HashMap<>();
         criteria.put("name", mockTask.getName());
-        when(mockEntitySearcher.search(criteria, Task.class)).thenReturn(mockTasks);
+        when(mockEntitySearcher.search(criteria, Task.class, TaskResponse.PROJECTION)).thenReturn(mockTasks);
 
         Set<TaskResponse> response = service.search(criteria);
         // assert the proper number of users was returned
@@ -119,14 +162,43 @@ class TaskServiceUnitTest {
                 () -> assertEquals(mockTask.getStartDate(), content.getStartDate()),
                 () -> assertEquals(mockTask.getEndDate(), content.getEndDate()),
                 () -> assertEquals(mockTask.getCreatedDate(), content.getCreatedDate()));
-        verify(mockEntitySearcher, times(1)).search(criteria, Task.class);
+        verify(mockEntitySearcher, times(1)).search(criteria, Task.class, TaskResponse.PROJECTION);
+    }
+
+    @Test
+    void test_search_inlinesExpandedObjects_providedExpandParam() {
+        Map<String, String> criteria = new HashMap<>();
+        criteria.put("name", mockTask.getName());
+        criteria.put("expand", "project,assigner");
+        when(mockEntitySearcher.search(eq(criteria), eq(Task.class), any(Projection.class), any(Function.class)))
+                .thenAnswer(invocation -> Set.of(invocation.<Function<Task, TaskResponse>>getArgument(3).apply(mockTask)));
+
+        Set<TaskResponse> response = service.search(criteria);
+
+        // assert the expanded objects are built from the fetched task, without another repository call
+        TaskResponse content = response.stream().findFirst().get();
+        assertAll(
+                () -> assertEquals(mockProject.getName(), content.getProject().getName()),
+                () -> assertEquals(mockUser.getRole().getRoleName(), content.getAssigner().getRoleName()),
+                () -> assertNull(content.getAssignee()));
+        verify(mockEntitySearcher, times(1)).search(eq(criteria), eq(Task.class), any(Projection.class), any(Function.class));
+        verify(mockEntitySearcher, times(0)).search(criteria, Task.class, TaskResponse.PROJECTION);
+        verifyNoInteractions(mockTaskRepo, mockProjectRepo, mockResourceRepo, mockUserRepo);
+    }
+
+    @Test
+    void test_search_throwsInvalidRequestException_providedUnknownExpansion() {
+        Map<String, String> criteria = Map.of("name", mockTask.getName(), "expand", "owner");
+
+        assertThrows(InvalidRequestException.class, () -> service.search(criteria));
+        verifyNoInteractions(mockEntitySearcher);
     }
 
     @Test
     void test_search_throwsRecordNotFoundException_providedBadParam() {
         Map<String, String> criteria = new HashMap<>();
         criteria.put("name", "Does Not Exist");
-        when(mockEntitySearcher.search(criteria, Task.class)).thenReturn(new HashSet<>());
+        when(mockEntitySearcher.search(criteria, Task.class, TaskResponse.PROJECTION)).thenReturn(new HashSet<>());
 
         RecordNotFoundException exception = assertThrows(
                 RecordNotFoundException.class,
@@ -134,10 +206,69 @@ class TaskServiceUnitTest {
 
         // assert the proper message is returned, and that the repo was only queried once
         assertEquals("Record could not be found with the given search parameters", exception.getMessage());
-        verify(mockEntitySearcher, times(1)).search(criteria, Task.class);
+        verify(mockEntitySearcher, times(1)).search(criteria, Task.class, TaskResponse.PROJECTION);
     }
 
 
+    @Test
+    void test_searchPage_returnsPageOfTaskResponses_providedValidParam() {
+        Map<String, String> criteria = new HashMap<>();
+        criteria.put("name", mockTask.getName());
+        when(mockEntitySearcher.searchPage(eq(criteria), eq(Task.class), eq(TaskResponse.PROJECTION), any(),
+                eq(10), isNull()))
+                .thenReturn(new PageResponse<>(List.of(new TaskResponse(mockTask)), "next"));
+
+        PageResponse<TaskResponse> response = service.searchPage(criteria, 10, null);
+
+        // assert the projected rows and the cursor passed through untouched
+        assertAll(
+                () -> assertEquals(1, response.getItems().size()),
+                () -> assertEquals(mockTask.getId(), response.getItems().get(0).getId()),
+                () -> assertEquals("next", response.getNextCursor()));
+        verify(mockEntitySearcher, times(1)).searchPage(eq(criteria), eq(Task.class), eq(TaskResponse.PROJECTION),
+                any(), eq(10), isNull());
+    }
+
+    @Test
+    void test_facets_returnsCountsFromSearcher_providedFacetsParam() {
+        Map<String, String> params = Map.of("facets", "project", "name", mockTask.getName());
+        FacetResponse facets = new FacetResponse(Map.of("project",
+                List.of(new FacetCount(mockProject.getId().toString(), 1))));
+        when(mockEntitySearcher.facets(params, Task.class)).thenReturn(facets);
+
+        FacetResponse response = service.facets(params);
+
+        assertEquals(facets, response);
+        verify(mockEntitySearcher, times(1)).facets(params, Task.class);
+    }
+
+    @Test
+    void test_fullTextSearch_returnsPageFromIndex_providedQuery() {
+        PageResponse<TaskResponse> page = new PageResponse<>(List.of(new TaskResponse(mockTask)), null);
+        when(mockFullTextSearcher.search("mock", 20, null)).thenReturn(page);
+
+        PageResponse<TaskResponse> response = service.fullTextSearch("mock", 20, null);
+
+        assertEquals(page, response);
+        verify(mockFullTextSearcher, times(1)).search("mock", 20, null);
+    }
+
+    @Test
+    void test_fullTextSearch_showsBufferedEdit_providedWriteBehindEnabled() {
+        TaskWriteBuffer buffer = new TaskWriteBuffer(mockEditWriter, true, 10);
+        service = new TaskService(mockTaskRepo, mockProjectRepo, mockResourceRepo, mockUserRepo, mockEntitySearcher,
+                mockFullTextSearcher, mockChangeLog, buffer, mockOutbox, mockEventHub);
+        buffer.offer(mockTask.getId(), new NewTaskRequest("dragged", "desc", LocalDate.now(), LocalDate.now(),
+                mockProject.getId()));
+        when(mockFullTextSearcher.search("mock", 20, null))
+                .thenReturn(new PageResponse<>(List.of(new TaskResponse(mockTask)), null));
+
+        PageResponse<TaskResponse> response = service.fullTextSearch("mock", 20, null);
+
+        assertEquals("dragged", response.getItems().get(0).getName());
+        assertTrue(response.getItems().get(0).getVersion() < 0);
+    }
+
     @Test
     void test_create_returnsResourceCreationResponse_providedValidTaskInfo() {
         NewTaskRequest request = new NewTaskRequest();
@@ -182,6 +313,44 @@ class TaskServiceUnitTest {
         verify(mockTaskRepo, times(0)).save(any());
     }
 
+    @Test
+    void test_createBatch_reportsEachItem_providedMixedRequests() {
+        UUID missingProject = UUID.randomUUID();
+        List<NewTaskRequest> requests = List.of(
+                new NewTaskRequest("first", "", LocalDate.now(), LocalDate.now(), mockProject.getId()),
+                new NewTaskRequest("second", "", LocalDate.now(), LocalDate.now(), missingProject),
+                new NewTaskRequest(null, "", LocalDate.now(), LocalDate.now(), mockProject.getId()),
+                new NewTaskRequest("fourth", "", LocalDate.now(), LocalDate.now(), mockProject.getId()));
+
+        when(mockProjectRepo.findAllById(Set.of(mockProject.getId(), missingProject))).thenReturn(List.of(mockProject));
+
+        BatchResponse response = service.createBatch(requests);
+
+        // assert the projects were looked up once for the whole batch, and only the good items were inserted, together
+        assertAll(
+                () -> assertEquals(2, response.getSucceeded()),
+                () -> assertEquals(2, response.getFailed()),
+                () -> assertEquals(List.of(201, 404, 400, 201),
+                        response.getResults().stream().map(BatchItemResult::getStatus).collect(Collectors.toList())),
+                () -> assertNotNull(response.getResults().get(0).getId()),
+                () -> assertNull(response.getResults().get(1).getId()));
+        verify(mockProjectRepo, times(1)).findAllById(any());
+        verify(mockProjectRepo, times(0)).findById(any());
+        verify(mockTaskRepo, times(1)).saveAll(argThat((List<Task> tasks) ->
+                tasks.size() == 2 && tasks.stream().allMatch(Task::isNew)));
+    }
+
+    @Test
+    void test_createBatch_throwsInvalidRequestException_providedOversizedBatch() {
+        List<NewTaskRequest> requests = Collections.nCopies(TaskService.MAX_BATCH_SIZE + 1,
+                new NewTaskRequest("task", "", LocalDate.now(), LocalDate.now(), mockProject.getId()));
+
+        assertAll(
+                () -> assertThrows(InvalidRequestException.class, () -> service.createBatch(requests)),
+                () -> assertThrows(InvalidRequestException.class, () -> service.createBatch(List.of())));
+        verify(mockTaskRepo, times(0)).saveAll(any());
+    }
+
     @Test
     void test_update_returnsTaskResponse_providedValidTaskInfo() {
         NewTaskRequest request = new NewTaskRequest();
@@ -223,14 +392,48 @@ class TaskServiceUnitTest {
         verify(mockTaskRepo, times(1)).findById(any());
     }
 
+    @Test
+    void test_assignBatch_reportsEachItem_providedMixedAssignments() {
+        Task mockTask2 = new Task(UUID.randomUUID(), "mockTask2", "", null, null,
+                LocalDate.now(), LocalDate.now(), mockProject, LocalDate.now());
+        UUID missingTask = UUID.randomUUID();
+        UUID missingResource = UUID.randomUUID();
+        List<TaskAssignment> assignments = List.of(
+                new TaskAssignment(mockTask.getId(), mockResource.getId()),
+                new TaskAssignment(missingTask, mockResource.getId()),
+                new TaskAssignment(mockTask2.getId(), missingResource),
+                new TaskAssignment(mockTask.getId(), mockResource.getId()),
+                new TaskAssignment(null, mockResource.getId()));
+        mockTask.setAssignee(null);
+        mockTask.setAssigner(null);
+
+        when(mockUserRepo.findById(mockUser.getId())).thenReturn(Optional.of(mockUser));
+        when(mockTaskRepo.findAllById(any())).thenReturn(List.of(mockTask, mockTask2));
+        when(mockResourceRepo.findAllById(any())).thenReturn(List.of(mockResource));
+
+        BatchResponse response = service.assignBatch(mockPrincipal, assignments);
+
+        // assert one lookup per kind, and nothing saved one by one or added to the resource's task collection
+        assertAll(
+                () -> assertEquals(List.of(200, 404, 404, 400, 400),
+                        response.getResults().stream().map(BatchItemResult::getStatus).collect(Collectors.toList())),
+                () -> assertEquals(mockResource, mockTask.getAssignee()),
+                () -> assertEquals(mockUser, mockTask.getAssigner()),
+                () -> assertNull(mockTask2.getAssignee()),
+                () -> assertTrue(mockResource.getAssignedTasks().isEmpty()));
+        verify(mockUserRepo, times(1)).findById(any());
+        verify(mockTaskRepo, times(1)).findAllById(any());
+        verify(mockResourceRepo, times(1)).findAllById(any());
+        verify(mockTaskRepo, times(0)).save(any());
+        verify(mockResourceRepo, times(0)).save(any());
+    }
+
     @Test
     void test_assign_returnsTaskResponse_providedValidParams() {
         when(mockTaskRepo.findById(mockTask.getId()))
                 .thenReturn(Optional.of(mockTask));
         when(mockResourceRepo.findById(mockResource.getId()))
                 .thenReturn(Optional.of(mockResource));
-        when(mockTokenService.extractTokenDetails(anyString()))
-                .thenReturn(new Principal(mockUser.getId().toString(), mockUser.getRole().getRoleName()));
         when(mockUserRepo.findById(mockUser.getId()))
                 .thenReturn(Optional.of(mockUser));
         when(mockTaskRepo.save(mockTask)).thenReturn(any(Task.class));
@@ -238,7 +441,7 @@ class TaskServiceUnitTest {
 
         TaskAssignment request = new TaskAssignment(mockTask.getId(), mockResource.getId());
 
-        TaskResponse response = service.assignTaskToResource("", request);
+        TaskResponse response = service.assignTaskToResource(mockPrincipal, request);
 
         // assert the proper message is returned, and that the repo was only queried once
         assertAll(
@@ -246,10 +449,12 @@ class TaskServiceUnitTest {
                 () -> assertEquals(mockResource.getId(), response.getAssigneeId()));
         verify(mockTaskRepo, times(1)).findById(any());
         verify(mockResourceRepo, times(1)).findById(any());
-        verify(mockTokenService, times(1)).extractTokenDetails(any());
         verify(mockUserRepo, times(1)).findById(any());
         verify(mockTaskRepo, times(1)).save(any());
         verify(mockResourceRepo, times(1)).save(any());
+        verify(mockOutbox, times(1)).record("task.assigned", mockTask.getId(), response);
+        verify(mockEventHub, times(1)).publish(eq(mockProject.getId()),
+                argThat(event -> event.getType().equals("task-assigned") && event.getTask() == response));
     }
 
     @Test
@@ -261,10 +466,7 @@ class TaskServiceUnitTest {
 
         RecordNotFoundException exception = assertThrows(
                 RecordNotFoundException.class,
-                () -> service.assignTaskToResource(
-                        mockTokenService.generateToken(
-                                new Principal(mockUser.getId().toString(), mockUser.getRole().getRoleName())),
-                        request));
+                () -> service.assignTaskToResource(mockPrincipal, request));
 
         // assert the proper message is returned, and that the repo was only queried once
         assertEquals("Record could not be found with the given search parameters", exception.getMessage());
@@ -287,10 +489,7 @@ class TaskServiceUnitTest {
 
         RecordNotFoundException exception = assertThrows(
                 RecordNotFoundException.class,
-                () -> service.assignTaskToResource(
-                        mockTokenService.generateToken(
-                                new Principal(mockUser.getId().toString(), mockUser.getRole().getRoleName())),
-                        request));
+                () -> service.assignTaskToResource(mockPrincipal, request));
 
 
         // assert the proper message is returned, and that the repo was only queried once
@@ -302,13 +501,11 @@ class TaskServiceUnitTest {
     }
 
     @Test
-    void test_assign_throwsRecordNotFoundException_providedBadPrincipalToken() {
+    void test_assign_throwsRecordNotFoundException_providedUnknownPrincipal() {
         when(mockTaskRepo.findById(mockTask.getId()))
                 .thenReturn(Optional.of(mockTask));
         when(mockResourceRepo.findById(mockResource.getId()))
                 .thenReturn(Optional.of(mockResource));
-        when(mockTokenService.extractTokenDetails(anyString()))
-                .thenReturn(new Principal(mockUser.getId().toString(), mockUser.getRole().getRoleName()));
         when(mockUserRepo.findById(mockUser.getId()))
                 .thenReturn(Optional.empty());
 
@@ -316,7 +513,7 @@ class TaskServiceUnitTest {
 
         RecordNotFoundException exception = assertThrows(
                 RecordNotFoundException.class,
-                () -> service.assignTaskToResource("",request));
+                () -> service.assignTaskToResource(mockPrincipal, request));
 
 
         // assert the proper message is returned, and that the repo was only queried once
@@ -327,9 +524,144 @@ class TaskServiceUnitTest {
         verify(mockResourceRepo, times(0)).save(any());
     }
 
+    @Test
+    void test_shiftDates_returnsAffectedCount_providedFilterAndDays() {
+        Map<String, String> params = new HashMap<>();
+        params.put("project.id", mockProject.getId().toString());
+        params.put("days", "7");
+        when(mockEntitySearcher.bulkUpdate(anyMap(), eq(Task.class), anyString(), eq(Map.of("days", 7)))).thenReturn(4);
+
+        BulkResponse resp = service.shiftDates(params, 7);
+
+        // assert the days param is not mistaken for a filter on the tasks
+        assertEquals(4, resp.getAffected());
+        verify(mockEntitySearcher, times(1)).bulkUpdate(eq(Map.of("project.id", mockProject.getId().toString())),
+                eq(Task.class), anyString(), eq(Map.of("days", 7)));
+    }
+
+    @Test
+    void test_shiftDates_recordsChangesAfterUpdate_providedDateFilter() {
+        Map<String, String> params = Map.of("startDate[between]", "2023-01-01,2023-01-31", "name", "a");
+
+        service.shiftDates(params, 7);
+
+        InOrder order = inOrder(mockEntitySearcher, mockChangeLog);
+        order.verify(mockEntitySearcher).bulkUpdate(eq(params), eq(Task.class), anyString(), eq(Map.of("days", 7)));
+        order.verify(mockChangeLog).upsertedMatching(
+                Map.of("startDate[between]", "2023-01-08,2023-02-07", "name", "a"), Task.class);
+    }
+
+    @Test
+    void test_shiftDates_throwsInvalidRequestException_providedZeroDays() {
+        Map<String, String> params = Map.of("project.id", mockProject.getId().toString());
+
+        assertThrows(InvalidRequestException.class, () -> service.shiftDates(params, 0));
+        verify(mockEntitySearcher, times(0)).bulkUpdate(anyMap(), any(), anyString(), anyMap());
+    }
+
+    @Test
+    void test_deleteMatching_returnsAffectedCount_providedFilter() {
+        Map<String, String> params = Map.of("endDate[lt]", "2023-01-01");
+        when(mockEntitySearcher.bulkDelete(params, Task.class)).thenReturn(2);
+
+        assertEquals(2, service.deleteMatching(params).getAffected());
+        verify(mockChangeLog, times(1)).deletedMatching(params, Task.class);
+    }
+
     @Test
     void test_delete() {
         service.delete(UUID.randomUUID());
         verify(mockTaskRepo, times(1)).deleteById(any());
     }
+
+    @Test
+    void test_delete_recordsTombstoneBeforeDeleting() {
+        UUID taskId = UUID.randomUUID();
+
+        service.delete(taskId);
+
+        // the tombstone is selected from the row, so it has to be written while the row still exists
+        InOrder order = inOrder(mockChangeLog, mockTaskRepo);
+        order.verify(mockChangeLog).deleted(Task.class, taskId);
+        order.verify(mockTaskRepo).deleteById(taskId);
+    }
+
+    @Test
+    void test_update_recordsUpsert() {
+        when(mockTaskRepo.findById(mockTask.getId())).thenReturn(Optional.of(mockTask));
+        NewTaskRequest req = new NewTaskRequest("renamed", "desc", LocalDate.now(), LocalDate.now(), mockProject.getId());
+
+        service.update(mockTask.getId(), req);
+
+        verify(mockChangeLog, times(1)).upserted(Task.class, mockTask.getId());
+    }
+
+    @Test
+    void test_update_buffersEdit_providedWriteBehindEnabled() {
+        TaskWriteBuffer buffer = new TaskWriteBuffer(mockEditWriter, true, 10);
+        service = new TaskService(mockTaskRepo, mockProjectRepo, mockResourceRepo, mockUserRepo, mockEntitySearcher,
+                mockFullTextSearcher, mockChangeLog, buffer, mockOutbox, mockEventHub);
+        when(mockTaskRepo.findResponseById(mockTask.getId())).thenReturn(Optional.of(new TaskResponse(mockTask)));
+        NewTaskRequest req = new NewTaskRequest("dragged", "desc", LocalDate.now(), LocalDate.now(), mockProject.getId());
+
+        TaskResponse resp = service.update(mockTask.getId(), req);
+
+        // assert the edit is acknowledged and readable here, but not yet written
+        assertEquals("dragged", resp.getName());
+        assertEquals("dragged", service.findOne(mockTask.getId()).getName());
+        assertTrue(service.findVersion(mockTask.getId()) < 0);
+        verify(mockTaskRepo, times(0)).save(any());
+        verify(mockChangeLog, times(0)).upserted(any(), any(UUID.class));
+        assertEquals(1, buffer.getPendingCount());
+    }
+
+    @Test
+    void test_assign_writesBufferedEditFirst_providedWriteBehindEnabled() {
+        TaskWriteBuffer buffer = new TaskWriteBuffer(mockEditWriter, true, 10);
+        service = new TaskService(mockTaskRepo, mockProjectRepo, mockResourceRepo, mockUserRepo, mockEntitySearcher,
+                mockFullTextSearcher, mockChangeLog, buffer, mockOutbox, mockEventHub);
+        when(mockTaskRepo.findResponseById(mockTask.getId())).thenReturn(Optional.of(new TaskResponse(mockTask)));
+        when(mockTaskRepo.findById(mockTask.getId())).thenReturn(Optional.of(mockTask));
+        when(mockResourceRepo.findById(mockResource.getId())).thenReturn(Optional.of(mockResource));
+        when(mockUserRepo.findById(mockUser.getId())).thenReturn(Optional.of(mockUser));
+        NewTaskRequest req = new NewTaskRequest("dragged", "desc", LocalDate.now(), LocalDate.now(), mockProject.getId());
+
+        service.update(mockTask.getId(), req);
+        service.assignTaskToResource(mockPrincipal, new TaskAssignment(mockTask.getId(), mockResource.getId()));
+
+        // assert the edit is written before the task is loaded for the assignment, so neither write undoes the other
+        InOrder inOrder = inOrder(mockEditWriter, mockTaskRepo);
+        inOrder.verify(mockEditWriter, times(1)).write(Map.of(mockTask.getId(), req));
+        inOrder.verify(mockTaskRepo, times(1)).findById(mockTask.getId());
+        inOrder.verify(mockTaskRepo, times(1)).save(mockTask);
+        assertEquals(0, buffer.getPendingCount());
+    }
+
+    @Test
+    void test_update_throwsRecordNotFoundException_providedWriteBehindAndMissingTask() {
+        service = new TaskService(mockTaskRepo, mockProjectRepo, mockResourceRepo, mockUserRepo, mockEntitySearcher,
+                mockFullTextSearcher, mockChangeLog, new TaskWriteBuffer(mockEditWriter, true, 10), mockOutbox,
+                mockEventHub);
+        when(mockTaskRepo.findResponseById(any())).thenReturn(Optional.empty());
+        NewTaskRequest req = new NewTaskRequest("dragged", "desc", LocalDate.now(), LocalDate.now(), mockProject.getId());
+
+        assertThrows(RecordNotFoundException.class, () -> service.update(UUID.randomUUID(), req));
+    }
+
+    @Test
+    void test_update_throwsInvalidRequestException_providedWriteBehindAndMissingDate() {
+        TaskWriteBuffer buffer = new TaskWriteBuffer(mockEditWriter, true, 10);
+        service = new TaskService(mockTaskRepo, mockProjectRepo, mockResourceRepo, mockUserRepo, mockEntitySearcher,
+                mockFullTextSearcher, mockChangeLog, buffer, mockOutbox, mockEventHub);
+        when(mockTaskRepo.findResponseById(mockTask.getId())).thenReturn(Optional.of(new TaskResponse(mockTask)));
+        NewTaskRequest req = new NewTaskRequest("dragged", "desc", null, LocalDate.now(), mockProject.getId());
+
+        InvalidRequestException exception = assertThrows(
+                InvalidRequestException.class,
+                () -> service.update(mockTask.getId(), req));
+
+        // assert the edit is turned away before it's acknowledged, rather than failing at the flush
+        assertEquals("startDate and endDate are required", exception.getMessage());
+        assertEquals(0, buffer.getPendingCount());
+    }
 }
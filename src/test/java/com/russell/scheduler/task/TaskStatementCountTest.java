@@ -0,0 +1,112 @@
+package com.russell.scheduler.task;
+
+import com.russell.scheduler.auth.PermissionTable;
+import com.russell.scheduler.change.ChangeLog;
+import com.russell.scheduler.common.EntitySearcher;
+import com.russell.scheduler.common.StubDataSource;
+import com.russell.scheduler.common.dtos.PageResponse;
+import com.russell.scheduler.common.search.SearchPlanCache;
+import com.russell.scheduler.outbox.Outbox;
+import com.russell.scheduler.project.ProjectEventHub;
+import com.russell.scheduler.task.dtos.TaskResponse;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+// runs the task reads through real Hibernate over a stub JDBC driver and counts the statements it prepares,
+// so a read that starts loading associations row by row fails here rather than in production
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.PostgreSQL10Dialect",
+        "spring.jpa.properties.hibernate.temp.use_jdbc_metadata_defaults=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.hibernate.ddl-auto=none"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({TaskService.class, EntitySearcher.class, SearchPlanCache.class})
+class TaskStatementCountTest {
+
+    private static final int ROWS = 50;
+
+    @TestConfiguration
+    static class StubConfig {
+        @Bean
+        StubDataSource dataSource() {
+            return new StubDataSource();
+        }
+    }
+
+    @MockBean
+    PermissionTable permissionTable;
+    @MockBean
+    TaskFullTextSearcher fullTextSearcher;
+    @MockBean
+    ChangeLog changeLog;
+    @MockBean
+    TaskWriteBuffer writeBuffer;
+    @MockBean
+    Outbox outbox;
+    @MockBean
+    ProjectEventHub eventHub;
+
+    @Autowired
+    StubDataSource dataSource;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+    @Autowired
+    TaskService service;
+
+    Statistics statistics;
+
+    @BeforeEach
+    void setup() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        dataSource.getStatements().clear();
+        dataSource.returnRows(ROWS);
+    }
+
+    @Test
+    void test_search_preparesOneStatement_providedManyMatches() {
+        Set<TaskResponse> response = service.search(Map.of("name", "a"));
+
+        assertEquals(ROWS, response.size());
+        assertEquals(1, statistics.getPrepareStatementCount(), dataSource.getStatements()::toString);
+    }
+
+    @Test
+    void test_search_preparesOneStatement_providedExpandParam() {
+        Set<TaskResponse> response = service.search(Map.of("name", "a", "expand", "project,assignee,assigner"));
+
+        TaskResponse content = response.iterator().next();
+        assertAll(
+                () -> assertEquals(ROWS, response.size()),
+                () -> assertNotNull(content.getProject()),
+                () -> assertNotNull(content.getAssignee()),
+                () -> assertNotNull(content.getAssigner().getRoleName()));
+        assertEquals(1, statistics.getPrepareStatementCount(), dataSource.getStatements()::toString);
+    }
+
+    @Test
+    void test_searchPage_preparesOneStatement_providedExpandParam() {
+        PageResponse<TaskResponse> response = service.searchPage(Map.of("name", "a", "expand", "project,assigner"),
+                ROWS - 1, null);
+
+        assertEquals(ROWS - 1, response.getItems().size());
+        assertEquals(1, statistics.getPrepareStatementCount(), dataSource.getStatements()::toString);
+    }
+}
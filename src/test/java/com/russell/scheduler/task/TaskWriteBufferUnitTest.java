@@ -0,0 +1,122 @@
+package com.russell.scheduler.task;
+
+import com.russell.scheduler.task.dtos.NewTaskRequest;
+import com.russell.scheduler.task.dtos.TaskResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+class TaskWriteBufferUnitTest {
+
+    private TaskWriteBuffer buffer;
+    private final TaskEditWriter mockWriter = mock(TaskEditWriter.class);
+    private final UUID taskId = UUID.fromString("aa4a20aa-cc97-4f99-a09c-37b6fbd8087b");
+
+    @BeforeEach
+    public void setup() {
+        reset(mockWriter);
+        buffer = new TaskWriteBuffer(mockWriter, true, 2);
+    }
+
+    @Test
+    void test_flush_writesOnlyLatestEdit_providedBurstOfEditsToOneTask() {
+        NewTaskRequest last = edit("third");
+        buffer.offer(taskId, edit("first"));
+        buffer.offer(taskId, edit("second"));
+        buffer.offer(taskId, last);
+
+        buffer.flush();
+
+        verify(mockWriter, times(1)).write(Map.of(taskId, last));
+        assertEquals(0, buffer.getPendingCount());
+        assertEquals(3.0, buffer.getCoalescingRatio());
+    }
+
+    @Test
+    void test_flush_keepsEdits_providedWriteFails() {
+        buffer.offer(taskId, edit("first"));
+        when(mockWriter.write(anyMap())).thenThrow(new CannotCreateTransactionException("database unavailable"));
+
+        buffer.flush();
+
+        // assert the edit is still there, for reads and for the next flush
+        assertEquals(1, buffer.getPendingCount());
+        assertNotNull(buffer.bufferedVersion(taskId));
+        verify(mockWriter, times(1)).write(anyMap());
+    }
+
+    @Test
+    void test_flush_writesEditsSinglyAndDropsBadOne_providedBatchFails() {
+        UUID badTaskId = UUID.randomUUID();
+        NewTaskRequest good = edit("good");
+        NewTaskRequest bad = edit(null);
+        buffer.offer(taskId, good);
+        buffer.offer(badTaskId, bad);
+        when(mockWriter.write(anyMap())).thenAnswer(invocation -> {
+            if (invocation.<Map<UUID, NewTaskRequest>>getArgument(0).containsValue(bad))
+                throw new DataIntegrityViolationException("null value in column \"name\"");
+            return 1;
+        });
+
+        buffer.flush();
+
+        // assert the good edit is written on its own and the bad one is dropped, so neither blocks later flushes
+        verify(mockWriter, times(1)).write(Map.of(taskId, good));
+        verify(mockWriter, times(1)).write(Map.of(badTaskId, bad));
+        assertEquals(0, buffer.getPendingCount());
+        assertNull(buffer.bufferedVersion(badTaskId));
+    }
+
+    @Test
+    void test_overlay_appliesBufferedEdit_providedPendingTask() {
+        buffer.offer(taskId, edit("renamed"));
+        TaskResponse stored = new TaskResponse(taskId, "original", "desc", UUID.randomUUID(), null, null,
+                LocalDate.now(), LocalDate.now(), LocalDate.now(), 4);
+
+        TaskResponse response = buffer.overlay(stored);
+
+        assertEquals("renamed", response.getName());
+        assertEquals((long) buffer.bufferedVersion(taskId), response.getVersion());
+        assertTrue(response.getVersion() < 0);
+    }
+
+    @Test
+    void test_offer_returnsFalse_providedFullBuffer() {
+        assertTrue(buffer.offer(UUID.randomUUID(), edit("a")));
+        assertTrue(buffer.offer(taskId, edit("b")));
+
+        // a new task is turned away, but a task that's already buffered can still be replaced
+        assertFalse(buffer.offer(UUID.randomUUID(), edit("c")));
+        assertTrue(buffer.offer(taskId, edit("d")));
+    }
+
+    @Test
+    void test_offer_returnsFalse_providedWriteBehindDisabled() {
+        buffer = new TaskWriteBuffer(mockWriter, false, 2);
+
+        assertFalse(buffer.offer(taskId, edit("a")));
+    }
+
+    @Test
+    void test_drain_writesPendingEditsAndRefusesNewOnes() {
+        buffer.offer(taskId, edit("a"));
+
+        buffer.drain();
+
+        verify(mockWriter, times(1)).write(anyMap());
+        assertFalse(buffer.offer(taskId, edit("b")));
+    }
+
+    private static NewTaskRequest edit(String name) {
+        return new NewTaskRequest(name, "desc", LocalDate.now(), LocalDate.now(), UUID.randomUUID());
+    }
+}
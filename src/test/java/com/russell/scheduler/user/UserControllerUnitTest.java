@@ -1,8 +1,11 @@
 package com.russell.scheduler.user;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.russell.scheduler.auth.PermissionTable;
+import com.russell.scheduler.auth.TokenService;
 import com.russell.scheduler.common.dtos.RecordCreationResponse;
 import com.russell.scheduler.common.exceptions.RecordNotFoundException;
+import com.russell.scheduler.common.ratelimit.RateLimiter;
 import com.russell.scheduler.user.dtos.NewUserRequest;
 import com.russell.scheduler.user.dtos.UserResponse;
 import org.junit.jupiter.api.BeforeEach;
@@ -27,6 +30,12 @@ class UserControllerUnitTest {
     MockMvc mockMvc;
     @MockBean
     private UserService mockUserService;
+    @MockBean
+    private TokenService mockTokenService; // for AuthenticationFilter, which @WebMvcTest loads
+    @MockBean
+    private PermissionTable mockPermissionTable; // for PermissionInterceptor, registered by WebConfig
+    @MockBean
+    private RateLimiter mockRateLimiter; // for RateLimitInterceptor; a mock's 0 lets every request through
     private final String PATH = "/users";
     private final String CONTENT_TYPE = "application/json";
     private User mockUser1;
@@ -88,6 +97,22 @@ class UserControllerUnitTest {
                 .andReturn();
     }
 
+    @Test
+    void test_suggest_returnsRankedList_providedQuery() throws Exception {
+        UserResponse mockUserResp = new UserResponse(mockUser1);
+
+        when(mockUserService.suggest("mokuser", 10)).thenReturn(List.of(mockUserResp));
+
+        // assert the default limit is applied and the ranked order is kept as a JSON array
+        MvcResult result = mockMvc.perform(get(PATH+"/suggest")
+                        .param("q", "mokuser"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("content-type", CONTENT_TYPE))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(mockUserResp.getId().toString()))
+                .andReturn();
+    }
+
     @Test
     void test_search_returnsSetOfUserResponses_providedValidParam() throws Exception {
         UserResponse mockUserResp = new UserResponse(mockUser1);
@@ -120,12 +145,13 @@ class UserControllerUnitTest {
     @Test
     void test_create_returnsRecordCreationResponse_givenNewUserRequest() throws Exception {
         NewUserRequest req = new NewUserRequest(mockUser1.getUsername(), mockUser1.getPassword(), mockUser1.getEmail(),
-                mockUser1.getFirstName(), mockUser1.getLastName(), mockUser1.getRole().getRoleName());
+                mockUser1.getFirstName(), mockUser1.getLastName(), null);
         RecordCreationResponse resp = new RecordCreationResponse();
         resp.setId("aa4a20aa-cc97-4f99-a09c-37b6fbd8087b");
         ObjectMapper json = new ObjectMapper();
 
-        when(mockUserService.create(req)).thenReturn(resp);
+        // no token, so the service is told this is a self-registration
+        when(mockUserService.create(req, null)).thenReturn(resp);
 
         MvcResult result = mockMvc.perform(post(PATH)
                         .contentType(CONTENT_TYPE)
@@ -1,12 +1,18 @@
 package com.russell.scheduler.user;
 
+import com.russell.scheduler.auth.PasswordHasher;
+import com.russell.scheduler.auth.Permission;
+import com.russell.scheduler.auth.PermissionTable;
 import com.russell.scheduler.auth.dtos.AuthRequest;
+import com.russell.scheduler.auth.dtos.Principal;
 import com.russell.scheduler.common.EntitySearcher;
 import com.russell.scheduler.common.dtos.RecordCreationResponse;
+import com.russell.scheduler.common.exceptions.AuthorizationException;
 import com.russell.scheduler.common.exceptions.InvalidCredentialsException;
 import com.russell.scheduler.common.exceptions.RecordNotFoundException;
 import com.russell.scheduler.common.exceptions.RecordPersistenceException;
 import com.russell.scheduler.user.dtos.NewUserRequest;
+import com.russell.scheduler.user.dtos.UserCredentials;
 import com.russell.scheduler.user.dtos.UserResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -22,15 +28,25 @@ class UserServiceUnitTest {
     private final UserRepository mockUserRepo = mock(UserRepository.class);
     private final UserRoleRepository mockUserRoleRepo = mock(UserRoleRepository.class);
     private final EntitySearcher mockEntitySearcher = mock(EntitySearcher.class);
+    private final PasswordHasher mockPasswordHasher = mock(PasswordHasher.class);
+    private final UserWriter mockUserWriter = mock(UserWriter.class);
+    private final PermissionTable mockPermissionTable = mock(PermissionTable.class);
     private User mockUser1;
     private User mockUser2;
     private UserRole mockRole;
+    private UserRole viewerRole;
+    private Principal admin;
 
     @BeforeEach
     public void setup() {
-        reset(mockUserRepo, mockUserRoleRepo, mockEntitySearcher);
-        service = new UserService(mockUserRepo, mockUserRoleRepo, mockEntitySearcher);
+        reset(mockUserRepo, mockUserRoleRepo, mockEntitySearcher, mockPasswordHasher, mockUserWriter, mockPermissionTable);
+        service = new UserService(mockUserRepo, mockUserRoleRepo, mockEntitySearcher, mockPasswordHasher, mockUserWriter,
+                mockPermissionTable);
         mockRole = new UserRole(1, "ADMIN", 1);
+        viewerRole = new UserRole(2, "VIEWER", 4);
+        admin = new Principal(UUID.randomUUID().toString(), mockRole.getRoleName());
+        when(mockPermissionTable.allows(mockRole.getRoleName(), Permission.MANAGE_USERS.getBit())).thenReturn(true);
+        when(mockUserRoleRepo.findFirstByOrderByPriorityDesc()).thenReturn(Optional.of(viewerRole));
         mockUser1 = new User(UUID.fromString("aa4a20aa-cc97-4f99-a09c-37b6fbd8087b"),
                 "mockuser1", "mock@user.one", "first1", "last1",
                 "P@ssword1", mockRole);
@@ -40,61 +56,97 @@ class UserServiceUnitTest {
     }
 
     @Test
-    void test_authenticate_returnUserResponse_providedAuthRequest() {
+    void test_authenticate_returnPrincipal_providedAuthRequest() {
         AuthRequest request = new AuthRequest();
         request.setUsername(mockUser1.getUsername());
-        request.setPassword(mockUser1.getPassword());
+        request.setPassword("P@ssword1");
+        String storedHash = "$2a$10$storedHash";
 
-        when(mockUserRepo.findUserByUsernameAndPassword(request.getUsername(), request.getPassword()))
-                .thenReturn(Optional.of(mockUser1));
+        when(mockUserRepo.findCredentialsByUsername(request.getUsername()))
+                .thenReturn(Optional.of(new UserCredentials(mockUser1.getId(), storedHash, mockRole.getRoleName())));
+        when(mockPasswordHasher.matches(request.getPassword(), storedHash)).thenReturn(true);
 
-        UserResponse response = service.authenticate(request);
+        Principal response = service.authenticate(request);
 
-        // assert all fields of the generated response match the test user, and that the repo was only
-        // queried once
+        // assert the principal carries the user's id and role, and that a current hash isn't rewritten
         assertAll(
-                () -> assertEquals(mockUser1.getId(), response.getId()),
-                () -> assertEquals(mockUser1.getUsername(), response.getUsername()),
-                () -> assertEquals(mockUser1.getRole().getRoleName(), response.getRoleName()));
-        verify(mockUserRepo, times(1))
-                .findUserByUsernameAndPassword(mockUser1.getUsername(), mockUser1.getPassword());
+                () -> assertEquals(mockUser1.getId().toString(), response.getAuthUserId()),
+                () -> assertEquals(mockRole.getRoleName(), response.getAuthUserRole()));
+        verify(mockUserRepo, times(1)).findCredentialsByUsername(request.getUsername());
+        verify(mockUserRepo, times(0)).updatePassword(any(), any());
     }
 
     @Test
-    void test_authenticate_throwsInvalidCredentialsException_providedBadUsername() {
+    void test_authenticate_rehashesPassword_providedOutdatedHash() {
+        AuthRequest request = new AuthRequest();
+        request.setUsername(mockUser1.getUsername());
+        request.setPassword(mockUser1.getPassword());
+
+        // a plaintext row from before passwords were hashed
+        when(mockUserRepo.findCredentialsByUsername(request.getUsername()))
+                .thenReturn(Optional.of(new UserCredentials(mockUser1.getId(), mockUser1.getPassword(), mockRole.getRoleName())));
+        when(mockPasswordHasher.matches(request.getPassword(), mockUser1.getPassword())).thenReturn(true);
+        when(mockPasswordHasher.needsRehash(mockUser1.getPassword())).thenReturn(true);
+        when(mockPasswordHasher.hash(request.getPassword())).thenReturn("$2a$10$newHash");
+
+        service.authenticate(request);
+
+        verify(mockUserRepo, times(1)).updatePassword(mockUser1.getId(), "$2a$10$newHash");
+    }
+
+    @Test
+    void test_authenticate_throwsInvalidCredentialsException_providedBadPassword() {
         AuthRequest request = new AuthRequest();
         request.setUsername(mockUser1.getUsername());
         request.setPassword("wrongP@ssword");
+        String storedHash = "$2a$10$storedHash";
 
-        when(mockUserRepo.findUserByUsernameAndPassword(request.getUsername(), request.getPassword()))
-                .thenReturn(Optional.empty());
+        when(mockUserRepo.findCredentialsByUsername(request.getUsername()))
+                .thenReturn(Optional.of(new UserCredentials(mockUser1.getId(), storedHash, mockRole.getRoleName())));
+        when(mockPasswordHasher.matches(request.getPassword(), storedHash)).thenReturn(false);
 
         // assert the InvalidCredentialsException is thrown on authentication
         InvalidCredentialsException exception = assertThrows(
                 InvalidCredentialsException.class,
                 () -> service.authenticate(request));
 
-        // assert the proper message is returned, and that the repo was only queried once
+        // assert the proper message is returned, and that nothing was rehashed
+        assertEquals("Invalid username or password", exception.getMessage());
+        verify(mockPasswordHasher, times(0)).hash(anyString());
+    }
+
+    @Test
+    void test_authenticate_throwsInvalidCredentialsException_providedBadUsername() {
+        AuthRequest request = new AuthRequest();
+        request.setUsername("doesnotexist");
+        request.setPassword("P@ssword1");
+
+        when(mockUserRepo.findCredentialsByUsername(request.getUsername())).thenReturn(Optional.empty());
+
+        InvalidCredentialsException exception = assertThrows(
+                InvalidCredentialsException.class,
+                () -> service.authenticate(request));
+
+        // assert an unknown user still goes through a hash check, so it takes as long as a wrong password
         assertEquals("Invalid username or password", exception.getMessage());
-        verify(mockUserRepo, times(1))
-                .findUserByUsernameAndPassword(request.getUsername(), request.getPassword());
+        verify(mockPasswordHasher, times(1)).matches(request.getPassword(), null);
     }
 
     @Test
     void test_findAllUsers_returnSetOfUserResponses_providedRepoReturnsUsers() {
-        List<User> mockUsers = Arrays.asList(mockUser1, mockUser2);
-        when(mockUserRepo.findAll()).thenReturn(mockUsers);
+        Set<UserResponse> mockUsers = Set.of(new UserResponse(mockUser1), new UserResponse(mockUser2));
+        when(mockUserRepo.findAllResponses()).thenReturn(mockUsers);
 
         Set<UserResponse> response = service.findAll();
 
         // assert the proper number of users was returned, and that the repo was only queried once
         assertEquals(mockUsers.size(), response.size());
-        verify(mockUserRepo, times(1)).findAll();
+        verify(mockUserRepo, times(1)).findAllResponses();
     }
 
     @Test
     void test_findSingleUser_returnUserResponse_providedUserId() {
-        when(mockUserRepo.findById(mockUser1.getId())).thenReturn(Optional.of(mockUser1));
+        when(mockUserRepo.findResponseById(mockUser1.getId())).thenReturn(Optional.of(new UserResponse(mockUser1)));
 
         UserResponse response = service.findOne(mockUser1.getId());
 
@@ -104,14 +156,14 @@ class UserServiceUnitTest {
                 () -> assertEquals(mockUser1.getId(), response.getId()),
                 () -> assertEquals(mockUser1.getUsername(), response.getUsername()),
                 () -> assertEquals(mockUser1.getRole().getRoleName(), response.getRoleName()));
-        verify(mockUserRepo, times(1)).findById(mockUser1.getId());
+        verify(mockUserRepo, times(1)).findResponseById(mockUser1.getId());
     }
 
     @Test
     void test_findSingleUser_throwsRecordNotFoundException_providedBadUserId() {
         UUID badUserId = UUID.randomUUID();
 
-        when(mockUserRepo.findById(badUserId)).thenReturn(Optional.empty());
+        when(mockUserRepo.findResponseById(badUserId)).thenReturn(Optional.empty());
 
         // assert the InvalidCredentialsException is thrown on authentication
         RecordNotFoundException exception = assertThrows(
@@ -120,16 +172,16 @@ class UserServiceUnitTest {
 
         // assert the proper message is returned, and that the repo was only queried once
         assertEquals("Record could not be found with the given search parameters", exception.getMessage());
-        verify(mockUserRepo, times(1)).findById(badUserId);
+        verify(mockUserRepo, times(1)).findResponseById(badUserId);
     }
 
     @Test
     void test_search_returnsSetOfUserResponses_providedValidParam() {
-        Set<User> mockUsers = Set.of(mockUser1);
+        Set<UserResponse> mockUsers = Set.of(new UserResponse(mockUser1));
 
         Map<String, String> criteria = new HashMap<>();
         criteria.put("username", mockUser1.getUsername());
-        when(mockEntitySearcher.search(criteria, User.class)).thenReturn(mockUsers);
+        when(mockEntitySearcher.search(criteria, User.class, UserResponse.PROJECTION)).thenReturn(mockUsers);
 
         Set<UserResponse> response = service.search(criteria);
         // assert the proper number of users was returned
@@ -139,26 +191,26 @@ class UserServiceUnitTest {
                 () -> assertEquals(mockUser1.getId(), content.getId()),
                 () -> assertEquals(mockUser1.getUsername(), content.getUsername()),
                 () -> assertEquals(mockUser1.getRole().getRoleName(), content.getRoleName()));
-        verify(mockEntitySearcher, times(1)).search(criteria, User.class);
+        verify(mockEntitySearcher, times(1)).search(criteria, User.class, UserResponse.PROJECTION);
     }
 
     @Test
     void test_search_redirectsToFindAll_providedEmptyParams() {
-        List<User> mockUsers = Arrays.asList(mockUser1, mockUser2);
-        when(mockUserRepo.findAll()).thenReturn(mockUsers);
+        Set<UserResponse> mockUsers = Set.of(new UserResponse(mockUser1), new UserResponse(mockUser2));
+        when(mockUserRepo.findAllResponses()).thenReturn(mockUsers);
 
         Set<UserResponse> response = service.search(new HashMap<String,String>());
 
         // assert the proper number of users was returned, and that the repo was only queried once
         assertEquals(mockUsers.size(), response.size());
-        verify(mockUserRepo, times(1)).findAll();
+        verify(mockUserRepo, times(1)).findAllResponses();
     }
 
     @Test
     void test_search_throwsRecordNotFoundException_providedBadParam() {
         Map<String, String> criteria = new HashMap<>();
         criteria.put("username", "doesnotexist");
-        when(mockEntitySearcher.search(criteria, User.class)).thenReturn(new HashSet<>());
+        when(mockEntitySearcher.search(criteria, User.class, UserResponse.PROJECTION)).thenReturn(new HashSet<>());
 
         // assert the InvalidCredentialsException is thrown on authentication
         RecordNotFoundException exception = assertThrows(
@@ -167,7 +219,20 @@ class UserServiceUnitTest {
 
         // assert the proper message is returned, and that the repo was only queried once
         assertEquals("Record could not be found with the given search parameters", exception.getMessage());
-        verify(mockEntitySearcher, times(1)).search(criteria, User.class);
+        verify(mockEntitySearcher, times(1)).search(criteria, User.class, UserResponse.PROJECTION);
+    }
+
+    @Test
+    void test_create_storesHashedPassword_providedNewUserRequest() {
+        NewUserRequest request = new NewUserRequest(mockUser1.getUsername(), mockUser1.getPassword(),
+                mockUser1.getEmail(), mockUser1.getFirstName(), mockUser1.getLastName(), null);
+        when(mockPasswordHasher.hashNewPassword(request.getPassword())).thenReturn("$2a$10$hashed");
+
+        RecordCreationResponse response = service.create(request, null);
+
+        // assert the plaintext password never reaches the repository
+        verify(mockUserWriter, times(1)).insert(argThat((User user) ->
+                user.getPassword().equals("$2a$10$hashed") && user.getId().toString().equals(response.getId())));
     }
 
     @Test
@@ -178,20 +243,20 @@ class UserServiceUnitTest {
         request.setEmail(mockUser1.getEmail());
         request.setFirstName(mockUser1.getFirstName());
         request.setLastName(mockUser1.getLastName());
-        request.setRoleName(mockUser1.getRole().getRoleName());
 
         when(mockUserRepo.existsByUsername(request.getUsername())).thenReturn(true);
 
         RecordPersistenceException exception = assertThrows(
                 RecordPersistenceException.class,
-                () -> service.create(request));
+                () -> service.create(request, null));
 
         // Assert
         assertEquals("That username is taken", exception.getMessage());
         verify(mockUserRepo, times(1)).existsByUsername(request.getUsername());
         verify(mockUserRepo, times(0)).existsByEmail(anyString());
         verify(mockUserRoleRepo, times(0)).findUserRoleByRoleName(anyString());
-        verify(mockUserRepo, times(0)).save(any());
+        verify(mockPasswordHasher, times(0)).hashNewPassword(anyString());
+        verify(mockUserWriter, times(0)).insert(any());
     }
 
     @Test
@@ -202,20 +267,19 @@ class UserServiceUnitTest {
         request.setEmail(mockUser1.getEmail());
         request.setFirstName(mockUser1.getFirstName());
         request.setLastName(mockUser1.getLastName());
-        request.setRoleName(mockUser1.getRole().getRoleName());
 
         when(mockUserRepo.existsByEmail(request.getEmail())).thenReturn(true);
 
         RecordPersistenceException exception = assertThrows(
                 RecordPersistenceException.class,
-                () -> service.create(request));
+                () -> service.create(request, null));
 
         // Assert
         assertEquals("That email address is already associated with another user", exception.getMessage());
         verify(mockUserRepo, times(1)).existsByUsername(request.getUsername());
         verify(mockUserRepo, times(1)).existsByEmail(anyString());
         verify(mockUserRoleRepo, times(0)).findUserRoleByRoleName(anyString());
-        verify(mockUserRepo, times(0)).save(any());
+        verify(mockUserWriter, times(0)).insert(any());
     }
 
     @Test
@@ -232,14 +296,14 @@ class UserServiceUnitTest {
 
         RecordPersistenceException exception = assertThrows(
                 RecordPersistenceException.class,
-                () -> service.create(request));
+                () -> service.create(request, admin));
 
         // Assert
         assertEquals("Invalid role supplied", exception.getMessage());
         verify(mockUserRepo, times(1)).existsByUsername(request.getUsername());
         verify(mockUserRepo, times(1)).existsByEmail(anyString());
         verify(mockUserRoleRepo, times(1)).findUserRoleByRoleName(anyString());
-        verify(mockUserRepo, times(0)).save(any());
+        verify(mockUserWriter, times(0)).insert(any());
     }
 
     @Test
@@ -250,22 +314,67 @@ class UserServiceUnitTest {
         request.setEmail(mockUser1.getEmail());
         request.setFirstName(mockUser1.getFirstName());
         request.setLastName(mockUser1.getLastName());
-        request.setRoleName(mockUser1.getRole().getRoleName());
 
         when(mockUserRepo.existsByUsername(request.getUsername())).thenReturn(false);
         when(mockUserRepo.existsByEmail(request.getEmail())).thenReturn(false);
-        when(mockUserRoleRepo.findUserRoleByRoleName(request.getRoleName())).thenReturn(Optional.of(mockRole));
-        when(mockUserRepo.save(any(User.class))).thenReturn(any(User.class));
 
-        RecordCreationResponse response = service.create(request);
+        RecordCreationResponse response = service.create(request, null);
 
         // Assert
         assertNotNull(response);
         assertNotNull(response.getId());
         verify(mockUserRepo, times(1)).existsByUsername(request.getUsername());
         verify(mockUserRepo, times(1)).existsByEmail(anyString());
-        verify(mockUserRepo, times(1)).save(any());
+        verify(mockUserWriter, times(1)).insert(any());
     }
 
+    @Test
+    void test_create_assignsLeastPrivilegedRole_providedNoRoleName() {
+        NewUserRequest request = new NewUserRequest(mockUser1.getUsername(), mockUser1.getPassword(),
+                mockUser1.getEmail(), mockUser1.getFirstName(), mockUser1.getLastName(), null);
+
+        service.create(request, null);
+
+        verify(mockUserWriter, times(1)).insert(argThat((User user) -> user.getRole() == viewerRole));
+        verify(mockUserRoleRepo, times(0)).findUserRoleByRoleName(anyString());
+    }
+
+    @Test
+    void test_create_throwsAuthorizationException_providedRoleNameOnSelfRegistration() {
+        NewUserRequest request = new NewUserRequest(mockUser1.getUsername(), mockUser1.getPassword(),
+                mockUser1.getEmail(), mockUser1.getFirstName(), mockUser1.getLastName(), mockRole.getRoleName());
+        Principal member = new Principal(UUID.randomUUID().toString(), "MEMBER");
 
+        // assert neither an anonymous caller nor one without MANAGE_USERS can pick the role, and nothing is written
+        assertAll(
+                () -> assertThrows(AuthorizationException.class, () -> service.create(request, null)),
+                () -> assertThrows(AuthorizationException.class, () -> service.create(request, member)));
+        verify(mockUserRoleRepo, times(0)).findUserRoleByRoleName(anyString());
+        verify(mockUserWriter, times(0)).insert(any());
+    }
+
+    @Test
+    void test_create_assignsChosenRole_providedUserAdministrator() {
+        NewUserRequest request = new NewUserRequest(mockUser1.getUsername(), mockUser1.getPassword(),
+                mockUser1.getEmail(), mockUser1.getFirstName(), mockUser1.getLastName(), mockRole.getRoleName());
+        when(mockUserRoleRepo.findUserRoleByRoleName(mockRole.getRoleName())).thenReturn(Optional.of(mockRole));
+
+        service.create(request, admin);
+
+        verify(mockUserWriter, times(1)).insert(argThat((User user) -> user.getRole() == mockRole));
+    }
+
+    @Test
+    void test_suggest_findsUserByUsernameTypo_afterIndexIsBuilt() {
+        when(mockUserRepo.findAllResponses()).thenReturn(
+                Set.of(new UserResponse(mockUser1), new UserResponse(mockUser2)));
+
+        service.buildSuggestIndex();
+        List<UserResponse> response = service.suggest("mokuser1", 10);
+
+        // both users share most trigrams, but the one matching the trailing digit ranks first
+        assertEquals(2, response.size());
+        assertEquals(mockUser1.getId(), response.get(0).getId());
+        verify(mockUserRepo, times(1)).findAllResponses();
+    }
 }